@@ -0,0 +1,555 @@
+package com.alerts;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.data_management.DataStorage;
+import com.data_management.OutputFileDataReader;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+
+/**
+ * Replays historical data through alert strategies to find out which alerts they would have
+ * raised, e.g. before changing thresholds.
+ *
+ * <p>The clock is simulated: each patient's records in the replayed time range are fed in
+ * timestamp order to the evaluators of the {@link IncrementalAlertStrategy incremental}
+ * strategies, which raise alerts at the timestamps of the records completing them, as
+ * {@link AlertGenerator#evaluateNewData} would have live. Other strategies are checked every
+ * {@link #setBatchIntervalMillis batch interval} of simulated time over the preceding 20
+ * minutes, from the first replayed record on, as {@link AlertGenerator#evaluateData} would
+ * have been on a schedule. Nothing waits for the wall clock, so a replay runs as fast as the
+ * strategies evaluate, and patients are replayed in parallel.
+ *
+ * <p>History is either a {@link DataStorage}, which holds all of it in memory, or the
+ * simulator's output files, opened with {@link #fromOutputDirectory}. Output files are first
+ * split by patient into {@value #PARTITIONS} partitions in a temporary directory, and each
+ * worker loads, replays and drops one partition at a time. A replay then holds one partition
+ * per worker in memory, however long the history.
+ *
+ * <p>Alerts are counted before any {@link AlertLifecycle} suppression.
+ */
+public class AlertBacktester implements Closeable {
+
+    private static final long DEFAULT_BATCH_INTERVAL_MILLIS = 60000;
+    private static final int PARTITIONS = 256;
+    private static final String PATIENT_PREFIX = "Patient ID: ";
+
+    // The history in memory, or null if it is partitioned on disk.
+    private final DataStorage history;
+    // The directory of the partitions of the output files, or null.
+    private final Path partitions;
+    private final int parallelism;
+    private volatile long batchIntervalMillis = DEFAULT_BATCH_INTERVAL_MILLIS;
+
+    /**
+     * Constructs a backtester over the specified history, using every available processor.
+     *
+     * @param history the storage holding the data to replay
+     */
+    public AlertBacktester(DataStorage history) {
+        this(history, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a backtester over the specified history.
+     *
+     * @param history     the storage holding the data to replay
+     * @param parallelism the number of patients replayed at the same time
+     */
+    public AlertBacktester(DataStorage history, int parallelism) {
+        this(history, null, parallelism);
+    }
+
+    private AlertBacktester(DataStorage history, Path partitions, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.history = history;
+        this.partitions = partitions;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Constructs a backtester over the {@code <label>.txt} files written by the simulator's
+     * {@code --output file:} option in a directory, without loading them into memory: the
+     * files are split by patient into partitions in a temporary directory, removed by
+     * {@link #close()}, and each replay loads one partition at a time per worker.
+     *
+     * @param directory   the output directory
+     * @param parallelism the number of partitions replayed at the same time
+     * @return the backtester
+     * @throws IOException if a file cannot be read or the partitions cannot be written
+     */
+    public static AlertBacktester fromOutputDirectory(Path directory, int parallelism) throws IOException {
+        Path partitions = Files.createTempDirectory("alert-backtest");
+        try {
+            for (String label : labels(directory)) {
+                partition(directory.resolve(label + ".txt"), partitions, label);
+            }
+        } catch (IOException | RuntimeException e) {
+            delete(partitions);
+            throw e;
+        }
+        return new AlertBacktester(null, partitions, parallelism);
+    }
+
+    /**
+     * Copies each line of an output file to the file of its label in the directory of its
+     * patient's partition. Lines without a patient ID go to partition 0, whose reader skips
+     * them as malformed.
+     */
+    private static void partition(Path file, Path partitions, String label) throws IOException {
+        BufferedWriter[] writers = new BufferedWriter[PARTITIONS];
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int partition = patientIdOf(line) % PARTITIONS;
+                if (writers[partition] == null) {
+                    Path directory = Files.createDirectories(partitions.resolve(Integer.toString(partition)));
+                    writers[partition] = Files.newBufferedWriter(directory.resolve(label + ".txt"),
+                            StandardCharsets.UTF_8);
+                }
+                writers[partition].write(line);
+                writers[partition].newLine();
+            }
+        } finally {
+            IOException failure = null;
+            for (BufferedWriter writer : writers) {
+                try {
+                    if (writer != null) {
+                        writer.close();
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Returns the patient ID an output line starts with, or 0 if it has none.
+     */
+    private static int patientIdOf(String line) {
+        if (!line.startsWith(PATIENT_PREFIX)) {
+            return 0;
+        }
+        int id = 0;
+        for (int i = PATIENT_PREFIX.length(); i < line.length() && id < Integer.MAX_VALUE / 10; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    private static List<String> labels(Path directory) throws IOException {
+        List<String> labels = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.txt")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                labels.add(name.substring(0, name.length() - ".txt".length()));
+            }
+        }
+        Collections.sort(labels);
+        return labels;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry)) {
+                    delete(entry);
+                } else {
+                    Files.delete(entry);
+                }
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Removes the partitions of a backtester over output files; does nothing for one over a
+     * storage.
+     *
+     * @throws IOException if the partitions cannot be removed
+     */
+    @Override
+    public void close() throws IOException {
+        if (partitions != null && Files.exists(partitions)) {
+            delete(partitions);
+        }
+    }
+
+    /**
+     * Loads every {@code <label>.txt} file written by the simulator's {@code --output file:}
+     * option in the directory into a new storage, separate from the live one. The storage
+     * holds the whole history; {@link #fromOutputDirectory} replays histories too large for
+     * memory.
+     *
+     * @param directory   the output directory
+     * @param parallelism the number of threads used to parse each file
+     * @return the storage holding the loaded data
+     * @throws IOException if a file cannot be read
+     */
+    public static DataStorage loadHistory(Path directory, int parallelism) throws IOException {
+        DataStorage storage = DataStorage.createDetached();
+        for (String label : labels(directory)) {
+            new OutputFileDataReader(directory.toString(), label).readData(storage, parallelism);
+        }
+        return storage;
+    }
+
+    /**
+     * Sets how often, in simulated time, strategies that are not incremental are checked.
+     *
+     * @param batchIntervalMillis the interval, in milliseconds
+     */
+    public void setBatchIntervalMillis(long batchIntervalMillis) {
+        if (batchIntervalMillis < 1) {
+            throw new IllegalArgumentException("Batch interval must be positive: " + batchIntervalMillis);
+        }
+        this.batchIntervalMillis = batchIntervalMillis;
+    }
+
+    /**
+     * Replays the records taken in the specified time range through the strategies.
+     *
+     * @param strategies the strategies to backtest
+     * @param from       the start of the time range, in milliseconds since the Unix epoch
+     * @param to         the end of the time range, in milliseconds since the Unix epoch
+     * @return the alerts the strategies would have raised
+     * @throws InterruptedException if interrupted while waiting for the replay
+     * @throws UncheckedIOException if a partition of the output files cannot be read
+     */
+    public Result run(List<? extends AlertStrategy> strategies, long from, long to) throws InterruptedException {
+        return replay(Collections.singletonList(new AlertStrategySet(new ArrayList<>(strategies))), from, to).get(0);
+    }
+
+    /**
+     * Replays the records taken in the specified time range through two sets of strategies
+     * in a single pass and compares the alerts they raise.
+     *
+     * @param baseline  the strategies in use
+     * @param candidate the strategies to compare them with
+     * @param from      the start of the time range, in milliseconds since the Unix epoch
+     * @param to        the end of the time range, in milliseconds since the Unix epoch
+     * @return the comparison
+     * @throws InterruptedException if interrupted while waiting for the replay
+     * @throws UncheckedIOException if a partition of the output files cannot be read
+     */
+    public Comparison compare(List<? extends AlertStrategy> baseline, List<? extends AlertStrategy> candidate,
+            long from, long to) throws InterruptedException {
+        List<AlertStrategySet> sets = new ArrayList<>();
+        sets.add(new AlertStrategySet(new ArrayList<>(baseline)));
+        sets.add(new AlertStrategySet(new ArrayList<>(candidate)));
+        List<Result> results = replay(sets, from, to);
+        return new Comparison(results.get(0), results.get(1));
+    }
+
+    private List<Result> replay(List<AlertStrategySet> sets, long from, long to) throws InterruptedException {
+        long start = System.nanoTime();
+        List<HistoryPart> parts = parts();
+        // Per set, the alerts of each patient by patient ID.
+        List<Map<Integer, List<Alert>>> alerts = new ArrayList<>();
+        for (int s = 0; s < sets.size(); s++) {
+            alerts.add(new ConcurrentSkipListMap<>());
+        }
+        AtomicInteger next = new AtomicInteger();
+        long interval = batchIntervalMillis;
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "alert-backtest");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long records = 0;
+        try {
+            List<Future<Long>> workers = new ArrayList<>();
+            for (int w = 0; w < parallelism; w++) {
+                workers.add(executor.submit(() -> {
+                    long replayed = 0;
+                    for (int i = next.getAndIncrement(); i < parts.size(); i = next.getAndIncrement()) {
+                        for (Patient patient : parts.get(i).load()) {
+                            List<PatientRecord> window = patient.getRecords(from, to);
+                            window.sort(Comparator.comparingLong(PatientRecord::getTimestamp));
+                            replayed += window.size();
+                            for (int s = 0; s < sets.size(); s++) {
+                                alerts.get(s).put(patient.getPatientId(),
+                                        replay(sets.get(s), patient, window, interval));
+                            }
+                        }
+                    }
+                    return replayed;
+                }));
+            }
+            for (Future<Long> worker : workers) {
+                records += worker.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            throw new IllegalStateException("Backtest failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        List<Result> results = new ArrayList<>();
+        for (Map<Integer, List<Alert>> perPatient : alerts) {
+            List<Alert> all = new ArrayList<>();
+            for (List<Alert> patientAlerts : perPatient.values()) {
+                all.addAll(patientAlerts);
+            }
+            results.add(new Result(all, records, elapsed));
+        }
+        return results;
+    }
+
+    /**
+     * Returns the parts of the history the workers take in turn: each patient of a storage, or
+     * each partition of output files.
+     */
+    private List<HistoryPart> parts() {
+        List<HistoryPart> parts = new ArrayList<>();
+        if (history != null) {
+            for (Patient patient : history.getAllPatients()) {
+                parts.add(() -> Collections.singletonList(patient));
+            }
+            return parts;
+        }
+        if (!Files.isDirectory(partitions)) {
+            throw new IllegalStateException("Backtester is closed");
+        }
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            Path directory = partitions.resolve(Integer.toString(partition));
+            if (Files.isDirectory(directory)) {
+                parts.add(() -> loadHistory(directory, 1).getAllPatients());
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * A part of the history, loaded by the worker replaying it.
+     */
+    private interface HistoryPart {
+        List<Patient> load() throws IOException;
+    }
+
+    /**
+     * Replays one patient's records, in timestamp order, through a set of strategies.
+     */
+    private static List<Alert> replay(AlertStrategySet set, Patient patient, List<PatientRecord> window,
+            long interval) {
+        List<Alert> alerts = new ArrayList<>();
+        AlertEvaluator[] evaluators = set.createEvaluators();
+        for (PatientRecord record : window) {
+            for (int index : set.consumersOf(record)) {
+                evaluators[index].evaluate(record, alerts::add);
+            }
+        }
+        if (!set.getBatchOnly().isEmpty() && !window.isEmpty()) {
+            // Tick from the first record to the last one, which lie within [from, to], at least
+            // once, even if every record shares one timestamp.
+            long end = window.get(window.size() - 1).getTimestamp();
+            int first = 0;
+            int last = 0;
+            long clock = window.get(0).getTimestamp();
+            do {
+                clock = end - clock > interval ? clock + interval : end;
+                // The window of records taken in (clock - 20 minutes, clock].
+                while (last < window.size() && window.get(last).getTimestamp() <= clock) {
+                    last++;
+                }
+                while (first < last && window.get(first).getTimestamp() < clock - AlertGenerator.WINDOW_MILLIS) {
+                    first++;
+                }
+                List<PatientRecord> records = window.subList(first, last);
+                for (AlertStrategy strategy : set.getBatchOnly()) {
+                    Alert alert = strategy.checkAlert(patient, records);
+                    if (alert != null) {
+                        alerts.add(alert);
+                    }
+                }
+            } while (clock < end);
+            alerts.sort(Comparator.comparingLong(Alert::getTimestamp));
+        }
+        return alerts;
+    }
+
+    /**
+     * The alerts raised by one backtest, ordered by patient and then by time.
+     */
+    public static final class Result {
+        private final List<Alert> alerts;
+        private final long recordCount;
+        private final long elapsedNanos;
+
+        private Result(List<Alert> alerts, long recordCount, long elapsedNanos) {
+            this.alerts = Collections.unmodifiableList(alerts);
+            this.recordCount = recordCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public List<Alert> getAlerts() {
+            return alerts;
+        }
+
+        public int getAlertCount() {
+            return alerts.size();
+        }
+
+        /**
+         * Returns the number of alerts raised for each condition.
+         *
+         * @return the counts, by condition in alphabetical order
+         */
+        public Map<String, Long> getCountsByCondition() {
+            Map<String, Long> counts = new TreeMap<>();
+            for (Alert alert : alerts) {
+                counts.merge(alert.getCondition(), 1L, Long::sum);
+            }
+            return counts;
+        }
+
+        /**
+         * Returns the number of records replayed.
+         *
+         * @return the record count
+         */
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * Returns the wall-clock time the replay took.
+         *
+         * @return the elapsed time, in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return getAlertCount() + " alerts from " + recordCount + " records in " + elapsedNanos / 1000000
+                    + " ms: " + getCountsByCondition();
+        }
+    }
+
+    /**
+     * The differences between the alerts of two backtests over the same data. Alerts are
+     * matched by patient, condition and timestamp.
+     */
+    public static final class Comparison {
+        private final Result baseline;
+        private final Result candidate;
+        private final List<Alert> removed;
+        private final List<Alert> added;
+
+        private Comparison(Result baseline, Result candidate) {
+            this.baseline = baseline;
+            this.candidate = candidate;
+            this.removed = Collections.unmodifiableList(unmatched(baseline.getAlerts(), candidate.getAlerts()));
+            this.added = Collections.unmodifiableList(unmatched(candidate.getAlerts(), baseline.getAlerts()));
+        }
+
+        /**
+         * Returns the alerts in {@code alerts} that have no match in {@code others}, pairing
+         * repeated alerts one to one.
+         */
+        private static List<Alert> unmatched(List<Alert> alerts, List<Alert> others) {
+            Map<String, Integer> available = new HashMap<>();
+            for (Alert other : others) {
+                available.merge(key(other), 1, Integer::sum);
+            }
+            List<Alert> unmatched = new ArrayList<>();
+            for (Alert alert : alerts) {
+                String key = key(alert);
+                Integer count = available.get(key);
+                if (count == null) {
+                    unmatched.add(alert);
+                } else if (count == 1) {
+                    available.remove(key);
+                } else {
+                    available.put(key, count - 1);
+                }
+            }
+            return unmatched;
+        }
+
+        private static String key(Alert alert) {
+            return alert.getPatientId() + '\u0000' + alert.getCondition() + '\u0000' + alert.getTimestamp();
+        }
+
+        public Result getBaseline() {
+            return baseline;
+        }
+
+        public Result getCandidate() {
+            return candidate;
+        }
+
+        /**
+         * Returns the alerts the baseline raised and the candidate did not.
+         *
+         * @return the removed alerts
+         */
+        public List<Alert> getRemoved() {
+            return removed;
+        }
+
+        /**
+         * Returns the alerts the candidate raised and the baseline did not.
+         *
+         * @return the added alerts
+         */
+        public List<Alert> getAdded() {
+            return added;
+        }
+
+        /**
+         * Returns, for every condition whose count differs, the candidate's count minus the
+         * baseline's.
+         *
+         * @return the count changes, by condition in alphabetical order
+         */
+        public Map<String, Long> getCountChanges() {
+            Map<String, Long> changes = new TreeMap<>(candidate.getCountsByCondition());
+            baseline.getCountsByCondition().forEach((condition, count) -> changes.merge(condition, -count, Long::sum));
+            changes.values().removeIf(change -> change == 0);
+            return changes;
+        }
+
+        @Override
+        public String toString() {
+            return baseline.getAlertCount() + " -> " + candidate.getAlertCount() + " alerts (+" + added.size() + " -"
+                    + removed.size() + "), by condition: " + getCountChanges();
+        }
+    }
+}
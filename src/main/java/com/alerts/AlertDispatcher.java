@@ -0,0 +1,290 @@
+package com.alerts;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Delivers alerts to {@link AlertSink sinks} asynchronously, so that a slow or unreachable sink
+ * never delays alert evaluation.
+ *
+ * <p>Every sink has its own lock-free queue and delivery thread. {@link #dispatch} only enqueues
+ * the alert and, if the delivery thread is idle, wakes it; it never blocks. A queue holds at most
+ * {@code capacity} alerts, plus at most {@code capacity} {@link AlertSeverity#CRITICAL critical}
+ * ones, which have a bound of their own so that a backlog of less severe alerts never keeps
+ * them out; alerts offered beyond either bound are dropped and counted. A sink is flushed
+ * whenever its queue runs empty, so alerts are batched under load and pushed out immediately
+ * otherwise.
+ *
+ * <p>Queued alerts are delivered by priority: the delivery thread moves newly queued alerts
+ * into a binary heap keyed by severity and then by age, so a critical alert is delivered next
+ * even behind a backlog of thousands of less severe ones, and alerts of the same severity are
+ * delivered in the order they were dispatched.
+ */
+public class AlertDispatcher implements Closeable {
+
+    private static final int DEFAULT_CAPACITY = 65_536;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int capacity;
+    private final Function<? super Alert, AlertSeverity> severity;
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public AlertDispatcher() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a dispatcher with an explicit queue bound.
+     *
+     * @param capacity the maximum number of alerts, and of critical alerts, queued per sink
+     */
+    public AlertDispatcher(int capacity) {
+        this(capacity, AlertSeverity::of);
+    }
+
+    /**
+     * Constructs a dispatcher with an explicit queue bound and severity classification.
+     *
+     * @param capacity the maximum number of alerts, and of critical alerts, queued per sink
+     * @param severity rates the alerts, which are delivered most severe first
+     */
+    public AlertDispatcher(int capacity, Function<? super Alert, AlertSeverity> severity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.severity = severity;
+    }
+
+    /**
+     * Adds a sink and starts its delivery thread. Alerts dispatched from now on are delivered
+     * to it.
+     *
+     * @param sink the sink to add
+     */
+    public void addSink(AlertSink sink) {
+        Channel channel = new Channel(sink);
+        channels.add(channel);
+        channel.thread.start();
+    }
+
+    /**
+     * Queues an alert for delivery to every sink. Never blocks.
+     *
+     * @param alert the alert to deliver
+     */
+    public void dispatch(Alert alert) {
+        if (channels.isEmpty()) {
+            return;
+        }
+        boolean critical = severity.apply(alert) == AlertSeverity.CRITICAL;
+        for (Channel channel : channels) {
+            channel.offer(alert, critical);
+        }
+    }
+
+    /**
+     * Stops the delivery threads after they have delivered every queued alert, then closes
+     * the sinks.
+     */
+    @Override
+    public void close() {
+        for (Channel channel : channels) {
+            channel.running = false;
+            LockSupport.unpark(channel.thread);
+        }
+        for (Channel channel : channels) {
+            try {
+                channel.thread.join(TimeUnit.SECONDS.toMillis(5));
+                channel.sink.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                System.err.println("Error closing alert sink: " + e.getMessage());
+            }
+        }
+        channels.clear();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    /**
+     * Returns the number of deliveries dropped because a sink's queue was full. Critical
+     * alerts are only dropped when a sink already has {@code capacity} critical alerts queued.
+     *
+     * @return the dropped delivery count
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of deliveries that failed with an exception.
+     *
+     * @return the failed delivery count
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * The queue and delivery thread of one sink.
+     */
+    private class Channel implements Runnable {
+        private final AlertSink sink;
+        private final ConcurrentLinkedQueue<Alert> queue = new ConcurrentLinkedQueue<>();
+        private final AlertHeap heap = new AlertHeap(); // accessed by the delivery thread only
+        private long sequence; // accessed by the delivery thread only
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicInteger criticalSize = new AtomicInteger();
+        private final Thread thread;
+        private volatile boolean parked;
+        private volatile boolean running = true;
+
+        Channel(AlertSink sink) {
+            this.sink = sink;
+            this.thread = new Thread(this, "alert-sink-" + sink.getClass().getSimpleName());
+            thread.setDaemon(true);
+        }
+
+        void offer(Alert alert, boolean critical) {
+            AtomicInteger queued = critical ? criticalSize : size;
+            if (queued.incrementAndGet() > capacity) {
+                queued.decrementAndGet();
+                dropped.increment();
+                return;
+            }
+            queue.offer(alert);
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty() || !heap.isEmpty()) {
+                Alert queued;
+                while ((queued = queue.poll()) != null) {
+                    heap.add(queued, severity.apply(queued).ordinal(), sequence++);
+                }
+                boolean critical = heap.peekRank() == AlertSeverity.CRITICAL.ordinal();
+                Alert alert = heap.poll();
+                if (alert == null) {
+                    flush();
+                    parked = true;
+                    // Re-check after publishing the flag so that a concurrent offer is not missed.
+                    if (queue.isEmpty() && running) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    parked = false;
+                    continue;
+                }
+                (critical ? criticalSize : size).decrementAndGet();
+                try {
+                    sink.deliver(alert);
+                    delivered.increment();
+                } catch (IOException | RuntimeException e) {
+                    failed.increment();
+                    System.err.println("Error delivering alert to " + sink.getClass().getSimpleName() + ": "
+                            + e.getMessage());
+                }
+            }
+            flush();
+        }
+
+        private void flush() {
+            try {
+                sink.flush();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error flushing " + sink.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A binary min-heap of alerts keyed by severity rank in the top byte and dispatch sequence
+     * number below it, so that the smallest key is the oldest of the most severe alerts.
+     */
+    private static final class AlertHeap {
+        private long[] keys = new long[64];
+        private Alert[] alerts = new Alert[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(Alert alert, int rank, long sequence) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                alerts = Arrays.copyOf(alerts, size * 2);
+            }
+            long key = (long) rank << 56 | sequence;
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                alerts[i] = alerts[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            alerts[i] = alert;
+        }
+
+        /**
+         * Returns the severity rank of the next alert, or -1 if the heap is empty.
+         */
+        int peekRank() {
+            return size == 0 ? -1 : (int) (keys[0] >>> 56);
+        }
+
+        Alert poll() {
+            if (size == 0) {
+                return null;
+            }
+            Alert first = alerts[0];
+            size--;
+            long key = keys[size];
+            Alert alert = alerts[size];
+            alerts[size] = null;
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                keys[i] = keys[child];
+                alerts[i] = alerts[child];
+                i = child;
+            }
+            if (size > 0) {
+                keys[i] = key;
+                alerts[i] = alert;
+            }
+            return first;
+        }
+    }
+}
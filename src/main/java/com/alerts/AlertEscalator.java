@@ -0,0 +1,262 @@
+package com.alerts;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Re-raises critical alerts that nobody has acknowledged. The first time a critical condition
+ * of a patient is emitted, an escalation is scheduled one interval later; when it comes due
+ * before the condition is {@link #acknowledge acknowledged} or resolved, an
+ * {@link EscalatedAlert} is emitted and the next escalation is scheduled, up to a maximum
+ * number of escalations.
+ *
+ * <p>Like {@link AlertLifecycle}, time is the alerts' own timestamps and the time passed to
+ * {@link #advance}. Pending escalations are kept in a hashed timing wheel of
+ * {@value #WHEEL_SIZE} slots, each {@code interval / }{@value #TICKS_PER_INTERVAL} wide:
+ * scheduling and cancelling are constant time, and advancing only visits the slots that
+ * have come due, so the cost does not depend on the number of pending escalations. An
+ * escalation is emitted by the first advance to its deadline or past it.
+ */
+public class AlertEscalator {
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int TICKS_PER_INTERVAL = 16;
+
+    private final long intervalMillis;
+    private final long tickMillis;
+    private final int maxEscalations;
+    private final Function<? super Alert, AlertSeverity> severity;
+
+    // Guarded by this.
+    private final Slot[] wheel = new Slot[WHEEL_SIZE];
+    private final Map<String, Map<String, Escalation>> pending = new HashMap<>();
+    private long currentTick = Long.MIN_VALUE; // the last tick whose slot has been emptied of due escalations
+    private long escalated;
+    private long acknowledged;
+
+    /**
+     * Constructs an escalator for the conditions {@link AlertSeverity#of} rates critical.
+     *
+     * @param intervalMillis how long a critical alert may stay unacknowledged before it is
+     *                       escalated, and again between escalations, in milliseconds
+     * @param maxEscalations the number of times an alert is escalated at most
+     */
+    public AlertEscalator(long intervalMillis, int maxEscalations) {
+        this(intervalMillis, maxEscalations, AlertSeverity::of);
+    }
+
+    /**
+     * Constructs an escalator with an explicit severity classification.
+     *
+     * @param intervalMillis how long a critical alert may stay unacknowledged before it is
+     *                       escalated, and again between escalations, in milliseconds
+     * @param maxEscalations the number of times an alert is escalated at most
+     * @param severity       rates alerts; only {@link AlertSeverity#CRITICAL} ones escalate
+     */
+    public AlertEscalator(long intervalMillis, int maxEscalations, Function<? super Alert, AlertSeverity> severity) {
+        if (intervalMillis <= 0 || maxEscalations < 1) {
+            throw new IllegalArgumentException("Invalid escalation: interval " + intervalMillis
+                    + " ms, " + maxEscalations + " escalations");
+        }
+        this.intervalMillis = intervalMillis;
+        this.tickMillis = Math.max(1, intervalMillis / TICKS_PER_INTERVAL);
+        this.maxEscalations = maxEscalations;
+        this.severity = severity;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new Slot();
+        }
+    }
+
+    /**
+     * Tracks an emitted alert: an unacknowledged critical alert schedules an escalation unless
+     * one is already pending for its condition, and a {@link ResolvedAlert} cancels the
+     * pending escalation of its condition. Escalations themselves are ignored.
+     *
+     * @param alert the emitted alert
+     */
+    public void track(Alert alert) {
+        if (alert instanceof EscalatedAlert) {
+            return;
+        }
+        if (alert instanceof ResolvedAlert) {
+            cancel(alert.getPatientId(), alert.getCondition());
+            return;
+        }
+        if (severity.apply(alert) != AlertSeverity.CRITICAL) {
+            return;
+        }
+        synchronized (this) {
+            Map<String, Escalation> conditions = pending.computeIfAbsent(alert.getPatientId(), id -> new HashMap<>());
+            if (conditions.containsKey(alert.getCondition())) {
+                return;
+            }
+            Escalation escalation = new Escalation(alert);
+            conditions.put(alert.getCondition(), escalation);
+            schedule(escalation, alert.getTimestamp() + intervalMillis);
+        }
+    }
+
+    /**
+     * Acknowledges a condition of a patient, cancelling its pending escalation. The next
+     * critical alert of the condition that is emitted starts a new one.
+     *
+     * @param patientId the patient ID, as carried by the alerts
+     * @param condition the alert condition
+     * @return {@code true} if an escalation was pending
+     */
+    public synchronized boolean acknowledge(String patientId, String condition) {
+        if (cancel(patientId, condition)) {
+            acknowledged++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Emits every escalation that has come due, scheduling the next escalation of each.
+     * Escalations are passed to the output in the order they came due, after the wheel has
+     * been updated, so the output may call back into the escalator.
+     *
+     * @param now    the current time, in milliseconds since the Unix epoch
+     * @param output receives the escalations
+     */
+    public void advance(long now, Consumer<? super Alert> output) {
+        List<EscalatedAlert> due = new ArrayList<>();
+        synchronized (this) {
+            long target = Math.floorDiv(now, tickMillis);
+            if (currentTick == Long.MIN_VALUE || target <= currentTick) {
+                return;
+            }
+            // Past a full turn, every slot has been visited once. The slot of the current tick
+            // may hold escalations due later within the tick; it is visited again next time.
+            long steps = Math.min(target - currentTick, WHEEL_SIZE);
+            for (long tick = currentTick + 1; tick <= currentTick + steps; tick++) {
+                Slot slot = wheel[(int) (tick & (WHEEL_SIZE - 1))];
+                Escalation escalation = slot.head;
+                while (escalation != null) {
+                    Escalation next = escalation.next;
+                    if (escalation.deadlineMillis <= now) {
+                        slot.remove(escalation);
+                        escalation.level++;
+                        escalated++;
+                        due.add(new EscalatedAlert(escalation.alert.getPatientId(), escalation.alert.getCondition(),
+                                escalation.deadlineMillis, escalation.alert.getTimestamp(), escalation.level));
+                        if (escalation.level < maxEscalations) {
+                            schedule(escalation, escalation.deadlineMillis + intervalMillis);
+                        } else {
+                            forget(escalation);
+                        }
+                    }
+                    escalation = next;
+                }
+            }
+            currentTick = target - 1;
+        }
+        due.sort((a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+        for (EscalatedAlert alert : due) {
+            output.accept(alert);
+        }
+    }
+
+    /**
+     * Returns whether an escalation of the specified condition is pending for the patient.
+     *
+     * @param patientId the patient ID, as carried by the alerts
+     * @param condition the alert condition
+     * @return {@code true} if the condition is critical and neither acknowledged, resolved
+     *         nor fully escalated
+     */
+    public synchronized boolean isPending(String patientId, String condition) {
+        Map<String, Escalation> conditions = pending.get(patientId);
+        return conditions != null && conditions.containsKey(condition);
+    }
+
+    public synchronized long getEscalatedCount() {
+        return escalated;
+    }
+
+    public synchronized long getAcknowledgedCount() {
+        return acknowledged;
+    }
+
+    private synchronized boolean cancel(String patientId, String condition) {
+        Map<String, Escalation> conditions = pending.get(patientId);
+        Escalation escalation = conditions == null ? null : conditions.get(condition);
+        if (escalation == null) {
+            return false;
+        }
+        escalation.slot.remove(escalation);
+        forget(escalation);
+        return true;
+    }
+
+    private void forget(Escalation escalation) {
+        Map<String, Escalation> conditions = pending.get(escalation.alert.getPatientId());
+        conditions.remove(escalation.alert.getCondition());
+        if (conditions.isEmpty()) {
+            pending.remove(escalation.alert.getPatientId());
+        }
+    }
+
+    /**
+     * Puts an escalation in the slot of the tick its deadline falls in. A deadline already
+     * passed fires at the next advance.
+     */
+    private void schedule(Escalation escalation, long deadlineMillis) {
+        long tick = Math.floorDiv(deadlineMillis, tickMillis);
+        if (currentTick == Long.MIN_VALUE) {
+            currentTick = tick - 1;
+        }
+        tick = Math.max(tick, currentTick + 1);
+        escalation.deadlineMillis = deadlineMillis;
+        wheel[(int) (tick & (WHEEL_SIZE - 1))].add(escalation);
+    }
+
+    /**
+     * A pending escalation; a node of the doubly linked list of its slot.
+     */
+    private static final class Escalation {
+        private final Alert alert;
+        private long deadlineMillis;
+        private int level;
+        private Slot slot;
+        private Escalation previous;
+        private Escalation next;
+
+        Escalation(Alert alert) {
+            this.alert = alert;
+        }
+    }
+
+    private static final class Slot {
+        private Escalation head;
+
+        void add(Escalation escalation) {
+            escalation.slot = this;
+            escalation.previous = null;
+            escalation.next = head;
+            if (head != null) {
+                head.previous = escalation;
+            }
+            head = escalation;
+        }
+
+        void remove(Escalation escalation) {
+            if (escalation.previous != null) {
+                escalation.previous.next = escalation.next;
+            } else {
+                head = escalation.next;
+            }
+            if (escalation.next != null) {
+                escalation.next.previous = escalation.previous;
+            }
+            escalation.slot = null;
+            escalation.previous = null;
+            escalation.next = null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.alerts;
+
+import java.util.function.Consumer;
+
+import com.data_management.PatientRecord;
+
+/**
+ * Evaluates one patient's records one at a time, keeping whatever state its
+ * {@link IncrementalAlertStrategy} needs between records.
+ *
+ * <p>Feeding an evaluator a sequence of records raises the same alert as the strategy's
+ * {@link AlertStrategy#checkAlert} would for that sequence. After raising an alert the
+ * evaluator starts over, as if a new batch began with the next record.
+ */
+public interface AlertEvaluator {
+
+    /**
+     * Feeds the next record of the patient to the evaluator.
+     *
+     * @param record the next record, in the order the records were stored
+     * @return an {@link Alert} if the record completes an alert condition, otherwise {@code null}
+     */
+    Alert evaluate(PatientRecord record);
+
+    /**
+     * Feeds the next record of the patient to the evaluator, passing every alert the record
+     * completes to the output. Evaluators that can raise several alerts on one record, such as
+     * those of rule-driven strategies, override this method.
+     *
+     * @param record the next record, in the order the records were stored
+     * @param output receives the alerts raised
+     */
+    default void evaluate(PatientRecord record, Consumer<? super Alert> output) {
+        Alert alert = evaluate(record);
+        if (alert != null) {
+            output.accept(alert);
+        }
+    }
+}
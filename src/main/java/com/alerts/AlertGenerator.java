@@ -1,9 +1,13 @@
 package com.alerts;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import com.data_management.DataStorage;
+import com.data_management.LatencyMetrics;
 import com.data_management.Patient;
 import com.data_management.PatientRecord;
 
@@ -15,8 +19,14 @@ import com.data_management.PatientRecord;
  */
 public class AlertGenerator {
     private DataStorage dataStorage;
-    private List<Alert> alerts;
-    private AlertStrategy alertStrategy;
+    private final AlertJournal journal;
+    private volatile AlertLifecycle lifecycle;
+    private volatile AlertDispatcher dispatcher;
+    private volatile AlertEscalator escalator;
+    private volatile AlertStrategySet strategies = AlertStrategySet.EMPTY;
+    static final long WINDOW_MILLIS = 1200000; // 20 minute time window.
+    private final ConcurrentHashMap<Integer, IncrementalState> incrementalStates = new ConcurrentHashMap<>();
+    private final Consumer<Alert> trigger = this::triggerAlert;
     // private static final int SLIDING_WINDOW_SIZE = 10; // Size of the sliding window for averaging ECG values
     // private static final double PEAK_THRESHOLD_MULTIPLIER = 1.5; // Multiplier to determine significant peaks
 
@@ -29,12 +39,47 @@ public class AlertGenerator {
      *                    data
      */
     public AlertGenerator(DataStorage dataStorage) {
+        this(dataStorage, new AlertJournal());
+    }
+
+    /**
+     * Constructs an {@code AlertGenerator} that records triggered alerts in the specified
+     * journal.
+     *
+     * @param dataStorage the data storage system that provides access to patient
+     *                    data
+     * @param journal     the journal in which triggered alerts are recorded
+     */
+    public AlertGenerator(DataStorage dataStorage, AlertJournal journal) {
         this.dataStorage = dataStorage;
-        this.alerts = new ArrayList<>();
+        this.journal = journal;
     }
 
-    public void setAlertStrategy(AlertStrategy alertStrategy) {
-        this.alertStrategy = alertStrategy;
+    /**
+     * Replaces every registered strategy with the specified one.
+     *
+     * @param alertStrategy the strategy to evaluate, or {@code null} to evaluate none
+     */
+    public synchronized void setAlertStrategy(AlertStrategy alertStrategy) {
+        strategies = alertStrategy == null
+                ? AlertStrategySet.EMPTY
+                : new AlertStrategySet(Collections.singletonList(alertStrategy));
+        incrementalStates.clear();
+    }
+
+    /**
+     * Registers an additional strategy. All registered strategies are evaluated together, in
+     * a single pass over each patient's records.
+     *
+     * @param alertStrategy the strategy to add
+     */
+    public synchronized void addAlertStrategy(AlertStrategy alertStrategy) {
+        strategies = strategies.with(alertStrategy);
+        incrementalStates.clear();
+    }
+
+    public List<AlertStrategy> getAlertStrategies() {
+        return strategies.getStrategies();
     }
 
     /**
@@ -45,15 +90,144 @@ public class AlertGenerator {
      * alert
      * will be triggered.
      *
+     * <p>The last 20 minutes of records are fetched once and every record is passed, in a
+     * single pass, to the evaluators of the {@link IncrementalAlertStrategy incremental}
+     * strategies that consume its type. Every alert raised along the way is triggered, not
+     * only the first one of each strategy. Other strategies are checked over the same records.
+     *
      * @param patient the patient data to evaluate for alert conditions
      */
     public void evaluateData(Patient patient) {
-        // Implementation goes here
-        // 20 minute time window.
-        if (alertStrategy != null) {
-            List<PatientRecord> records = dataStorage.getRecords(patient.getPatientId(), System.currentTimeMillis() - 1200000, System.currentTimeMillis());
-            Alert triggeredAlert = alertStrategy.checkAlert(patient, records);
-            if (triggeredAlert != null){
+        AlertStrategySet set = strategies;
+        if (set.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<PatientRecord> records = dataStorage.getRecords(patient.getPatientId(), now - WINDOW_MILLIS, now);
+        dispatch(set, set.createEvaluators(), records, trigger);
+        checkBatchOnly(set, patient, records);
+    }
+
+    /**
+     * Evaluates only the records added to the specified patient since the previous call,
+     * continuing from the state the strategies' {@link AlertEvaluator evaluators} kept for the
+     * patient. The cost of an evaluation is therefore proportional to the new data rather than
+     * to the 20 minute window that {@link #evaluateData} rescans, and every alert is raised
+     * once, when the record completing it arrives.
+     *
+     * <p>An evaluator restarts after raising an alert, so the alerts raised match those found
+     * by re-running {@link #evaluateData} from the record after each previous alert. Unlike
+     * {@link #evaluateData}, state is not limited to the last 20 minutes. Strategies that
+     * are not {@link IncrementalAlertStrategy incremental} are checked as by
+     * {@link #evaluateData}.
+     *
+     * <p>When every incremental strategy declares the record types it consumes, only the
+     * patient's series of those types are read, so records no strategy consumes are never
+     * touched.
+     *
+     * <p>The {@link LatencyMetrics.Stage#EVALUATE evaluation} and
+     * {@link LatencyMetrics.Stage#ALERT alert} latencies of the new records are recorded;
+     * rescans by {@link #evaluateData} are not, as they revisit old records.
+     *
+     * @param patient the patient whose new data is evaluated for alert conditions
+     */
+    public void evaluateNewData(Patient patient) {
+        AlertStrategySet set = strategies;
+        if (set.getIncremental().length == 0) {
+            evaluateData(patient);
+            return;
+        }
+        IncrementalState state = incrementalStates.computeIfAbsent(patient.getPatientId(),
+                id -> new IncrementalState(set, new TimedTrigger()));
+        if (state.strategies != set) {
+            // The strategies changed since the state was created; start over.
+            IncrementalState stale = state;
+            state = incrementalStates.compute(patient.getPatientId(),
+                    (id, current) -> current == stale ? new IncrementalState(set, new TimedTrigger()) : current);
+        }
+        synchronized (state) {
+            List<PatientRecord> newRecords;
+            String[] recordTypes = state.strategies.getRecordTypes();
+            if (recordTypes != null) {
+                newRecords = dataStorage.getRecordsFrom(patient.getPatientId(), recordTypes, state.typeCursors);
+            } else {
+                newRecords = dataStorage.getRecordsFrom(patient.getPatientId(), state.cursor);
+                state.cursor += newRecords.size();
+            }
+            LatencyMetrics metrics = LatencyMetrics.getInstance();
+            if (metrics.isEnabled()) {
+                dispatch(state.strategies, state.evaluators, newRecords, state.trigger);
+                metrics.record(LatencyMetrics.Stage.EVALUATE, newRecords);
+            } else {
+                dispatch(state.strategies, state.evaluators, newRecords, trigger);
+            }
+        }
+        if (!set.getBatchOnly().isEmpty()) {
+            long now = System.currentTimeMillis();
+            checkBatchOnly(set, patient, dataStorage.getRecords(patient.getPatientId(), now - WINDOW_MILLIS, now));
+        }
+    }
+
+    /**
+     * Evaluates, with {@link #evaluateNewData}, every patient that received data since the
+     * previous drain of the storage's dirty patients, skipping patients whose new records are
+     * all of types no registered strategy consumes. The cost of a sweep is therefore
+     * proportional to the ingest rate rather than to the number of patients.
+     *
+     * <p>The first sweep claims the storage's dirty patients for this generator (see
+     * {@link DataStorage#drainDirtyPatients}); an {@link AlertService} cannot drain the same
+     * storage until {@link #releaseDirtyPatients()} is called.
+     *
+     * @return the number of patients evaluated
+     * @throws IllegalStateException if another consumer drains the storage's dirty patients
+     */
+    public int evaluateDirtyPatients() {
+        int[] evaluated = new int[1];
+        dataStorage.drainDirtyPatients(this, (patient, recordTypes) -> {
+            if (consumesAny(recordTypes)) {
+                evaluateNewData(patient);
+                evaluated[0]++;
+            }
+        });
+        return evaluated[0];
+    }
+
+    /**
+     * Gives up the claim of {@link #evaluateDirtyPatients()} on the storage's dirty patients.
+     */
+    public void releaseDirtyPatients() {
+        dataStorage.releaseDirtyPatients(this);
+    }
+
+    /**
+     * Returns whether new records of any of the specified types are relevant to the
+     * registered strategies.
+     */
+    boolean consumesAny(Set<String> recordTypes) {
+        return strategies.consumesAny(recordTypes);
+    }
+
+    /**
+     * Passes each record to the evaluators interested in its type, triggering every alert
+     * they raise.
+     */
+    private void dispatch(AlertStrategySet set, AlertEvaluator[] evaluators, List<PatientRecord> records,
+            Consumer<Alert> output) {
+        TimedTrigger timed = output instanceof TimedTrigger ? (TimedTrigger) output : null;
+        for (PatientRecord record : records) {
+            if (timed != null) {
+                timed.record = record;
+            }
+            for (int index : set.consumersOf(record)) {
+                evaluators[index].evaluate(record, output);
+            }
+        }
+    }
+
+    private void checkBatchOnly(AlertStrategySet set, Patient patient, List<PatientRecord> records) {
+        for (AlertStrategy strategy : set.getBatchOnly()) {
+            Alert triggeredAlert = strategy.checkAlert(patient, records);
+            if (triggeredAlert != null) {
                 triggerAlert(triggeredAlert);
             }
         }
@@ -65,18 +239,118 @@ public class AlertGenerator {
      * currently assumes that the alert information is fully formed when passed as
      * an argument.
      *
+     * <p>When an {@link AlertLifecycle} is set, only the alerts it lets through (episode
+     * openings and re-notifications) are recorded.
+     *
      * @param alert the alert object containing details about the alert condition
      */
     private void triggerAlert(Alert alert) {
         // Implementation might involve logging the alert or notifying staff
         // Logs the alert generated.
-        alerts.add(alert);
+        AlertLifecycle current = lifecycle;
+        if (current != null) {
+            current.process(alert, this::emit);
+        } else {
+            emit(alert);
+        }
+    }
+
+    /**
+     * Records an alert in the journal, hands it to the escalator, if any, to track, and to the
+     * dispatcher, if any, for delivery.
+     */
+    private void emit(Alert alert) {
+        journal.append(alert);
+        AlertEscalator currentEscalator = escalator;
+        if (currentEscalator != null) {
+            currentEscalator.track(alert);
+        }
+        AlertDispatcher current = dispatcher;
+        if (current != null) {
+            current.dispatch(alert);
+        }
+    }
+
+    /**
+     * Delivers every recorded alert, including resolve events, to the sinks of the specified
+     * dispatcher. Delivery is asynchronous and never delays evaluation.
+     *
+     * @param dispatcher the dispatcher, or {@code null} to only record alerts
+     */
+    public void setAlertDispatcher(AlertDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Routes triggered alerts through the specified lifecycle layer, which suppresses repeats
+     * of open conditions and emits re-notifications and resolve events.
+     *
+     * @param lifecycle the lifecycle layer, or {@code null} to record every triggered alert
+     */
+    public void setAlertLifecycle(AlertLifecycle lifecycle) {
+        this.lifecycle = lifecycle;
+    }
+
+    /**
+     * Re-raises recorded critical alerts that are not acknowledged in time through the
+     * specified escalator.
+     *
+     * @param escalator the escalator, or {@code null} to never escalate
+     */
+    public void setAlertEscalator(AlertEscalator escalator) {
+        this.escalator = escalator;
+    }
+
+    /**
+     * Acknowledges a condition of a patient, so that it is no longer escalated.
+     *
+     * @param patientId the patient ID, as carried by the alerts
+     * @param condition the alert condition
+     * @return {@code true} if an escalation of the condition was pending
+     */
+    public boolean acknowledge(String patientId, String condition) {
+        AlertEscalator current = escalator;
+        return current != null && current.acknowledge(patientId, condition);
     }
+
+    /**
+     * Records an {@link EscalatedAlert} for every critical alert whose escalation has come
+     * due. Does nothing if no escalator is set.
+     *
+     * @param now the current time, in milliseconds since the Unix epoch
+     */
+    public void escalateDue(long now) {
+        AlertEscalator current = escalator;
+        if (current != null) {
+            current.advance(now, this::emit);
+        }
+    }
+
+    /**
+     * Records a {@link ResolvedAlert} for every open condition that has not been raised for
+     * the lifecycle's suppression window. Does nothing if no lifecycle is set.
+     *
+     * @param now the current time, in milliseconds since the Unix epoch
+     */
+    public void resolveExpiredAlerts(long now) {
+        AlertLifecycle current = lifecycle;
+        if (current != null) {
+            current.resolveExpired(now, this::emit);
+        }
+    }
+    /**
+     * Returns a snapshot of the retained alerts, in the order in which they were triggered.
+     *
+     * @return an unmodifiable list of the alerts
+     */
     public List<Alert> getAllAlerts(){
-        return this.alerts;
+        return journal.getAllAlerts();
     }
     public Alert getAlertAt(int index){
-        return this.alerts.get(index);
+        return journal.getAlertAt(index);
+    }
+    public AlertJournal getJournal(){
+        return journal;
     }
     // Added methods.
     public int systolicTrend(double systolic1, double systolic2) {
@@ -108,4 +382,41 @@ public class AlertGenerator {
     }
 
     // Added methods.
+
+    /**
+     * The incremental evaluation state of one patient: how many of its records, or of its
+     * records of each consumed type, have been evaluated and the state each strategy built
+     * from them.
+     */
+    private static class IncrementalState {
+        private final AlertStrategySet strategies;
+        private final AlertEvaluator[] evaluators;
+        private final TimedTrigger trigger;
+        private final int[] typeCursors;
+        private int cursor;
+
+        IncrementalState(AlertStrategySet strategies, TimedTrigger trigger) {
+            this.strategies = strategies;
+            this.evaluators = strategies.createEvaluators();
+            this.trigger = trigger;
+            String[] recordTypes = strategies.getRecordTypes();
+            this.typeCursors = recordTypes != null ? new int[recordTypes.length] : null;
+        }
+    }
+
+    /**
+     * Triggers alerts raised by the record being dispatched, recording the latency from that
+     * record's ingest, and from its timestamp, to the alert.
+     */
+    private class TimedTrigger implements Consumer<Alert> {
+        private PatientRecord record;
+
+        @Override
+        public void accept(Alert alert) {
+            LatencyMetrics metrics = LatencyMetrics.getInstance();
+            metrics.record(LatencyMetrics.Stage.ALERT, record.getIngestNanos());
+            metrics.recordSinceTimestamp(LatencyMetrics.Stage.SOURCE_TO_ALERT, record.getTimestamp());
+            triggerAlert(alert);
+        }
+    }
 }
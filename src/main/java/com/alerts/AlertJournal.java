@@ -0,0 +1,465 @@
+package com.alerts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe, bounded record of raised alerts, indexed by patient, condition and time.
+ *
+ * <p>Alerts are kept per patient in a timestamp-sorted ring, guarded by a lock of that patient
+ * only, so alerts of different patients are appended concurrently. Each alert is also indexed
+ * in concurrent skip lists by kind and condition and by append order, which are updated under
+ * the patient's lock so that an alert is never evicted before it has been indexed. The kind
+ * separates raised alerts from the lifecycle events recorded under their condition, such as
+ * {@link ResolvedAlert} and {@link EscalatedAlert}.
+ *
+ * <p>Retention is bounded per patient: once a patient has {@code maxAlertsPerPatient} alerts,
+ * its oldest alert is evicted for every new one, and alerts older than {@code maxAgeMillis}
+ * before the patient's newest alert are evicted as well. Retention is also bounded globally:
+ * once the journal holds more than {@code maxAlerts} alerts, the alerts appended first are
+ * evicted, and a patient left without alerts is dropped, so patients that go quiet do not
+ * accumulate. Queries by patient, condition and time range cost a binary search or skip list
+ * seek plus the size of the result, regardless of how many alerts have been raised.
+ */
+public class AlertJournal {
+
+    private static final int DEFAULT_MAX_ALERTS_PER_PATIENT = 10_000;
+    private static final int DEFAULT_MAX_ALERTS = 1_000_000;
+
+    private static final Comparator<Entry> BY_TIME = Comparator.<Entry>comparingLong(e -> e.timestamp)
+            .thenComparingLong(e -> e.sequence);
+
+    private final int maxAlertsPerPatient;
+    private final long maxAgeMillis;
+    private final int maxAlerts;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger retained = new AtomicInteger();
+    private final ConcurrentHashMap<String, PatientAlerts> byPatient = new ConcurrentHashMap<>();
+    private final EnumMap<Kind, ConcurrentHashMap<String, ConcurrentSkipListSet<Entry>>> byCondition =
+            new EnumMap<>(Kind.class);
+    private final ConcurrentSkipListMap<Long, Entry> bySequence = new ConcurrentSkipListMap<>();
+
+    /**
+     * Constructs a journal keeping the latest {@value #DEFAULT_MAX_ALERTS_PER_PATIENT} alerts of
+     * each patient, regardless of their age, and at most {@value #DEFAULT_MAX_ALERTS} alerts in
+     * total.
+     */
+    public AlertJournal() {
+        this(DEFAULT_MAX_ALERTS_PER_PATIENT, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a journal with explicit per-patient retention bounds, keeping at most
+     * {@value #DEFAULT_MAX_ALERTS} alerts in total.
+     *
+     * @param maxAlertsPerPatient the maximum number of alerts kept per patient
+     * @param maxAgeMillis        how long before a patient's newest alert its alerts are kept,
+     *                            in milliseconds
+     */
+    public AlertJournal(int maxAlertsPerPatient, long maxAgeMillis) {
+        this(maxAlertsPerPatient, maxAgeMillis, DEFAULT_MAX_ALERTS);
+    }
+
+    /**
+     * Constructs a journal with explicit retention bounds.
+     *
+     * @param maxAlertsPerPatient the maximum number of alerts kept per patient
+     * @param maxAgeMillis        how long before a patient's newest alert its alerts are kept,
+     *                            in milliseconds
+     * @param maxAlerts           the maximum number of alerts kept in total
+     */
+    public AlertJournal(int maxAlertsPerPatient, long maxAgeMillis, int maxAlerts) {
+        if (maxAlertsPerPatient < 1 || maxAgeMillis < 0 || maxAlerts < 1) {
+            throw new IllegalArgumentException("Invalid retention: " + maxAlertsPerPatient + " alerts per patient, "
+                    + maxAgeMillis + " ms, " + maxAlerts + " alerts");
+        }
+        this.maxAlertsPerPatient = maxAlertsPerPatient;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxAlerts = maxAlerts;
+        for (Kind kind : Kind.values()) {
+            byCondition.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Records an alert, evicting the alerts that fall outside the retention bounds.
+     *
+     * @param alert the alert to record
+     */
+    public void append(Alert alert) {
+        Entry entry = new Entry(alert, sequence.incrementAndGet());
+        while (!byPatient.computeIfAbsent(alert.getPatientId(), PatientAlerts::new).append(entry)) {
+            // The patient was dropped, empty, after it was looked up; look it up again.
+        }
+        // Evicted outside the patient's lock, as the oldest alert may be another patient's.
+        while (retained.get() > maxAlerts) {
+            evictOldest();
+        }
+    }
+
+    /**
+     * Returns the alerts of a patient with a timestamp in the specified range, in timestamp
+     * order.
+     *
+     * @param patientId the patient ID, as carried by the alerts
+     * @param startTime the start of the time range, inclusive
+     * @param endTime   the end of the time range, inclusive
+     * @return the matching alerts
+     */
+    public List<Alert> getAlerts(String patientId, long startTime, long endTime) {
+        return getAlerts(patientId, null, startTime, endTime);
+    }
+
+    /**
+     * Returns the alerts of a patient for a condition with a timestamp in the specified range,
+     * in timestamp order.
+     *
+     * @param patientId the patient ID, as carried by the alerts
+     * @param condition the condition, or {@code null} for every condition
+     * @param startTime the start of the time range, inclusive
+     * @param endTime   the end of the time range, inclusive
+     * @return the matching alerts, of every kind
+     */
+    public List<Alert> getAlerts(String patientId, String condition, long startTime, long endTime) {
+        return getAlerts(patientId, condition, null, startTime, endTime);
+    }
+
+    /**
+     * Returns the alerts of a kind of a patient for a condition with a timestamp in the
+     * specified range, in timestamp order.
+     *
+     * @param patientId the patient ID, as carried by the alerts
+     * @param condition the condition, or {@code null} for every condition
+     * @param kind      the kind of the alerts, or {@code null} for every kind
+     * @param startTime the start of the time range, inclusive
+     * @param endTime   the end of the time range, inclusive
+     * @return the matching alerts
+     */
+    public List<Alert> getAlerts(String patientId, String condition, Kind kind, long startTime, long endTime) {
+        PatientAlerts patient = byPatient.get(patientId);
+        if (patient == null) {
+            return new ArrayList<>();
+        }
+        return patient.range(condition, kind, startTime, endTime);
+    }
+
+    /**
+     * Returns the raised alerts of every patient for a condition with a timestamp in the
+     * specified range, in timestamp order. Lifecycle events of the condition are left out.
+     *
+     * @param condition the condition
+     * @param startTime the start of the time range, inclusive
+     * @param endTime   the end of the time range, inclusive
+     * @return the matching alerts
+     */
+    public List<Alert> getAlertsByCondition(String condition, long startTime, long endTime) {
+        return getAlertsByCondition(condition, Kind.RAISED, startTime, endTime);
+    }
+
+    /**
+     * Returns the alerts of a kind of every patient for a condition with a timestamp in the
+     * specified range, in timestamp order.
+     *
+     * @param condition the condition
+     * @param kind      the kind of the alerts
+     * @param startTime the start of the time range, inclusive
+     * @param endTime   the end of the time range, inclusive
+     * @return the matching alerts
+     */
+    public List<Alert> getAlertsByCondition(String condition, Kind kind, long startTime, long endTime) {
+        List<Alert> result = new ArrayList<>();
+        NavigableSet<Entry> entries = byCondition.get(kind).get(condition);
+        if (entries == null || startTime > endTime) {
+            return result;
+        }
+        for (Entry entry : entries.subSet(Entry.bound(startTime, Long.MIN_VALUE), true,
+                Entry.bound(endTime, Long.MAX_VALUE), true)) {
+            result.add(entry.alert);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a snapshot of every retained alert, in the order in which they were appended.
+     *
+     * @return an unmodifiable list of the retained alerts
+     */
+    public List<Alert> getAllAlerts() {
+        List<Alert> alerts = new ArrayList<>(retained.get());
+        for (Entry entry : bySequence.values()) {
+            alerts.add(entry.alert);
+        }
+        return Collections.unmodifiableList(alerts);
+    }
+
+    /**
+     * Returns the retained alert at the specified position in append order. While the retained
+     * alerts are a contiguous run of the append sequence, which holds unless a patient's own
+     * bounds evicted an alert ahead of older alerts of other patients, the position maps to a
+     * sequence number and the alert is found by a single lookup in the sequence index;
+     * otherwise the index is walked from its oldest alert.
+     *
+     * @param index the position of the alert
+     * @return the alert at that position
+     * @throws IndexOutOfBoundsException if fewer alerts are retained
+     */
+    public Alert getAlertAt(int index) {
+        if (index >= 0 && index < retained.get()) {
+            Map.Entry<Long, Entry> first = bySequence.firstEntry();
+            Map.Entry<Long, Entry> last = bySequence.lastEntry();
+            if (first != null && last != null && last.getKey() - first.getKey() + 1 == retained.get()) {
+                Entry entry = bySequence.get(first.getKey() + index);
+                if (entry != null) {
+                    return entry.alert;
+                }
+            }
+            int i = 0;
+            for (Entry entry : bySequence.values()) {
+                if (i++ == index) {
+                    return entry.alert;
+                }
+            }
+        }
+        throw new IndexOutOfBoundsException("Index: " + index);
+    }
+
+    /**
+     * Returns the number of retained alerts.
+     *
+     * @return the retained alert count
+     */
+    public int size() {
+        return retained.get();
+    }
+
+    /**
+     * Returns the number of patients with retained alerts.
+     *
+     * @return the patient count
+     */
+    public int getPatientCount() {
+        return byPatient.size();
+    }
+
+    private void evictOldest() {
+        Map.Entry<Long, Entry> oldest = bySequence.firstEntry();
+        if (oldest == null) {
+            return;
+        }
+        PatientAlerts patient = byPatient.get(oldest.getValue().alert.getPatientId());
+        if (patient != null) {
+            patient.evict(oldest.getValue());
+        }
+    }
+
+    private void index(Entry entry) {
+        retained.incrementAndGet();
+        bySequence.put(entry.sequence, entry);
+        byCondition.get(entry.kind).computeIfAbsent(entry.alert.getCondition(), c -> new ConcurrentSkipListSet<>(BY_TIME))
+                .add(entry);
+    }
+
+    private void unindex(Entry entry) {
+        retained.decrementAndGet();
+        bySequence.remove(entry.sequence);
+        ConcurrentSkipListSet<Entry> entries = byCondition.get(entry.kind).get(entry.alert.getCondition());
+        if (entries != null) {
+            entries.remove(entry);
+        }
+    }
+
+    /**
+     * What a journal entry records about its condition.
+     */
+    public enum Kind {
+        /** The condition was raised. */
+        RAISED,
+        /** An open condition was resolved; see {@link ResolvedAlert}. */
+        RESOLVED,
+        /** An unacknowledged alert was escalated; see {@link EscalatedAlert}. */
+        ESCALATED;
+
+        /**
+         * Returns the kind of an alert.
+         *
+         * @param alert the alert
+         * @return the kind of the alert
+         */
+        public static Kind of(Alert alert) {
+            if (alert instanceof ResolvedAlert) {
+                return RESOLVED;
+            }
+            if (alert instanceof EscalatedAlert) {
+                return ESCALATED;
+            }
+            return RAISED;
+        }
+    }
+
+    /**
+     * A recorded alert with its kind and append sequence number.
+     */
+    private static class Entry {
+        private final Alert alert;
+        private final Kind kind;
+        private final long timestamp;
+        private final long sequence;
+
+        Entry(Alert alert, long sequence) {
+            this(alert, Kind.of(alert), alert.getTimestamp(), sequence);
+        }
+
+        private Entry(Alert alert, Kind kind, long timestamp, long sequence) {
+            this.alert = alert;
+            this.kind = kind;
+            this.timestamp = timestamp;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Returns a search key for the condition index.
+         */
+        static Entry bound(long timestamp, long sequence) {
+            return new Entry(null, null, timestamp, sequence);
+        }
+    }
+
+    /**
+     * The alerts of one patient, in a timestamp-sorted ring buffer.
+     */
+    private class PatientAlerts {
+        private final String patientId;
+        private Entry[] entries = new Entry[8];
+        private int head;
+        private int size;
+        private boolean dropped;
+
+        PatientAlerts(String patientId) {
+            this.patientId = patientId;
+        }
+
+        /**
+         * Appends an entry, unless the patient has been dropped from the journal.
+         *
+         * @return whether the entry was appended
+         */
+        synchronized boolean append(Entry entry) {
+            if (dropped) {
+                return false;
+            }
+            if (size == maxAlertsPerPatient) {
+                evictHead();
+            }
+            if (size == entries.length) {
+                grow();
+            }
+            int mask = entries.length - 1;
+            int position = size;
+            // Alerts mostly arrive in timestamp order; shift the few later ones up by one.
+            while (position > 0 && entries[(head + position - 1) & mask].timestamp > entry.timestamp) {
+                entries[(head + position) & mask] = entries[(head + position - 1) & mask];
+                position--;
+            }
+            entries[(head + position) & mask] = entry;
+            size++;
+            index(entry);
+
+            if (maxAgeMillis != Long.MAX_VALUE) {
+                long oldest = entries[(head + size - 1) & mask].timestamp - maxAgeMillis;
+                while (entries[head].timestamp < oldest) {
+                    evictHead();
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Evicts an entry for the journal's global bound, dropping the patient if it was its
+         * last one. Does nothing if the entry has already been evicted.
+         */
+        synchronized void evict(Entry target) {
+            int mask = entries.length - 1;
+            int position = firstAtOrAfter(target.timestamp);
+            while (position < size && entries[(head + position) & mask] != target) {
+                if (entries[(head + position) & mask].timestamp > target.timestamp) {
+                    return;
+                }
+                position++;
+            }
+            if (position == size) {
+                return;
+            }
+            // The oldest entry is usually at or near the head; close the gap from that side.
+            for (; position > 0; position--) {
+                entries[(head + position) & mask] = entries[(head + position - 1) & mask];
+            }
+            entries[head] = null;
+            head = (head + 1) & mask;
+            size--;
+            unindex(target);
+            if (size == 0) {
+                dropped = true;
+                byPatient.remove(patientId, this);
+            }
+        }
+
+        synchronized List<Alert> range(String condition, Kind kind, long startTime, long endTime) {
+            List<Alert> result = new ArrayList<>();
+            int mask = entries.length - 1;
+            for (int i = firstAtOrAfter(startTime); i < size; i++) {
+                Entry entry = entries[(head + i) & mask];
+                if (entry.timestamp > endTime) {
+                    break;
+                }
+                if ((condition == null || condition.equals(entry.alert.getCondition()))
+                        && (kind == null || kind == entry.kind)) {
+                    result.add(entry.alert);
+                }
+            }
+            return result;
+        }
+
+        private int firstAtOrAfter(long timestamp) {
+            int mask = entries.length - 1;
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (entries[(head + middle) & mask].timestamp < timestamp) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private void evictHead() {
+            Entry evicted = entries[head];
+            entries[head] = null;
+            head = (head + 1) & (entries.length - 1);
+            size--;
+            unindex(evicted);
+        }
+
+        private void grow() {
+            Entry[] grown = new Entry[entries.length * 2];
+            int mask = entries.length - 1;
+            for (int i = 0; i < size; i++) {
+                grown[i] = entries[(head + i) & mask];
+            }
+            entries = grown;
+            head = 0;
+        }
+    }
+}
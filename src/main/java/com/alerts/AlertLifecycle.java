@@ -0,0 +1,176 @@
+package com.alerts;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Turns the stream of alerts raised by the strategies into alert episodes: the first alert of a
+ * condition for a patient opens an episode and is emitted, repeats are suppressed, and an
+ * episode that has not been raised again for the suppression window is resolved with a
+ * {@link ResolvedAlert}. While an episode stays open, a repeat is emitted again as a
+ * re-notification once the re-notify interval has passed since the last emitted alert.
+ *
+ * <p>Time is the alerts' own timestamps, and the time passed to {@link #resolveExpired}, so
+ * replayed data behaves as it did live. State is one small record per open patient and
+ * condition. {@link #process} only does lock-free map lookups and compare-and-set updates of
+ * that record.
+ */
+public class AlertLifecycle {
+
+    // Marks an episode as closed in lastSeen; a closed episode is never reopened.
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final long suppressionWindowMillis;
+    private final long reNotifyIntervalMillis;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Episode>> episodes = new ConcurrentHashMap<>();
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder reNotified = new LongAdder();
+    private final LongAdder resolved = new LongAdder();
+
+    /**
+     * Constructs a lifecycle layer.
+     *
+     * @param suppressionWindowMillis how long after its last occurrence a condition stays open
+     *                                and its repeats are suppressed, in milliseconds
+     * @param reNotifyIntervalMillis  how often an open condition that keeps being raised is
+     *                                emitted again, in milliseconds; {@code Long.MAX_VALUE}
+     *                                disables re-notification
+     */
+    public AlertLifecycle(long suppressionWindowMillis, long reNotifyIntervalMillis) {
+        if (suppressionWindowMillis < 0 || reNotifyIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Invalid lifecycle: window " + suppressionWindowMillis
+                    + " ms, re-notify interval " + reNotifyIntervalMillis + " ms");
+        }
+        this.suppressionWindowMillis = suppressionWindowMillis;
+        this.reNotifyIntervalMillis = reNotifyIntervalMillis;
+    }
+
+    /**
+     * Processes a raised alert, passing it to the output if it opens an episode or is due
+     * for re-notification. If the previous episode of the condition has expired but was not
+     * resolved yet, its {@link ResolvedAlert} is passed to the output first.
+     *
+     * @param alert  the raised alert
+     * @param output receives the alerts to emit
+     */
+    public void process(Alert alert, Consumer<? super Alert> output) {
+        long now = alert.getTimestamp();
+        ConcurrentHashMap<String, Episode> conditions = episodes.get(alert.getPatientId());
+        if (conditions == null) {
+            conditions = episodes.computeIfAbsent(alert.getPatientId(), id -> new ConcurrentHashMap<>());
+        }
+        while (true) {
+            Episode episode = conditions.get(alert.getCondition());
+            if (episode == null) {
+                episode = new Episode(now);
+                if (conditions.putIfAbsent(alert.getCondition(), episode) == null) {
+                    opened.increment();
+                    output.accept(alert);
+                    return;
+                }
+                continue;
+            }
+            long seen = episode.lastSeen.get();
+            if (seen == CLOSED) {
+                // Resolved concurrently; replace it with a new episode.
+                conditions.remove(alert.getCondition(), episode);
+                continue;
+            }
+            if (now - seen > suppressionWindowMillis) {
+                if (episode.lastSeen.compareAndSet(seen, CLOSED)) {
+                    resolve(alert.getPatientId(), alert.getCondition(), episode, seen + suppressionWindowMillis,
+                            output);
+                    conditions.remove(alert.getCondition(), episode);
+                }
+                continue;
+            }
+            if (now > seen && !episode.lastSeen.compareAndSet(seen, now)) {
+                continue;
+            }
+            long notified = episode.lastNotified.get();
+            if (now - notified >= reNotifyIntervalMillis && episode.lastNotified.compareAndSet(notified, now)) {
+                reNotified.increment();
+                output.accept(alert);
+            } else {
+                suppressed.increment();
+            }
+            return;
+        }
+    }
+
+    /**
+     * Resolves every open episode whose condition has not been raised for the suppression
+     * window, passing a {@link ResolvedAlert} for each to the output.
+     *
+     * @param now    the current time, in milliseconds since the Unix epoch
+     * @param output receives the resolve events
+     */
+    public void resolveExpired(long now, Consumer<? super Alert> output) {
+        for (Map.Entry<String, ConcurrentHashMap<String, Episode>> patient : episodes.entrySet()) {
+            for (Map.Entry<String, Episode> condition : patient.getValue().entrySet()) {
+                Episode episode = condition.getValue();
+                long seen = episode.lastSeen.get();
+                if (seen != CLOSED && now - seen > suppressionWindowMillis
+                        && episode.lastSeen.compareAndSet(seen, CLOSED)) {
+                    resolve(patient.getKey(), condition.getKey(), episode, now, output);
+                    patient.getValue().remove(condition.getKey(), episode);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the specified condition is currently open for the patient.
+     *
+     * @param patientId the patient ID, as carried by the alerts
+     * @param condition the alert condition
+     * @return {@code true} if an episode of the condition is open
+     */
+    public boolean isOpen(String patientId, String condition) {
+        Map<String, Episode> conditions = episodes.get(patientId);
+        Episode episode = conditions == null ? null : conditions.get(condition);
+        return episode != null && episode.lastSeen.get() != CLOSED;
+    }
+
+    private void resolve(String patientId, String condition, Episode episode, long timestamp,
+            Consumer<? super Alert> output) {
+        resolved.increment();
+        output.accept(new ResolvedAlert(patientId, condition, timestamp, episode.openedAt));
+    }
+
+    public long getOpenedCount() {
+        return opened.sum();
+    }
+
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    public long getReNotifiedCount() {
+        return reNotified.sum();
+    }
+
+    public long getResolvedCount() {
+        return resolved.sum();
+    }
+
+    /**
+     * An open alert episode of one patient and condition.
+     */
+    private static class Episode {
+        private final long openedAt;
+        private final AtomicLong lastSeen;
+        private final AtomicLong lastNotified;
+
+        Episode(long openedAt) {
+            this.openedAt = openedAt;
+            this.lastSeen = new AtomicLong(openedAt);
+            this.lastNotified = new AtomicLong(openedAt);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.alerts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+
+/**
+ * Drives an {@link AlertGenerator} continuously, evaluating the new data of every patient in
+ * the {@link DataStorage} within one period of its arrival.
+ *
+ * <p>The period is divided into slots of {@value #TICK_MILLIS} ms and every patient is assigned
+ * a fixed, pseudo-random slot, so evaluations are spread evenly over the period instead of all
+ * patients becoming due at the same instant. Only patients that received data of a type the
+ * registered strategies consume since their previous evaluation are queued for their slot
+ * (see {@link DataStorage#drainDirtyPatients}, which a running service owns), so the cost of a
+ * period is proportional to the ingest rate rather than to the number of patients. The
+ * patients of a due slot are evaluated on a work-stealing {@link ForkJoinPool}. A patient is
+ * never evaluated by two threads at once: if its previous evaluation is still running when it
+ * becomes due again, the evaluation is skipped, counted, and the patient is queued for its
+ * next slot. Every tick, unacknowledged critical alerts that have come due are escalated (see
+ * {@link AlertGenerator#escalateDue}); once per period, expired alert episodes are resolved
+ * (see {@link AlertGenerator#resolveExpiredAlerts}).
+ *
+ * <p>Evaluation lag is the time between the moment a patient's slot became due and the moment
+ * its evaluation started; it grows when the pool cannot keep up with the period.
+ */
+public class AlertService {
+
+    private static final long TICK_MILLIS = 10;
+    private static final int SEQUENTIAL_THRESHOLD = 64;
+    private static final int IDLE_PERIODS = 60;
+
+    private final DataStorage dataStorage;
+    private final AlertGenerator alertGenerator;
+    private final long periodMillis;
+    private final int slotCount;
+    private final long slotNanos;
+    private final int jitterSeed;
+    private final ForkJoinPool pool;
+    private final ConcurrentHashMap<Integer, PatientTask> tasks = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<PatientTask> retry = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService ticker;
+
+    // Accessed by the ticker thread only.
+    private final List<List<PatientTask>> pending;
+    private int nextSlot;
+    private long nextDueNanos;
+    private volatile long period; // the number of periods completed; advanced by the ticker thread
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalLagNanos = new LongAdder();
+    private final LongAccumulator maxLagNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Constructs a service that evaluates new patient data once per period, using one worker
+     * thread per available processor.
+     *
+     * @param dataStorage    the storage whose patients are evaluated
+     * @param alertGenerator the generator holding the strategies to evaluate
+     * @param periodMillis   the evaluation period, in milliseconds
+     */
+    public AlertService(DataStorage dataStorage, AlertGenerator alertGenerator, long periodMillis) {
+        this(dataStorage, alertGenerator, periodMillis, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a service with an explicit number of worker threads.
+     *
+     * @param dataStorage    the storage whose patients are evaluated
+     * @param alertGenerator the generator holding the strategies to evaluate
+     * @param periodMillis   the evaluation period, in milliseconds
+     * @param parallelism    the number of worker threads
+     */
+    public AlertService(DataStorage dataStorage, AlertGenerator alertGenerator, long periodMillis, int parallelism) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + periodMillis);
+        }
+        this.dataStorage = dataStorage;
+        this.alertGenerator = alertGenerator;
+        this.periodMillis = periodMillis;
+        this.slotCount = (int) Math.max(1, periodMillis / TICK_MILLIS);
+        this.slotNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis) / slotCount;
+        this.jitterSeed = (int) System.nanoTime();
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        this.pending = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            pending.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Starts evaluating patients periodically. Patients that already have data are evaluated
+     * within the first period.
+     *
+     * @throws IllegalStateException if the service has been stopped
+     */
+    public synchronized void start() {
+        if (pool.isShutdown()) {
+            throw new IllegalStateException("Alert service has been stopped");
+        }
+        if (ticker != null) {
+            return;
+        }
+        nextSlot = 0;
+        nextDueNanos = System.nanoTime();
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alert-service-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, 0, Math.min(TICK_MILLIS, periodMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic evaluation, waits for running evaluations to finish and shuts down the
+     * worker threads. A service is used once: it cannot be started again once stopped.
+     */
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+        pool.shutdown();
+        try {
+            if (ticker != null) {
+                ticker.awaitTermination(1, TimeUnit.SECONDS);
+            }
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ticker = null;
+        dataStorage.releaseDirtyPatients(this);
+    }
+
+    /**
+     * Evaluates every patient once, in parallel, and returns when all evaluations are done.
+     */
+    public void evaluateAll() {
+        PatientTask[] all = refreshTasks().toArray(new PatientTask[0]);
+        pool.invoke(new EvaluateRange(all, 0, all.length, System.nanoTime()));
+    }
+
+    /**
+     * Runs on the ticker thread: queues the patients that received relevant data for their
+     * slots, then submits every slot that has become due since the previous tick, catching up
+     * on slots missed while the thread was delayed.
+     */
+    private void tick() {
+        try {
+            dataStorage.drainDirtyPatients(this, (patient, recordTypes) -> {
+                if (alertGenerator.consumesAny(recordTypes)) {
+                    queue(taskFor(patient));
+                }
+            });
+            PatientTask skippedTask;
+            while ((skippedTask = retry.poll()) != null) {
+                queue(skippedTask);
+            }
+            long now = System.nanoTime();
+            while (nextDueNanos - now <= 0) {
+                List<PatientTask> slot = pending.get(nextSlot);
+                if (!slot.isEmpty()) {
+                    PatientTask[] due = slot.toArray(new PatientTask[0]);
+                    slot.clear();
+                    for (PatientTask task : due) {
+                        task.queued = false;
+                    }
+                    pool.execute(new EvaluateRange(due, 0, due.length, nextDueNanos));
+                }
+                nextSlot = (nextSlot + 1) % slotCount;
+                nextDueNanos += slotNanos;
+                if (nextSlot == 0) {
+                    alertGenerator.resolveExpiredAlerts(System.currentTimeMillis());
+                    if (++period % IDLE_PERIODS == 0) {
+                        evictIdleTasks();
+                    }
+                }
+            }
+            alertGenerator.escalateDue(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            System.err.println("Alert service tick failed: " + e.getMessage());
+        }
+    }
+
+    private void queue(PatientTask task) {
+        if (task.retired) {
+            task = taskFor(task.patient);
+        }
+        task.lastQueuedPeriod = period;
+        if (!task.queued) {
+            task.queued = true;
+            pending.get(task.slot).add(task);
+        }
+    }
+
+    private PatientTask taskFor(Patient patient) {
+        return tasks.computeIfAbsent(patient.getPatientId(), id -> new PatientTask(patient, slotOf(id)));
+    }
+
+    /**
+     * Runs on the ticker thread: drops the tasks of patients that have not been queued for
+     * {@value #IDLE_PERIODS} periods, so that the service does not keep a task for every
+     * patient ever seen. A patient that receives data again gets a new task.
+     */
+    private void evictIdleTasks() {
+        for (PatientTask task : tasks.values()) {
+            // Holding the running flag for good keeps the retired task from evaluating.
+            if (!task.queued && period - task.lastQueuedPeriod >= IDLE_PERIODS
+                    && task.running.compareAndSet(false, true)) {
+                task.retired = true;
+                tasks.remove(task.patient.getPatientId(), task);
+            }
+        }
+    }
+
+    private List<PatientTask> refreshTasks() {
+        List<PatientTask> current = new ArrayList<>();
+        for (Patient patient : dataStorage.getAllPatients()) {
+            current.add(taskFor(patient));
+        }
+        return current;
+    }
+
+    /**
+     * Returns the slot of a patient: a hash of its ID mixed with a per-service seed, so that
+     * consecutive IDs are spread over the period and services do not line up with each other.
+     */
+    private int slotOf(int patientId) {
+        int h = (patientId ^ jitterSeed) * 0x9E3779B9;
+        h ^= h >>> 16;
+        return Math.floorMod(h, slotCount);
+    }
+
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * Returns the number of patients the service holds an evaluation task for.
+     *
+     * @return the task count
+     */
+    public int getTaskCount() {
+        return tasks.size();
+    }
+
+    /**
+     * Returns the number of patient evaluations completed.
+     *
+     * @return the evaluation count
+     */
+    public long getEvaluationCount() {
+        return evaluations.sum();
+    }
+
+    /**
+     * Returns the number of evaluations skipped because the patient's previous evaluation was
+     * still running when it became due again.
+     *
+     * @return the skipped evaluation count
+     */
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    /**
+     * Returns the number of evaluations that failed with an exception.
+     *
+     * @return the failed evaluation count
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns the mean time between a patient becoming due and its evaluation starting.
+     *
+     * @return the mean evaluation lag, in milliseconds
+     */
+    public double getAverageLagMillis() {
+        long count = evaluations.sum() + failures.sum();
+        return count == 0 ? 0 : totalLagNanos.sum() / (double) count / 1_000_000;
+    }
+
+    /**
+     * Returns the largest time between a patient becoming due and its evaluation starting.
+     *
+     * @return the maximum evaluation lag, in milliseconds
+     */
+    public double getMaxLagMillis() {
+        return maxLagNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Evaluates a range of patient tasks, splitting it so that idle workers can steal halves.
+     */
+    private class EvaluateRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final PatientTask[] tasks;
+        private final int from;
+        private final int to;
+        private final long dueNanos;
+
+        EvaluateRange(PatientTask[] tasks, int from, int to, long dueNanos) {
+            this.tasks = tasks;
+            this.from = from;
+            this.to = to;
+            this.dueNanos = dueNanos;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    tasks[i].evaluate(dueNanos);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new EvaluateRange(tasks, from, middle, dueNanos),
+                    new EvaluateRange(tasks, middle, to, dueNanos));
+        }
+    }
+
+    /**
+     * The evaluation of one patient, serialized by a running flag.
+     */
+    private class PatientTask {
+        private final Patient patient;
+        private final int slot;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private boolean queued; // accessed by the ticker thread only
+        private volatile long lastQueuedPeriod = period;
+        private volatile boolean retired;
+
+        PatientTask(Patient patient, int slot) {
+            this.patient = patient;
+            this.slot = slot;
+        }
+
+        void evaluate(long dueNanos) {
+            if (!running.compareAndSet(false, true)) {
+                if (retired) {
+                    taskFor(patient).evaluate(dueNanos);
+                    return;
+                }
+                skipped.increment();
+                // The running evaluation may already have read past the new data; make sure
+                // the patient is looked at again.
+                retry.add(this);
+                return;
+            }
+            try {
+                long lag = Math.max(0, System.nanoTime() - dueNanos);
+                totalLagNanos.add(lag);
+                maxLagNanos.accumulate(lag);
+                alertGenerator.evaluateNewData(patient);
+                evaluations.increment();
+            } catch (RuntimeException e) {
+                failures.increment();
+                System.err.println("Alert evaluation failed for patient " + patient.getPatientId() + ": " + e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.alerts;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How urgently an alert needs attention. The {@link AlertDispatcher} delivers more severe
+ * alerts first, and the {@link AlertEscalator} re-raises unacknowledged critical alerts.
+ *
+ * <p>Constants are declared from the most to the least severe, so {@link #ordinal()} orders
+ * them by priority.
+ */
+public enum AlertSeverity {
+    CRITICAL,
+    HIGH,
+    LOW;
+
+    private static final Map<String, AlertSeverity> CONDITIONS = new HashMap<>();
+
+    static {
+        CONDITIONS.put("CriticalSystolicPressure", CRITICAL);
+        CONDITIONS.put("CriticalDiastolicPressure", CRITICAL);
+        CONDITIONS.put("HypotensiveHypoxemia", CRITICAL);
+        CONDITIONS.put("LowSaturation", HIGH);
+        CONDITIONS.put("rapidSaturationDrop", HIGH);
+        CONDITIONS.put("IrregularHeartbeat", HIGH);
+        CONDITIONS.put("Bradycardia", HIGH);
+        CONDITIONS.put("Tachycardia", HIGH);
+    }
+
+    /**
+     * Returns the severity of the conditions raised by the built-in strategies. Conditions
+     * the built-in strategies do not raise, such as those of rule sets, are {@link #LOW}.
+     * Resolve and escalation events have the severity of their condition.
+     *
+     * @param alert the alert
+     * @return the severity of the alert's condition
+     */
+    public static AlertSeverity of(Alert alert) {
+        return CONDITIONS.getOrDefault(alert.getCondition(), LOW);
+    }
+}
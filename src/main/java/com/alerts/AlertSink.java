@@ -0,0 +1,45 @@
+package com.alerts;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A destination that alerts are delivered to by an {@link AlertDispatcher}. A sink is only ever
+ * called from its dispatcher thread, so implementations need not be thread-safe, and may block
+ * without delaying alert evaluation.
+ */
+public interface AlertSink extends Closeable {
+
+    /**
+     * Delivers an alert. Implementations may buffer it until {@link #flush()}.
+     *
+     * @param alert the alert to deliver
+     * @throws IOException if the alert cannot be delivered
+     */
+    void deliver(Alert alert) throws IOException;
+
+    /**
+     * Pushes out buffered alerts. Called whenever the sink's queue runs empty, so alerts are
+     * batched under load and delivered immediately otherwise.
+     *
+     * @throws IOException if buffered alerts cannot be delivered
+     */
+    default void flush() throws IOException {
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Formats an alert as a line of the alert stream: {@code patientId,timestamp,condition,status},
+     * where status is {@code ALERT}, {@code ESCALATED} or {@code RESOLVED}.
+     *
+     * @param alert the alert to format
+     * @return the formatted alert, without a line terminator
+     */
+    static String format(Alert alert) {
+        return alert.getPatientId() + "," + alert.getTimestamp() + "," + alert.getCondition() + ","
+                + (alert instanceof ResolvedAlert ? "RESOLVED" : alert instanceof EscalatedAlert ? "ESCALATED" : "ALERT");
+    }
+}
@@ -0,0 +1,146 @@
+package com.alerts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.data_management.PatientRecord;
+
+/**
+ * An immutable set of registered strategies together with a dispatch table from record type
+ * to the incremental strategies that consume it, so that a single pass over a patient's
+ * records can feed every interested strategy.
+ */
+class AlertStrategySet {
+
+    static final AlertStrategySet EMPTY = new AlertStrategySet(Collections.emptyList());
+
+    private static final int[] NONE = new int[0];
+
+    private final List<AlertStrategy> strategies;
+    private final IncrementalAlertStrategy[] incremental;
+    private final List<AlertStrategy> batchOnly = new ArrayList<>();
+    private final Map<String, int[]> consumers = new HashMap<>();
+    private final int[] allTypeConsumers;
+    private final String[] recordTypes;
+
+    AlertStrategySet(List<AlertStrategy> strategies) {
+        this.strategies = Collections.unmodifiableList(new ArrayList<>(strategies));
+        List<IncrementalAlertStrategy> incrementalList = new ArrayList<>();
+        for (AlertStrategy strategy : strategies) {
+            if (strategy instanceof IncrementalAlertStrategy) {
+                incrementalList.add((IncrementalAlertStrategy) strategy);
+            } else {
+                batchOnly.add(strategy);
+            }
+        }
+        this.incremental = incrementalList.toArray(new IncrementalAlertStrategy[0]);
+
+        // Strategies that do not declare their record types see every record.
+        List<Integer> all = new ArrayList<>();
+        Map<String, List<Integer>> byType = new HashMap<>();
+        for (int i = 0; i < incremental.length; i++) {
+            if (incremental[i].getRecordTypes().isEmpty()) {
+                all.add(i);
+            }
+            for (String type : incremental[i].getRecordTypes()) {
+                byType.computeIfAbsent(type, k -> new ArrayList<>()).add(i);
+            }
+        }
+        for (Map.Entry<String, List<Integer>> entry : byType.entrySet()) {
+            List<Integer> indexes = new ArrayList<>(entry.getValue());
+            for (int i : all) {
+                if (!indexes.contains(i)) {
+                    indexes.add(i);
+                }
+            }
+            Collections.sort(indexes);
+            consumers.put(entry.getKey(), toArray(indexes));
+        }
+        this.allTypeConsumers = toArray(all);
+        this.recordTypes = all.isEmpty() ? consumers.keySet().toArray(new String[0]) : null;
+    }
+
+    AlertStrategySet with(AlertStrategy strategy) {
+        List<AlertStrategy> list = new ArrayList<>(strategies);
+        list.add(strategy);
+        return new AlertStrategySet(list);
+    }
+
+    List<AlertStrategy> getStrategies() {
+        return strategies;
+    }
+
+    boolean isEmpty() {
+        return strategies.isEmpty();
+    }
+
+    /**
+     * Returns the incremental strategies, in registration order; the indexes returned by
+     * {@link #consumersOf} refer to this array.
+     */
+    IncrementalAlertStrategy[] getIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Returns the strategies that can only be evaluated over a whole list of records.
+     */
+    List<AlertStrategy> getBatchOnly() {
+        return batchOnly;
+    }
+
+    /**
+     * Returns the indexes of the incremental strategies that consume the record's type.
+     */
+    int[] consumersOf(PatientRecord record) {
+        int[] indexes = consumers.get(record.getRecordType());
+        return indexes != null ? indexes : allTypeConsumers;
+    }
+
+    /**
+     * Returns the record types the incremental strategies consume, or {@code null} if some
+     * strategy sees every record.
+     */
+    String[] getRecordTypes() {
+        return recordTypes;
+    }
+
+    /**
+     * Returns whether new records of any of the specified types can change the outcome of
+     * an evaluation.
+     */
+    boolean consumesAny(Set<String> recordTypes) {
+        if (!batchOnly.isEmpty() || allTypeConsumers.length > 0) {
+            return !strategies.isEmpty();
+        }
+        for (String type : recordTypes) {
+            if (consumers.containsKey(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    AlertEvaluator[] createEvaluators() {
+        AlertEvaluator[] evaluators = new AlertEvaluator[incremental.length];
+        for (int i = 0; i < incremental.length; i++) {
+            evaluators[i] = incremental[i].createEvaluator();
+        }
+        return evaluators;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        if (list.isEmpty()) {
+            return NONE;
+        }
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
@@ -3,13 +3,16 @@ package com.alerts;
 import com.data_management.Patient;
 import com.data_management.PatientRecord;
 import java.util.List;
+import java.util.Set;
 
 /**
- * The {@code BloodPressureStrategy} class implements the {@link AlertStrategy} interface.
+ * The {@code BloodPressureStrategy} class implements the {@link IncrementalAlertStrategy} interface.
  * This strategy is responsible for monitoring patient records for blood pressure trends
  * and critical values, and generating alerts when specific conditions are met.
  */
-public class BloodPressureStrategy implements AlertStrategy {
+public class BloodPressureStrategy implements IncrementalAlertStrategy {
+
+    private static final Set<String> RECORD_TYPES = Set.of("SystolicPressure", "DiastolicPressure");
 
     private AlertFactory factory;
 
@@ -84,6 +87,90 @@ public class BloodPressureStrategy implements AlertStrategy {
         return null;
     }
 
+    /**
+     * Creates an evaluator that keeps the systolic and diastolic trend counters of a
+     * single patient between evaluations.
+     *
+     * @return a new evaluator with empty state
+     */
+    @Override
+    public AlertEvaluator createEvaluator() {
+        return new Evaluator();
+    }
+
+    @Override
+    public Set<String> getRecordTypes() {
+        return RECORD_TYPES;
+    }
+
+    /**
+     * Incremental form of {@link #checkAlert}: the trend counters and previous values
+     * live in the evaluator instead of being rebuilt from the whole window.
+     */
+    private class Evaluator implements AlertEvaluator {
+        private final AlertFactory factory = new BloodPressureAlertFactory();
+        private int systolicTrend;
+        private double prevSystolic;
+        private int diastolicTrend;
+        private double prevDiastolic;
+
+        @Override
+        public Alert evaluate(PatientRecord record) {
+            double measurementValue = record.getMeasurementValue();
+            switch (record.getRecordType()) {
+                case "SystolicPressure":
+                    if (systolicCriticalCheck(measurementValue) >= 0) {
+                        return raise(record, "CriticalSystolicPressure");
+                    }
+                    int increment = systolicTrend(prevSystolic, measurementValue);
+                    if (increment != 0 && prevSystolic != 0) {
+                        if ((systolicTrend > 0 && increment == -1) || (systolicTrend < 0 && increment == 1)) {
+                            systolicTrend = 0;
+                        }
+                        systolicTrend += increment;
+                        if (systolicTrend == 3 || systolicTrend == -3) {
+                            return raise(record, "SystolicPressureTrend");
+                        }
+                    } else {
+                        systolicTrend = 0;
+                    }
+                    prevSystolic = measurementValue;
+                    break;
+
+                case "DiastolicPressure":
+                    if (diastolicCriticalCheck(measurementValue) >= 0) {
+                        return raise(record, "CriticalDiastolicPressure");
+                    }
+                    increment = diastolicTrend(prevDiastolic, measurementValue);
+                    if (increment != 0 && prevDiastolic != 0) {
+                        if ((diastolicTrend > 0 && increment == -1) || (diastolicTrend < 0 && increment == 1)) {
+                            diastolicTrend = 0;
+                        }
+                        diastolicTrend += increment;
+                        if (diastolicTrend == 3 || diastolicTrend == -3) {
+                            return raise(record, "DiastolicPressureTrend");
+                        }
+                    } else {
+                        diastolicTrend = 0;
+                    }
+                    prevDiastolic = measurementValue;
+                    break;
+
+                default:
+                    break;
+            }
+            return null;
+        }
+
+        private Alert raise(PatientRecord record, String condition) {
+            systolicTrend = 0;
+            prevSystolic = 0;
+            diastolicTrend = 0;
+            prevDiastolic = 0;
+            return factory.createAlert("" + record.getPatientId(), condition, record.getTimestamp());
+        }
+    }
+
     /**
      * Determines the trend in systolic blood pressure.
      *
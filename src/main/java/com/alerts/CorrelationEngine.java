@@ -0,0 +1,353 @@
+package com.alerts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+
+/**
+ * A small complex-event-processing engine that raises alerts when several metrics of a patient
+ * are abnormal at the same time, as described by {@link CorrelationRule}s.
+ *
+ * <p>Each record type a rule mentions is a stream. When a record arrives, every rule that
+ * mentions its type is evaluated at the record's timestamp: each of the rule's streams is
+ * aligned to that time by taking its sample nearest to it, at most the rule's tolerance away,
+ * and the rule holds if every term holds on the aligned samples. Alignment is by timestamp,
+ * not by arrival order, so a metric that arrives a little late is still matched with the
+ * samples it was taken with.
+ *
+ * <p>A rule that holds raises an alert at the record's timestamp and then starts over: the
+ * samples received so far no longer take part in that rule, as an
+ * {@link AlertEvaluator evaluator} starts over after an alert. Rules are independent of each
+ * other.
+ *
+ * <p>Join state is bounded: each patient keeps the latest samples of each stream, by default
+ * 8, in primitive rings sorted by timestamp. Evaluating a record does one map lookup and, for
+ * data arriving in order, touches a constant number of samples per term.
+ */
+public class CorrelationEngine implements IncrementalAlertStrategy {
+
+    static final int DEFAULT_HISTORY = 8;
+
+    private final CorrelationRule[] rules;
+    private final int[][] termStreams; // per rule, the stream of each term
+    private final Map<String, Integer> streams = new HashMap<>();
+    private final Map<String, Route> routes = new HashMap<>();
+    private final Set<String> recordTypes;
+    private final int history;
+
+    /**
+     * Constructs an engine evaluating the specified rules.
+     *
+     * @param rules the rules
+     */
+    public CorrelationEngine(CorrelationRule... rules) {
+        this(DEFAULT_HISTORY, Arrays.asList(rules));
+    }
+
+    /**
+     * Constructs an engine evaluating the specified rules, keeping the specified number of
+     * samples of each stream per patient.
+     *
+     * @param historyPerStream the number of samples kept per patient and stream; samples
+     *                         pushed out can no longer be aligned with late arrivals
+     * @param rules            the rules
+     */
+    public CorrelationEngine(int historyPerStream, List<CorrelationRule> rules) {
+        if (historyPerStream < 1) {
+            throw new IllegalArgumentException("History must be positive: " + historyPerStream);
+        }
+        int capacity = 1;
+        while (capacity < historyPerStream) {
+            capacity <<= 1;
+        }
+        this.history = capacity;
+        this.rules = rules.toArray(new CorrelationRule[0]);
+        this.termStreams = new int[this.rules.length][];
+        Map<String, List<Integer>> byType = new HashMap<>();
+        Set<String> types = new LinkedHashSet<>();
+        for (int r = 0; r < this.rules.length; r++) {
+            List<CorrelationRule.Term> terms = this.rules[r].getTerms();
+            if (terms.isEmpty()) {
+                throw new IllegalArgumentException("Rule without terms: " + this.rules[r].getCondition());
+            }
+            termStreams[r] = new int[terms.size()];
+            for (int k = 0; k < terms.size(); k++) {
+                String type = terms.get(k).recordType;
+                Integer stream = streams.get(type);
+                if (stream == null) {
+                    stream = streams.size();
+                    streams.put(type, stream);
+                }
+                termStreams[r][k] = stream;
+                byType.computeIfAbsent(type, t -> new ArrayList<>()).add(r);
+                types.add(type);
+            }
+        }
+        for (Map.Entry<String, List<Integer>> entry : byType.entrySet()) {
+            int stream = streams.get(entry.getKey());
+            int[] indexes = new int[entry.getValue().size()];
+            int[] terms = new int[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = entry.getValue().get(i);
+                while (termStreams[indexes[i]][terms[i]] != stream) {
+                    terms[i]++;
+                }
+            }
+            routes.put(entry.getKey(), new Route(stream, indexes, terms));
+        }
+        this.recordTypes = Collections.unmodifiableSet(types);
+    }
+
+    /**
+     * Checks the records for the first alert any rule raises.
+     *
+     * @param patient the patient whose records are being evaluated
+     * @param records the list of patient records to evaluate
+     * @return the first {@link Alert} raised, otherwise {@code null}
+     */
+    @Override
+    public Alert checkAlert(Patient patient, List<PatientRecord> records) {
+        AlertEvaluator evaluator = createEvaluator();
+        for (PatientRecord record : records) {
+            Alert alert = evaluator.evaluate(record);
+            if (alert != null) {
+                return alert;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates an evaluator holding the join state of a single patient.
+     *
+     * @return a new evaluator with empty streams
+     */
+    @Override
+    public AlertEvaluator createEvaluator() {
+        return new Evaluator();
+    }
+
+    @Override
+    public Set<String> getRecordTypes() {
+        return recordTypes;
+    }
+
+    public List<CorrelationRule> getRules() {
+        return Collections.unmodifiableList(Arrays.asList(rules));
+    }
+
+    private class Evaluator implements AlertEvaluator {
+        private final Stream[] state = new Stream[streams.size()];
+        // Per rule and term, the stream sequence number up to which samples were used by an alert.
+        private final long[][] consumed = new long[rules.length][];
+
+        Evaluator() {
+            for (int s = 0; s < state.length; s++) {
+                state[s] = new Stream(history);
+            }
+            for (int r = 0; r < rules.length; r++) {
+                consumed[r] = new long[termStreams[r].length];
+            }
+        }
+
+        /**
+         * Returns the first alert raised by the record; see {@link #evaluate(PatientRecord,
+         * Consumer)} for every alert.
+         */
+        @Override
+        public Alert evaluate(PatientRecord record) {
+            return process(record, null);
+        }
+
+        @Override
+        public void evaluate(PatientRecord record, Consumer<? super Alert> output) {
+            process(record, output);
+        }
+
+        /**
+         * Evaluates the record, passing every alert raised to the output, if any, and
+         * returning the first.
+         */
+        private Alert process(PatientRecord record, Consumer<? super Alert> output) {
+            Route route = routes.get(record.getRecordType());
+            if (route == null) {
+                return null;
+            }
+            long timestamp = record.getTimestamp();
+            state[route.stream].add(record.getMeasurementValue(), timestamp);
+            Alert first = null;
+            for (int i = 0; i < route.rules.length; i++) {
+                int r = route.rules[i];
+                if (holds(r, route.terms[i], timestamp)) {
+                    for (int k = 0; k < consumed[r].length; k++) {
+                        consumed[r][k] = state[termStreams[r][k]].sequence;
+                    }
+                    CorrelationRule rule = rules[r];
+                    Alert alert = rule.getFactory().createAlert("" + record.getPatientId(), rule.getCondition(),
+                            timestamp);
+                    if (first == null) {
+                        first = alert;
+                    }
+                    if (output != null) {
+                        output.accept(alert);
+                    }
+                }
+            }
+            return first;
+        }
+
+        /**
+         * Returns whether the rule holds at the specified time, testing first the term of the
+         * record just received, which is the one most likely to have changed.
+         */
+        private boolean holds(int r, int first, long timestamp) {
+            if (!holds(r, first, timestamp, rules[r].getToleranceMillis())) {
+                return false;
+            }
+            for (int k = 0; k < termStreams[r].length; k++) {
+                if (k != first && !holds(r, k, timestamp, rules[r].getToleranceMillis())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean holds(int r, int k, long timestamp, long tolerance) {
+            CorrelationRule.Term term = rules[r].getTerms().get(k);
+            Stream stream = state[termStreams[r][k]];
+            int aligned = stream.align(timestamp, tolerance, consumed[r][k]);
+            if (aligned < 0) {
+                return false;
+            }
+            double value = term.windowMillis < 0 ? stream.valueAt(aligned)
+                    : stream.average(aligned, term.windowMillis, consumed[r][k]);
+            return term.test.test(value);
+        }
+    }
+
+    /**
+     * The stream of a record type, the rules that mention it and the index of the term that
+     * tests it in each rule.
+     */
+    private static final class Route {
+        private final int stream;
+        private final int[] rules;
+        private final int[] terms;
+
+        Route(int stream, int[] rules, int[] terms) {
+            this.stream = stream;
+            this.rules = rules;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * The latest samples of one stream of one patient: a ring sorted by timestamp, with the
+     * arrival sequence number of each sample. Indexes are relative to the oldest sample.
+     */
+    private static final class Stream {
+        private final long[] timestamps;
+        private final double[] values;
+        private final long[] sequences;
+        private final int mask;
+        private int head;
+        private int size;
+        private long sequence; // the number of samples received
+
+        Stream(int capacity) {
+            this.timestamps = new long[capacity];
+            this.values = new double[capacity];
+            this.sequences = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        void add(double value, long timestamp) {
+            sequence++;
+            if (size == timestamps.length) {
+                if (timestamp < timestamps[head]) {
+                    return; // older than everything kept
+                }
+                head = (head + 1) & mask;
+                size--;
+            }
+            int position = size;
+            // Shift later samples up by one; equal timestamps keep their arrival order.
+            while (position > 0 && timestamps[(head + position - 1) & mask] > timestamp) {
+                int from = (head + position - 1) & mask;
+                int to = (head + position) & mask;
+                timestamps[to] = timestamps[from];
+                values[to] = values[from];
+                sequences[to] = sequences[from];
+                position--;
+            }
+            int slot = (head + position) & mask;
+            timestamps[slot] = timestamp;
+            values[slot] = value;
+            sequences[slot] = sequence;
+            size++;
+        }
+
+        /**
+         * Returns the index of the sample received after {@code after} that is nearest to the
+         * specified time and at most {@code tolerance} away from it, preferring the earlier of
+         * two equally near samples, or -1 if there is none.
+         */
+        int align(long timestamp, long tolerance, long after) {
+            int later = -1;
+            for (int i = size - 1; i >= 0; i--) {
+                int slot = (head + i) & mask;
+                long t = timestamps[slot];
+                if (t > timestamp) {
+                    if (t - timestamp <= tolerance && sequences[slot] > after) {
+                        later = i; // each step down is nearer
+                    }
+                    continue;
+                }
+                if (timestamp - t > tolerance) {
+                    break;
+                }
+                if (sequences[slot] > after) {
+                    if (later >= 0 && timestamps[(head + later) & mask] - timestamp < timestamp - t) {
+                        return later;
+                    }
+                    return i;
+                }
+            }
+            return later;
+        }
+
+        double valueAt(int index) {
+            return values[(head + index) & mask];
+        }
+
+        /**
+         * Returns the average of the samples received after {@code after} in the window ending
+         * at the indexed sample.
+         */
+        double average(int index, long windowMillis, long after) {
+            long end = timestamps[(head + index) & mask];
+            double sum = 0;
+            int count = 0;
+            for (int i = index; i >= 0; i--) {
+                int slot = (head + i) & mask;
+                if (end - timestamps[slot] > windowMillis) {
+                    break;
+                }
+                if (sequences[slot] > after) {
+                    sum += values[slot];
+                    count++;
+                }
+            }
+            return sum / count;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.alerts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoublePredicate;
+
+/**
+ * A cross-metric alert condition for a {@link CorrelationEngine}: a set of terms, each testing
+ * one record type, that must hold together on samples taken within a tolerance of each other.
+ *
+ * <p>A term tests either the sample of its type aligned to the time of the record being
+ * evaluated ({@link #where}) or the average of that type's samples over a window ending
+ * there ({@link #whereAverage}). Rules are immutable; adding a term returns a new rule.
+ */
+public final class CorrelationRule {
+
+    private final String condition;
+    private final AlertFactory factory;
+    private final long toleranceMillis;
+    private final List<Term> terms;
+
+    /**
+     * Constructs a rule without terms.
+     *
+     * @param condition       the condition of the alerts the rule raises
+     * @param factory         the factory that creates those alerts
+     * @param toleranceMillis how far apart in time the samples of different types may be and
+     *                        still be considered simultaneous, in milliseconds
+     */
+    public CorrelationRule(String condition, AlertFactory factory, long toleranceMillis) {
+        this(condition, factory, toleranceMillis, Collections.emptyList());
+    }
+
+    private CorrelationRule(String condition, AlertFactory factory, long toleranceMillis, List<Term> terms) {
+        if (toleranceMillis < 0) {
+            throw new IllegalArgumentException("Tolerance must not be negative: " + toleranceMillis);
+        }
+        this.condition = condition;
+        this.factory = factory;
+        this.toleranceMillis = toleranceMillis;
+        this.terms = terms;
+    }
+
+    /**
+     * Returns a rule that also requires the aligned sample of the specified type to pass the
+     * test.
+     *
+     * @param recordType the type of the records tested, e.g., "Saturation"
+     * @param test       the test of the sample's value
+     * @return the extended rule
+     */
+    public CorrelationRule where(String recordType, DoublePredicate test) {
+        return with(new Term(recordType, test, -1));
+    }
+
+    /**
+     * Returns a rule that also requires the average of the samples of the specified type in
+     * the window ending at the aligned time to pass the test.
+     *
+     * @param recordType   the type of the records tested, e.g., "HeartRate"
+     * @param windowMillis the length of the window, in milliseconds
+     * @param test         the test of the average
+     * @return the extended rule
+     */
+    public CorrelationRule whereAverage(String recordType, long windowMillis, DoublePredicate test) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("Window must not be negative: " + windowMillis);
+        }
+        return with(new Term(recordType, test, windowMillis));
+    }
+
+    private CorrelationRule with(Term term) {
+        for (Term existing : terms) {
+            if (existing.recordType.equals(term.recordType)) {
+                throw new IllegalArgumentException("Record type already tested: " + term.recordType);
+            }
+        }
+        List<Term> list = new ArrayList<>(terms);
+        list.add(term);
+        return new CorrelationRule(condition, factory, toleranceMillis, Collections.unmodifiableList(list));
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public AlertFactory getFactory() {
+        return factory;
+    }
+
+    public long getToleranceMillis() {
+        return toleranceMillis;
+    }
+
+    List<Term> getTerms() {
+        return terms;
+    }
+
+    /**
+     * A test of one record type; a negative window tests the aligned sample itself.
+     */
+    static final class Term {
+        final String recordType;
+        final DoublePredicate test;
+        final long windowMillis;
+
+        Term(String recordType, DoublePredicate test, long windowMillis) {
+            this.recordType = recordType;
+            this.test = test;
+            this.windowMillis = windowMillis;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.alerts;
+
+/**
+ * Emitted by {@link AlertEscalator} when a critical alert has not been acknowledged within the
+ * escalation interval. Its timestamp is the time of escalation.
+ */
+public class EscalatedAlert extends Alert {
+    private final long raisedAt;
+    private final int level;
+
+    public EscalatedAlert(String patientId, String condition, long timestamp, long raisedAt, int level) {
+        super(patientId, condition, timestamp);
+        this.raisedAt = raisedAt;
+        this.level = level;
+    }
+
+    /**
+     * Returns the time at which the escalated alert was raised.
+     *
+     * @return the raising time, in milliseconds since the Unix epoch
+     */
+    public long getRaisedAt() {
+        return raisedAt;
+    }
+
+    /**
+     * Returns how many times the alert has been escalated, including this time.
+     *
+     * @return the escalation level, starting at 1
+     */
+    public int getLevel() {
+        return level;
+    }
+}
@@ -0,0 +1,47 @@
+package com.alerts;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends alerts to a log file, one {@linkplain AlertSink#format formatted} alert per line.
+ */
+public class FileAlertSink implements AlertSink {
+
+    private final BufferedWriter writer;
+
+    /**
+     * Opens the alert log, creating it and its directory if needed.
+     *
+     * @param file the alert log file
+     * @throws IOException if the file cannot be opened for appending
+     */
+    public FileAlertSink(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void deliver(Alert alert) throws IOException {
+        writer.write(AlertSink.format(alert));
+        writer.newLine();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -3,21 +3,56 @@ package com.alerts;
 import com.data_management.Patient;
 import com.data_management.PatientRecord;
 
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
- * The {@code HeartRateStrategy} class implements the {@link AlertStrategy} interface.
+ * The {@code HeartRateStrategy} class implements the {@link IncrementalAlertStrategy} interface.
  * This strategy is responsible for monitoring patient records for significant ECG peaks
  * and generating alerts when specific conditions are met.
+ *
+ * <p>When constructed with the ECG sample rate, the strategy also runs a {@link QrsDetector}
+ * over the ECG samples and derives the heart rate from the detected beats. Once eight RR
+ * intervals are known, it raises {@code Bradycardia} or {@code Tachycardia} if their average
+ * rate is below 50 or above 120 beats per minute, and {@code IrregularHeartbeat} if a beat's
+ * RR interval differs from that average by more than 20%. A rhythm alert starts the RR
+ * history over, but the detector's filters keep running across alerts; unlike the peak
+ * check, rhythm alerts therefore depend on the samples before the previous alert.
  */
-public class HeartRateStrategy implements AlertStrategy {
+public class HeartRateStrategy implements IncrementalAlertStrategy {
+
+    private static final Set<String> RECORD_TYPES = Set.of("ECG");
 
     private AlertFactory factory;
     private static final int SLIDING_WINDOW_SIZE = 10; // Size of the sliding window for averaging ECG values
     private static final double PEAK_THRESHOLD_MULTIPLIER = 1.5; // Multiplier to determine significant peaks
-    
+    private static final int RR_WINDOW_SIZE = 8; // Number of RR intervals the heart rate is averaged over
+    private static final double BRADYCARDIA_BPM = 50;
+    private static final double TACHYCARDIA_BPM = 120;
+    private static final double IRREGULAR_RR_DEVIATION = 0.2; // Allowed RR deviation from the average
+
+    private final double sampleRateHz;
+
+    /**
+     * Constructs a strategy that only checks for significant ECG peaks.
+     */
+    public HeartRateStrategy() {
+        this.sampleRateHz = 0;
+    }
+
+    /**
+     * Constructs a strategy that also detects beats in the ECG and checks the heart rhythm.
+     *
+     * @param sampleRateHz the rate at which each patient's ECG is sampled, in Hz; at least 50 Hz
+     */
+    public HeartRateStrategy(double sampleRateHz) {
+        if (!(sampleRateHz >= QrsDetector.MIN_SAMPLE_RATE_HZ)) {
+            throw new IllegalArgumentException("Sample rate too low for QRS detection: " + sampleRateHz + " Hz");
+        }
+        this.sampleRateHz = sampleRateHz;
+    }
+
     /**
      * Checks the patient's records for significant ECG peaks.
      *
@@ -33,8 +68,8 @@ public class HeartRateStrategy implements AlertStrategy {
     @Override
     public Alert checkAlert(Patient patient, List<PatientRecord> records) {
 
-        Queue<Double> ecgWindow = new LinkedList<>();
-        double ecgSum = 0;
+        SampleWindow ecgWindow = new SampleWindow(SLIDING_WINDOW_SIZE);
+        RhythmMonitor rhythm = sampleRateHz > 0 ? new RhythmMonitor() : null;
         factory = new ECGAlertFactory();
 
         for (PatientRecord record : records) {
@@ -44,24 +79,120 @@ public class HeartRateStrategy implements AlertStrategy {
 
             if ("ECG".equals(recordType)) {
 
-                // Calculate the average ECG value over the sliding window
-                double ecgAverage = ecgSum / ecgWindow.size();
-
-                // Check for significant peak
-                if (Math.abs(measurementValue) > ecgAverage * PEAK_THRESHOLD_MULTIPLIER) {
+                // Check for significant peak against the average ECG value over the sliding window
+                if (!ecgWindow.isEmpty()
+                        && Math.abs(measurementValue) > ecgWindow.average() * PEAK_THRESHOLD_MULTIPLIER) {
                     return factory.createAlert("" + record.getPatientId(), "SignificantEcgPeak", timestamp);
                 }
 
                 // Add the current ECG value to the sliding window
-                if (ecgWindow.size() == SLIDING_WINDOW_SIZE) {
-                    ecgSum -= ecgWindow.poll();
-                }
-                
                 ecgWindow.add(measurementValue);
-                ecgSum += measurementValue;
+
+                String condition = rhythm != null ? rhythm.update(measurementValue, timestamp) : null;
+                if (condition != null) {
+                    return factory.createAlert("" + record.getPatientId(), condition, timestamp);
+                }
             }
         }
         return null;
     }
-}
 
+    /**
+     * Creates an evaluator that keeps the ECG sliding window of a single patient between
+     * evaluations.
+     *
+     * @return a new evaluator with an empty window
+     */
+    @Override
+    public AlertEvaluator createEvaluator() {
+        return new Evaluator();
+    }
+
+    @Override
+    public Set<String> getRecordTypes() {
+        return RECORD_TYPES;
+    }
+
+    /**
+     * Incremental form of {@link #checkAlert}. The window and the rhythm state are primitive,
+     * so evaluating a sample allocates nothing unless it raises an alert.
+     */
+    private class Evaluator implements AlertEvaluator {
+        private final AlertFactory factory = new ECGAlertFactory();
+        private final SampleWindow ecgWindow = new SampleWindow(SLIDING_WINDOW_SIZE);
+        private final RhythmMonitor rhythm = sampleRateHz > 0 ? new RhythmMonitor() : null;
+
+        /**
+         * Returns the peak alert, or else the rhythm alert, raised by the record.
+         */
+        @Override
+        public Alert evaluate(PatientRecord record) {
+            Alert[] first = new Alert[1];
+            evaluate(record, alert -> {
+                if (first[0] == null) {
+                    first[0] = alert;
+                }
+            });
+            return first[0];
+        }
+
+        @Override
+        public void evaluate(PatientRecord record, Consumer<? super Alert> output) {
+            if (!"ECG".equals(record.getRecordType())) {
+                return;
+            }
+            double measurementValue = record.getMeasurementValue();
+            if (!ecgWindow.isEmpty()
+                    && Math.abs(measurementValue) > ecgWindow.average() * PEAK_THRESHOLD_MULTIPLIER) {
+                ecgWindow.clear();
+                output.accept(factory.createAlert("" + record.getPatientId(), "SignificantEcgPeak",
+                        record.getTimestamp()));
+            } else {
+                ecgWindow.add(measurementValue);
+            }
+            if (rhythm != null) {
+                String condition = rhythm.update(measurementValue, record.getTimestamp());
+                if (condition != null) {
+                    output.accept(factory.createAlert("" + record.getPatientId(), condition, record.getTimestamp()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Detects beats in one patient's ECG and checks the rate and regularity of the rhythm.
+     */
+    private class RhythmMonitor {
+        private final QrsDetector detector = new QrsDetector(sampleRateHz);
+        private final SampleWindow rrWindow = new SampleWindow(RR_WINDOW_SIZE);
+
+        /**
+         * Feeds the next ECG sample.
+         *
+         * @return the rhythm condition completed by the sample, or {@code null}
+         */
+        String update(double value, long timestamp) {
+            if (!detector.addSample(value, timestamp) || detector.getLastRrInterval() == 0) {
+                return null;
+            }
+            double rr = detector.getLastRrInterval();
+            if (rrWindow.isFull() && Math.abs(rr - rrWindow.average()) > IRREGULAR_RR_DEVIATION * rrWindow.average()) {
+                rrWindow.clear();
+                return "IrregularHeartbeat";
+            }
+            rrWindow.add(rr);
+            if (rrWindow.isFull()) {
+                double heartRate = 60_000 / rrWindow.average();
+                if (heartRate < BRADYCARDIA_BPM) {
+                    rrWindow.clear();
+                    return "Bradycardia";
+                }
+                if (heartRate > TACHYCARDIA_BPM) {
+                    rrWindow.clear();
+                    return "Tachycardia";
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -1,18 +1,45 @@
 package com.alerts;
 
 import java.util.List;
+import java.util.Set;
 
 import com.data_management.Patient;
 import com.data_management.PatientRecord;
 
 /**
- * The {@code HypotensiveHypoxiaStrategy} class implements the {@link AlertStrategy} interface.
+ * The {@code HypotensiveHypoxiaStrategy} class implements the {@link IncrementalAlertStrategy} interface.
  * This strategy is responsible for monitoring patient records for signs of hypotensive hypoxemia
  * and generating alerts when specific conditions are met.
+ *
+ * <p>The condition, low systolic pressure together with low saturation, is evaluated by a
+ * {@link CorrelationEngine}, which pairs each measurement with the other metric's sample
+ * taken nearest to it in time. By default any pair of latest values is considered
+ * simultaneous, however far apart they were taken; a tolerance limits that.
  */
-public class HypotensiveHypoxiaStrategy implements AlertStrategy {
+public class HypotensiveHypoxiaStrategy implements IncrementalAlertStrategy {
 
-    private AlertFactory factory;
+    private final CorrelationEngine engine;
+
+    /**
+     * Constructs a strategy that pairs the latest systolic pressure and saturation values,
+     * however far apart they were taken.
+     */
+    public HypotensiveHypoxiaStrategy() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a strategy that only pairs systolic pressure and saturation values taken
+     * within the specified tolerance of each other.
+     *
+     * @param toleranceMillis how far apart the two measurements may be, in milliseconds
+     */
+    public HypotensiveHypoxiaStrategy(long toleranceMillis) {
+        this.engine = new CorrelationEngine(new CorrelationRule("HypotensiveHypoxemia",
+                new HypotensiveHypoxiaFactory(), toleranceMillis)
+                .where("SystolicPressure", systolic -> systolicCriticalCheck(systolic) == 0)
+                .where("Saturation", saturation -> saturation < 92));
+    }
 
     /**
      * Checks the patient's records for hypotensive hypoxemia alerts.
@@ -28,31 +55,23 @@ public class HypotensiveHypoxiaStrategy implements AlertStrategy {
      */
     @Override
     public Alert checkAlert(Patient patient, List<PatientRecord> records) {
-        boolean lowSystolic=false; 
-        boolean lowSat=false;
-        factory = new HypotensiveHypoxiaFactory();
+        return engine.checkAlert(patient, records);
+    }
 
-        for (PatientRecord record : records) {
-            String recordType = record.getRecordType();
-            double measurementValue = record.getMeasurementValue();
-            long timestamp = record.getTimestamp();
+    /**
+     * Creates an evaluator that keeps the recent systolic pressure and saturation samples of
+     * a single patient between evaluations.
+     *
+     * @return a new evaluator with empty state
+     */
+    @Override
+    public AlertEvaluator createEvaluator() {
+        return engine.createEvaluator();
+    }
 
-            if ("Saturation".equals(recordType)) {
-                if (measurementValue < 92) {
-                    lowSat = true;
-                } else {lowSat = false;}
-            }
-            else if ("SystolicPressure".equals(recordType)){
-                if(systolicCriticalCheck(measurementValue)==0){
-                    // Systolic pressure low check
-                    lowSystolic = true;
-                } else {lowSystolic=false;}
-            }
-            if (lowSat && lowSystolic){
-                return factory.createAlert(""+patient.getPatientId(),"HypotensiveHypoxemia",timestamp);
-            }
-        }
-        return null;
+    @Override
+    public Set<String> getRecordTypes() {
+        return engine.getRecordTypes();
     }
 
     /**
@@ -61,7 +80,7 @@ public class HypotensiveHypoxiaStrategy implements AlertStrategy {
      * @param systolic the systolic blood pressure value to check
      * @return 1 if the systolic pressure is critically high, 0 if it is critically low, -1 otherwise
      */
-    private int systolicCriticalCheck(double systolic) {
+    private static int systolicCriticalCheck(double systolic) {
         if (systolic > 180) { return 1; }
         else if (systolic < 90) { return 0; }
         else { return -1; }
@@ -0,0 +1,28 @@
+package com.alerts;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * An {@link AlertStrategy} that can also be evaluated incrementally, feeding only the records
+ * added since the previous evaluation to a per-patient {@link AlertEvaluator}.
+ */
+public interface IncrementalAlertStrategy extends AlertStrategy {
+
+    /**
+     * Creates an evaluator holding the strategy's state for a single patient.
+     *
+     * @return a new evaluator with empty state
+     */
+    AlertEvaluator createEvaluator();
+
+    /**
+     * Returns the record types the strategy's evaluator reacts to, so that records of other
+     * types need not be passed to it. An empty set means the evaluator sees every record.
+     *
+     * @return the record types consumed by the strategy
+     */
+    default Set<String> getRecordTypes() {
+        return Collections.emptySet();
+    }
+}
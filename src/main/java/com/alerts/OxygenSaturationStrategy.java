@@ -3,13 +3,16 @@ package com.alerts;
 import com.data_management.Patient;
 import com.data_management.PatientRecord;
 import java.util.List;
+import java.util.Set;
 
 /**
- * The {@code OxygenSaturationStrategy} class implements the {@link AlertStrategy} interface.
+ * The {@code OxygenSaturationStrategy} class implements the {@link IncrementalAlertStrategy} interface.
  * This strategy is responsible for monitoring oxygen saturation levels in patient records
  * and generating alerts when specific conditions are met.
  */
-public class OxygenSaturationStrategy implements AlertStrategy {
+public class OxygenSaturationStrategy implements IncrementalAlertStrategy {
+
+    private static final Set<String> RECORD_TYPES = Set.of("Saturation");
 
     private AlertFactory factory;
 
@@ -52,4 +55,54 @@ public class OxygenSaturationStrategy implements AlertStrategy {
         }
         return null;
     }
+
+    /**
+     * Creates an evaluator that keeps the previous saturation value of a single patient
+     * between evaluations.
+     *
+     * @return a new evaluator with empty state
+     */
+    @Override
+    public AlertEvaluator createEvaluator() {
+        return new Evaluator();
+    }
+
+    @Override
+    public Set<String> getRecordTypes() {
+        return RECORD_TYPES;
+    }
+
+    /**
+     * Incremental form of {@link #checkAlert}.
+     */
+    private static class Evaluator implements AlertEvaluator {
+        private final AlertFactory factory = new BloodOxygenAlertFactory();
+        private double prevOxygenSaturation;
+        private long prevTimestamp;
+
+        @Override
+        public Alert evaluate(PatientRecord record) {
+            if (!"Saturation".equals(record.getRecordType())) {
+                return null;
+            }
+            double measurementValue = record.getMeasurementValue();
+            long timestamp = record.getTimestamp();
+            if (measurementValue < 92) {
+                return raise(record, "LowSaturation");
+            }
+            double drop = prevOxygenSaturation - measurementValue;
+            if (prevTimestamp != 0 && timestamp - prevTimestamp <= 600000 && drop >= 5) {
+                return raise(record, "rapidSaturationDrop");
+            }
+            prevOxygenSaturation = measurementValue;
+            prevTimestamp = timestamp;
+            return null;
+        }
+
+        private Alert raise(PatientRecord record, String condition) {
+            prevOxygenSaturation = 0;
+            prevTimestamp = 0;
+            return factory.createAlert("" + record.getPatientId(), condition, record.getTimestamp());
+        }
+    }
 }
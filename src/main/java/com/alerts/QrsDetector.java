@@ -0,0 +1,258 @@
+package com.alerts;
+
+/**
+ * A streaming QRS (R-peak) detector for one patient's ECG, in the style of the Pan–Tompkins
+ * algorithm.
+ *
+ * <p>Each sample is band-pass filtered (5–15 Hz, where most of the QRS energy lies),
+ * differentiated, squared and integrated over a 150 ms moving window. Local maxima of the
+ * integrated signal are classified as beats or noise against an adaptive threshold that
+ * tracks running estimates of the signal and noise peak levels. The first two seconds are
+ * used to learn those levels. If no beat is found for 166% of the average RR interval, the
+ * largest peak since the last beat is accepted if it exceeds half the threshold (search-back).
+ * Peaks closer than 200 ms to the previous beat are refractory and ignored. A beat is timed
+ * at the largest band-passed sample in the integration window, which tracks the R peak far
+ * more closely than the broad integrated peak itself.
+ *
+ * <p>The detector keeps only primitive state and allocates nothing per sample. Beat times are
+ * the sample timestamps, so RR intervals and the heart rate are in real time even if the
+ * actual sample rate drifts from the nominal one the filters are designed for.
+ */
+public class QrsDetector {
+
+    static final double MIN_SAMPLE_RATE_HZ = 50;
+
+    private static final long REFRACTORY_MILLIS = 200;
+    private static final double LEARNING_SECONDS = 2;
+    private static final int RR_HISTORY = 8;
+
+    private final Biquad highPass;
+    private final Biquad lowPass;
+    private final SampleWindow integration;
+    private final SampleWindow rrIntervals = new SampleWindow(RR_HISTORY);
+    private final long learningSamples;
+
+    // Last four band-passed samples, for the five-point derivative.
+    private double x1;
+    private double x2;
+    private double x3;
+    private double x4;
+
+    private long samples;
+    private double previous;
+    private boolean rising;
+    // The magnitudes and times of the recent band-passed samples, one integration window long.
+    private final double[] recentMagnitudes;
+    private final long[] recentTimestamps;
+    private int recentHead;
+
+    private double learningMax;
+    private double learningSum;
+    private double signalLevel;
+    private double noiseLevel;
+
+    private long lastBeat = Long.MIN_VALUE;
+    private long lastRrInterval;
+    private long beatCount;
+    private double searchBackPeak;
+    private long searchBackTimestamp;
+
+    /**
+     * Constructs a detector for an ECG sampled at the specified rate.
+     *
+     * @param sampleRateHz the nominal sample rate, in Hz; at least 50 Hz
+     */
+    public QrsDetector(double sampleRateHz) {
+        if (!(sampleRateHz >= MIN_SAMPLE_RATE_HZ)) {
+            throw new IllegalArgumentException("Sample rate too low for QRS detection: " + sampleRateHz + " Hz");
+        }
+        this.highPass = Biquad.highPass(5, sampleRateHz);
+        this.lowPass = Biquad.lowPass(15, sampleRateHz);
+        int window = (int) Math.max(1, Math.round(0.150 * sampleRateHz));
+        this.integration = new SampleWindow(window);
+        this.recentMagnitudes = new double[window];
+        this.recentTimestamps = new long[window];
+        this.learningSamples = Math.round(LEARNING_SECONDS * sampleRateHz);
+    }
+
+    /**
+     * Feeds the next ECG sample.
+     *
+     * @param value     the ECG value
+     * @param timestamp the sample time, in milliseconds since the Unix epoch
+     * @return {@code true} if a beat was detected; its time is {@link #getLastBeatTimestamp}
+     */
+    public boolean addSample(double value, long timestamp) {
+        double filtered = lowPass.filter(highPass.filter(value));
+        double derivative = (2 * filtered + x1 - x3 - 2 * x4) / 8;
+        x4 = x3;
+        x3 = x2;
+        x2 = x1;
+        x1 = filtered;
+        integration.add(derivative * derivative);
+        double integrated = integration.average();
+        recentMagnitudes[recentHead] = Math.abs(filtered);
+        recentTimestamps[recentHead] = timestamp;
+        recentHead = recentHead + 1 == recentMagnitudes.length ? 0 : recentHead + 1;
+
+        boolean beat = false;
+        if (++samples <= learningSamples) {
+            learningMax = Math.max(learningMax, integrated);
+            learningSum += integrated;
+            if (samples == learningSamples) {
+                signalLevel = learningMax / 3;
+                noiseLevel = learningSum / samples / 2;
+            }
+        } else {
+            if (integrated < previous && rising) {
+                beat = classifyPeak(previous, rPeakTimestamp());
+            }
+            if (!beat) {
+                beat = searchBack(timestamp);
+            }
+        }
+        rising = integrated > previous || (integrated == previous && rising);
+        previous = integrated;
+        return beat;
+    }
+
+    /**
+     * Returns the time of the largest band-passed sample in the last integration window,
+     * which holds the QRS complex whose energy peaked in the integrated signal.
+     */
+    private long rPeakTimestamp() {
+        int largest = 0;
+        for (int i = 1; i < recentMagnitudes.length; i++) {
+            if (recentMagnitudes[i] > recentMagnitudes[largest]) {
+                largest = i;
+            }
+        }
+        return recentTimestamps[largest];
+    }
+
+    private boolean classifyPeak(double peak, long timestamp) {
+        if (lastBeat != Long.MIN_VALUE && timestamp - lastBeat < REFRACTORY_MILLIS) {
+            return false;
+        }
+        if (peak > threshold()) {
+            signalLevel = 0.125 * peak + 0.875 * signalLevel;
+            beat(timestamp);
+            return true;
+        }
+        noiseLevel = 0.125 * peak + 0.875 * noiseLevel;
+        if (peak > searchBackPeak) {
+            searchBackPeak = peak;
+            searchBackTimestamp = timestamp;
+        }
+        return false;
+    }
+
+    private boolean searchBack(long timestamp) {
+        if (rrIntervals.isEmpty() || searchBackPeak <= threshold() / 2
+                || timestamp - lastBeat <= 1.66 * rrIntervals.average()) {
+            return false;
+        }
+        signalLevel = 0.25 * searchBackPeak + 0.75 * signalLevel;
+        beat(searchBackTimestamp);
+        return true;
+    }
+
+    private void beat(long timestamp) {
+        if (lastBeat != Long.MIN_VALUE) {
+            lastRrInterval = timestamp - lastBeat;
+            rrIntervals.add(lastRrInterval);
+        }
+        lastBeat = timestamp;
+        beatCount++;
+        searchBackPeak = 0;
+    }
+
+    private double threshold() {
+        return noiseLevel + 0.25 * (signalLevel - noiseLevel);
+    }
+
+    /**
+     * Returns the number of beats detected.
+     *
+     * @return the beat count
+     */
+    public long getBeatCount() {
+        return beatCount;
+    }
+
+    /**
+     * Returns the time of the last detected beat: the time of its R peak, delayed by the
+     * constant group delay of the band-pass filter.
+     *
+     * @return the beat time, in milliseconds since the Unix epoch, or {@code Long.MIN_VALUE}
+     *         if no beat was detected yet
+     */
+    public long getLastBeatTimestamp() {
+        return lastBeat;
+    }
+
+    /**
+     * Returns the interval between the last two beats.
+     *
+     * @return the RR interval, in milliseconds, or 0 if fewer than two beats were detected
+     */
+    public long getLastRrInterval() {
+        return lastRrInterval;
+    }
+
+    /**
+     * Returns the heart rate over the last eight RR intervals.
+     *
+     * @return the heart rate, in beats per minute, or {@code NaN} if fewer than two beats
+     *         were detected
+     */
+    public double getHeartRate() {
+        return rrIntervals.isEmpty() ? Double.NaN : 60_000 / rrIntervals.average();
+    }
+
+    /**
+     * A second-order IIR filter section (RBJ audio EQ cookbook design, Q = 1/sqrt(2)).
+     */
+    private static final class Biquad {
+        private final double b0;
+        private final double b1;
+        private final double b2;
+        private final double a1;
+        private final double a2;
+        private double in1;
+        private double in2;
+        private double out1;
+        private double out2;
+
+        private Biquad(double b0, double b1, double b2, double a0, double a1, double a2) {
+            this.b0 = b0 / a0;
+            this.b1 = b1 / a0;
+            this.b2 = b2 / a0;
+            this.a1 = a1 / a0;
+            this.a2 = a2 / a0;
+        }
+
+        static Biquad lowPass(double cutoffHz, double sampleRateHz) {
+            double w = 2 * Math.PI * cutoffHz / sampleRateHz;
+            double alpha = Math.sin(w) / Math.sqrt(2);
+            double cos = Math.cos(w);
+            return new Biquad((1 - cos) / 2, 1 - cos, (1 - cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+        }
+
+        static Biquad highPass(double cutoffHz, double sampleRateHz) {
+            double w = 2 * Math.PI * cutoffHz / sampleRateHz;
+            double alpha = Math.sin(w) / Math.sqrt(2);
+            double cos = Math.cos(w);
+            return new Biquad((1 + cos) / 2, -(1 + cos), (1 + cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+        }
+
+        double filter(double in) {
+            double out = b0 * in + b1 * in1 + b2 * in2 - a1 * out1 - a2 * out2;
+            in2 = in1;
+            in1 = in;
+            out2 = out1;
+            out1 = out;
+            return out;
+        }
+    }
+}
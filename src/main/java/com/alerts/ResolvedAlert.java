@@ -0,0 +1,23 @@
+package com.alerts;
+
+/**
+ * Emitted by {@link AlertLifecycle} when an open alert condition has not been raised again for
+ * the suppression window. Its timestamp is the time of resolution.
+ */
+public class ResolvedAlert extends Alert {
+    private final long openedAt;
+
+    public ResolvedAlert(String patientId, String condition, long timestamp, long openedAt) {
+        super(patientId, condition, timestamp);
+        this.openedAt = openedAt;
+    }
+
+    /**
+     * Returns the time at which the resolved condition was first raised.
+     *
+     * @return the opening time, in milliseconds since the Unix epoch
+     */
+    public long getOpenedAt() {
+        return openedAt;
+    }
+}
@@ -0,0 +1,59 @@
+package com.alerts;
+
+/**
+ * A fixed-size sliding window of samples with a running sum, kept in a primitive ring so
+ * that adding a sample neither boxes it nor allocates.
+ */
+final class SampleWindow {
+
+    private final double[] values;
+    private int head;
+    private int count;
+    private double sum;
+
+    SampleWindow(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Window size must be positive: " + size);
+        }
+        this.values = new double[size];
+    }
+
+    /**
+     * Adds a sample, evicting the oldest one if the window is full.
+     */
+    void add(double value) {
+        if (count == values.length) {
+            sum -= values[head];
+        } else {
+            count++;
+        }
+        values[head] = value;
+        sum += value;
+        head = head + 1 == values.length ? 0 : head + 1;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    boolean isFull() {
+        return count == values.length;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Returns the average of the samples in the window; only meaningful if it is not empty.
+     */
+    double average() {
+        return sum / count;
+    }
+
+    void clear() {
+        head = 0;
+        count = 0;
+        sum = 0;
+    }
+}
@@ -0,0 +1,186 @@
+package com.alerts;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams alerts to every connected TCP client, one {@linkplain AlertSink#format formatted}
+ * alert per line.
+ *
+ * <p>Every client has its own bounded queue and writer thread, so {@link #deliver} never blocks
+ * on a socket and one slow client cannot hold up the others. A writer flushes whenever its
+ * queue runs empty. A client whose queue fills up, because it reads slower than alerts are
+ * raised, is disconnected, as is a client whose connection fails.
+ */
+public class TcpAlertSink implements AlertSink {
+
+    private static final int DEFAULT_CLIENT_CAPACITY = 8192;
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final ServerSocket serverSocket;
+    private final int clientCapacity;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final LongAdder slowClients = new LongAdder();
+
+    /**
+     * Starts listening for alert stream clients on the specified port.
+     *
+     * @param port the port to listen on, or 0 for an ephemeral port
+     * @throws IOException if the port cannot be bound
+     */
+    public TcpAlertSink(int port) throws IOException {
+        this(port, DEFAULT_CLIENT_CAPACITY);
+    }
+
+    /**
+     * Starts listening for alert stream clients on the specified port, with an explicit bound
+     * on the alerts queued per client.
+     *
+     * @param port           the port to listen on, or 0 for an ephemeral port
+     * @param clientCapacity the number of alerts a client may fall behind before it is
+     *                       disconnected
+     * @throws IOException if the port cannot be bound
+     */
+    public TcpAlertSink(int port, int clientCapacity) throws IOException {
+        if (clientCapacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + clientCapacity);
+        }
+        this.clientCapacity = clientCapacity;
+        serverSocket = new ServerSocket(port);
+        Thread acceptor = new Thread(this::acceptClients, "alert-tcp-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("Alert TCP stream started on port " + serverSocket.getLocalPort());
+    }
+
+    private void acceptClients() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Client client = new Client(socket);
+                clients.add(client);
+                client.writer.start();
+                System.out.println("Alert client connected: " + socket.getInetAddress());
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Returns the number of clients disconnected because they fell too far behind.
+     *
+     * @return the slow client count
+     */
+    public long getSlowClientCount() {
+        return slowClients.sum();
+    }
+
+    /**
+     * Queues an alert for every client. Never blocks.
+     *
+     * @param alert the alert to deliver
+     */
+    @Override
+    public void deliver(Alert alert) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        byte[] line = (AlertSink.format(alert) + "\n").getBytes(StandardCharsets.UTF_8);
+        for (Client client : clients) {
+            if (!client.queue.offer(line)) {
+                slowClients.increment();
+                System.err.println("Alert client too slow, disconnecting: " + client.socket.getInetAddress());
+                drop(client);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting clients and closes every connection, after giving each writer up to a
+     * second to send the alerts queued for it.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Client client : clients) {
+            if (client.queue.offer(END_OF_STREAM)) {
+                try {
+                    client.writer.join(TimeUnit.SECONDS.toMillis(1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            drop(client);
+        }
+    }
+
+    private void drop(Client client) {
+        clients.remove(client);
+        client.writer.interrupt();
+        try {
+            client.socket.close();
+        } catch (IOException e) {
+            // Already broken; nothing more to release.
+        }
+    }
+
+    /**
+     * The connection, queue and writer thread of one client.
+     */
+    private class Client implements Runnable {
+        private final Socket socket;
+        private final OutputStream out;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(clientCapacity);
+        private final Thread writer;
+
+        Client(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+            this.writer = new Thread(this, "alert-tcp-writer-" + socket.getPort());
+            writer.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    byte[] line = queue.take();
+                    do {
+                        if (line == END_OF_STREAM) {
+                            out.flush();
+                            return;
+                        }
+                        out.write(line);
+                    } while ((line = queue.poll()) != null);
+                    out.flush();
+                }
+            } catch (InterruptedException e) {
+                // Dropped.
+            } catch (IOException e) {
+                drop(this);
+            }
+        }
+    }
+}
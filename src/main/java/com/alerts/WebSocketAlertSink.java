@@ -0,0 +1,80 @@
+package com.alerts;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+/**
+ * Pushes alerts to connected WebSocket clients, such as nurse-station displays, as one text
+ * message per {@linkplain AlertSink#format formatted} alert.
+ */
+public class WebSocketAlertSink implements AlertSink {
+
+    private final WebSocketServer server;
+
+    /**
+     * Starts a WebSocket server for alert clients on the specified port.
+     *
+     * @param port the port to listen on
+     */
+    public WebSocketAlertSink(int port) {
+        server = new AlertWebSocketServer(new InetSocketAddress(port));
+        server.setReuseAddr(true);
+        server.start();
+    }
+
+    public int getClientCount() {
+        return server.getConnections().size();
+    }
+
+    @Override
+    public void deliver(Alert alert) {
+        if (!server.getConnections().isEmpty()) {
+            server.broadcast(AlertSink.format(alert));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            server.stop(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class AlertWebSocketServer extends WebSocketServer {
+
+        AlertWebSocketServer(InetSocketAddress address) {
+            super(address);
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+            System.out.println("Alert client connected: " + conn.getRemoteSocketAddress());
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+            System.out.println("Alert client disconnected: " + conn.getRemoteSocketAddress());
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            // Alert clients only listen.
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+            ex.printStackTrace();
+        }
+
+        @Override
+        public void onStart() {
+            System.out.println("Alert WebSocket server started on port " + getPort());
+        }
+    }
+}
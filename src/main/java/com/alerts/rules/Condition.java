@@ -0,0 +1,59 @@
+package com.alerts.rules;
+
+/**
+ * The compiled {@code AND}/{@code OR} expression of a rule, evaluated over the truth values
+ * of its predicates.
+ */
+interface Condition {
+
+    boolean test(boolean[] truth);
+
+    static final class Test implements Condition {
+        private final int index;
+
+        Test(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public boolean test(boolean[] truth) {
+            return truth[index];
+        }
+    }
+
+    static final class And implements Condition {
+        private final Condition[] operands;
+
+        And(Condition[] operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean test(boolean[] truth) {
+            for (Condition operand : operands) {
+                if (!operand.test(truth)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class Or implements Condition {
+        private final Condition[] operands;
+
+        Or(Condition[] operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean test(boolean[] truth) {
+            for (Condition operand : operands) {
+                if (operand.test(truth)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.alerts.rules;
+
+import java.util.Arrays;
+
+/**
+ * A compiled test on the records of one type. A predicate keeps whatever it needs to remember
+ * between records in a slice of the patient's {@code double[]} state, starting at
+ * {@link #offset}, so that the per-patient state of a whole rule set is a single array.
+ */
+abstract class Predicate {
+
+    final String recordType;
+    // Index of the predicate's truth value.
+    int index;
+    // First state slot of the predicate.
+    int offset;
+
+    Predicate(String recordType) {
+        this.recordType = recordType;
+    }
+
+    /**
+     * Returns the number of state slots the predicate needs.
+     */
+    int stateSize() {
+        return 0;
+    }
+
+    /**
+     * Feeds the next value of the predicate's record type, updating its state.
+     *
+     * @return whether the predicate holds for this value
+     */
+    abstract boolean update(double[] state, double value, long timestamp);
+
+    void reset(double[] state) {
+        Arrays.fill(state, offset, offset + stateSize(), 0);
+    }
+
+    /**
+     * {@code <type> <op> <value>}: the latest value compared with a constant.
+     */
+    static final class Threshold extends Predicate {
+        static final int LT = 0;
+        static final int LE = 1;
+        static final int GT = 2;
+        static final int GE = 3;
+        static final int EQ = 4;
+        static final int NE = 5;
+
+        private final int operator;
+        private final double limit;
+
+        Threshold(String recordType, int operator, double limit) {
+            super(recordType);
+            this.operator = operator;
+            this.limit = limit;
+        }
+
+        @Override
+        boolean update(double[] state, double value, long timestamp) {
+            return compare(operator, value, limit);
+        }
+
+        static boolean compare(int operator, double value, double limit) {
+            switch (operator) {
+                case LT:
+                    return value < limit;
+                case LE:
+                    return value <= limit;
+                case GT:
+                    return value > limit;
+                case GE:
+                    return value >= limit;
+                case EQ:
+                    return value == limit;
+                default:
+                    return value != limit;
+            }
+        }
+    }
+
+    /**
+     * {@code <type> drop|rise <amount> within <millis>}: the value changed by at least the
+     * amount since the previous value, which arrived at most the given time before.
+     */
+    static final class Change extends Predicate {
+        private final double amount;
+        private final long withinMillis;
+        private final boolean drop;
+
+        Change(String recordType, boolean drop, double amount, long withinMillis) {
+            super(recordType);
+            this.drop = drop;
+            this.amount = amount;
+            this.withinMillis = withinMillis;
+        }
+
+        @Override
+        int stateSize() {
+            return 2;
+        }
+
+        @Override
+        boolean update(double[] state, double value, long timestamp) {
+            double previous = state[offset];
+            long previousTimestamp = (long) state[offset + 1];
+            double change = drop ? previous - value : value - previous;
+            state[offset] = value;
+            state[offset + 1] = timestamp;
+            return previousTimestamp != 0 && timestamp - previousTimestamp <= withinMillis && change >= amount;
+        }
+    }
+
+    /**
+     * {@code <type> trend <count> step <amount>}: the value moved by more than the step, in
+     * the same direction, on the given number of consecutive records.
+     */
+    static final class Trend extends Predicate {
+        private final int count;
+        private final double step;
+
+        Trend(String recordType, int count, double step) {
+            super(recordType);
+            this.count = count;
+            this.step = step;
+        }
+
+        @Override
+        int stateSize() {
+            return 2;
+        }
+
+        @Override
+        boolean update(double[] state, double value, long timestamp) {
+            double previous = state[offset];
+            double trend = state[offset + 1];
+            int increment = value > previous + step ? 1 : value < previous - step ? -1 : 0;
+            boolean holds = false;
+            if (increment != 0 && previous != 0) {
+                if ((trend > 0 && increment < 0) || (trend < 0 && increment > 0)) {
+                    trend = 0;
+                }
+                trend += increment;
+                if (Math.abs(trend) >= count) {
+                    holds = true;
+                    trend = 0;
+                }
+            } else {
+                trend = 0;
+            }
+            state[offset] = value;
+            state[offset + 1] = trend;
+            return holds;
+        }
+    }
+
+    /**
+     * A predicate over the last values of its record type, kept in a ring in the state:
+     * slot 0 holds the number of values, slot 1 their sum, slot 2 the next ring position.
+     */
+    abstract static class Window extends Predicate {
+        final int size;
+
+        Window(String recordType, int size) {
+            super(recordType);
+            this.size = size;
+        }
+
+        @Override
+        int stateSize() {
+            return 3 + size;
+        }
+
+        final void add(double[] state, double value) {
+            int count = (int) state[offset];
+            int head = (int) state[offset + 2];
+            int slot = offset + 3 + head;
+            if (count == size) {
+                state[offset + 1] -= state[slot];
+            } else {
+                state[offset] = count + 1;
+            }
+            state[slot] = value;
+            state[offset + 1] += value;
+            state[offset + 2] = head + 1 == size ? 0 : head + 1;
+        }
+
+        final double average(double[] state) {
+            return state[offset + 1] / state[offset];
+        }
+    }
+
+    /**
+     * {@code <type> peak <factor> window <size>}: the magnitude of the value exceeds the
+     * average of the previous values in the window times the factor.
+     */
+    static final class Peak extends Window {
+        private final double factor;
+
+        Peak(String recordType, double factor, int size) {
+            super(recordType, size);
+            this.factor = factor;
+        }
+
+        @Override
+        boolean update(double[] state, double value, long timestamp) {
+            // An empty window averages to NaN, which never compares true.
+            boolean holds = Math.abs(value) > average(state) * factor;
+            add(state, value);
+            return holds;
+        }
+    }
+
+    /**
+     * {@code <type> average <size> <op> <value>}: the average of the last values, including
+     * this one, compared with a constant.
+     */
+    static final class Average extends Window {
+        private final int operator;
+        private final double limit;
+
+        Average(String recordType, int size, int operator, double limit) {
+            super(recordType, size);
+            this.operator = operator;
+            this.limit = limit;
+        }
+
+        @Override
+        boolean update(double[] state, double value, long timestamp) {
+            add(state, value);
+            return Threshold.compare(operator, average(state), limit);
+        }
+    }
+}
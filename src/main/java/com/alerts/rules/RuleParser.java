@@ -0,0 +1,231 @@
+package com.alerts.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.alerts.AlertFactory;
+import com.alerts.BloodOxygenAlertFactory;
+import com.alerts.BloodPressureAlertFactory;
+import com.alerts.ECGAlertFactory;
+import com.alerts.HypotensiveHypoxiaFactory;
+
+/**
+ * Parses the rule format described in {@link RuleSet} and compiles it, predicate by
+ * predicate, into a {@link RuleSet}.
+ */
+class RuleParser {
+
+    private static final Pattern TOKEN = Pattern.compile("\\(|\\)|<=|>=|==|!=|<|>|[^\\s()<>=!]+");
+
+    private final List<Predicate> predicates = new ArrayList<>();
+    private final List<RuleSet.Rule> rules = new ArrayList<>();
+    private final List<RuleSet.Group> groups = new ArrayList<>();
+
+    private int line;
+    private List<String> tokens;
+    private int position;
+
+    static RuleSet parse(String text) {
+        return new RuleParser().parseText(text);
+    }
+
+    private RuleSet parseText(String text) {
+        String[] lines = text.split("\r?\n");
+        AlertFactory factory = null;
+        int firstPredicate = 0;
+        for (line = 1; line <= lines.length; line++) {
+            String content = lines[line - 1];
+            int comment = content.indexOf('#');
+            if (comment >= 0) {
+                content = content.substring(0, comment);
+            }
+            content = content.trim();
+            if (content.isEmpty()) {
+                continue;
+            }
+            if (content.startsWith("[") && content.endsWith("]")) {
+                if (factory != null) {
+                    groups.add(new RuleSet.Group(factory, firstPredicate, predicates.size()));
+                }
+                factory = factory(content.substring(1, content.length() - 1).trim());
+                firstPredicate = predicates.size();
+                continue;
+            }
+            if (factory == null) {
+                throw error("rule outside of a [section]");
+            }
+            int colon = content.indexOf(':');
+            if (colon <= 0) {
+                throw error("expected '<condition>: <expression>'");
+            }
+            String condition = content.substring(0, colon).trim();
+            tokens = tokenize(content.substring(colon + 1));
+            position = 0;
+            int predicatesBefore = predicates.size();
+            Condition expression = parseOr();
+            if (position < tokens.size()) {
+                throw error("unexpected '" + tokens.get(position) + "'");
+            }
+            List<String> recordTypes = new ArrayList<>();
+            for (int i = predicatesBefore; i < predicates.size(); i++) {
+                if (!recordTypes.contains(predicates.get(i).recordType)) {
+                    recordTypes.add(predicates.get(i).recordType);
+                }
+            }
+            rules.add(new RuleSet.Rule(condition, expression, groups.size(), recordTypes));
+        }
+        if (factory != null) {
+            groups.add(new RuleSet.Group(factory, firstPredicate, predicates.size()));
+        }
+        return new RuleSet(text, predicates, rules, groups);
+    }
+
+    private static List<String> tokenize(String expression) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(expression);
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+
+    private Condition parseOr() {
+        List<Condition> operands = new ArrayList<>();
+        operands.add(parseAnd());
+        while (accept("OR")) {
+            operands.add(parseAnd());
+        }
+        return operands.size() == 1 ? operands.get(0) : new Condition.Or(operands.toArray(new Condition[0]));
+    }
+
+    private Condition parseAnd() {
+        List<Condition> operands = new ArrayList<>();
+        operands.add(parsePrimary());
+        while (accept("AND")) {
+            operands.add(parsePrimary());
+        }
+        return operands.size() == 1 ? operands.get(0) : new Condition.And(operands.toArray(new Condition[0]));
+    }
+
+    private Condition parsePrimary() {
+        if (accept("(")) {
+            Condition condition = parseOr();
+            expect(")");
+            return condition;
+        }
+        Predicate predicate = parsePredicate();
+        predicate.index = predicates.size();
+        predicate.offset = predicates.isEmpty() ? 0
+                : predicates.get(predicates.size() - 1).offset + predicates.get(predicates.size() - 1).stateSize();
+        predicates.add(predicate);
+        return new Condition.Test(predicate.index);
+    }
+
+    private Predicate parsePredicate() {
+        String recordType = next("a record type");
+        String keyword = next("an operator");
+        switch (keyword.toLowerCase()) {
+            case "drop":
+            case "rise": {
+                double amount = number();
+                expect("within");
+                return new Predicate.Change(recordType, keyword.equalsIgnoreCase("drop"), amount, (long) number());
+            }
+            case "trend": {
+                int count = count();
+                expect("step");
+                return new Predicate.Trend(recordType, count, number());
+            }
+            case "peak": {
+                double factor = number();
+                expect("window");
+                return new Predicate.Peak(recordType, factor, count());
+            }
+            case "average": {
+                int size = count();
+                int operator = operator(next("an operator"));
+                return new Predicate.Average(recordType, size, operator, number());
+            }
+            default:
+                return new Predicate.Threshold(recordType, operator(keyword), number());
+        }
+    }
+
+    private int operator(String token) {
+        switch (token) {
+            case "<":
+                return Predicate.Threshold.LT;
+            case "<=":
+                return Predicate.Threshold.LE;
+            case ">":
+                return Predicate.Threshold.GT;
+            case ">=":
+                return Predicate.Threshold.GE;
+            case "==":
+                return Predicate.Threshold.EQ;
+            case "!=":
+                return Predicate.Threshold.NE;
+            default:
+                throw error("unknown operator '" + token + "'");
+        }
+    }
+
+    private double number() {
+        String token = next("a number");
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException e) {
+            throw error("expected a number, found '" + token + "'");
+        }
+    }
+
+    private int count() {
+        double number = number();
+        if (number < 1 || number != Math.rint(number)) {
+            throw error("expected a positive whole number, found " + number);
+        }
+        return (int) number;
+    }
+
+    private boolean accept(String token) {
+        if (position < tokens.size() && tokens.get(position).equalsIgnoreCase(token)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("expected '" + token + "'");
+        }
+    }
+
+    private String next(String expected) {
+        if (position == tokens.size()) {
+            throw error("expected " + expected + " at end of rule");
+        }
+        return tokens.get(position++);
+    }
+
+    private AlertFactory factory(String section) {
+        switch (section) {
+            case "BloodPressure":
+                return new BloodPressureAlertFactory();
+            case "BloodOxygen":
+                return new BloodOxygenAlertFactory();
+            case "ECG":
+                return new ECGAlertFactory();
+            case "HypotensiveHypoxia":
+                return new HypotensiveHypoxiaFactory();
+            default:
+                throw error("unknown alert type [" + section + "]");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Line " + line + ": " + message);
+    }
+}
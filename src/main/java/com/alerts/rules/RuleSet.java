@@ -0,0 +1,255 @@
+package com.alerts.rules;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import com.alerts.Alert;
+import com.alerts.AlertFactory;
+import com.data_management.PatientRecord;
+
+/**
+ * A compiled set of alert rules.
+ *
+ * <p>Rules are written one per line, grouped in sections named after the alert factory that
+ * creates their alerts: {@code [BloodPressure]}, {@code [BloodOxygen]}, {@code [ECG]} or
+ * {@code [HypotensiveHypoxia]}. A rule is {@code <condition>: <expression>}, where the
+ * expression combines predicates with {@code AND}, {@code OR} and parentheses. Each predicate
+ * tests the records of one type:
+ * <ul>
+ * <li>{@code Saturation < 92} - the latest value against a constant ({@code < <= > >= == !=})</li>
+ * <li>{@code Saturation drop 5 within 600000} - a drop (or {@code rise}) of at least 5 since
+ * the previous value, received at most 600000 ms before</li>
+ * <li>{@code SystolicPressure trend 3 step 10} - 3 consecutive changes of more than 10 in the
+ * same direction</li>
+ * <li>{@code ECG peak 1.5 window 10} - a magnitude above 1.5 times the average of the
+ * previous 10 values</li>
+ * <li>{@code HeartRate average 5 > 120} - the average of the last 5 values against a
+ * constant</li>
+ * </ul>
+ * {@code #} starts a comment.
+ *
+ * <p>A predicate holds or not as of the latest record of its type, so {@code AND} and
+ * {@code OR} combine the current state of several metrics. When a record arrives, the rules
+ * of each section that mention its type are checked in order and the first one that holds
+ * raises an alert; the section's state then starts over, as a hand-written strategy's
+ * evaluator does. Sections are independent of each other.
+ *
+ * <p>Parsing compiles each predicate into an object that keeps its state in a slice of one
+ * {@code double[]} per patient, and builds a table from record type to the predicates and
+ * rules it affects, so evaluating a record does one map lookup and touches nothing else.
+ */
+public final class RuleSet {
+
+    private static final String DEFAULT_RULES = "default.rules";
+
+    private final String source;
+    private final Predicate[] predicates;
+    private final Rule[] rules;
+    private final Group[] groups;
+    private final int stateSize;
+    private final Map<String, Dispatch> dispatch = new HashMap<>();
+    private final Set<String> recordTypes;
+
+    RuleSet(String source, List<Predicate> predicates, List<Rule> rules, List<Group> groups) {
+        this.source = source;
+        this.predicates = predicates.toArray(new Predicate[0]);
+        this.rules = rules.toArray(new Rule[0]);
+        this.groups = groups.toArray(new Group[0]);
+        int size = 0;
+        for (Predicate predicate : this.predicates) {
+            size += predicate.stateSize();
+        }
+        this.stateSize = size;
+
+        Set<String> types = new LinkedHashSet<>();
+        for (Predicate predicate : this.predicates) {
+            types.add(predicate.recordType);
+        }
+        for (String type : types) {
+            List<Predicate> typePredicates = new ArrayList<>();
+            for (Predicate predicate : this.predicates) {
+                if (predicate.recordType.equals(type)) {
+                    typePredicates.add(predicate);
+                }
+            }
+            List<Rule> typeRules = new ArrayList<>();
+            for (Rule rule : this.rules) {
+                if (rule.recordTypes.contains(type)) {
+                    typeRules.add(rule);
+                }
+            }
+            dispatch.put(type, new Dispatch(typePredicates.toArray(new Predicate[0]), typeRules.toArray(new Rule[0])));
+        }
+        this.recordTypes = Collections.unmodifiableSet(types);
+    }
+
+    /**
+     * Parses and compiles rules.
+     *
+     * @param text the rules
+     * @return the compiled rules
+     * @throws IllegalArgumentException if the rules are malformed; the message names the line
+     */
+    public static RuleSet parse(String text) {
+        return RuleParser.parse(text);
+    }
+
+    /**
+     * Reads, parses and compiles a rule file.
+     *
+     * @param file the rule file, in UTF-8
+     * @return the compiled rules
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the rules are malformed
+     */
+    public static RuleSet load(Path file) throws IOException {
+        return parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the built-in rules, which raise the same alerts as the hand-written strategies.
+     *
+     * @return the compiled default rules
+     */
+    public static RuleSet loadDefault() {
+        try (InputStream in = RuleSet.class.getResourceAsStream(DEFAULT_RULES)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource " + DEFAULT_RULES);
+            }
+            return parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the record types the rules test.
+     *
+     * @return the record types, in order of first use
+     */
+    public Set<String> getRecordTypes() {
+        return recordTypes;
+    }
+
+    /**
+     * Returns the conditions of the rules, in file order.
+     *
+     * @return the alert conditions the rules can raise
+     */
+    public List<String> getConditions() {
+        List<String> conditions = new ArrayList<>();
+        for (Rule rule : rules) {
+            conditions.add(rule.condition);
+        }
+        return conditions;
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    State newState() {
+        return new State(stateSize, predicates.length);
+    }
+
+    /**
+     * Feeds a patient's next record to the rules, passing every alert raised to the output.
+     */
+    void evaluate(State state, PatientRecord record, Consumer<? super Alert> output) {
+        Dispatch target = dispatch.get(record.getRecordType());
+        if (target == null) {
+            return;
+        }
+        double value = record.getMeasurementValue();
+        long timestamp = record.getTimestamp();
+        double[] slots = state.slots;
+        boolean[] truth = state.truth;
+        for (Predicate predicate : target.predicates) {
+            truth[predicate.index] = predicate.update(slots, value, timestamp);
+        }
+        for (Rule rule : target.rules) {
+            // A section that already fired on this record has been reset, so its rules fail.
+            if (rule.holds(truth)) {
+                Group group = groups[rule.group];
+                for (int i = group.firstPredicate; i < group.endPredicate; i++) {
+                    predicates[i].reset(slots);
+                    truth[i] = false;
+                }
+                output.accept(group.factory.createAlert("" + record.getPatientId(), rule.condition,
+                        timestamp));
+            }
+        }
+    }
+
+    /**
+     * The rule state of one patient: the predicates' slots and their latest truth values.
+     */
+    static final class State {
+        private final double[] slots;
+        private final boolean[] truth;
+
+        State(int slots, int predicates) {
+            this.slots = new double[slots];
+            this.truth = new boolean[predicates];
+        }
+    }
+
+    static final class Rule {
+        private final String condition;
+        private final Condition expression;
+        private final int group;
+        private final List<String> recordTypes;
+
+        Rule(String condition, Condition expression, int group, List<String> recordTypes) {
+            this.condition = condition;
+            this.expression = expression;
+            this.group = group;
+            this.recordTypes = recordTypes;
+        }
+
+        boolean holds(boolean[] truth) {
+            return expression.test(truth);
+        }
+    }
+
+    /**
+     * A section of rules: the factory creating their alerts and the range of predicates
+     * whose state is reset when one of them fires.
+     */
+    static final class Group {
+        private final AlertFactory factory;
+        private final int firstPredicate;
+        private final int endPredicate;
+
+        Group(AlertFactory factory, int firstPredicate, int endPredicate) {
+            this.factory = factory;
+            this.firstPredicate = firstPredicate;
+            this.endPredicate = endPredicate;
+        }
+    }
+
+    /**
+     * The predicates to update and the rules to check for records of one type.
+     */
+    private static final class Dispatch {
+        private final Predicate[] predicates;
+        private final Rule[] rules;
+
+        Dispatch(Predicate[] predicates, Rule[] rules) {
+            this.predicates = predicates;
+            this.rules = rules;
+        }
+    }
+}
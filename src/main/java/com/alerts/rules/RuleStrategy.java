@@ -0,0 +1,209 @@
+package com.alerts.rules;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.alerts.Alert;
+import com.alerts.AlertEvaluator;
+import com.alerts.IncrementalAlertStrategy;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+
+/**
+ * An alert strategy driven by a {@link RuleSet} instead of hard-coded thresholds.
+ *
+ * <p>The rules can be replaced while the strategy is in use, either explicitly with
+ * {@link #setRules} or by reloading the rule file they were loaded from. A replacement is
+ * picked up by each patient's evaluator on its next record, starting that patient's rule
+ * state over. A rule file that fails to load leaves the current rules in place.
+ *
+ * <p>Because reloaded rules may test record types the current ones do not, the strategy
+ * declares no record types and sees every record; records of untested types cost one map
+ * lookup.
+ */
+public class RuleStrategy implements IncrementalAlertStrategy, Closeable {
+
+    private static final FileTime MISSING = FileTime.fromMillis(Long.MIN_VALUE);
+
+    private final Path file;
+    private volatile RuleSet rules;
+    private volatile FileTime loadedModified;
+    private volatile ScheduledExecutorService watcher;
+    private volatile long reloadFailures;
+
+    /**
+     * Constructs a strategy evaluating fixed rules.
+     *
+     * @param rules the compiled rules
+     */
+    public RuleStrategy(RuleSet rules) {
+        this.file = null;
+        this.rules = rules;
+    }
+
+    /**
+     * Constructs a strategy evaluating the rules of a file, which can later be reloaded.
+     *
+     * @param file the rule file
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the rules are malformed
+     */
+    public RuleStrategy(Path file) throws IOException {
+        this.file = file;
+        this.loadedModified = Files.getLastModifiedTime(file);
+        this.rules = RuleSet.load(file);
+    }
+
+    public RuleSet getRules() {
+        return rules;
+    }
+
+    /**
+     * Replaces the rules.
+     *
+     * @param rules the new compiled rules
+     */
+    public void setRules(RuleSet rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Reloads the rule file if it was modified since it was last loaded or tried. A file that
+     * fails to load is reported once, and tried again only once it is modified again.
+     *
+     * @return {@code true} if new rules were loaded
+     */
+    public synchronized boolean reloadIfModified() {
+        if (file == null) {
+            return false;
+        }
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            modified = MISSING; // reported by the load below, once
+        }
+        if (modified.equals(loadedModified)) {
+            return false;
+        }
+        loadedModified = modified;
+        try {
+            RuleSet loaded = RuleSet.load(file);
+            if (loaded.getSource().equals(rules.getSource())) {
+                return false;
+            }
+            rules = loaded;
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            reloadFailures++;
+            System.err.println("Error reloading alert rules from " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Checks the rule file for modifications periodically, on a background thread, until
+     * the strategy is closed.
+     *
+     * @param periodMillis how often to check, in milliseconds
+     */
+    public synchronized void watch(long periodMillis) {
+        if (file == null) {
+            throw new IllegalStateException("Rules were not loaded from a file");
+        }
+        if (watcher != null) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alert-rule-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(this::reloadIfModified, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the number of reloads that failed because the file could not be read or parsed.
+     *
+     * @return the failed reload count
+     */
+    public long getReloadFailures() {
+        return reloadFailures;
+    }
+
+    /**
+     * Stops watching the rule file.
+     */
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Returns the first alert the rules raise over the records.
+     */
+    @Override
+    public Alert checkAlert(Patient patient, List<PatientRecord> records) {
+        AlertEvaluator evaluator = createEvaluator();
+        for (PatientRecord record : records) {
+            Alert alert = evaluator.evaluate(record);
+            if (alert != null) {
+                return alert;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public AlertEvaluator createEvaluator() {
+        return new Evaluator();
+    }
+
+    @Override
+    public Set<String> getRecordTypes() {
+        return Collections.emptySet();
+    }
+
+    private class Evaluator implements AlertEvaluator {
+        private RuleSet current;
+        private RuleSet.State state;
+
+        /**
+         * Returns the first alert raised by the record; see {@link #evaluate(PatientRecord,
+         * Consumer)} for every alert.
+         */
+        @Override
+        public Alert evaluate(PatientRecord record) {
+            Alert[] first = new Alert[1];
+            evaluate(record, alert -> {
+                if (first[0] == null) {
+                    first[0] = alert;
+                }
+            });
+            return first[0];
+        }
+
+        @Override
+        public void evaluate(PatientRecord record, Consumer<? super Alert> output) {
+            RuleSet latest = rules;
+            if (latest != current) {
+                current = latest;
+                state = latest.newState();
+            }
+            current.evaluate(state, record, output);
+        }
+    }
+}
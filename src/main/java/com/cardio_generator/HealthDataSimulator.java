@@ -1,8 +1,8 @@
 package com.cardio_generator;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.SplittableRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 import com.cardio_generator.generators.AlertGenerator;
 
@@ -10,34 +10,62 @@ import com.cardio_generator.generators.BloodPressureDataGenerator;
 import com.cardio_generator.generators.BloodSaturationDataGenerator;
 import com.cardio_generator.generators.BloodLevelsDataGenerator;
 import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.generators.ECGWaveformGenerator;
+import com.cardio_generator.generators.ECGWaveformGenerator.Arrhythmia;
+import com.cardio_generator.generators.PatientDataGenerator;
 import com.cardio_generator.outputs.ConsoleOutputStrategy;
 import com.cardio_generator.outputs.FileOutputStrategy;
 import com.cardio_generator.outputs.OutputStrategy;
 import com.cardio_generator.outputs.TcpOutputStrategy;
 import com.cardio_generator.outputs.WebSocketOutputStrategy;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Random;
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 
 /**
  * The HealthDataSimulator class simulates health data for multiple patients, outputs them
  *     using various strategies and then schedules tasks for each patient within the local
  *         schedular object.
  * This class is responsible for housing the main.
+ *
+ * <p>Generators run on a {@link SimulationScheduler}: the patients are split into batches of
+ * consecutive IDs, spread evenly over each generator's period, and every batch is one periodic
+ * task. The thread count is the worker count plus one, whatever the number of patients.
+ *
+ * <p>Every generator draws each patient's data from its own random stream, all derived from
+ * one seed, so a run can be replayed with {@code --seed}.
+ *
+ * <p>With {@code --speed}, the scheduler runs on a simulated clock, a multiple of real time or
+ * as fast as the generators allow, and the clock timestamps the data. Together with a seed and
+ * a start time, a simulated run generates the same data every time.
+ *
+ * <p>With {@code --ecg-rate}, the ECG is generated as a stress load: shaped beats at a
+ * monitor's sample rate, with optional arrhythmia episodes, emitted in blocks per patient.
+ *
+ * <p>With {@code --load-profile}, the patient count, admissions and discharges, and the rate of
+ * each metric follow a {@link LoadProfile} file, run by a {@link PatientPopulation}.
  */
 
 public class HealthDataSimulator {
 
+    private static final long TICK_MILLIS = 10;
+
     private static int patientCount = 50; // Default number of patients
-    private static ScheduledExecutorService scheduler;
+    private static int workerCount = Runtime.getRuntime().availableProcessors();
+    private static long seed = new SplittableRandom().nextLong();
+    private static boolean simulatedClock;
+    private static double speed = 1;
+    private static long startTimeMillis = System.currentTimeMillis();
+    private static long durationMillis; // 0 to run until stopped
+    private static double ecgRateHz; // 0 for one ECG value per second
+    private static Arrhythmia[] arrhythmias = new Arrhythmia[0];
+    private static double episodesPerHour = 2;
+    private static LoadProfile loadProfile; // null for a fixed patient count
+    private static SimulationScheduler scheduler;
     private static OutputStrategy outputStrategy = new ConsoleOutputStrategy(); // Default output strategy
-    private static final Random random = new Random();
     private static volatile HealthDataSimulator instance;
 
     private HealthDataSimulator(){}
@@ -49,22 +77,81 @@ public class HealthDataSimulator {
 
     /**
      * The main method of the Project.
-     * Creates a list object initialized with patient ID's.
+     * Schedules the generators for every patient and starts the scheduler.
      * 
      * @param args Command line arguments as Strings.
      * @throws IOException If an Input/Output error occurs from the parseArguments() method.
      */
     public static void main(String[] args) throws IOException {
+        run(args);
+        if (durationMillis > 0) {
+            System.exit(0);
+        }
+    }
 
+    /**
+     * Runs the simulator with the given command line arguments. With {@code --duration}, returns
+     * once the run is over and the scheduler and the output are closed; otherwise returns once
+     * the scheduler has started.
+     *
+     * @param args Command line arguments as Strings.
+     * @throws IOException If an Input/Output error occurs from the parseArguments() method.
+     */
+    public static void run(String[] args) throws IOException {
+        resetOptions();
         parseArguments(args);
+        System.out.println("Simulation seed: " + seed);
 
-        scheduler = Executors.newScheduledThreadPool(patientCount * 4);
+        scheduler = new SimulationScheduler(TICK_MILLIS, workerCount);
+        scheduler.setStartTimeMillis(startTimeMillis);
 
-        List<Integer> patientIds = initializePatientIds(patientCount);
-        Collections.shuffle(patientIds); // Randomize the order of patient IDs
+        scheduleTasksForPatients(patientCount);
+        if (durationMillis == 0) {
+            if (simulatedClock) {
+                scheduler.startSimulated(speed);
+            } else {
+                scheduler.start();
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        if (simulatedClock) {
+            scheduler.runSimulated(speed, durationMillis / TICK_MILLIS);
+        } else {
+            scheduler.start();
+            try {
+                Thread.sleep(durationMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        scheduler.close();
+        if (outputStrategy instanceof Closeable) {
+            ((Closeable) outputStrategy).close();
+        }
+        System.out.println("Simulated " + durationMillis + " ms in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
 
-        scheduleTasksForPatients(patientIds);
+    /**
+     * Restores the options to their defaults, so that a run does not inherit the options of a
+     * previous run in the same JVM.
+     */
+    private static void resetOptions() {
+        patientCount = 50;
+        workerCount = Runtime.getRuntime().availableProcessors();
+        seed = new SplittableRandom().nextLong();
+        simulatedClock = false;
+        speed = 1;
+        startTimeMillis = System.currentTimeMillis();
+        durationMillis = 0;
+        ecgRateHz = 0;
+        arrhythmias = new Arrhythmia[0];
+        episodesPerHour = 2;
+        loadProfile = null;
+        outputStrategy = new ConsoleOutputStrategy();
     }
+
     /**
      * Provides the global point of access to the HealthDataSimulator instance.
      *
@@ -106,6 +193,106 @@ public class HealthDataSimulator {
                         }
                     }
                     break;
+                case "--workers":
+                    if (i + 1 < args.length) {
+                        try {
+                            workerCount = Math.max(1, Integer.parseInt(args[++i]));
+                        } catch (NumberFormatException e) {
+                            System.err
+                                    .println("Error: Invalid number of workers. Using default value: " + workerCount);
+                        }
+                    }
+                    break;
+                case "--seed":
+                    if (i + 1 < args.length) {
+                        try {
+                            seed = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid seed. Using random seed: " + seed);
+                        }
+                    }
+                    break;
+                case "--speed":
+                    if (i + 1 < args.length) {
+                        String speedArg = args[++i];
+                        try {
+                            double value = speedArg.equals("max") ? Double.POSITIVE_INFINITY
+                                    : Double.parseDouble(speedArg);
+                            if (!(value > 0)) {
+                                throw new NumberFormatException(speedArg);
+                            }
+                            speed = value;
+                            simulatedClock = true;
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid speed. Using the wall clock.");
+                        }
+                    }
+                    break;
+                case "--start-time":
+                    if (i + 1 < args.length) {
+                        try {
+                            startTimeMillis = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid start time. Using the current time.");
+                        }
+                    }
+                    break;
+                case "--duration":
+                    if (i + 1 < args.length) {
+                        try {
+                            durationMillis = TimeUnit.MINUTES.toMillis(Math.max(0, Long.parseLong(args[++i])));
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid duration. Running until stopped.");
+                        }
+                    }
+                    break;
+                case "--ecg-rate":
+                    if (i + 1 < args.length) {
+                        try {
+                            double rate = Double.parseDouble(args[++i]);
+                            if (!(rate > 0 && rate <= 1000)) {
+                                throw new NumberFormatException(args[i]);
+                            }
+                            ecgRateHz = rate;
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid ECG sample rate. Using one ECG value per second.");
+                        }
+                    }
+                    break;
+                case "--arrhythmias":
+                    if (i + 1 < args.length) {
+                        try {
+                            String[] names = args[++i].split(",");
+                            Arrhythmia[] parsed = new Arrhythmia[names.length];
+                            for (int j = 0; j < names.length; j++) {
+                                parsed[j] = Arrhythmia.of(names[j]);
+                            }
+                            arrhythmias = parsed;
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: " + e.getMessage() + ". Using no arrhythmias.");
+                        }
+                    }
+                    break;
+                case "--episodes-per-hour":
+                    if (i + 1 < args.length) {
+                        try {
+                            episodesPerHour = Math.max(0, Double.parseDouble(args[++i]));
+                        } catch (NumberFormatException e) {
+                            System.err.println(
+                                    "Error: Invalid episode rate. Using default value: " + episodesPerHour);
+                        }
+                    }
+                    break;
+                case "--load-profile":
+                    if (i + 1 < args.length) {
+                        try {
+                            loadProfile = LoadProfile.load(Paths.get(args[++i]));
+                        } catch (IOException | IllegalArgumentException e) {
+                            System.err.println("Error: Invalid load profile " + args[i] + ": " + e.getMessage()
+                                    + ". Using a fixed patient count.");
+                        }
+                    }
+                    break;
                 case "--output":
                     if (i + 1 < args.length) {
                         String outputArg = args[++i];
@@ -148,6 +335,11 @@ public class HealthDataSimulator {
                     System.exit(1);
             }
         }
+        if (loadProfile != null && ecgRateHz > 0 && loadProfile.getRateMultiplier("ECG") != 1) {
+            System.err.println("Error: A load profile cannot set the ECG rate with --ecg-rate, which sets the"
+                    + " sample rate. Using a fixed patient count.");
+            loadProfile = null;
+        }
     }
 
     /**
@@ -159,6 +351,29 @@ public class HealthDataSimulator {
         System.out.println("  -h                       Show help and exit.");
         System.out.println(
                 "  --patient-count <count>  Specify the number of patients to simulate data for (default: 50).");
+        System.out.println(
+                "  --workers <count>        Specify the number of generator threads (default: one per processor).");
+        System.out.println(
+                "  --seed <seed>            Seed the generated data, to replay a run (default: a random seed).");
+        System.out.println(
+                "  --speed <factor>         Run on a simulated clock <factor> times faster than real time,");
+        System.out.println("                             or as fast as possible with 'max' (default: the wall clock).");
+        System.out.println(
+                "  --start-time <millis>    Start the simulated clock at the given epoch time (default: now).");
+        System.out.println(
+                "  --duration <minutes>     Stop after the given minutes of data (default: run until stopped).");
+        System.out.println(
+                "  --ecg-rate <hz>          Generate shaped ECG beats at the given sample rate, up to 1000 Hz,");
+        System.out.println("                             in blocks per patient (default: one ECG value per second).");
+        System.out.println("  --arrhythmias <list>     Give ECG patients episodes of the comma-separated arrhythmias:");
+        System.out.println("                             afib, pvc, tachycardia, bradycardia (requires --ecg-rate).");
+        System.out.println(
+                "  --episodes-per-hour <n>  Set the average arrhythmia episodes per patient and hour (default: 2).");
+        System.out.println(
+                "  --load-profile <file>    Ramp, burst and churn the patients as the file describes, instead of");
+        System.out.println("                             a fixed --patient-count. Lines are, for example:");
+        System.out.println("                             'patients 30m 400', 'burst every 15m for 2m x4',");
+        System.out.println("                             'churn 30 per 1h', 'rate ECG 2' (not with --ecg-rate).");
         System.out.println("  --output <type>          Define the output method. Options are:");
         System.out.println("                             'console' for console output,");
         System.out.println("                             'file:<directory>' for file output,");
@@ -168,53 +383,76 @@ public class HealthDataSimulator {
         System.out.println("  java HealthDataSimulator --patient-count 100 --output websocket:8080");
         System.out.println(
                 "  This command simulates data for 100 patients and sends the output to WebSocket clients connected to port 8080.");
-    }
-
-    /**
-     * Initializes patient IDs as integers and stores them in a list.
-     * 
-     * @param patientCount The number of patients as an integer.This is used to give each patient
-     *     a unique integer ID.
-     * @return A list of integers representing patient IDs.
-     */
-    private static List<Integer> initializePatientIds(int patientCount) {
-        List<Integer> patientIds = new ArrayList<>();
-        for (int i = 1; i <= patientCount; i++) {
-            patientIds.add(i);
-        }
-        return patientIds;
+        System.out.println("  java HealthDataSimulator --speed max --duration 1440 --seed 1 --output file:data");
+        System.out.println("  This command writes a day of data, the same every time, as fast as possible.");
     }
 
     /**
      * Schedules tasks for each patients based on the values obtained from the
      *     health data generators.
      * 
-     * @param patientIds The list of patient IDs as a list of integers is used to assigne each
-     *     patient a task based on their unique ID's.
+     * @param patientCount The number of patients; patients have the IDs 1 to patientCount. Not
+     *     used with a load profile, whose population sets the number of patients.
      */
-    private static void scheduleTasksForPatients(List<Integer> patientIds) {
-        ECGDataGenerator ecgDataGenerator = new ECGDataGenerator(patientCount);
-        BloodSaturationDataGenerator bloodSaturationDataGenerator = new BloodSaturationDataGenerator(patientCount);
-        BloodPressureDataGenerator bloodPressureDataGenerator = new BloodPressureDataGenerator(patientCount);
-        BloodLevelsDataGenerator bloodLevelsDataGenerator = new BloodLevelsDataGenerator(patientCount);
-        AlertGenerator alertGenerator = new AlertGenerator(patientCount);
-
-        for (int patientId : patientIds) {
-            scheduleTask(() -> ecgDataGenerator.generate(patientId, outputStrategy), 1, TimeUnit.SECONDS);
-            scheduleTask(() -> bloodSaturationDataGenerator.generate(patientId, outputStrategy), 1, TimeUnit.SECONDS);
-            scheduleTask(() -> bloodPressureDataGenerator.generate(patientId, outputStrategy), 1, TimeUnit.MINUTES);
-            scheduleTask(() -> bloodLevelsDataGenerator.generate(patientId, outputStrategy), 2, TimeUnit.MINUTES);
-            scheduleTask(() -> alertGenerator.generate(patientId, outputStrategy), 20, TimeUnit.SECONDS);
+    private static void scheduleTasksForPatients(int patientCount) {
+        // Each generator's streams are split from the seed in a fixed order.
+        SplittableRandom seeds = new SplittableRandom(seed);
+        LongSupplier clock = simulatedClock ? scheduler::currentTimeMillis : System::currentTimeMillis;
+        PatientPopulation population = null;
+        if (loadProfile != null) {
+            population = new PatientPopulation(loadProfile, scheduler, clock, seeds.split());
+            patientCount = population.getCapacity();
+        }
+        PatientDataGenerator ecgDataGenerator = ecgRateHz > 0
+                ? new ECGWaveformGenerator(patientCount, ecgRateHz, arrhythmias, episodesPerHour, seeds.split(), clock)
+                : new ECGDataGenerator(patientCount, seeds.split(), clock);
+        BloodSaturationDataGenerator bloodSaturationDataGenerator =
+                new BloodSaturationDataGenerator(patientCount, seeds.split(), clock);
+        BloodPressureDataGenerator bloodPressureDataGenerator =
+                new BloodPressureDataGenerator(patientCount, seeds.split(), clock);
+        BloodLevelsDataGenerator bloodLevelsDataGenerator =
+                new BloodLevelsDataGenerator(patientCount, seeds.split(), clock);
+        AlertGenerator alertGenerator = new AlertGenerator(patientCount, seeds.split(), clock);
+
+        if (population != null) {
+            population.schedule("ECG", ecgDataGenerator, TimeUnit.SECONDS.toMillis(1), outputStrategy);
+            population.schedule("Saturation", bloodSaturationDataGenerator, TimeUnit.SECONDS.toMillis(1),
+                    outputStrategy);
+            population.schedule("BloodPressure", bloodPressureDataGenerator, TimeUnit.MINUTES.toMillis(1),
+                    outputStrategy);
+            population.schedule("BloodLevels", bloodLevelsDataGenerator, TimeUnit.MINUTES.toMillis(2),
+                    outputStrategy);
+            population.schedule("Alert", alertGenerator, TimeUnit.SECONDS.toMillis(20), outputStrategy);
+            population.start();
+            return;
         }
+        scheduleTask(ecgDataGenerator, patientCount, 1, TimeUnit.SECONDS);
+        scheduleTask(bloodSaturationDataGenerator, patientCount, 1, TimeUnit.SECONDS);
+        scheduleTask(bloodPressureDataGenerator, patientCount, 1, TimeUnit.MINUTES);
+        scheduleTask(bloodLevelsDataGenerator, patientCount, 2, TimeUnit.MINUTES);
+        scheduleTask(alertGenerator, patientCount, 20, TimeUnit.SECONDS);
     }
+
     /**
-     * Schedules a given task in the scheular object with a given period and timeunit.
+     * Schedules a generator for every patient with a given period and timeunit. The patients
+     *     are split into at most one batch per tick of the period, and the batches are spread
+     *     evenly over the period, so each tick generates data for about the same number of
+     *     patients.
      * 
-     * @param task     The task to be scheduled as type "Runnable".
-     * @param period   The period int the schedule at which the task will be executed.
-     * @param timeUnit The time unit of the period.
+     * @param generator    The generator to run for every patient.
+     * @param patientCount The number of patients.
+     * @param period       The period int the schedule at which the task will be executed.
+     * @param timeUnit     The time unit of the period.
      */
-    private static void scheduleTask(Runnable task, long period, TimeUnit timeUnit) {
-        scheduler.scheduleAtFixedRate(task, random.nextInt(5), period, timeUnit);
+    private static void scheduleTask(PatientDataGenerator generator, int patientCount, long period,
+            TimeUnit timeUnit) {
+        long periodMillis = timeUnit.toMillis(period);
+        int batches = (int) Math.max(1, Math.min(patientCount, periodMillis / TICK_MILLIS));
+        for (int batch = 0; batch < batches; batch++) {
+            int from = 1 + (int) ((long) patientCount * batch / batches);
+            int to = 1 + (int) ((long) patientCount * (batch + 1) / batches);
+            scheduler.schedule(() -> generator.generateBatch(from, to, outputStrategy),
+                    periodMillis * batch / batches, periodMillis);
+        }
     }
 }
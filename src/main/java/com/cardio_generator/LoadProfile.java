@@ -0,0 +1,298 @@
+package com.cardio_generator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A load profile for the simulator: how many patients are monitored over time, how they come
+ * and go, and how often each metric is generated.
+ *
+ * <p>Profiles are written one directive per line; {@code #} starts a comment. Durations and
+ * times are a number followed by a unit: {@code ms}, {@code s}, {@code m} or {@code h}. Times
+ * count from the start of the run.
+ * <ul>
+ * <li>{@code patients 30m 400} - 400 patients at 30 minutes. The count is interpolated
+ * linearly between these points, and held before the first and after the last. At least one
+ * is required.</li>
+ * <li>{@code burst every 15m for 2m x4} - every metric is generated 4 times as often for
+ * 2 minutes every 15 minutes, starting at the start of the run. Overlapping bursts
+ * multiply. A waveform ECG keeps its sample rate and is only output in smaller blocks.</li>
+ * <li>{@code churn 30 per 1h} - 30 random patients are discharged per hour and replaced by
+ * as many new admissions, with new patient IDs.</li>
+ * <li>{@code rate ECG 2} - ECG is generated twice as often. The metrics are {@code ECG},
+ * {@code Saturation}, {@code BloodPressure}, {@code BloodLevels} and {@code Alert}. A waveform
+ * ECG's rate is its sample rate, so a profile cannot change it.</li>
+ * </ul>
+ *
+ * @see PatientPopulation
+ */
+public final class LoadProfile {
+
+    static final Set<String> METRICS = Set.of("ECG", "Saturation", "BloodPressure", "BloodLevels", "Alert");
+
+    private static final Pattern DURATION = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|s|m|h)");
+
+    private final long[] rampTimes;
+    private final int[] rampCounts;
+    private final long[] burstPeriods;
+    private final long[] burstLengths;
+    private final double[] burstFactors;
+    private final double churnPerMilli;
+    private final Map<String, Double> rates;
+
+    private LoadProfile(List<long[]> ramp, List<double[]> bursts, double churnPerMilli, Map<String, Double> rates) {
+        ramp.sort((a, b) -> Long.compare(a[0], b[0]));
+        rampTimes = new long[ramp.size()];
+        rampCounts = new int[ramp.size()];
+        for (int i = 0; i < ramp.size(); i++) {
+            rampTimes[i] = ramp.get(i)[0];
+            rampCounts[i] = (int) ramp.get(i)[1];
+        }
+        burstPeriods = new long[bursts.size()];
+        burstLengths = new long[bursts.size()];
+        burstFactors = new double[bursts.size()];
+        for (int i = 0; i < bursts.size(); i++) {
+            burstPeriods[i] = (long) bursts.get(i)[0];
+            burstLengths[i] = (long) bursts.get(i)[1];
+            burstFactors[i] = bursts.get(i)[2];
+        }
+        this.churnPerMilli = churnPerMilli;
+        this.rates = Collections.unmodifiableMap(rates);
+    }
+
+    /**
+     * Parses a load profile.
+     *
+     * @param text the profile
+     * @return the profile
+     * @throws IllegalArgumentException if the profile is malformed; the message names the line
+     */
+    public static LoadProfile parse(String text) {
+        List<long[]> ramp = new ArrayList<>();
+        List<double[]> bursts = new ArrayList<>();
+        double churnPerMilli = 0;
+        Map<String, Double> rates = new HashMap<>();
+        String[] lines = text.split("\r?\n");
+        for (int line = 1; line <= lines.length; line++) {
+            String content = lines[line - 1];
+            int comment = content.indexOf('#');
+            if (comment >= 0) {
+                content = content.substring(0, comment);
+            }
+            String[] words = content.trim().split("\\s+");
+            if (words[0].isEmpty()) {
+                continue;
+            }
+            try {
+                switch (words[0]) {
+                    case "patients":
+                        expectWords(words, 3, "patients <time> <count>");
+                        ramp.add(new long[] {duration(words[1]), count(words[2])});
+                        break;
+                    case "burst":
+                        expectWords(words, 6, "burst every <duration> for <duration> x<factor>");
+                        expectWord(words[1], "every");
+                        expectWord(words[3], "for");
+                        if (!words[5].startsWith("x")) {
+                            throw new IllegalArgumentException("expected 'x<factor>' but found '" + words[5] + "'");
+                        }
+                        long period = duration(words[2]);
+                        long length = duration(words[4]);
+                        if (period == 0 || length > period) {
+                            throw new IllegalArgumentException("a burst must be shorter than its period");
+                        }
+                        bursts.add(new double[] {period, length, factor(words[5].substring(1))});
+                        break;
+                    case "churn":
+                        expectWords(words, 4, "churn <count> per <duration>");
+                        expectWord(words[2], "per");
+                        long per = duration(words[3]);
+                        if (per == 0) {
+                            throw new IllegalArgumentException("churn duration must be positive");
+                        }
+                        churnPerMilli += (double) count(words[1]) / per;
+                        break;
+                    case "rate":
+                        expectWords(words, 3, "rate <metric> <multiplier>");
+                        if (!METRICS.contains(words[1])) {
+                            throw new IllegalArgumentException("unknown metric '" + words[1] + "'; expected one of "
+                                    + METRICS);
+                        }
+                        rates.put(words[1], factor(words[2]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown directive '" + words[0] + "'");
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + line + ": " + e.getMessage(), e);
+            }
+        }
+        if (ramp.isEmpty()) {
+            throw new IllegalArgumentException("No 'patients' line");
+        }
+        return new LoadProfile(ramp, bursts, churnPerMilli, rates);
+    }
+
+    /**
+     * Reads and parses a load profile file.
+     *
+     * @param file the profile file, in UTF-8
+     * @return the profile
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the profile is malformed
+     */
+    public static LoadProfile load(Path file) throws IOException {
+        return parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    private static void expectWords(String[] words, int count, String usage) {
+        if (words.length != count) {
+            throw new IllegalArgumentException("expected '" + usage + "'");
+        }
+    }
+
+    private static void expectWord(String word, String expected) {
+        if (!word.equals(expected)) {
+            throw new IllegalArgumentException("expected '" + expected + "' but found '" + word + "'");
+        }
+    }
+
+    private static long duration(String word) {
+        Matcher matcher = DURATION.matcher(word);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("expected a duration such as 30s or 5m but found '" + word + "'");
+        }
+        double value = Double.parseDouble(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "h":
+                return Math.round(value * 3_600_000);
+            case "m":
+                return Math.round(value * 60_000);
+            case "s":
+                return Math.round(value * 1000);
+            default:
+                return Math.round(value);
+        }
+    }
+
+    private static int count(String word) {
+        try {
+            int count = Integer.parseInt(word);
+            if (count >= 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException("expected a count but found '" + word + "'");
+    }
+
+    private static double factor(String word) {
+        try {
+            double factor = Double.parseDouble(word);
+            if (factor > 0 && !Double.isInfinite(factor)) {
+                return factor;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException("expected a positive number but found '" + word + "'");
+    }
+
+    /**
+     * Returns the number of patients the profile asks for at a time of the run.
+     *
+     * @param elapsedMillis the time since the start of the run, in milliseconds
+     * @return the patient count, interpolated between the {@code patients} points
+     */
+    public int getPatientCount(long elapsedMillis) {
+        int last = rampTimes.length - 1;
+        if (elapsedMillis <= rampTimes[0]) {
+            return rampCounts[0];
+        }
+        if (elapsedMillis >= rampTimes[last]) {
+            return rampCounts[last];
+        }
+        int i = 1;
+        while (rampTimes[i] < elapsedMillis) {
+            i++;
+        }
+        double fraction = (double) (elapsedMillis - rampTimes[i - 1]) / (rampTimes[i] - rampTimes[i - 1]);
+        return (int) Math.round(rampCounts[i - 1] + fraction * (rampCounts[i] - rampCounts[i - 1]));
+    }
+
+    /**
+     * Returns the largest number of patients the profile asks for at any time.
+     *
+     * @return the peak patient count
+     */
+    public int getMaxPatientCount() {
+        int max = 0;
+        for (int count : rampCounts) {
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+
+    /**
+     * Returns how many times as often as normal a metric is generated at a time of the run:
+     * its rate multiplier times the factors of the bursts in progress.
+     *
+     * @param metric        the metric
+     * @param elapsedMillis the time since the start of the run, in milliseconds
+     * @return the rate multiplier
+     */
+    public double getRate(String metric, long elapsedMillis) {
+        double rate = rates.getOrDefault(metric, 1.0);
+        for (int i = 0; i < burstPeriods.length; i++) {
+            if (elapsedMillis % burstPeriods[i] < burstLengths[i]) {
+                rate *= burstFactors[i];
+            }
+        }
+        return rate;
+    }
+
+    /**
+     * Returns the rate multiplier a {@code rate} directive sets for a metric, without bursts.
+     *
+     * @param metric the metric
+     * @return the rate multiplier, 1 if the profile sets none
+     */
+    public double getRateMultiplier(String metric) {
+        return rates.getOrDefault(metric, 1.0);
+    }
+
+    /**
+     * Returns the highest rate multiplier of a metric, reached when all bursts that speed it up
+     * coincide.
+     *
+     * @param metric the metric
+     * @return the highest rate multiplier
+     */
+    public double getMaxRate(String metric) {
+        double rate = rates.getOrDefault(metric, 1.0);
+        for (double factor : burstFactors) {
+            rate *= Math.max(1, factor);
+        }
+        return rate;
+    }
+
+    /**
+     * Returns the number of discharges, each replaced by an admission, per millisecond.
+     *
+     * @return the churn rate
+     */
+    public double getChurnPerMilli() {
+        return churnPerMilli;
+    }
+}
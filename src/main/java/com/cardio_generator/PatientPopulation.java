@@ -0,0 +1,277 @@
+package com.cardio_generator;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.LongSupplier;
+
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
+
+/**
+ * Runs the generators of the simulator on a {@link SimulationScheduler} according to a
+ * {@link LoadProfile}: admits and discharges patients to follow the profile's patient count
+ * and churn, and generates each metric at the profile's rate.
+ *
+ * <p>Generators are sized for a fixed number of slots, each holding the state of one
+ * monitored patient. An admitted patient takes the free slot that has been free the longest
+ * and gets a new patient ID, under which the samples of its slot are output; a discharged
+ * patient frees its slot. A control task adjusts the population once per second, on the
+ * scheduler's ticker before the tick's batch tasks run, so the batches always see the same
+ * population at the same tick and a seeded run is replayed whatever the number of workers.
+ *
+ * <p>Each generator is scheduled like a fixed one, in batches of slots spread over its period,
+ * but at the period of its highest rate. Every batch task keeps a credit of runs: each time
+ * it comes due it earns the current rate over the highest rate, and it generates data, for
+ * the admitted patients of its batch only, when the credit reaches a whole run. When it finds a
+ * new patient in a slot, it resets the slot in its generator first, so a waveform restarts at
+ * the patient's admission rather than catching up from the previous patient's last sample.
+ */
+public class PatientPopulation {
+
+    private static final long CONTROL_PERIOD_MILLIS = 1000;
+
+    private final LoadProfile profile;
+    private final SimulationScheduler scheduler;
+    private final LongSupplier clock;
+    private final SplittableRandom random;
+    private final int capacity;
+
+    // The ID of the patient in each slot, or 0 for a free slot; read by the batch tasks.
+    private final AtomicIntegerArray patientIds;
+
+    // Accessed by the control task only.
+    private final int[] admittedSlots;
+    private final int[] freeSlots;
+    private int freeHead;
+    private int freeCount;
+    private int nextPatientId = 1;
+    private long startMillis;
+    private long lastControlMillis;
+    private double churnCredit;
+
+    private volatile int patientCount;
+    private volatile long admissions;
+    private volatile long discharges;
+
+    /**
+     * Constructs a population for a profile. The generators it runs must be sized for
+     * {@link #getCapacity()} patients.
+     *
+     * @param profile   the load profile
+     * @param scheduler the scheduler to run the generators and the control task on
+     * @param clock     returns the current time in milliseconds; the profile's times count from
+     *                  the time of {@link #start()}
+     * @param random    chooses the patients discharged
+     */
+    public PatientPopulation(LoadProfile profile, SimulationScheduler scheduler, LongSupplier clock,
+            SplittableRandom random) {
+        this.profile = profile;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.random = random;
+        int peak = profile.getMaxPatientCount();
+        // With churn, spare slots let a freed slot rest before it is taken again.
+        this.capacity = Math.max(1, profile.getChurnPerMilli() > 0 ? peak + peak / 4 + 1 : peak);
+        this.patientIds = new AtomicIntegerArray(capacity + 1);
+        this.admittedSlots = new int[capacity];
+        this.freeSlots = new int[capacity];
+        for (int slot = 1; slot <= capacity; slot++) {
+            freeSlots[slot - 1] = slot;
+        }
+        this.freeCount = capacity;
+    }
+
+    /**
+     * Returns the number of slots the generators must be sized for.
+     *
+     * @return the capacity; slots are numbered from 1
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Schedules a generator for the admitted patients. Must be called before {@link #start()}.
+     *
+     * @param metric       the metric the generator generates, as named in the profile
+     * @param generator    the generator, sized for {@link #getCapacity()} patients
+     * @param periodMillis the period of the generator at rate 1, in milliseconds
+     * @param output       the output strategy of the generated data
+     */
+    public void schedule(String metric, PatientDataGenerator generator, long periodMillis, OutputStrategy output) {
+        if (!LoadProfile.METRICS.contains(metric)) {
+            throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+        double maxRate = profile.getMaxRate(metric);
+        long tickMillis = scheduler.getTickMillis();
+        long fastestMillis = Math.max(tickMillis, Math.round(periodMillis / maxRate));
+        int batches = (int) Math.max(1, Math.min(capacity, fastestMillis / tickMillis));
+        for (int batch = 0; batch < batches; batch++) {
+            int from = 1 + (int) ((long) capacity * batch / batches);
+            int to = 1 + (int) ((long) capacity * (batch + 1) / batches);
+            // The rate earned per run is relative to the period actually scheduled.
+            double runsPerRate = (double) fastestMillis / periodMillis;
+            scheduler.schedule(new BatchTask(metric, generator, from, to, runsPerRate, output),
+                    fastestMillis * batch / batches, fastestMillis);
+        }
+    }
+
+    /**
+     * Admits the profile's initial patients and schedules the control task.
+     */
+    public void start() {
+        startMillis = clock.getAsLong();
+        lastControlMillis = startMillis;
+        control();
+        scheduler.scheduleOnTicker(this::control, CONTROL_PERIOD_MILLIS, CONTROL_PERIOD_MILLIS);
+    }
+
+    /**
+     * Returns the number of patients currently admitted.
+     *
+     * @return the patient count
+     */
+    public int getPatientCount() {
+        return patientCount;
+    }
+
+    public long getAdmissionCount() {
+        return admissions;
+    }
+
+    public long getDischargeCount() {
+        return discharges;
+    }
+
+    /**
+     * Admits or discharges patients to reach the profile's patient count, then replaces the
+     * patients due to churn since the previous run.
+     */
+    private void control() {
+        long now = clock.getAsLong();
+        long elapsed = now - startMillis;
+        int target = Math.min(capacity, profile.getPatientCount(elapsed));
+        while (patientCount < target) {
+            admit();
+        }
+        while (patientCount > target) {
+            discharge();
+        }
+        churnCredit += profile.getChurnPerMilli() * (now - lastControlMillis);
+        lastControlMillis = now;
+        for (; churnCredit >= 1; churnCredit--) {
+            if (patientCount > 0) {
+                discharge();
+                admit();
+            }
+        }
+    }
+
+    private void admit() {
+        int slot = freeSlots[freeHead];
+        freeHead = (freeHead + 1) % capacity;
+        freeCount--;
+        admittedSlots[patientCount] = slot;
+        patientIds.set(slot, nextPatientId++);
+        patientCount++;
+        admissions++;
+    }
+
+    private void discharge() {
+        int index = random.nextInt(patientCount);
+        int slot = admittedSlots[index];
+        admittedSlots[index] = admittedSlots[patientCount - 1];
+        patientIds.set(slot, 0);
+        freeSlots[(freeHead + freeCount) % capacity] = slot;
+        freeCount++;
+        patientCount--;
+        discharges++;
+    }
+
+    /**
+     * Generates a metric for the admitted patients of a batch of slots, at the profile's rate.
+     */
+    private class BatchTask implements Runnable {
+        private final String metric;
+        private final PatientDataGenerator generator;
+        private final int from;
+        private final int to;
+        private final double runsPerRate;
+        private final OutputStrategy output;
+        private double credit;
+        // The IDs of the previous run, to find the slots given to new patients since.
+        private int[] lastIds;
+
+        BatchTask(String metric, PatientDataGenerator generator, int from, int to, double runsPerRate,
+                OutputStrategy output) {
+            this.metric = metric;
+            this.generator = generator;
+            this.from = from;
+            this.to = to;
+            this.runsPerRate = runsPerRate;
+            this.output = output;
+            this.lastIds = new int[to - from];
+        }
+
+        @Override
+        public void run() {
+            credit += profile.getRate(metric, clock.getAsLong() - startMillis) * runsPerRate;
+            if (credit < 1) {
+                return;
+            }
+            // A run that cannot earn its rate, as the tick is too coarse, does not save it up.
+            credit = Math.min(credit - 1, 1);
+            // The IDs are read once, so a patient discharged during the run keeps its samples.
+            int[] ids = new int[to - from];
+            for (int slot = from; slot < to; slot++) {
+                ids[slot - from] = patientIds.get(slot);
+                if (ids[slot - from] != 0 && ids[slot - from] != lastIds[slot - from]) {
+                    generator.resetPatient(slot);
+                }
+            }
+            lastIds = ids;
+            OutputStrategy remapped = new RemappedOutput(from, ids, output);
+            for (int slot = from; slot < to;) {
+                if (ids[slot - from] == 0) {
+                    slot++;
+                    continue;
+                }
+                int end = slot + 1;
+                while (end < to && ids[end - from] != 0) {
+                    end++;
+                }
+                generator.generateBatch(slot, end, remapped);
+                slot = end;
+            }
+        }
+    }
+
+    /**
+     * Outputs the samples of slots under the IDs of their patients.
+     */
+    private static class RemappedOutput implements OutputStrategy {
+        private final int from;
+        private final int[] ids;
+        private final OutputStrategy output;
+
+        RemappedOutput(int from, int[] ids, OutputStrategy output) {
+            this.from = from;
+            this.ids = ids;
+            this.output = output;
+        }
+
+        @Override
+        public void output(int slot, long timestamp, String label, String data) {
+            output.output(ids[slot - from], timestamp, label, data);
+        }
+
+        @Override
+        public void outputBatch(SampleBatch batch) {
+            for (int i = 0; i < batch.size(); i++) {
+                batch.setPatientId(i, ids[batch.getPatientId(i) - from]);
+            }
+            output.outputBatch(batch);
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.cardio_generator;
+
+import java.io.Closeable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs periodic simulator tasks off a hierarchical timing wheel, so that the number of threads
+ * does not grow with the number of simulated patients.
+ *
+ * <p>Time is divided into ticks of a fixed length. A single ticker thread advances the wheel
+ * once per tick and hands the tasks that have come due to a fixed pool of worker threads. The
+ * wheel has {@value #LEVELS} levels of {@value #SLOTS} slots: level 0 holds the tasks due in the
+ * next {@value #SLOTS} ticks, one slot per tick, and each further level holds the following
+ * ticks in slots {@value #SLOTS} times as wide, whose tasks are moved down a level when the
+ * wheel reaches them. Scheduling and firing a task are constant time, whatever the number of
+ * tasks, and a tick without due tasks costs a slot lookup.
+ *
+ * <p>Tasks run at a fixed rate, as with {@link java.util.concurrent.ScheduledExecutorService#scheduleAtFixedRate}:
+ * a task is rescheduled one period after the tick it was due at, not after it completes. A
+ * task is never run by two workers at once: if its previous run has not finished when it
+ * comes due again, the run is skipped and counted as an overrun. When the ticker thread is
+ * delayed, it catches up on the missed ticks.
+ *
+ * <p>The wheel can also run on a simulated clock, whose time is {@link #currentTimeMillis()}:
+ * the start time plus the ticks advanced. Simulated ticks are paced at a multiple of real time,
+ * or not paced at all, and each tick waits for the runs it started to complete, so no run is
+ * skipped and every task reads the time of the tick it was due at. When the workers cannot
+ * keep up, simulated time slows down instead of data being dropped.
+ */
+public class SimulationScheduler implements Closeable {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final Executor workers;
+    private final ExecutorService ownedWorkers;
+    private final boolean singleWorker;
+    private final ConcurrentLinkedQueue<Task> added = new ConcurrentLinkedQueue<>();
+    private Thread ticker;
+    private volatile boolean running;
+    private volatile long startTimeMillis = System.currentTimeMillis();
+
+    // Runs handed to the workers and not completed yet, awaited by simulated ticks.
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile Thread waiter;
+    private volatile boolean runOnTicker;
+
+    // Accessed by the thread advancing the wheel only.
+    private final Task[][] wheel = new Task[LEVELS][SLOTS];
+    private volatile long currentTick;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder overruns = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Constructs a scheduler running tasks on its own pool of worker threads.
+     *
+     * @param tickMillis the length of a tick, in milliseconds; periods and delays are rounded
+     *                   to whole ticks
+     * @param workers    the number of worker threads
+     */
+    public SimulationScheduler(long tickMillis, int workers) {
+        this(tickMillis, Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "simulation-worker");
+            thread.setDaemon(true);
+            return thread;
+        }), true, workers <= 1);
+    }
+
+    /**
+     * Constructs a scheduler running tasks on the specified executor.
+     *
+     * @param tickMillis the length of a tick, in milliseconds; periods and delays are rounded
+     *                   to whole ticks
+     * @param workers    runs the tasks that have come due
+     */
+    public SimulationScheduler(long tickMillis, Executor workers) {
+        this(tickMillis, workers, false, false);
+    }
+
+    private SimulationScheduler(long tickMillis, Executor workers, boolean owned, boolean singleWorker) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.workers = workers;
+        this.ownedWorkers = owned ? (ExecutorService) workers : null;
+        this.singleWorker = singleWorker;
+    }
+
+    /**
+     * Schedules a task to run periodically. May be called from any thread, including from a
+     * running task; the task is placed on the wheel at the next tick.
+     *
+     * @param task               the task to run
+     * @param initialDelayMillis the delay before the first run, in milliseconds
+     * @param periodMillis       the period between runs, in milliseconds
+     */
+    public void schedule(Runnable task, long initialDelayMillis, long periodMillis) {
+        schedule(task, initialDelayMillis, periodMillis, false);
+    }
+
+    /**
+     * Schedules a task to run periodically on the thread advancing the wheel, before the tasks
+     * due at the same tick are handed to the workers. Every run of those tasks therefore sees
+     * what the ticker task changed, whatever the number of workers. Ticker tasks delay the
+     * tick, so they must be short.
+     *
+     * @param task               the task to run
+     * @param initialDelayMillis the delay before the first run, in milliseconds
+     * @param periodMillis       the period between runs, in milliseconds
+     */
+    public void scheduleOnTicker(Runnable task, long initialDelayMillis, long periodMillis) {
+        schedule(task, initialDelayMillis, periodMillis, true);
+    }
+
+    private void schedule(Runnable task, long initialDelayMillis, long periodMillis, boolean onTicker) {
+        if (initialDelayMillis < 0 || periodMillis <= 0) {
+            throw new IllegalArgumentException("Invalid schedule: delay " + initialDelayMillis + " ms, period "
+                    + periodMillis + " ms");
+        }
+        long periodTicks = Math.max(1, Math.round((double) periodMillis / tickMillis));
+        added.add(new Task(task, currentTick + Math.round((double) initialDelayMillis / tickMillis),
+                periodTicks, onTicker));
+    }
+
+    /**
+     * Starts the ticker thread, which advances the wheel in real time. Like the threads of a
+     * scheduled executor, it keeps the JVM running until the scheduler is closed.
+     */
+    public synchronized void start() {
+        startTicker(1, false);
+    }
+
+    /**
+     * Starts the ticker thread on the simulated clock, which it advances until the scheduler is
+     * closed.
+     *
+     * @param speed how many times faster than real time the clock runs, or
+     *              {@link Double#POSITIVE_INFINITY} to run it as fast as the tasks allow
+     */
+    public synchronized void startSimulated(double speed) {
+        startTicker(speed, true);
+    }
+
+    /**
+     * Advances the simulated clock by the specified number of ticks on the calling thread, and
+     * returns once the runs of the last tick have completed or the scheduler is closed. Must
+     * not be called while the ticker thread is running.
+     *
+     * @param speed how many times faster than real time the clock runs, or
+     *              {@link Double#POSITIVE_INFINITY} to run it as fast as the tasks allow
+     * @param ticks the number of ticks to advance
+     */
+    public void runSimulated(double speed, long ticks) {
+        checkSpeed(speed);
+        running = true;
+        runTicks(speed, true, ticks);
+    }
+
+    private void startTicker(double speed, boolean simulated) {
+        checkSpeed(speed);
+        if (ticker != null) {
+            return;
+        }
+        running = true;
+        ticker = new Thread(() -> runTicks(speed, simulated, Long.MAX_VALUE), "simulation-ticker");
+        ticker.start();
+    }
+
+    private static void checkSpeed(double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Speed must be positive: " + speed);
+        }
+    }
+
+    /**
+     * Advances the wheel by the specified number of ticks on the calling thread, without
+     * waiting. Must not be called while the ticker thread is running.
+     *
+     * @param ticks the number of ticks to advance
+     */
+    public void advance(long ticks) {
+        for (long i = 0; i < ticks; i++) {
+            tick();
+        }
+    }
+
+    /**
+     * Stops the ticker thread and, if the scheduler owns its workers, lets them finish the
+     * tasks already handed to them and stops them.
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (ticker != null) {
+            LockSupport.unpark(ticker);
+            try {
+                ticker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ticker = null;
+        }
+        if (ownedWorkers != null) {
+            ownedWorkers.shutdown();
+            try {
+                ownedWorkers.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Sets the time of the simulated clock at tick 0; by default, the time the scheduler was
+     * created.
+     *
+     * @param startTimeMillis the start time, in milliseconds since the epoch
+     */
+    public void setStartTimeMillis(long startTimeMillis) {
+        this.startTimeMillis = startTimeMillis;
+    }
+
+    /**
+     * Returns the time of the simulated clock: the start time plus the ticks advanced. Tasks
+     * running on the simulated clock read the time of the tick they were due at.
+     *
+     * @return the simulated time, in milliseconds since the epoch
+     */
+    public long currentTimeMillis() {
+        return startTimeMillis + currentTick * tickMillis;
+    }
+
+    /**
+     * Returns the number of ticks the wheel has advanced since it was created.
+     *
+     * @return the current tick
+     */
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Returns the number of task runs completed.
+     *
+     * @return the run count
+     */
+    public long getRunCount() {
+        return runs.sum();
+    }
+
+    /**
+     * Returns the number of runs skipped because the task's previous run was still going.
+     *
+     * @return the overrun count
+     */
+    public long getOverrunCount() {
+        return overruns.sum();
+    }
+
+    /**
+     * Returns the number of runs that failed with an exception.
+     *
+     * @return the failed run count
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Advances one tick per tick length of real time divided by the speed, catching up on
+     * ticks missed while the thread was delayed. On the simulated clock, each tick also waits
+     * for the runs it started.
+     */
+    private void runTicks(double speed, boolean simulated, long ticks) {
+        long tickNanos = Double.isInfinite(speed) ? 0
+                : (long) (TimeUnit.MILLISECONDS.toNanos(tickMillis) / speed);
+        long nextNanos = System.nanoTime();
+        // On the simulated clock, a single worker would run while the ticker waits for it, so
+        // the ticker runs the tasks itself and saves handing each one over.
+        runOnTicker = simulated && singleWorker;
+        for (long i = 0; i < ticks && running;) {
+            long wait = nextNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                System.err.println("Simulation tick failed: " + e.getMessage());
+            }
+            if (simulated) {
+                awaitRuns();
+            }
+            nextNanos += tickNanos;
+            i++;
+        }
+    }
+
+    /**
+     * Waits until every run handed to the workers has completed, or the scheduler is closed.
+     */
+    private void awaitRuns() {
+        waiter = Thread.currentThread();
+        while (inFlight.get() > 0 && running) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        waiter = null;
+    }
+
+    /**
+     * Moves the tasks of the slots the wheel has reached down a level, places newly scheduled
+     * tasks, then runs the ticker tasks of the current level 0 slot and fires its other tasks.
+     */
+    private void tick() {
+        long tick = currentTick + 1;
+        currentTick = tick;
+        // Higher levels first, so that tasks moved down are moved again if their new slot is
+        // also reached now.
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                int slot = (int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1);
+                Task moved = wheel[level][slot];
+                wheel[level][slot] = null;
+                while (moved != null) {
+                    Task next = moved.next;
+                    insert(moved);
+                    moved = next;
+                }
+            }
+        }
+        Task task;
+        while ((task = added.poll()) != null) {
+            insert(task);
+        }
+        int slot = (int) tick & (SLOTS - 1);
+        Task due = wheel[0][slot];
+        wheel[0][slot] = null;
+        for (Task onTicker = due; onTicker != null; onTicker = onTicker.next) {
+            if (onTicker.onTicker) {
+                onTicker.busy.set(true);
+                inFlight.incrementAndGet();
+                onTicker.run();
+            }
+        }
+        while (due != null) {
+            Task next = due.next;
+            if (!due.onTicker) {
+                due.fire();
+            }
+            due.deadline = tick + due.periodTicks;
+            insert(due);
+            due = next;
+        }
+    }
+
+    /**
+     * Places a task in the lowest level whose slot of the task's deadline has not been
+     * reached yet, which is the lowest level whose wider slots hold both the deadline and the
+     * current tick in the same slot. A deadline already passed is placed in the current
+     * tick's slot.
+     */
+    private void insert(Task task) {
+        long tick = currentTick;
+        if (task.deadline < tick) {
+            task.deadline = tick;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && ((task.deadline ^ tick) >>> (SLOT_BITS * (level + 1))) != 0) {
+            level++;
+        }
+        // A deadline a full turn of the top level away or more is reached early, and the task
+        // placed again then.
+        int slot = (int) (task.deadline >>> (SLOT_BITS * level)) & (SLOTS - 1);
+        task.next = wheel[level][slot];
+        wheel[level][slot] = task;
+    }
+
+    /**
+     * A scheduled task; a node of the singly linked list of its slot.
+     */
+    private class Task implements Runnable {
+        private final Runnable runnable;
+        private final long periodTicks;
+        private final boolean onTicker;
+        private final AtomicBoolean busy = new AtomicBoolean();
+        private long deadline;
+        private Task next;
+
+        Task(Runnable runnable, long deadline, long periodTicks, boolean onTicker) {
+            this.runnable = runnable;
+            this.deadline = deadline;
+            this.periodTicks = periodTicks;
+            this.onTicker = onTicker;
+        }
+
+        void fire() {
+            if (!busy.compareAndSet(false, true)) {
+                overruns.increment();
+                return;
+            }
+            inFlight.incrementAndGet();
+            if (runOnTicker) {
+                run();
+                return;
+            }
+            try {
+                workers.execute(this);
+            } catch (RuntimeException e) {
+                busy.set(false);
+                inFlight.decrementAndGet();
+                failures.increment();
+                System.err.println("Simulation task rejected: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                runnable.run();
+                runs.increment();
+            } catch (RuntimeException e) {
+                failures.increment();
+                System.err.println("Simulation task failed: " + e.getMessage());
+            } finally {
+                busy.set(false);
+                if (inFlight.decrementAndGet() == 0) {
+                    Thread thread = waiter;
+                    if (thread != null) {
+                        LockSupport.unpark(thread);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -2,7 +2,8 @@ package com.cardio_generator.generators;
 
 // Changed the order of the import statements and removed the line break (section 3.3.3).
 import com.cardio_generator.outputs.OutputStrategy;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
 
 // Reduced the indentation to 2 spaces for all the following code (section 4.2).
 
@@ -20,8 +21,9 @@ import java.util.Random;
  */
 public class AlertGenerator implements PatientDataGenerator {
 
-  // Added a single space after each ")" below (section 4.6.2).
-  public static final Random randomGenerator = new Random() ;
+  // Each patient's alerts are drawn from its own stream.
+  private final PatientRandom randomGenerator;
+  private final LongSupplier clock;
 
   // Added a vertical whitespace in between constructors (section 4.6.1).
   // Changed the field name to camelCase (section 5.2.5).
@@ -34,6 +36,32 @@ public class AlertGenerator implements PatientDataGenerator {
      *     as an integer.
      */
     public AlertGenerator(int patientCount) {
+      this(patientCount, new SplittableRandom());
+    }
+
+    /**
+     * Constructs an AlertGenerator drawing every patient's alerts from its own stream seeded
+     *     by the given source, so that equally seeded generators generate the same alerts.
+     * 
+     * @param patientCount The total number of patients for whom alerts need to be generated
+     *     as an integer.
+     * @param seeds The source of the patients' random streams.
+     */
+    public AlertGenerator(int patientCount, SplittableRandom seeds) {
+      this(patientCount, seeds, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs an AlertGenerator timestamping its alerts with the given clock.
+     * 
+     * @param patientCount The total number of patients for whom alerts need to be generated
+     *     as an integer.
+     * @param seeds The source of the patients' random streams.
+     * @param clock Returns the current time in milliseconds.
+     */
+    public AlertGenerator(int patientCount, SplittableRandom seeds, LongSupplier clock) {
+      randomGenerator = new PatientRandom(patientCount, seeds);
+      this.clock = clock;
       alertStates = new boolean[patientCount + 1];
     }
 
@@ -55,22 +83,22 @@ public class AlertGenerator implements PatientDataGenerator {
     public void generate(int patientId, OutputStrategy outputStrategy) {
       try {
         if (alertStates[patientId]) {
-          if (randomGenerator.nextDouble() < 0.9) { // 90% chance to resolve.
+          if (randomGenerator.nextDouble(patientId) < 0.9) { // 90% chance to resolve.
             alertStates[patientId] = false;
             // Output the alert.
-            outputStrategy.output(patientId, System.currentTimeMillis() , "Alert", "resolved") ;
+            outputStrategy.output(patientId, clock.getAsLong() , "Alert", "resolved") ;
             }
             } else {
               double Lambda = 0.1; // Average rate (alerts per period), adjust based on desired frequency.
               double p = -Math.expm1(-Lambda) ; // Probability of at least one alert in the period.
-              boolean alertTriggered = randomGenerator.nextDouble() < p;
+              boolean alertTriggered = randomGenerator.nextDouble(patientId) < p;
 
                 if (alertTriggered) {
                   alertStates[patientId] = true;
                   // Output the alert.
                   // Line-wrapped since it was exceeding the 100 character column limit (sections 4.4 - 4.5.1).
                   outputStrategy.output(
-                      patientId, System.currentTimeMillis() , "Alert", "triggered") ;      
+                      patientId, clock.getAsLong() , "Alert", "triggered") ;      
                 }
             }
         } catch (Exception e) {
@@ -1,16 +1,43 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
 
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
 
 public class BloodLevelsDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private final PatientRandom random;
+    private final LongSupplier clock;
     private final double[] baselineCholesterol;
     private final double[] baselineWhiteCells;
     private final double[] baselineRedCells;
 
     public BloodLevelsDataGenerator(int patientCount) {
+        this(patientCount, new SplittableRandom());
+    }
+
+    /**
+     * Constructs a generator drawing every patient's values from its own stream seeded by the
+     * given source, so that equally seeded generators generate the same data.
+     *
+     * @param patientCount the number of patients
+     * @param seeds        the source of the patients' random streams
+     */
+    public BloodLevelsDataGenerator(int patientCount, SplittableRandom seeds) {
+        this(patientCount, seeds, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a generator timestamping its data with the given clock, such as a simulated one.
+     *
+     * @param patientCount the number of patients
+     * @param seeds        the source of the patients' random streams
+     * @param clock        returns the current time in milliseconds
+     */
+    public BloodLevelsDataGenerator(int patientCount, SplittableRandom seeds, LongSupplier clock) {
+        random = new PatientRandom(patientCount, seeds);
+        this.clock = clock;
         // Initialize arrays to store baseline values for each patient
         baselineCholesterol = new double[patientCount + 1];
         baselineWhiteCells = new double[patientCount + 1];
@@ -18,9 +45,9 @@ public class BloodLevelsDataGenerator implements PatientDataGenerator {
 
         // Generate baseline values for each patient
         for (int i = 1; i <= patientCount; i++) {
-            baselineCholesterol[i] = 150 + random.nextDouble() * 50; // Initial random baseline
-            baselineWhiteCells[i] = 4 + random.nextDouble() * 6; // Initial random baseline
-            baselineRedCells[i] = 4.5 + random.nextDouble() * 1.5; // Initial random baseline
+            baselineCholesterol[i] = 150 + random.nextDouble(i) * 50; // Initial random baseline
+            baselineWhiteCells[i] = 4 + random.nextDouble(i) * 6; // Initial random baseline
+            baselineRedCells[i] = 4.5 + random.nextDouble(i) * 1.5; // Initial random baseline
         }
     }
 
@@ -28,18 +55,40 @@ public class BloodLevelsDataGenerator implements PatientDataGenerator {
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
             // Generate values around the baseline for realism
-            double cholesterol = baselineCholesterol[patientId] + (random.nextDouble() - 0.5) * 10; // Small variation
-            double whiteCells = baselineWhiteCells[patientId] + (random.nextDouble() - 0.5) * 1; // Small variation
-            double redCells = baselineRedCells[patientId] + (random.nextDouble() - 0.5) * 0.2; // Small variation
+            // Small variations
+            double cholesterol = baselineCholesterol[patientId] + (random.nextDouble(patientId) - 0.5) * 10;
+            double whiteCells = baselineWhiteCells[patientId] + (random.nextDouble(patientId) - 0.5) * 1;
+            double redCells = baselineRedCells[patientId] + (random.nextDouble(patientId) - 0.5) * 0.2;
 
             // Output the generated values
-            outputStrategy.output(patientId, System.currentTimeMillis(), "Cholesterol", Double.toString(cholesterol));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "WhiteBloodCells",
+            outputStrategy.output(patientId, clock.getAsLong(), "Cholesterol", Double.toString(cholesterol));
+            outputStrategy.output(patientId, clock.getAsLong(), "WhiteBloodCells",
                     Double.toString(whiteCells));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "RedBloodCells", Double.toString(redCells));
+            outputStrategy.output(patientId, clock.getAsLong(), "RedBloodCells", Double.toString(redCells));
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood levels data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    @Override
+    public void generateBatch(int fromPatientId, int toPatientId, OutputStrategy outputStrategy) {
+        try {
+            long timestamp = clock.getAsLong();
+            SampleBatch batch = new SampleBatch(3 * (toPatientId - fromPatientId));
+            for (int patientId = fromPatientId; patientId < toPatientId; patientId++) {
+                batch.add(patientId, timestamp, "Cholesterol",
+                        baselineCholesterol[patientId] + (random.nextDouble(patientId) - 0.5) * 10);
+                batch.add(patientId, timestamp, "WhiteBloodCells",
+                        baselineWhiteCells[patientId] + (random.nextDouble(patientId) - 0.5) * 1);
+                batch.add(patientId, timestamp, "RedBloodCells",
+                        baselineRedCells[patientId] + (random.nextDouble(patientId) - 0.5) * 0.2);
+            }
+            outputStrategy.outputBatch(batch);
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating blood levels data for patients "
+                    + fromPatientId + " to " + (toPatientId - 1));
+            e.printStackTrace();
+        }
+    }
 }
@@ -1,31 +1,58 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
 
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
 
 public class BloodPressureDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private final PatientRandom random;
+    private final LongSupplier clock;
 
     private int[] lastSystolicValues;
     private int[] lastDiastolicValues;
 
     public BloodPressureDataGenerator(int patientCount) {
+        this(patientCount, new SplittableRandom());
+    }
+
+    /**
+     * Constructs a generator drawing every patient's values from its own stream seeded by the
+     * given source, so that equally seeded generators generate the same data.
+     *
+     * @param patientCount the number of patients
+     * @param seeds        the source of the patients' random streams
+     */
+    public BloodPressureDataGenerator(int patientCount, SplittableRandom seeds) {
+        this(patientCount, seeds, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a generator timestamping its data with the given clock, such as a simulated one.
+     *
+     * @param patientCount the number of patients
+     * @param seeds        the source of the patients' random streams
+     * @param clock        returns the current time in milliseconds
+     */
+    public BloodPressureDataGenerator(int patientCount, SplittableRandom seeds, LongSupplier clock) {
+        random = new PatientRandom(patientCount, seeds);
+        this.clock = clock;
         lastSystolicValues = new int[patientCount + 1];
         lastDiastolicValues = new int[patientCount + 1];
 
         // Initialize with baseline values for each patient
         for (int i = 1; i <= patientCount; i++) {
-            lastSystolicValues[i] = 110 + random.nextInt(20); // Random baseline between 110 and 130
-            lastDiastolicValues[i] = 70 + random.nextInt(15); // Random baseline between 70 and 85
+            lastSystolicValues[i] = 110 + random.nextInt(i, 20); // Random baseline between 110 and 130
+            lastDiastolicValues[i] = 70 + random.nextInt(i, 15); // Random baseline between 70 and 85
         }
     }
 
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
-            int systolicVariation = random.nextInt(5) - 2; // -2, -1, 0, 1, or 2
-            int diastolicVariation = random.nextInt(5) - 2;
+            int systolicVariation = random.nextInt(patientId, 5) - 2; // -2, -1, 0, 1, or 2
+            int diastolicVariation = random.nextInt(patientId, 5) - 2;
             int newSystolicValue = lastSystolicValues[patientId] + systolicVariation;
             int newDiastolicValue = lastDiastolicValues[patientId] + diastolicVariation;
             // Ensure the blood pressure stays within a realistic and safe range
@@ -34,13 +61,36 @@ public class BloodPressureDataGenerator implements PatientDataGenerator {
             lastSystolicValues[patientId] = newSystolicValue;
             lastDiastolicValues[patientId] = newDiastolicValue;
 
-            outputStrategy.output(patientId, System.currentTimeMillis(), "SystolicPressure",
+            outputStrategy.output(patientId, clock.getAsLong(), "SystolicPressure",
                     Double.toString(newSystolicValue));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "DiastolicPressure",
+            outputStrategy.output(patientId, clock.getAsLong(), "DiastolicPressure",
                     Double.toString(newDiastolicValue));
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood pressure data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    @Override
+    public void generateBatch(int fromPatientId, int toPatientId, OutputStrategy outputStrategy) {
+        try {
+            long timestamp = clock.getAsLong();
+            SampleBatch batch = new SampleBatch(2 * (toPatientId - fromPatientId));
+            for (int patientId = fromPatientId; patientId < toPatientId; patientId++) {
+                int newSystolicValue = lastSystolicValues[patientId] + random.nextInt(patientId, 5) - 2;
+                int newDiastolicValue = lastDiastolicValues[patientId] + random.nextInt(patientId, 5) - 2;
+                newSystolicValue = Math.min(Math.max(newSystolicValue, 90), 180);
+                newDiastolicValue = Math.min(Math.max(newDiastolicValue, 60), 120);
+                lastSystolicValues[patientId] = newSystolicValue;
+                lastDiastolicValues[patientId] = newDiastolicValue;
+                batch.add(patientId, timestamp, "SystolicPressure", newSystolicValue);
+                batch.add(patientId, timestamp, "DiastolicPressure", newDiastolicValue);
+            }
+            outputStrategy.outputBatch(batch);
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating blood pressure data for patients "
+                    + fromPatientId + " to " + (toPatientId - 1));
+            e.printStackTrace();
+        }
+    }
 }
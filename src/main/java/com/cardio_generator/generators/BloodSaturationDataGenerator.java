@@ -1,8 +1,10 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
 
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
 
 /**
  * The BloodSaturationGenerator class is responsible for
@@ -12,7 +14,8 @@ import com.cardio_generator.outputs.OutputStrategy;
  */
 
 public class BloodSaturationDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private final PatientRandom random;
+    private final LongSupplier clock;
     private int[] lastSaturationValues;
 
     /**
@@ -22,11 +25,39 @@ public class BloodSaturationDataGenerator implements PatientDataGenerator {
      *     data needs to be generated.
      */
     public BloodSaturationDataGenerator(int patientCount) {
+        this(patientCount, new SplittableRandom());
+    }
+
+    /**
+     * Initializes the lastSaturationValues array with baseline saturation values for each patient,
+     *     drawing every patient's values from its own stream seeded by the given source.
+     * 
+     * @param patientCount The number of patients for whom blood saturation
+     *     data needs to be generated.
+     * @param seeds        The source of the patients' random streams; generators given
+     *     sources split from equally seeded sources generate the same data.
+     */
+    public BloodSaturationDataGenerator(int patientCount, SplittableRandom seeds) {
+        this(patientCount, seeds, System::currentTimeMillis);
+    }
+
+    /**
+     * Initializes the lastSaturationValues array with baseline saturation values for each patient,
+     *     drawing every patient's values from its own stream and timestamping them with a clock.
+     * 
+     * @param patientCount The number of patients for whom blood saturation
+     *     data needs to be generated.
+     * @param seeds        The source of the patients' random streams.
+     * @param clock        Returns the current time in milliseconds, which timestamps the data.
+     */
+    public BloodSaturationDataGenerator(int patientCount, SplittableRandom seeds, LongSupplier clock) {
+        random = new PatientRandom(patientCount, seeds);
+        this.clock = clock;
         lastSaturationValues = new int[patientCount + 1];
 
         // Initialize with baseline saturation values for each patient
         for (int i = 1; i <= patientCount; i++) {
-            lastSaturationValues[i] = 95 + random.nextInt(6); // Initializes with a value between 95 and 100
+            lastSaturationValues[i] = 95 + random.nextInt(i, 6); // Initializes with a value between 95 and 100
         }
     }
 
@@ -47,17 +78,45 @@ public class BloodSaturationDataGenerator implements PatientDataGenerator {
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
             // Simulate blood saturation values
-            int variation = random.nextInt(3) - 1; // -1, 0, or 1 to simulate small fluctuations
+            int variation = random.nextInt(patientId, 3) - 1; // -1, 0, or 1 to simulate small fluctuations
             int newSaturationValue = lastSaturationValues[patientId] + variation;
 
             // Ensure the saturation stays within a realistic and healthy range
             newSaturationValue = Math.min(Math.max(newSaturationValue, 90), 100);
             lastSaturationValues[patientId] = newSaturationValue;
-            outputStrategy.output(patientId, System.currentTimeMillis(), "Saturation",
+            outputStrategy.output(patientId, clock.getAsLong(), "Saturation",
                     Double.toString(newSaturationValue) + "%");
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood saturation data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    /**
+     * Generates simulated blood saturation data for a range of patients at the same instant
+     *     and sends the data to an output strategy as one batch.
+     * 
+     * @param fromPatientId  The ID of the first patient, inclusive.
+     * @param toPatientId    The ID after the last patient, exclusive.
+     * @param outputStrategy Specifies the output strategy to which 
+     *     the generated blood saturation data will be sent.
+     */
+    @Override
+    public void generateBatch(int fromPatientId, int toPatientId, OutputStrategy outputStrategy) {
+        try {
+            long timestamp = clock.getAsLong();
+            SampleBatch batch = new SampleBatch(toPatientId - fromPatientId);
+            for (int patientId = fromPatientId; patientId < toPatientId; patientId++) {
+                int newSaturationValue = lastSaturationValues[patientId] + random.nextInt(patientId, 3) - 1;
+                newSaturationValue = Math.min(Math.max(newSaturationValue, 90), 100);
+                lastSaturationValues[patientId] = newSaturationValue;
+                batch.add(patientId, timestamp, "Saturation", newSaturationValue, "%");
+            }
+            outputStrategy.outputBatch(batch);
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating blood saturation data for patients "
+                    + fromPatientId + " to " + (toPatientId - 1));
+            e.printStackTrace();
+        }
+    }
 }
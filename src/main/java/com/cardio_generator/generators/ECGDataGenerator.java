@@ -1,15 +1,43 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
 
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
 
 public class ECGDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private final PatientRandom random;
+    private final LongSupplier clock;
     private double[] lastEcgValues;
     private static final double PI = Math.PI;
 
     public ECGDataGenerator(int patientCount) {
+        this(patientCount, new SplittableRandom());
+    }
+
+    /**
+     * Constructs a generator drawing every patient's heart rate variability and noise from its
+     * own stream seeded by the given source.
+     *
+     * @param patientCount the number of patients
+     * @param seeds        the source of the patients' random streams
+     */
+    public ECGDataGenerator(int patientCount, SplittableRandom seeds) {
+        this(patientCount, seeds, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a generator timestamping its data with the given clock. The waveform follows
+     * the timestamps, so a simulated clock also drives the simulated heart beats.
+     *
+     * @param patientCount the number of patients
+     * @param seeds        the source of the patients' random streams
+     * @param clock        returns the current time in milliseconds
+     */
+    public ECGDataGenerator(int patientCount, SplittableRandom seeds, LongSupplier clock) {
+        random = new PatientRandom(patientCount, seeds);
+        this.clock = clock;
         lastEcgValues = new double[patientCount + 1];
         // Initialize the last ECG value for each patient
         for (int i = 1; i <= patientCount; i++) {
@@ -21,8 +49,9 @@ public class ECGDataGenerator implements PatientDataGenerator {
     public void generate(int patientId, OutputStrategy outputStrategy) {
         // TODO Check how realistic this data is and make it more realistic if necessary
         try {
-            double ecgValue = simulateEcgWaveform(patientId, lastEcgValues[patientId]);
-            outputStrategy.output(patientId, System.currentTimeMillis(), "ECG", Double.toString(ecgValue));
+            long timestamp = clock.getAsLong();
+            double ecgValue = simulateEcgWaveform(patientId, timestamp);
+            outputStrategy.output(patientId, timestamp, "ECG", Double.toString(ecgValue));
             lastEcgValues[patientId] = ecgValue;
         } catch (Exception e) {
             System.err.println("An error occurred while generating ECG data for patient " + patientId);
@@ -30,10 +59,32 @@ public class ECGDataGenerator implements PatientDataGenerator {
         }
     }
 
-    private double simulateEcgWaveform(int patientId, double lastEcgValue) {
+    /**
+     * Generates one ECG value for each patient of the range at the same instant and outputs
+     * them as one batch.
+     */
+    @Override
+    public void generateBatch(int fromPatientId, int toPatientId, OutputStrategy outputStrategy) {
+        try {
+            long timestamp = clock.getAsLong();
+            SampleBatch batch = new SampleBatch(toPatientId - fromPatientId);
+            for (int patientId = fromPatientId; patientId < toPatientId; patientId++) {
+                double ecgValue = simulateEcgWaveform(patientId, timestamp);
+                lastEcgValues[patientId] = ecgValue;
+                batch.add(patientId, timestamp, "ECG", ecgValue);
+            }
+            outputStrategy.outputBatch(batch);
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating ECG data for patients " + fromPatientId + " to "
+                    + (toPatientId - 1));
+            e.printStackTrace();
+        }
+    }
+
+    private double simulateEcgWaveform(int patientId, long timestamp) {
         // Simplified ECG waveform generation based on sinusoids
-        double hr = 60.0 + random.nextDouble() * 20.0; // Simulate heart rate variability between 60 and 80 bpm
-        double t = System.currentTimeMillis() / 1000.0; // Use system time to simulate continuous time
+        double hr = 60.0 + random.nextDouble(patientId) * 20.0; // Simulate heart rate variability between 60 and 80 bpm
+        double t = timestamp / 1000.0; // Use system time to simulate continuous time
         double ecgFrequency = hr / 60.0; // Convert heart rate to Hz
 
         // Simulate different components of the ECG signal
@@ -41,6 +92,6 @@ public class ECGDataGenerator implements PatientDataGenerator {
         double qrsComplex = 0.5 * Math.sin(2 * PI * 3 * ecgFrequency * t); // QRS is higher frequency
         double tWave = 0.2 * Math.sin(2 * PI * 2 * ecgFrequency * t + PI / 4); // T wave is offset
 
-        return pWave + qrsComplex + tWave + random.nextDouble() * 0.05; // Add small noise
+        return pWave + qrsComplex + tWave + random.nextDouble(patientId) * 0.05; // Add small noise
     }
 }
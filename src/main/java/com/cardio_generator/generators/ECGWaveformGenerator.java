@@ -0,0 +1,327 @@
+package com.cardio_generator.generators;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
+
+/**
+ * Generates a physiologically shaped ECG at a monitor's sample rate, as a load generator for
+ * the storage and alerting paths.
+ *
+ * <p>Each beat is a sum of gaussians for the P wave, the Q, R and S deflections and the T wave,
+ * timed relative to the beat's R peak, with the T wave moving with the RR interval as the QT
+ * interval does. Heart rates vary between patients, and RR intervals vary from beat to beat
+ * with breathing (respiratory sinus arrhythmia) and at random. Baseline wander and noise are
+ * added to every sample.
+ *
+ * <p>Patients have episodes of the configured arrhythmias at random, each lasting from 10 to 60
+ * seconds: atrial fibrillation (irregular RR intervals, no P waves, fibrillatory waves),
+ * premature ventricular contractions (every third beat early, wide and without a P wave,
+ * followed by a compensatory pause), tachycardia and bradycardia.
+ *
+ * <p>Every call generates, for each patient of the range, the samples due since the previous
+ * call and outputs them all as one batch, so a patient's samples are emitted in blocks rather
+ * than one output call per sample. The state of every patient is held in primitive arrays.
+ */
+public class ECGWaveformGenerator implements PatientDataGenerator {
+
+    /**
+     * The arrhythmias a patient may have episodes of.
+     */
+    public enum Arrhythmia {
+        ATRIAL_FIBRILLATION("afib"),
+        PREMATURE_VENTRICULAR_CONTRACTIONS("pvc"),
+        TACHYCARDIA("tachycardia"),
+        BRADYCARDIA("bradycardia");
+
+        private final String shortName;
+
+        Arrhythmia(String shortName) {
+            this.shortName = shortName;
+        }
+
+        /**
+         * Returns the arrhythmia with the given short name: afib, pvc, tachycardia or
+         * bradycardia.
+         *
+         * @param name the short name, in any case
+         * @return the arrhythmia
+         * @throws IllegalArgumentException if no arrhythmia has the name
+         */
+        public static Arrhythmia of(String name) {
+            for (Arrhythmia arrhythmia : values()) {
+                if (arrhythmia.shortName.equals(name.trim().toLowerCase(Locale.ROOT))) {
+                    return arrhythmia;
+                }
+            }
+            throw new IllegalArgumentException("Unknown arrhythmia: " + name);
+        }
+    }
+
+    static final double MAX_SAMPLE_RATE_HZ = 1000;
+    private static final double MAX_BLOCK_MILLIS = 10_000;
+    private static final double MIN_EPISODE_MILLIS = 10_000;
+    private static final double MAX_EPISODE_MILLIS = 60_000;
+    private static final double BREATH_MILLIS = 4_000;
+
+    private static final Arrhythmia[] ARRHYTHMIAS = Arrhythmia.values();
+
+    private static final byte NORMAL = 0;
+    private static final byte NO_P_WAVE = 1;
+    private static final byte VENTRICULAR = 2;
+
+    private final PatientRandom random;
+    private final LongSupplier clock;
+    private final double sampleIntervalMillis;
+    private final Arrhythmia[] arrhythmias;
+    private final double episodeProbabilityPerMilli;
+
+    private final double[] meanRr;
+    private final double[] firstSample;
+    private final long[] samplesGenerated;
+    private final double[] lastBeat;
+    private final double[] lastRr;
+    private final byte[] lastBeatKind;
+    private final double[] nextBeat;
+    private final byte[] nextBeatKind;
+    // The ordinal of the arrhythmia plus one, or 0 for sinus rhythm.
+    private final byte[] episode;
+    private final double[] episodeEnd;
+    private final double[] episodeRr;
+    private final int[] episodeBeats;
+
+    /**
+     * Constructs a generator of sinus rhythm only, timestamped by the wall clock.
+     *
+     * @param patientCount the number of patients
+     * @param sampleRateHz the sample rate of every patient's ECG, in Hz; at most 1000 Hz
+     */
+    public ECGWaveformGenerator(int patientCount, double sampleRateHz) {
+        this(patientCount, sampleRateHz, new Arrhythmia[0], 0, new SplittableRandom(), System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a generator.
+     *
+     * @param patientCount     the number of patients
+     * @param sampleRateHz     the sample rate of every patient's ECG, in Hz; at most 1000 Hz
+     * @param arrhythmias      the arrhythmias patients have episodes of, chosen among at random
+     * @param episodesPerHour  the average number of episodes a patient has per hour of sinus
+     *                         rhythm
+     * @param seeds            the source of the patients' random streams
+     * @param clock            returns the current time in milliseconds; samples are generated
+     *                         up to it
+     */
+    public ECGWaveformGenerator(int patientCount, double sampleRateHz, Arrhythmia[] arrhythmias,
+            double episodesPerHour, SplittableRandom seeds, LongSupplier clock) {
+        if (!(sampleRateHz > 0 && sampleRateHz <= MAX_SAMPLE_RATE_HZ)) {
+            throw new IllegalArgumentException("Sample rate must be above 0 and at most " + MAX_SAMPLE_RATE_HZ
+                    + " Hz: " + sampleRateHz);
+        }
+        if (!(episodesPerHour >= 0)) {
+            throw new IllegalArgumentException("Episode rate must not be negative: " + episodesPerHour);
+        }
+        this.random = new PatientRandom(patientCount, seeds);
+        this.clock = clock;
+        this.sampleIntervalMillis = 1000 / sampleRateHz;
+        this.arrhythmias = arrhythmias.clone();
+        this.episodeProbabilityPerMilli = arrhythmias.length == 0 ? 0 : episodesPerHour / 3_600_000;
+
+        meanRr = new double[patientCount + 1];
+        firstSample = new double[patientCount + 1];
+        samplesGenerated = new long[patientCount + 1];
+        lastBeat = new double[patientCount + 1];
+        lastRr = new double[patientCount + 1];
+        lastBeatKind = new byte[patientCount + 1];
+        nextBeat = new double[patientCount + 1];
+        nextBeatKind = new byte[patientCount + 1];
+        episode = new byte[patientCount + 1];
+        episodeEnd = new double[patientCount + 1];
+        episodeRr = new double[patientCount + 1];
+        episodeBeats = new int[patientCount + 1];
+        Arrays.fill(firstSample, Double.NaN);
+        for (int i = 1; i <= patientCount; i++) {
+            meanRr[i] = 60_000 / (60 + 30 * random.nextDouble(i)); // Between 60 and 90 bpm
+        }
+    }
+
+    @Override
+    public void generate(int patientId, OutputStrategy outputStrategy) {
+        generateBatch(patientId, patientId + 1, outputStrategy);
+    }
+
+    /**
+     * Generates the samples due since the previous call for each patient of the range and
+     * outputs them as one batch, patient by patient.
+     */
+    @Override
+    public void generateBatch(int fromPatientId, int toPatientId, OutputStrategy outputStrategy) {
+        try {
+            long now = clock.getAsLong();
+            SampleBatch batch = new SampleBatch((int) Math.min(1 << 16,
+                    (toPatientId - fromPatientId) * Math.ceil(1000 / sampleIntervalMillis)));
+            for (int patientId = fromPatientId; patientId < toPatientId; patientId++) {
+                generateBlock(patientId, now, batch);
+            }
+            outputStrategy.outputBatch(batch);
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating ECG waveforms for patients " + fromPatientId
+                    + " to " + (toPatientId - 1));
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Restarts the patient's waveform at the next call, so that no samples are generated for
+     * the time before it.
+     */
+    @Override
+    public void resetPatient(int patientId) {
+        firstSample[patientId] = Double.NaN;
+        samplesGenerated[patientId] = 0;
+        lastBeatKind[patientId] = NORMAL;
+        nextBeatKind[patientId] = NORMAL;
+        episode[patientId] = 0;
+    }
+
+    private void generateBlock(int patientId, long now, SampleBatch batch) {
+        if (Double.isNaN(firstSample[patientId])) {
+            firstSample[patientId] = now;
+            lastBeat[patientId] = now - meanRr[patientId] * random.nextDouble(patientId);
+            lastRr[patientId] = meanRr[patientId];
+            nextBeat[patientId] = lastBeat[patientId] + meanRr[patientId];
+        }
+        double time = sampleTime(patientId);
+        if (now - time > MAX_BLOCK_MILLIS) {
+            // Skip the samples of a long pause, such as a suspended process.
+            samplesGenerated[patientId] += (long) ((now - time - MAX_BLOCK_MILLIS) / sampleIntervalMillis) + 1;
+            time = sampleTime(patientId);
+        }
+        for (; time <= now; time = sampleTime(patientId)) {
+            while (time >= nextBeat[patientId]) {
+                advanceBeat(patientId);
+            }
+            batch.add(patientId, (long) time, "ECG", sample(patientId, time));
+            samplesGenerated[patientId]++;
+        }
+    }
+
+    private double sampleTime(int patientId) {
+        return firstSample[patientId] + samplesGenerated[patientId] * sampleIntervalMillis;
+    }
+
+    /**
+     * Returns the ECG value at the given time, in mV: the waves of the last beat and of the next
+     * one, whose P wave precedes its R peak, plus baseline wander and noise.
+     */
+    private double sample(int patientId, double time) {
+        double value = beat(time - lastBeat[patientId], lastBeatKind[patientId], lastRr[patientId])
+                + beat(time - nextBeat[patientId], nextBeatKind[patientId], nextBeat[patientId] - lastBeat[patientId]);
+        if (episode[patientId] == Arrhythmia.ATRIAL_FIBRILLATION.ordinal() + 1) {
+            value += 0.05 * Math.sin(2 * Math.PI * time / 160); // Fibrillatory waves, about 6 Hz
+        }
+        value += 0.08 * Math.sin(2 * Math.PI * time / BREATH_MILLIS); // Baseline wander with breathing
+        return value + 0.04 * (random.nextDouble(patientId) - 0.5);
+    }
+
+    /**
+     * Returns the waves of one beat at the given time from its R peak, in milliseconds.
+     */
+    private static double beat(double millis, byte kind, double rr) {
+        if (millis < -250 || millis > 650) {
+            return 0;
+        }
+        if (kind == VENTRICULAR) {
+            // A wide, bizarre QRS complex with a discordant T wave.
+            return 1.4 * gaussian(millis, 0, 35) - 0.35 * gaussian(millis - 45, 0, 30)
+                    - 0.4 * gaussian(millis, 320, 70);
+        }
+        double qt = 400 * Math.sqrt(rr / 1000); // Bazett's formula
+        double value = -0.1 * gaussian(millis, -25, 10) + 1.2 * gaussian(millis, 0, 10)
+                - 0.25 * gaussian(millis, 25, 8) + 0.3 * gaussian(millis, qt - 120, 45);
+        if (kind == NORMAL) {
+            value += 0.15 * gaussian(millis, -160, 25);
+        }
+        return value;
+    }
+
+    private static double gaussian(double x, double center, double width) {
+        double z = (x - center) / width;
+        return Math.exp(-z * z);
+    }
+
+    /**
+     * Moves to the next beat and draws the interval to the one after it, starting and ending
+     * arrhythmia episodes on the way.
+     */
+    private void advanceBeat(int patientId) {
+        double beatTime = nextBeat[patientId];
+        lastRr[patientId] = beatTime - lastBeat[patientId];
+        lastBeat[patientId] = beatTime;
+        lastBeatKind[patientId] = nextBeatKind[patientId];
+
+        if (episode[patientId] != 0 && beatTime >= episodeEnd[patientId]) {
+            episode[patientId] = 0;
+        }
+        if (episode[patientId] == 0 && episodeProbabilityPerMilli > 0
+                && random.nextDouble(patientId) < episodeProbabilityPerMilli * meanRr[patientId]) {
+            startEpisode(patientId, beatTime);
+        }
+
+        double mean = meanRr[patientId];
+        Arrhythmia current = episode[patientId] == 0 ? null : ARRHYTHMIAS[episode[patientId] - 1];
+        double rr;
+        byte kind = NORMAL;
+        if (current == Arrhythmia.ATRIAL_FIBRILLATION) {
+            rr = episodeRr[patientId] * (0.6 + 0.8 * random.nextDouble(patientId));
+            kind = NO_P_WAVE;
+        } else if (current == Arrhythmia.TACHYCARDIA || current == Arrhythmia.BRADYCARDIA) {
+            rr = episodeRr[patientId] * (1 + 0.02 * (random.nextDouble(patientId) - 0.5));
+        } else if (current == Arrhythmia.PREMATURE_VENTRICULAR_CONTRACTIONS
+                && lastBeatKind[patientId] == VENTRICULAR) {
+            rr = 1.4 * mean; // Compensatory pause
+        } else if (current == Arrhythmia.PREMATURE_VENTRICULAR_CONTRACTIONS && ++episodeBeats[patientId] % 3 == 0) {
+            rr = 0.6 * mean;
+            kind = VENTRICULAR;
+        } else {
+            rr = sinusRr(patientId, beatTime);
+        }
+        nextBeat[patientId] = beatTime + rr;
+        nextBeatKind[patientId] = kind;
+    }
+
+    private void startEpisode(int patientId, double time) {
+        Arrhythmia arrhythmia = arrhythmias[random.nextInt(patientId, arrhythmias.length)];
+        episode[patientId] = (byte) (arrhythmia.ordinal() + 1);
+        episodeEnd[patientId] = time + MIN_EPISODE_MILLIS
+                + (MAX_EPISODE_MILLIS - MIN_EPISODE_MILLIS) * random.nextDouble(patientId);
+        episodeBeats[patientId] = 0;
+        switch (arrhythmia) {
+            case ATRIAL_FIBRILLATION:
+                episodeRr[patientId] = 60_000 / (90 + 40 * random.nextDouble(patientId));
+                break;
+            case TACHYCARDIA:
+                episodeRr[patientId] = 60_000 / (140 + 30 * random.nextDouble(patientId));
+                break;
+            case BRADYCARDIA:
+                episodeRr[patientId] = 60_000 / (35 + 10 * random.nextDouble(patientId));
+                break;
+            default:
+                episodeRr[patientId] = meanRr[patientId];
+        }
+    }
+
+    /**
+     * Returns a sinus RR interval: the patient's mean, shortened on inspiration and lengthened
+     * on expiration, with random variation.
+     */
+    private double sinusRr(int patientId, double time) {
+        double breathing = 0.05 * Math.sin(2 * Math.PI * time / BREATH_MILLIS);
+        double variation = 0.03 * (random.nextDouble(patientId) + random.nextDouble(patientId) - 1);
+        return meanRr[patientId] * (1 + breathing + variation);
+    }
+}
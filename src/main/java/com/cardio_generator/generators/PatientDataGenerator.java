@@ -18,4 +18,31 @@ public interface PatientDataGenerator {
      *     output the generated data.
      */
     void generate(int patientId, OutputStrategy outputStrategy);
+
+    /**
+     * Generates health data for a range of consecutive patients. The default implementation
+     *     generates the data of each patient in turn; implementations may generate the data of
+     *     all of them at once and output it as one batch.
+     * 
+     * @param fromPatientId  The ID of the first patient, inclusive.
+     * @param toPatientId    The ID after the last patient, exclusive.
+     * @param outputStrategy The output strategy as a OutputStrategy object, used to
+     *     output the generated data.
+     */
+    default void generateBatch(int fromPatientId, int toPatientId, OutputStrategy outputStrategy) {
+        for (int patientId = fromPatientId; patientId < toPatientId; patientId++) {
+            generate(patientId, outputStrategy);
+        }
+    }
+
+    /**
+     * Forgets the state a patient's data has reached, such as the time of its last sample, so
+     *     that the next call starts the patient anew. Called, from the thread that generates the
+     *     patient's data, when another patient takes the patient's place. The default
+     *     implementation does nothing.
+     * 
+     * @param patientId The ID of the patient.
+     */
+    default void resetPatient(int patientId) {
+    }
 }
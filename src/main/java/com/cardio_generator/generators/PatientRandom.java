@@ -0,0 +1,56 @@
+package com.cardio_generator.generators;
+
+import java.util.SplittableRandom;
+
+/**
+ * One independent stream of pseudorandom numbers per patient, for a generator.
+ *
+ * <p>Each stream is a SplitMix64 sequence, the algorithm of {@link SplittableRandom}, whose
+ * state is a single {@code long} held in an array indexed by patient ID. The streams are
+ * seeded from a {@link SplittableRandom}, so a generator given a stream split from a seeded
+ * source produces the same values for every patient whatever the order, batching or thread in
+ * which its patients are generated. A stream is not synchronized: it must be advanced by one
+ * thread at a time, which holds as the scheduler never runs a batch twice at once and batches
+ * do not share patients.
+ */
+final class PatientRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long[] states;
+
+    /**
+     * Seeds a stream for each of the patients 1 to {@code patientCount}.
+     *
+     * @param patientCount the number of patients
+     * @param seeds        the source of the seeds of the streams
+     */
+    PatientRandom(int patientCount, SplittableRandom seeds) {
+        states = new long[patientCount + 1];
+        for (int i = 1; i <= patientCount; i++) {
+            states[i] = seeds.nextLong();
+        }
+    }
+
+    long nextLong(int patientId) {
+        long z = states[patientId] += GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the next value of a patient's stream, uniformly distributed in [0, 1).
+     */
+    double nextDouble(int patientId) {
+        return (nextLong(patientId) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Returns the next value of a patient's stream, uniformly distributed in [0, bound), up to
+     * a bias of {@code bound / 2^32}.
+     */
+    int nextInt(int patientId, int bound) {
+        return (int) (((nextLong(patientId) >>> 32) * bound) >>> 32);
+    }
+}
@@ -0,0 +1,133 @@
+package com.cardio_generator.outputs;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Describes the compact binary frame format that {@link WebSocketOutputStrategy} sends to
+ * clients which asked for it by connecting with {@value #FORMAT_QUERY} in the query string.
+ *
+ * <p>A frame is a big-endian header followed by a number of fixed-width samples:
+ * <pre>
+ *   header (4 bytes):  byte magic ('C'), byte version, short sampleCount
+ *   sample (21 bytes): int patientId, long timestamp, double value, byte labelCode
+ * </pre>
+ * Label codes are the indexes into {@link #LABELS}. Samples whose data is not numeric, or whose
+ * label has no code, are not representable in a frame and are sent as text lines instead.
+ */
+public final class BinaryFrameCodec {
+
+    /** The query parameter a client adds to the server URI to receive binary frames. */
+    public static final String FORMAT_QUERY = "format=binary";
+
+    public static final byte MAGIC = 'C';
+    public static final byte VERSION = 1;
+    public static final int HEADER_BYTES = 4;
+    public static final int SAMPLE_BYTES = 21;
+
+    /** The labels that have a code, indexed by code. */
+    private static final String[] LABELS = {
+        "ECG", "Saturation", "SystolicPressure", "DiastolicPressure",
+        "Cholesterol", "WhiteBloodCells", "RedBloodCells"
+    };
+
+    private BinaryFrameCodec() {}
+
+    /**
+     * Returns the code for the specified label.
+     *
+     * @param label the type of the health data
+     * @return the label code, or -1 if the label has no code
+     */
+    public static int labelCode(String label) {
+        for (int i = 0; i < LABELS.length; i++) {
+            if (LABELS[i].equals(label)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the label for the specified code.
+     *
+     * @param code the label code read from a frame
+     * @return the label, or {@code null} if the code is unknown
+     */
+    public static String label(int code) {
+        return code >= 0 && code < LABELS.length ? LABELS[code] : null;
+    }
+
+    /**
+     * Converts the data string handed to an {@link OutputStrategy} to a number, ignoring a
+     * trailing '%' as used for saturation.
+     *
+     * @param data the health data as a String
+     * @return the numeric value, or {@link Double#NaN} if the data is not numeric
+     */
+    public static double numericValue(String data) {
+        String number = data.endsWith("%") ? data.substring(0, data.length() - 1) : data;
+        try {
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Returns the number of bytes of a frame holding the specified number of samples.
+     *
+     * @param samples the number of samples
+     * @return the frame size in bytes
+     */
+    public static int frameSize(int samples) {
+        return HEADER_BYTES + samples * SAMPLE_BYTES;
+    }
+
+    /**
+     * Writes an empty header at the start of {@code frame} and positions it for samples.
+     *
+     * @param frame the buffer the frame is written to
+     */
+    public static void startFrame(ByteBuffer frame) {
+        frame.clear();
+        frame.put(MAGIC).put(VERSION).putShort((short) 0);
+    }
+
+    /**
+     * Appends a sample to a frame started with {@link #startFrame(ByteBuffer)}.
+     *
+     * @param frame     the buffer the frame is written to
+     * @param patientId the ID of the patient
+     * @param timestamp the timestamp of the sample
+     * @param labelCode the code of the sample's label
+     * @param value     the numeric value of the sample
+     */
+    public static void putSample(ByteBuffer frame, int patientId, long timestamp, int labelCode, double value) {
+        frame.putInt(patientId).putLong(timestamp).putDouble(value).put((byte) labelCode);
+    }
+
+    /**
+     * Fills in the sample count of a frame and flips it for sending.
+     *
+     * @param frame the buffer the frame was written to
+     */
+    public static void finishFrame(ByteBuffer frame) {
+        int samples = (frame.position() - HEADER_BYTES) / SAMPLE_BYTES;
+        frame.putShort(2, (short) samples);
+        frame.flip();
+    }
+
+    /**
+     * Validates the header of a received frame.
+     *
+     * @param frame the received frame, positioned at its first byte
+     * @return the number of samples that follow the header, or -1 if the frame is invalid
+     */
+    public static int readHeader(ByteBuffer frame) {
+        if (frame.remaining() < HEADER_BYTES || frame.get() != MAGIC || frame.get() != VERSION) {
+            return -1;
+        }
+        int samples = frame.getShort() & 0xFFFF;
+        return frame.remaining() == samples * SAMPLE_BYTES ? samples : -1;
+    }
+}
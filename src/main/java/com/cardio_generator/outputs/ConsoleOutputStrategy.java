@@ -5,4 +5,16 @@ public class ConsoleOutputStrategy implements OutputStrategy {
     public void output(int patientId, long timestamp, String label, String data) {
         System.out.printf("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n", patientId, timestamp, label, data);
     }
+
+    @Override
+    public void outputBatch(SampleBatch batch) {
+        String newLine = System.lineSeparator();
+        StringBuilder lines = new StringBuilder(batch.size() * 64);
+        for (int i = 0; i < batch.size(); i++) {
+            lines.append("Patient ID: ").append(batch.getPatientId(i)).append(", Timestamp: ")
+                    .append(batch.getTimestamp(i)).append(", Label: ").append(batch.getLabel(i)).append(", Data: ");
+            batch.appendData(i, lines).append(newLine);
+        }
+        System.out.print(lines);
+    }
 }
@@ -7,6 +7,8 @@ import java.io.IOException;
 import java.nio.file.Paths;
 import java.io.PrintWriter;
 import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 // Section 5.2.2, class name changed to UpperCamelCase.
 // Section 4.2, all indentations changed to +2 spaces.
@@ -22,6 +24,9 @@ public class FileOutputStrategy implements OutputStrategy {
   // Section 4.6.2, horizontol whitespace added before and after "<>" and after ")".
   public final ConcurrentHashMap <String, String> file_map = new ConcurrentHashMap <> () ;
 
+  // Batches are written in several chunks; a lock per file keeps concurrent writes whole.
+  private final ConcurrentHashMap <String, Object> fileLocks = new ConcurrentHashMap <> () ;
+
   /**
    * Constructs a new FileOutputStrategy with the specified base directory.
    * 
@@ -60,14 +65,55 @@ public class FileOutputStrategy implements OutputStrategy {
 
     // Write the data to the file.
     // Section 4.4, lines in this try-catch block were linewrapped to not exceed 100 characters.
-    try (PrintWriter out = new PrintWriter(
-        Files.newBufferedWriter(
-            Paths.get(filePath) , StandardOpenOption.CREATE, StandardOpenOption.APPEND) ) ) {
+    synchronized (fileLocks.computeIfAbsent(filePath, k -> new Object() ) ) {
+      try (PrintWriter out = new PrintWriter(
+          Files.newBufferedWriter(
+              Paths.get(filePath) , StandardOpenOption.CREATE, StandardOpenOption.APPEND) ) ) {
                 
-      out.printf("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n",
-          patientId, timestamp, label, data) ;
-    } catch (Exception e) {
-      System.err.println("Error writing to file " + filePath + ": " + e.getMessage() ) ;
+        out.printf("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n",
+            patientId, timestamp, label, data) ;
+      } catch (Exception e) {
+        System.err.println("Error writing to file " + filePath + ": " + e.getMessage() ) ;
+      }
+    }
+  }
+
+  /**
+   * Outputs a batch of health data to the files of its labels, in the same format as
+   *     {@link #output}. Each file is opened once per batch rather than once per sample.
+   * 
+   * @param batch The samples as a SampleBatch.
+   */
+  @Override
+  public void outputBatch(SampleBatch batch) {
+    try {
+      Files.createDirectories(Paths.get(baseDirectory) ) ;
+    } catch (IOException e) {
+      System.err.println("Error creating base directory: " + e.getMessage() ) ;
+      return;
+    }
+    // Group the lines by label, keeping their order within each label.
+    Map <String, StringBuilder> lines = new LinkedHashMap <> () ;
+    String newLine = System.lineSeparator() ;
+    for (int i = 0; i < batch.size() ; i++) {
+      StringBuilder builder = lines.computeIfAbsent(batch.getLabel(i) , k -> new StringBuilder() ) ;
+      builder.append("Patient ID: ") .append(batch.getPatientId(i) ) .append(", Timestamp: ")
+          .append(batch.getTimestamp(i) ) .append(", Label: ") .append(batch.getLabel(i) ) .append(", Data: ") ;
+      batch.appendData(i, builder) .append(newLine) ;
+    }
+    for (Map.Entry <String, StringBuilder> entry : lines.entrySet() ) {
+      String label = entry.getKey() ;
+      String filePath = file_map.computeIfAbsent(
+          label, k -> Paths.get(baseDirectory, label + ".txt") .toString() ) ;
+      synchronized (fileLocks.computeIfAbsent(filePath, k -> new Object() ) ) {
+        try (PrintWriter out = new PrintWriter(
+            Files.newBufferedWriter(
+                Paths.get(filePath) , StandardOpenOption.CREATE, StandardOpenOption.APPEND) ) ) {
+          out.print(entry.getValue() ) ;
+        } catch (Exception e) {
+          System.err.println("Error writing to file " + filePath + ": " + e.getMessage() ) ;
+        }
+      }
     }
   }
 }
\ No newline at end of file
@@ -14,4 +14,16 @@ public interface OutputStrategy {
      * @param data      The health data as a String.
      */
     void output(int patientId, long timestamp, String label, String data);
+
+    /**
+     * Outputs a batch of health data samples, in order. The default implementation outputs
+     *     the samples one by one; implementations may output them together.
+     *
+     * @param batch The samples as a SampleBatch, which must not be kept after the call.
+     */
+    default void outputBatch(SampleBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            output(batch.getPatientId(i), batch.getTimestamp(i), batch.getLabel(i), batch.getData(i));
+        }
+    }
 }
@@ -0,0 +1,129 @@
+package com.cardio_generator.outputs;
+
+import java.util.Arrays;
+
+/**
+ * A batch of numeric health data samples, held in parallel primitive arrays, that a generator
+ * hands to an {@link OutputStrategy} in one call.
+ *
+ * <p>A sample's data is its value formatted as by {@link Double#toString(double)}, followed by
+ * an optional suffix such as the '%' of saturation, so the samples of a batch are output
+ * exactly as the same samples output one by one.
+ */
+public final class SampleBatch {
+
+    private int[] patientIds;
+    private long[] timestamps;
+    private String[] labels;
+    private double[] values;
+    private String[] suffixes;
+    private int size;
+
+    /**
+     * Constructs an empty batch.
+     *
+     * @param capacity the number of samples the batch holds before it grows
+     */
+    public SampleBatch(int capacity) {
+        int initial = Math.max(1, capacity);
+        patientIds = new int[initial];
+        timestamps = new long[initial];
+        labels = new String[initial];
+        values = new double[initial];
+        suffixes = new String[initial];
+    }
+
+    /**
+     * Appends a sample.
+     *
+     * @param patientId the ID of the patient
+     * @param timestamp the timestamp of the sample
+     * @param label     the type of the health data
+     * @param value     the numeric value of the sample
+     */
+    public void add(int patientId, long timestamp, String label, double value) {
+        add(patientId, timestamp, label, value, null);
+    }
+
+    /**
+     * Appends a sample whose data carries a suffix after the value.
+     *
+     * @param patientId the ID of the patient
+     * @param timestamp the timestamp of the sample
+     * @param label     the type of the health data
+     * @param value     the numeric value of the sample
+     * @param suffix    appended to the formatted value, or {@code null} for none
+     */
+    public void add(int patientId, long timestamp, String label, double value, String suffix) {
+        if (size == patientIds.length) {
+            int capacity = size * 2;
+            patientIds = Arrays.copyOf(patientIds, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+            values = Arrays.copyOf(values, capacity);
+            suffixes = Arrays.copyOf(suffixes, capacity);
+        }
+        patientIds[size] = patientId;
+        timestamps[size] = timestamp;
+        labels[size] = label;
+        values[size] = value;
+        suffixes[size] = suffix;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getPatientId(int index) {
+        return patientIds[index];
+    }
+
+    /**
+     * Replaces the patient ID of a sample, for strategies that pass a batch on under other IDs.
+     *
+     * @param index     the index of the sample
+     * @param patientId the new ID of the patient
+     */
+    public void setPatientId(int index, int patientId) {
+        patientIds[index] = patientId;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public String getLabel(int index) {
+        return labels[index];
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the data of a sample as it is output one by one.
+     *
+     * @param index the index of the sample
+     * @return the formatted value followed by its suffix, if any
+     */
+    public String getData(int index) {
+        String data = Double.toString(values[index]);
+        return suffixes[index] == null ? data : data + suffixes[index];
+    }
+
+    /**
+     * Appends the data of a sample to a builder, without creating intermediate strings.
+     *
+     * @param index   the index of the sample
+     * @param builder the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendData(int index, StringBuilder builder) {
+        builder.append(values[index]);
+        if (suffixes[index] != null) {
+            builder.append(suffixes[index]);
+        }
+        return builder;
+    }
+}
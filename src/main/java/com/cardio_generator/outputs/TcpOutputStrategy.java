@@ -14,7 +14,7 @@ public class TcpOutputStrategy implements OutputStrategy {
 
     private ServerSocket serverSocket;
     private Socket clientSocket;
-    private PrintWriter out;
+    private volatile PrintWriter out;
 
     /**
      * Constructs a new TcpOutputStrategy that listens for client connections on the specified port.
@@ -26,14 +26,22 @@ public class TcpOutputStrategy implements OutputStrategy {
             serverSocket = new ServerSocket(port);
             System.out.println("TCP Server started on port " + port);
 
-            // Accept clients in a new thread to not block the main thread
+            // Accept clients in a new thread to not block the main thread.
+            // A client that reconnects replaces the previous one.
             Executors.newSingleThreadExecutor().submit(() -> {
-                try {
-                    clientSocket = serverSocket.accept();
-                    out = new PrintWriter(clientSocket.getOutputStream(), true);
-                    System.out.println("Client connected: " + clientSocket.getInetAddress());
-                } catch (IOException e) {
-                    e.printStackTrace();
+                while (!serverSocket.isClosed()) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        PrintWriter previous = out;
+                        clientSocket = socket;
+                        out = new PrintWriter(socket.getOutputStream(), true);
+                        if (previous != null) {
+                            previous.close();
+                        }
+                        System.out.println("Client connected: " + socket.getInetAddress());
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
                 }
             });
         } catch (IOException e) {
@@ -51,9 +59,33 @@ public class TcpOutputStrategy implements OutputStrategy {
      */
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
-        if (out != null) {
+        PrintWriter writer = out;
+        if (writer != null) {
             String message = String.format("%d,%d,%s,%s", patientId, timestamp, label, data);
-            out.println(message);
+            writer.println(message);
+        }
+    }
+
+    /**
+     * Outputs a batch of health data to the connected client in the same format as
+     * {@link #output}, written and flushed at once. Nothing is formatted while no client is
+     * connected.
+     *
+     * @param batch The samples as a SampleBatch.
+     */
+    @Override
+    public void outputBatch(SampleBatch batch) {
+        PrintWriter writer = out;
+        if (writer != null) {
+            String newLine = System.lineSeparator();
+            StringBuilder lines = new StringBuilder(batch.size() * 40);
+            for (int i = 0; i < batch.size(); i++) {
+                lines.append(batch.getPatientId(i)).append(',').append(batch.getTimestamp(i)).append(',')
+                        .append(batch.getLabel(i)).append(',');
+                batch.appendData(i, lines).append(newLine);
+            }
+            writer.print(lines);
+            writer.flush();
         }
     }
 }
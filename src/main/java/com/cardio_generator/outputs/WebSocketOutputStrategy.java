@@ -3,32 +3,234 @@ package com.cardio_generator.outputs;
 import org.java_websocket.WebSocket;
 import org.java_websocket.server.WebSocketServer;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-public class WebSocketOutputStrategy implements OutputStrategy {
+/**
+ * This class implements the OutputStrategy interface to stream health data to WebSocket clients.
+ *
+ * <p>Clients receive one text message per sample ({@code patientId,timestamp,label,data}) unless
+ * they connect with {@value BinaryFrameCodec#FORMAT_QUERY} in the query string, in which case
+ * numeric samples are batched into binary frames described by {@link BinaryFrameCodec}. A frame
+ * is sent when it is full or at the latest {@value #FLUSH_INTERVAL_MILLIS} ms after its first sample.
+ * A sample sent to binary clients as text is sent after the pending frame, so they receive the
+ * samples in the order they were output.
+ */
+public class WebSocketOutputStrategy implements OutputStrategy, Closeable {
+
+    private static final int SAMPLES_PER_FRAME = 64;
+    private static final long FLUSH_INTERVAL_MILLIS = 10;
 
     private WebSocketServer server;
+    private final ScheduledExecutorService flusher;
+    private final ByteBuffer frame = ByteBuffer.allocate(BinaryFrameCodec.frameSize(SAMPLES_PER_FRAME));
+    private int frameSamples;
 
     public WebSocketOutputStrategy(int port) {
         server = new SimpleWebSocketServer(new InetSocketAddress(port));
         System.out.println("WebSocket server created on port: " + port + ", listening for connections...");
         server.start();
+        BinaryFrameCodec.startFrame(frame);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "websocket-frame-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleAtFixedRate(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
         if (validateMessage(patientId, timestamp, label, data)) {
-            String message = String.format("%d,%d,%s,%s", patientId, timestamp, label, data);
+            String message = null;
+            List<WebSocket> binaryClients = null;
             for (WebSocket conn : server.getConnections()) {
-                conn.send(message);
+                if (isBinary(conn)) {
+                    if (binaryClients == null) {
+                        binaryClients = new ArrayList<>();
+                    }
+                    binaryClients.add(conn);
+                } else {
+                    if (message == null) {
+                        message = String.format("%d,%d,%s,%s", patientId, timestamp, label, data);
+                    }
+                    conn.send(message);
+                }
+            }
+            if (binaryClients != null) {
+                outputBinary(binaryClients, patientId, timestamp, label, data);
             }
         } else {
             System.err.println("Invalid message format: " + patientId + "," + timestamp + "," + label + "," + data);
         }
     }
 
+    /**
+     * Outputs a batch of samples: text clients receive one message per sample, as from
+     * {@link #output}, and the values are put into binary frames directly, without being
+     * formatted and parsed again. Samples are validated, and samples without a label code sent
+     * to binary clients as text, as by {@link #output}.
+     */
+    @Override
+    public void outputBatch(SampleBatch batch) {
+        List<WebSocket> textClients = new ArrayList<>();
+        List<WebSocket> binaryClients = new ArrayList<>();
+        for (WebSocket conn : server.getConnections()) {
+            if (isBinary(conn)) {
+                binaryClients.add(conn);
+            } else {
+                textClients.add(conn);
+            }
+        }
+        StringBuilder message = new StringBuilder();
+        String label = null;
+        int labelCode = -1;
+        synchronized (frame) {
+            for (int i = 0; i < batch.size(); i++) {
+                // The data of a batch sample is its formatted value, never empty.
+                if (!validateSample(batch.getPatientId(i), batch.getTimestamp(i), batch.getLabel(i))) {
+                    System.err.println("Invalid message format: " + batch.getPatientId(i) + ","
+                            + batch.getTimestamp(i) + "," + batch.getLabel(i) + "," + batch.getData(i));
+                    continue;
+                }
+                if (!batch.getLabel(i).equals(label)) {
+                    label = batch.getLabel(i);
+                    labelCode = BinaryFrameCodec.labelCode(label);
+                }
+                String text = null;
+                if (!textClients.isEmpty() || (labelCode < 0 && !binaryClients.isEmpty())) {
+                    message.setLength(0);
+                    message.append(batch.getPatientId(i)).append(',').append(batch.getTimestamp(i)).append(',')
+                            .append(label).append(',');
+                    text = batch.appendData(i, message).toString();
+                }
+                for (WebSocket conn : textClients) {
+                    conn.send(text);
+                }
+                if (binaryClients.isEmpty()) {
+                    continue;
+                }
+                if (labelCode < 0) {
+                    sendText(binaryClients, text);
+                } else {
+                    BinaryFrameCodec.putSample(frame, batch.getPatientId(i), batch.getTimestamp(i), labelCode,
+                            batch.getValue(i));
+                    if (++frameSamples == SAMPLES_PER_FRAME) {
+                        sendFrame();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a sample to the pending binary frame, or sends it as text to the binary clients
+     * if it cannot be represented in a frame.
+     */
+    private void outputBinary(List<WebSocket> binaryClients, int patientId, long timestamp, String label,
+            String data) {
+        int labelCode = BinaryFrameCodec.labelCode(label);
+        double value = labelCode < 0 ? Double.NaN : BinaryFrameCodec.numericValue(data);
+        synchronized (frame) {
+            if (Double.isNaN(value)) {
+                sendText(binaryClients, String.format("%d,%d,%s,%s", patientId, timestamp, label, data));
+                return;
+            }
+            BinaryFrameCodec.putSample(frame, patientId, timestamp, labelCode, value);
+            if (++frameSamples == SAMPLES_PER_FRAME) {
+                sendFrame();
+            }
+        }
+    }
+
+    /**
+     * Sends a sample as text to binary clients, after the pending frame so that they receive the
+     * samples in order. Called holding the frame's lock.
+     */
+    private void sendText(List<WebSocket> binaryClients, String text) {
+        if (frameSamples > 0) {
+            sendFrame();
+        }
+        server.broadcast(text, binaryClients);
+    }
+
+    /**
+     * Sends the pending binary frame, if it holds any samples.
+     */
+    private void flush() {
+        synchronized (frame) {
+            if (frameSamples > 0) {
+                sendFrame();
+            }
+        }
+    }
+
+    private void sendFrame() {
+        BinaryFrameCodec.finishFrame(frame);
+        List<WebSocket> binaryClients = new ArrayList<>();
+        for (WebSocket conn : server.getConnections()) {
+            if (isBinary(conn)) {
+                binaryClients.add(conn);
+            }
+        }
+        if (!binaryClients.isEmpty()) {
+            byte[] bytes = new byte[frame.remaining()];
+            frame.get(bytes);
+            server.broadcast(bytes, binaryClients);
+        }
+        BinaryFrameCodec.startFrame(frame);
+        frameSamples = 0;
+    }
+
+    /**
+     * Sends the pending binary frame, stops the periodic flush and stops the server.
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        flush();
+        try {
+            server.stop(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isBinary(WebSocket conn) {
+        return Boolean.TRUE.equals(conn.getAttachment());
+    }
+
+    /**
+     * Returns whether a request URI asks for binary frames: whether one of the parameters of its
+     * query string is exactly {@value BinaryFrameCodec#FORMAT_QUERY}.
+     */
+    private static boolean requestsBinary(String resource) {
+        int query = resource == null ? -1 : resource.indexOf('?');
+        if (query < 0) {
+            return false;
+        }
+        for (String parameter : resource.substring(query + 1).split("&")) {
+            if (parameter.equals(BinaryFrameCodec.FORMAT_QUERY)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean validateMessage(int patientId, long timestamp, String label, String data) {
-        return patientId > 0 && timestamp > 0 && label != null && !label.isEmpty() && data != null && !data.isEmpty();
+        return validateSample(patientId, timestamp, label) && data != null && !data.isEmpty();
+    }
+
+    private static boolean validateSample(int patientId, long timestamp, String label) {
+        return patientId > 0 && timestamp > 0 && label != null && !label.isEmpty();
     }
 
     private static class SimpleWebSocketServer extends WebSocketServer {
@@ -39,7 +241,10 @@ public class WebSocketOutputStrategy implements OutputStrategy {
 
         @Override
         public void onOpen(WebSocket conn, org.java_websocket.handshake.ClientHandshake handshake) {
-            System.out.println("New connection: " + conn.getRemoteSocketAddress());
+            // Clients opt in to binary frames through the query string of the request URI.
+            boolean binary = requestsBinary(handshake.getResourceDescriptor());
+            conn.setAttachment(binary);
+            System.out.println("New connection: " + conn.getRemoteSocketAddress() + (binary ? " (binary)" : ""));
         }
 
         @Override
@@ -2,8 +2,14 @@ package com.data_management;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock; 
+import java.util.function.BiConsumer;
 
 import com.alerts.AlertGenerator;
 
@@ -19,6 +25,10 @@ public class DataStorage {
     private static volatile DataStorage instance;
     private ConcurrentHashMap<Integer, Patient> patientMap; // Stores patient objects indexed by their unique patient ID.
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); // ensures that reading and writing operations do not conflict.
+    private volatile ReorderBuffer reorderBuffer; // optional ingest stage that restores timestamp order.
+    private ScheduledExecutorService reorderFlusher;
+    private final ConcurrentLinkedQueue<Patient> dirtyPatients = new ConcurrentLinkedQueue<>(); // patients with data added since they were last drained.
+    private Object dirtyPatientsOwner; // the one consumer that drains the dirty patients, once claimed.
     /**
      * Constructs a new instance of DataStorage, initializing the underlying storage
      * structure.
@@ -38,6 +48,15 @@ public class DataStorage {
         }
         return instance;
     }
+    /**
+     * Creates a storage separate from the global instance, e.g. to load historical data for
+     * replay without mixing it with live data.
+     *
+     * @return a new, empty storage
+     */
+    public static DataStorage createDetached() {
+        return new DataStorage();
+    }
     // set the singleton instance for testing
     public static synchronized void setInstance(DataStorage mockInstance) {
         instance = mockInstance;
@@ -57,6 +76,20 @@ public class DataStorage {
      *                         milliseconds since the Unix epoch
      */
     public void addPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+        ReorderBuffer buffer = reorderBuffer;
+        if (buffer != null) {
+            buffer.offer(patientId, measurementValue, recordType, timestamp, System.nanoTime());
+            return;
+        }
+        storeRecord(patientId, measurementValue, recordType, timestamp, System.nanoTime());
+    }
+
+    /**
+     * Stores a single measurement, bypassing the reorder buffer, and records its
+     * {@link LatencyMetrics.Stage#STORE} latency.
+     */
+    private void storeRecord(int patientId, double measurementValue, String recordType, long timestamp,
+            long ingestNanos) {
         lock.writeLock().lock();
         try {
             Patient patient = patientMap.get(patientId);
@@ -64,10 +97,151 @@ public class DataStorage {
                 patient = new Patient(patientId);
                 patientMap.put(patientId, patient);
             }
-            patient.addRecord(measurementValue, recordType, timestamp);
+            patient.addRecord(measurementValue, recordType, timestamp, ingestNanos);
+            markDirty(patient, recordType);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LatencyMetrics.getInstance().record(LatencyMetrics.Stage.STORE, ingestNanos);
+    }
+
+    /**
+     * Adds every measurement in the batch to the storage, in batch order.
+     * The storage lock is acquired once for the whole batch, and consecutive
+     * measurements for the same patient reuse the patient lookup.
+     *
+     * @param batch the measurements to store
+     */
+    public void addPatientData(RecordBatch batch) {
+        ReorderBuffer buffer = reorderBuffer;
+        if (buffer != null) {
+            for (int i = 0; i < batch.size(); i++) {
+                buffer.offer(batch.getPatientId(i), batch.getMeasurementValue(i), batch.getRecordType(i),
+                        batch.getTimestamp(i), batch.getIngestNanos(i));
+            }
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Patient patient = null;
+            for (int i = 0; i < batch.size(); i++) {
+                int patientId = batch.getPatientId(i);
+                if (patient == null || patient.getPatientId() != patientId) {
+                    patient = patientMap.computeIfAbsent(patientId, Patient::new);
+                }
+                patient.addRecord(batch.getMeasurementValue(i), batch.getRecordType(i), batch.getTimestamp(i),
+                        batch.getIngestNanos(i));
+                markDirty(patient, batch.getRecordType(i));
+            }
         } finally {
             lock.writeLock().unlock();
         }
+        LatencyMetrics.getInstance().record(LatencyMetrics.Stage.STORE, batch, 0);
+    }
+
+    private void markDirty(Patient patient, String recordType) {
+        if (patient.markDirty(recordType)) {
+            dirtyPatients.add(patient);
+        }
+    }
+
+    /**
+     * Passes every patient that received data since it was last drained to the consumer,
+     * together with the types of the records added, and marks those patients clean. Each
+     * patient is queued once when it becomes dirty, so the cost of a drain is proportional
+     * to the number of patients with new data rather than to the number of patients stored.
+     *
+     * <p>Records added while a patient is being drained are either included in the types
+     * passed to the consumer or make the patient dirty again for the next drain, so no
+     * new data is missed.
+     *
+     * <p>The queue has a single owner: a drain takes the patients away from every other
+     * consumer, so the first drain claims the queue for its owner until the owner calls
+     * {@link #releaseDirtyPatients}, and drains by any other owner fail.
+     *
+     * @param owner    the consumer draining the queue, e.g. an alert service
+     * @param consumer receives each dirty patient and the record types added to it
+     * @return the number of patients drained
+     * @throws IllegalStateException if another owner has claimed the queue
+     */
+    public int drainDirtyPatients(Object owner, BiConsumer<Patient, Set<String>> consumer) {
+        synchronized (dirtyPatients) {
+            if (dirtyPatientsOwner == null) {
+                dirtyPatientsOwner = owner;
+            } else if (dirtyPatientsOwner != owner) {
+                throw new IllegalStateException("Dirty patients are already drained by " + dirtyPatientsOwner);
+            }
+        }
+        int drained = 0;
+        Patient patient;
+        while ((patient = dirtyPatients.poll()) != null) {
+            consumer.accept(patient, patient.takeDirtyTypes());
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Gives up the claim of an owner on the dirty patient queue, so that another consumer
+     * can drain it. Does nothing if the owner has no claim.
+     *
+     * @param owner the consumer that drained the queue
+     */
+    public void releaseDirtyPatients(Object owner) {
+        synchronized (dirtyPatients) {
+            if (dirtyPatientsOwner == owner) {
+                dirtyPatientsOwner = null;
+            }
+        }
+    }
+
+    /**
+     * Routes all subsequently added data through a {@link ReorderBuffer}, so that each
+     * patient's records of a type are stored in timestamp order and exact duplicates are
+     * dropped. Buffered data is released once newer data of the same type arrives or after
+     * at most the lateness in wall-clock time.
+     *
+     * @param latenessMillis how far out of order data may arrive and still be reordered,
+     *                       in milliseconds
+     * @return the reorder buffer, for inspecting its duplicate and late counts
+     */
+    public synchronized ReorderBuffer enableReordering(long latenessMillis) {
+        disableReordering();
+        ReorderBuffer buffer = new ReorderBuffer(latenessMillis, new RecordSink() {
+            @Override
+            public void accept(int patientId, double measurementValue, String recordType, long timestamp) {
+                storeRecord(patientId, measurementValue, recordType, timestamp, System.nanoTime());
+            }
+
+            @Override
+            public void accept(int patientId, double measurementValue, String recordType, long timestamp,
+                    long ingestNanos) {
+                storeRecord(patientId, measurementValue, recordType, timestamp, ingestNanos);
+            }
+        });
+        long flushInterval = Math.max(1, latenessMillis / 2);
+        reorderFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reorder-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reorderFlusher.scheduleWithFixedDelay(buffer::flushExpired, flushInterval, flushInterval,
+                TimeUnit.MILLISECONDS);
+        reorderBuffer = buffer;
+        return buffer;
+    }
+
+    /**
+     * Stops reordering, storing everything that is still buffered.
+     */
+    public synchronized void disableReordering() {
+        ReorderBuffer buffer = reorderBuffer;
+        if (buffer != null) {
+            reorderBuffer = null;
+            reorderFlusher.shutdownNow();
+            reorderFlusher = null;
+            buffer.flushAll();
+        }
     }
 
     /**
@@ -96,6 +270,64 @@ public class DataStorage {
         }
     }
 
+    /**
+     * Retrieves the records of one type for a specific patient, filtered by a time range.
+     * Only the patient's series of that type is searched.
+     *
+     * @param patientId  the unique identifier of the patient whose records are to be
+     *                   retrieved
+     * @param recordType the type of the records to retrieve, e.g., "ECG"
+     * @param startTime  the start of the time range, in milliseconds since the Unix
+     *                   epoch
+     * @param endTime    the end of the time range, in milliseconds since the Unix
+     *                   epoch
+     * @return the records of the type within the time range
+     */
+    public List<PatientRecord> getRecords(int patientId, String recordType, long startTime, long endTime) {
+        Patient patient = patientMap.get(patientId);
+        if (patient != null) {
+            return patient.getRecords(recordType, startTime, endTime);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Retrieves the records of the specified types that were added to a patient after the
+     * ones the caller has already processed, in the order in which they were added.
+     *
+     * @param patientId   the unique identifier of the patient whose records are to be
+     *                    retrieved
+     * @param recordTypes the types of the records to retrieve
+     * @param fromIndexes the number of the patient's records of each type the caller has
+     *                    already processed; advanced past the records returned
+     * @return the new records of the types
+     * @see Patient#getRecordsFrom(String[], int[])
+     */
+    public List<PatientRecord> getRecordsFrom(int patientId, String[] recordTypes, int[] fromIndexes) {
+        Patient patient = patientMap.get(patientId);
+        if (patient != null) {
+            return patient.getRecordsFrom(recordTypes, fromIndexes);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Retrieves the records of a specific patient that were added after the first
+     * {@code fromIndex} records, in the order in which they were added.
+     *
+     * @param patientId the unique identifier of the patient whose records are to be
+     *                  retrieved
+     * @param fromIndex the number of the patient's records the caller has already processed
+     * @return the records added after the first {@code fromIndex} records
+     */
+    public List<PatientRecord> getRecordsFrom(int patientId, int fromIndex) {
+        Patient patient = patientMap.get(patientId);
+        if (patient != null) {
+            return patient.getRecordsFrom(fromIndex);
+        }
+        return new ArrayList<>();
+    }
+
     /**
      * Retrieves a collection of all patients stored in the data storage.
      *
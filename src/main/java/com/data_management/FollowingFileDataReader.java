@@ -0,0 +1,324 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the {@link DataReader} interface that follows the label files written by
+ * the simulator's --output file:<output_dir> option and ingests lines as they are appended.
+ *
+ * <p>The output directory is watched with a {@link WatchService}; the watch is also given a
+ * poll timeout so that appends are picked up on file systems that do not deliver events. For
+ * each {@code <label>.txt} file only the bytes after the last complete line already read are
+ * parsed. A file that shrinks or is replaced by a new file is read again from the start.
+ *
+ * <p>Per-file byte offsets are persisted to an offsets file so that a restarted reader resumes
+ * where the previous one stopped instead of ingesting the files again.
+ */
+public class FollowingFileDataReader implements DataReader {
+
+    private static final String OFFSETS_FILE_NAME = ".follow-offsets";
+    private static final long DEFAULT_POLL_INTERVAL_MILLIS = 500;
+    private static final long PERSIST_INTERVAL_MILLIS = 1000;
+
+    private final long pollIntervalMillis;
+    private final Map<String, FileState> files = new HashMap<>();
+    private final RecordParser parser = new RecordParser();
+    private final RecordBatch batch = new RecordBatch();
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    private volatile DataStorage dataStorage;
+    private Path directory;
+    private Path offsetsFile;
+    private Thread followThread;
+    private volatile boolean running;
+    private boolean offsetsDirty;
+    private long lastPersistMillis;
+
+    /**
+     * Constructs a reader that falls back to polling every 500 milliseconds.
+     */
+    public FollowingFileDataReader() {
+        this(DEFAULT_POLL_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Constructs a reader with the specified polling interval.
+     *
+     * @param pollIntervalMillis the longest time between two scans of the output directory
+     *                           when no file system events arrive
+     */
+    public FollowingFileDataReader(long pollIntervalMillis) {
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    /**
+     * Starts following the label files in the specified output directory. Offsets are kept in
+     * a {@code .follow-offsets} file inside that directory.
+     *
+     * @param outputDir the directory the simulator writes its output files to
+     * @throws IOException if the directory cannot be watched or the offsets cannot be loaded
+     */
+    @Override
+    public void connect(String outputDir) throws IOException {
+        Path dir = Paths.get(outputDir);
+        connect(dir, dir.resolve(OFFSETS_FILE_NAME));
+    }
+
+    /**
+     * Starts following the label files in the specified output directory.
+     *
+     * @param outputDir   the directory the simulator writes its output files to
+     * @param offsetsFile the file the per-file offsets are persisted to
+     * @throws IOException if the directory cannot be watched or the offsets cannot be loaded
+     */
+    public void connect(Path outputDir, Path offsetsFile) throws IOException {
+        open(outputDir, offsetsFile);
+        WatchService watchService = outputDir.getFileSystem().newWatchService();
+        outputDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+        running = true;
+        followThread = new Thread(() -> follow(watchService), "file-follower-" + outputDir.getFileName());
+        followThread.setDaemon(true);
+        followThread.start();
+    }
+
+    /**
+     * Prepares the reader for {@link #poll()} without starting the follow thread, loading the
+     * persisted offsets if there are any.
+     *
+     * @param outputDir   the directory the simulator writes its output files to
+     * @param offsetsFile the file the per-file offsets are persisted to
+     * @throws IOException if the offsets cannot be loaded
+     */
+    public synchronized void open(Path outputDir, Path offsetsFile) throws IOException {
+        this.directory = outputDir;
+        this.offsetsFile = offsetsFile;
+        Files.createDirectories(outputDir);
+        loadOffsets();
+    }
+
+    /**
+     * Stops following the output directory and persists the current offsets.
+     *
+     * @throws IOException if the offsets cannot be persisted
+     */
+    @Override
+    public void disconnect() throws IOException {
+        running = false;
+        Thread thread = followThread;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            followThread = null;
+        }
+        synchronized (this) {
+            if (offsetsFile != null) {
+                persistOffsets();
+            }
+        }
+    }
+
+    /**
+     * Parses a single line in any format accepted by {@link RecordParser} and stores it.
+     *
+     * @param data        the line to parse
+     * @param dataStorage the storage where data will be stored
+     */
+    @Override
+    public void handleData(String data, DataStorage dataStorage) {
+        RecordBatch single = new RecordBatch(1);
+        if (new RecordParser().parseLine(data, single)) {
+            dataStorage.addPatientData(single);
+        } else {
+            System.err.println("Received corrupted data: " + data);
+        }
+    }
+
+    /**
+     * Sets the storage that followed data is stored in.
+     *
+     * @param dataStorage the storage where data will be stored
+     */
+    @Override
+    public void startReading(DataStorage dataStorage) {
+        this.dataStorage = dataStorage;
+    }
+
+    /**
+     * Reads whatever has been appended to the label files since the last call and stores it.
+     * Until a storage is set by {@link #startReading(DataStorage)}, nothing is read and the
+     * offsets stay where they are.
+     *
+     * @return the number of records stored
+     * @throws IOException if the directory or a label file cannot be read
+     */
+    public synchronized int poll() throws IOException {
+        DataStorage storage = dataStorage;
+        if (storage == null) {
+            return 0;
+        }
+        int stored = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.txt")) {
+            for (Path file : stream) {
+                stored += readAppended(file, storage);
+            }
+        }
+        long now = System.currentTimeMillis();
+        if (offsetsDirty && now - lastPersistMillis >= PERSIST_INTERVAL_MILLIS) {
+            persistOffsets();
+        }
+        return stored;
+    }
+
+    /**
+     * Returns the offset up to which the specified label file has been ingested.
+     *
+     * @param fileName the name of the label file, e.g. "ECG.txt"
+     * @return the byte offset, or 0 if the file has not been read
+     */
+    public synchronized long getOffset(String fileName) {
+        FileState state = files.get(fileName);
+        return state == null ? 0 : state.offset;
+    }
+
+    private void follow(WatchService watchService) {
+        try (WatchService watcher = watchService) {
+            while (running) {
+                try {
+                    poll();
+                } catch (IOException e) {
+                    System.err.println("Error following " + directory + ": " + e.getMessage());
+                }
+                WatchKey key = watcher.poll(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Error closing watch service: " + e.getMessage());
+        }
+    }
+
+    private int readAppended(Path file, DataStorage storage) throws IOException {
+        String name = file.getFileName().toString();
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        String fileKey = String.valueOf(attributes.fileKey());
+        FileState state = files.computeIfAbsent(name, k -> new FileState());
+
+        // A file that shrank or was replaced has been rotated; start over from its beginning.
+        boolean replaced = state.fileKey != null && !state.fileKey.equals(fileKey);
+        if (replaced || attributes.size() < state.offset) {
+            state.offset = 0;
+            offsetsDirty = true;
+        }
+        state.fileKey = fileKey;
+        if (attributes.size() == state.offset) {
+            return 0;
+        }
+
+        int stored = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (true) {
+                buffer.clear();
+                int read = channel.read(buffer, state.offset);
+                if (read <= 0) {
+                    break;
+                }
+                batch.setIngestNanos(System.nanoTime());
+                int consumed = parser.parse(buffer, 0, read, batch, false);
+                if (consumed == 0) {
+                    if (read < buffer.capacity()) {
+                        break; // only an incomplete line so far
+                    }
+                    buffer = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                    continue;
+                }
+                state.offset += consumed;
+                offsetsDirty = true;
+                if (!batch.isEmpty()) {
+                    storage.addPatientData(batch);
+                    stored += batch.size();
+                }
+                batch.clear();
+            }
+        }
+        return stored;
+    }
+
+    private void loadOffsets() throws IOException {
+        files.clear();
+        if (!Files.exists(offsetsFile)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(offsetsFile)) {
+            properties.load(in);
+        }
+        for (String name : properties.stringPropertyNames()) {
+            String[] parts = properties.getProperty(name).split(" ", 2);
+            try {
+                FileState state = new FileState();
+                state.offset = Long.parseLong(parts[0]);
+                state.fileKey = parts.length > 1 ? parts[1] : null;
+                files.put(name, state);
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring invalid offset for " + name + " in " + offsetsFile);
+            }
+        }
+    }
+
+    private void persistOffsets() throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, FileState> entry : files.entrySet()) {
+            FileState state = entry.getValue();
+            properties.setProperty(entry.getKey(),
+                    state.fileKey == null ? Long.toString(state.offset) : state.offset + " " + state.fileKey);
+        }
+        Path temp = offsetsFile.resolveSibling(offsetsFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "Byte offsets ingested by FollowingFileDataReader");
+        }
+        try {
+            Files.move(temp, offsetsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, offsetsFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        offsetsDirty = false;
+        lastPersistMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * The ingest position of a single label file.
+     */
+    private static class FileState {
+        private long offset;
+        private String fileKey;
+    }
+}
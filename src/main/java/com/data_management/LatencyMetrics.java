@@ -0,0 +1,209 @@
+package com.data_management;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms for every stage a sample passes through in the monitor, from the moment
+ * it was ingested (see {@link PatientRecord#getIngestNanos}) to the moment the stage was done
+ * with it.
+ *
+ * <p>The stages are:
+ * <ul>
+ *   <li>{@link Stage#PARSE} - the sample was parsed from the bytes a reader received,</li>
+ *   <li>{@link Stage#STORE} - the sample was stored in {@link DataStorage}, including any
+ *       time spent in a {@link ReorderBuffer},</li>
+ *   <li>{@link Stage#EVALUATE} - the alert strategies evaluated the sample incrementally,</li>
+ *   <li>{@link Stage#ALERT} - the sample completed an alert condition and the alert was
+ *       raised,</li>
+ *   <li>{@link Stage#SOURCE_TO_ALERT} - as {@link Stage#ALERT}, but measured in wall-clock
+ *       time from the sample's own timestamp, i.e. from the moment the generator emitted it.
+ *       This includes transport, but only has millisecond resolution and assumes the
+ *       generator's clock agrees with the monitor's.</li>
+ * </ul>
+ *
+ * <p>Recording is lock-free (see {@link LatencyHistogram}) and can be switched off.
+ */
+public class LatencyMetrics {
+
+    /**
+     * A stage of the ingest-to-alert pipeline.
+     */
+    public enum Stage {
+        PARSE, STORE, EVALUATE, ALERT, SOURCE_TO_ALERT
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private static final LatencyMetrics instance = new LatencyMetrics();
+
+    private volatile LatencyHistogram[] histograms = newHistograms();
+    private volatile boolean enabled = true;
+    private ScheduledExecutorService dumper;
+    private Map<Stage, LatencyHistogram.Snapshot> lastDump; // previous dump, owned by the dump thread
+
+    private LatencyMetrics() {
+    }
+
+    /**
+     * Provides the global point of access to the metrics.
+     *
+     * @return the singleton instance of LatencyMetrics
+     */
+    public static LatencyMetrics getInstance() {
+        return instance;
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches recording on or off.
+     *
+     * @param enabled whether latencies are recorded
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Records that a stage is done with a sample.
+     *
+     * @param stage       the stage
+     * @param ingestNanos the sample's ingest time, as given by {@link System#nanoTime()}
+     */
+    public void record(Stage stage, long ingestNanos) {
+        if (enabled) {
+            histograms[stage.ordinal()].record(System.nanoTime() - ingestNanos);
+        }
+    }
+
+    /**
+     * Records that a stage is done with every sample of a batch from {@code fromIndex} on.
+     *
+     * @param stage     the stage
+     * @param batch     the batch holding the samples
+     * @param fromIndex the index of the first sample to record
+     */
+    public void record(Stage stage, RecordBatch batch, int fromIndex) {
+        if (enabled && fromIndex < batch.size()) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            long now = System.nanoTime();
+            for (int i = fromIndex; i < batch.size(); i++) {
+                histogram.record(now - batch.getIngestNanos(i));
+            }
+        }
+    }
+
+    /**
+     * Records that a stage is done with every one of the records.
+     *
+     * @param stage   the stage
+     * @param records the records
+     */
+    public void record(Stage stage, List<PatientRecord> records) {
+        if (enabled && !records.isEmpty()) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            long now = System.nanoTime();
+            for (PatientRecord record : records) {
+                histogram.record(now - record.getIngestNanos());
+            }
+        }
+    }
+
+    /**
+     * Records the wall-clock time since a sample was emitted by its source.
+     *
+     * @param stage           the stage
+     * @param timestampMillis the sample's timestamp, in milliseconds since the Unix epoch
+     */
+    public void recordSinceTimestamp(Stage stage, long timestampMillis) {
+        if (enabled) {
+            histograms[stage.ordinal()].record(
+                    TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - timestampMillis));
+        }
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * Returns a snapshot of every stage's histogram.
+     *
+     * @return the snapshots, by stage
+     */
+    public Map<Stage, LatencyHistogram.Snapshot> snapshot() {
+        LatencyHistogram[] current = histograms;
+        Map<Stage, LatencyHistogram.Snapshot> snapshots = new EnumMap<>(Stage.class);
+        for (Stage stage : STAGES) {
+            snapshots.put(stage, current[stage.ordinal()].snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * Discards everything recorded so far.
+     */
+    public void reset() {
+        histograms = newHistograms();
+    }
+
+    /**
+     * Prints the latencies recorded during each period to the specified stream, one line per
+     * stage that recorded anything, until {@link #stopDump} is called.
+     *
+     * @param periodMillis the dump period, in milliseconds
+     * @param out          the stream to print to
+     */
+    public synchronized void startDump(long periodMillis, PrintStream out) {
+        stopDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "latency-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lastDump = snapshot();
+        dumper.scheduleAtFixedRate(() -> dump(out), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void dump(PrintStream out) {
+        Map<Stage, LatencyHistogram.Snapshot> current = snapshot();
+        for (Stage stage : STAGES) {
+            LatencyHistogram.Snapshot interval = current.get(stage);
+            LatencyHistogram.Snapshot previous = lastDump.get(stage);
+            // After a reset the histograms start from zero again.
+            if (interval.getCount() >= previous.getCount()) {
+                interval = interval.minus(previous);
+            }
+            if (interval.getCount() > 0) {
+                out.println("Latency " + stage.name().toLowerCase() + ": " + interval);
+            }
+        }
+        lastDump = current;
+    }
+
+    /**
+     * Stops the periodic dump.
+     */
+    public synchronized void stopDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+}
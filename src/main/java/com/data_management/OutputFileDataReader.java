@@ -1,22 +1,37 @@
 package com.data_management;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Scanner;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Implementation of the {@link DataReader} interface to read data from an output file
  * generated using the --output file:<output_dir> argument.
  *
  * <p>This class reads data from the specified directory and passes it to a {@link DataStorage}
- * for further processing.
+ * for further processing. The file is memory-mapped and split into newline-aligned chunks,
+ * which can be parsed in parallel with a {@link RecordParser}; the parsed chunks are then
+ * added to the storage in file order, one batch per chunk.
  */
 public class OutputFileDataReader { // should implement dataReader
 
+    private static final long MIN_CHUNK_SIZE = 1L << 20; // 1 MiB
+    private static final long MAX_CHUNK_SIZE = 64L << 20; // 64 MiB, bounds the memory held per chunk
+
     private String outputDir;
     private String label;
+    private long malformedLines;
 
     /**
      * Constructs an {@code OutputFileDataReader} with the specified output directory.
@@ -37,44 +52,141 @@ public class OutputFileDataReader { // should implement dataReader
      */
     //@Override
     public void readData(DataStorage dataStorage) throws IOException {
+        readData(dataStorage, 1);
+    }
+
+    /**
+     * Reads data from the output file using up to {@code parallelism} parser threads and
+     * stores it in the provided {@link DataStorage}. Records are stored in the order in which
+     * they appear in the file regardless of the parallelism.
+     *
+     * @param dataStorage the storage where data will be stored
+     * @param parallelism the number of threads used to parse the file
+     * @throws IOException if an I/O error occurs while reading the data
+     */
+    public void readData(DataStorage dataStorage, int parallelism) throws IOException {
         // Construct the path to the output file
-        Path outputFile = Paths.get(outputDir, label+".txt");
+        Path outputFile = Paths.get(outputDir, label + ".txt");
 
         // Check if the file exists
         if (!Files.exists(outputFile)) {
             throw new IOException("Output file does not exist.");
         }
+        synchronized (this) {
+            malformedLines = 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(outputFile, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, Math.max(parallelism, 1));
+            if (parallelism <= 1) {
+                for (int i = 0; i + 1 < bounds.length; i++) {
+                    dataStorage.addPatientData(parseChunk(channel, bounds[i], bounds[i + 1]));
+                }
+                return;
+            }
 
-        // Read data from the file and pass it to the data storage
-        try (Scanner scanner = new Scanner(outputFile)) {
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                // Assuming each line contains a piece of data in the specified format
-                parseAndStoreData(line, dataStorage);
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+            try {
+                // Keep a bounded number of chunks in flight and store them in file order.
+                Deque<Future<RecordBatch>> pending = new ArrayDeque<>();
+                int next = 0;
+                while (next + 1 < bounds.length || !pending.isEmpty()) {
+                    while (next + 1 < bounds.length && pending.size() < parallelism * 2) {
+                        long start = bounds[next];
+                        long end = bounds[next + 1];
+                        pending.add(executor.submit(() -> parseChunk(channel, start, end)));
+                        next++;
+                    }
+                    dataStorage.addPatientData(pending.poll().get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading " + outputFile, e);
+            } catch (ExecutionException e) {
+                throw new IOException("Error parsing " + outputFile, e.getCause());
+            } finally {
+                executor.shutdownNow();
             }
         }
     }
 
     /**
-     * Parses a line of data in the specified format and stores it in the provided {@link DataStorage}.
+     * Returns the number of lines skipped as malformed by the last read.
      *
-     * @param line        the line of data to parse
-     * @param dataStorage the storage where data will be stored
+     * @return the malformed line count
+     */
+    public synchronized long getMalformedLineCount() {
+        return malformedLines;
+    }
+
+    /**
+     * Memory-maps and parses the chunk {@code [start, end)} of the file.
+     *
+     * @param channel the channel of the output file
+     * @param start   the offset of the first byte of the chunk
+     * @param end     the offset one past the last byte of the chunk
+     * @return the parsed records
+     * @throws IOException if the chunk cannot be mapped
+     */
+    private RecordBatch parseChunk(FileChannel channel, long start, long end) throws IOException {
+        int length = (int) (end - start);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        RecordParser parser = new RecordParser();
+        RecordBatch batch = new RecordBatch(length / 64);
+        batch.setIngestNanos(System.nanoTime());
+        parser.parse(buffer, 0, length, batch, true);
+        synchronized (this) {
+            malformedLines += parser.getMalformedLineCount();
+        }
+        return batch;
+    }
+
+    /**
+     * Splits the file into chunks that start and end on line boundaries.
+     *
+     * @param channel     the channel of the output file
+     * @param parallelism the number of parser threads the chunks are intended for
+     * @return the chunk boundaries; chunk {@code i} is {@code [bounds[i], bounds[i + 1])}
+     * @throws IOException if the file cannot be read
      */
-    private void parseAndStoreData(String line, DataStorage dataStorage) {
-        // Parse data from the line
-        Scanner lineScanner = new Scanner(line);
-        lineScanner.useDelimiter(", ");
-        int patientId = lineScanner.nextInt();
-        long timestamp = lineScanner.nextLong();
-        String label = lineScanner.next();
-        String dataString = lineScanner.next();
-        double data = Double.parseDouble(dataString);
+    private static long[] chunkBounds(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4L) + 1);
+        chunkSize = Math.min(chunkSize, MAX_CHUNK_SIZE);
+        int chunks = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
 
-        // Store data using DataStorage
-        dataStorage.addPatientData(patientId, data, label, timestamp);
+        long[] bounds = new long[chunks + 1];
+        for (int i = 1; i < chunks; i++) {
+            bounds[i] = Math.max(bounds[i - 1], nextLineStart(channel, i * chunkSize, size));
+        }
+        bounds[chunks] = size;
+        for (int i = 0; i < chunks; i++) {
+            if (bounds[i + 1] - bounds[i] > Integer.MAX_VALUE) {
+                throw new IOException("Line too long at offset " + bounds[i]);
+            }
+        }
+        return bounds;
+    }
 
-        // Close the line scanner
-        lineScanner.close();
+    /**
+     * Finds the first offset at or after {@code position} that starts a line.
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long offset = position - 1;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
     }
 }
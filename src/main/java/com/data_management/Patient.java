@@ -1,7 +1,12 @@
 package com.data_management;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -9,11 +14,20 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * This class stores patient-specific data, allowing for the addition and
  * retrieval
  * of medical records based on specified criteria.
+ *
+ * <p>Besides the list of all records in the order they were added, the patient keeps a
+ * series per record type, so that the records of one type can be retrieved without
+ * scanning the others. Time range queries binary search a list while its records are in
+ * timestamp order, as they are when data arrives in order or through a
+ * {@link ReorderBuffer}, and fall back to a scan otherwise.
  */
 public class Patient {
     private int patientId;
     private List<PatientRecord> patientRecords;
+    private boolean recordsSorted = true; // whether patientRecords is in timestamp order.
+    private final Map<String, Series> series = new HashMap<>();
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); // ensures that reading and writing operations do not conflict.
+    private Set<String> dirtyTypes = new HashSet<>(); // record types added since the patient was last drained, guarded by this.
 
     /**
      * Constructs a new Patient with a specified ID.
@@ -38,9 +52,36 @@ public class Patient {
      *                         milliseconds since UNIX epoch
      */
     public void addRecord(double measurementValue, String recordType, long timestamp) {
+        addRecord(measurementValue, recordType, timestamp, System.nanoTime());
+    }
+
+    /**
+     * Adds a new record, ingested at the specified time, to this patient's list of medical
+     * records.
+     *
+     * @param measurementValue the measurement value to store in the record
+     * @param recordType       the type of record, e.g., "HeartRate",
+     *                         "BloodPressure"
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since UNIX epoch
+     * @param ingestNanos      the time at which the measurement entered the monitor, as
+     *                         given by {@link System#nanoTime()}
+     */
+    public void addRecord(double measurementValue, String recordType, long timestamp, long ingestNanos) {
         lock.writeLock().lock();
         try {
-            patientRecords.add(new PatientRecord(patientId, measurementValue, recordType, timestamp));
+            PatientRecord record = new PatientRecord(patientId, measurementValue, recordType, timestamp, ingestNanos);
+            int position = patientRecords.size();
+            if (position > 0 && patientRecords.get(position - 1).getTimestamp() > timestamp) {
+                recordsSorted = false;
+            }
+            patientRecords.add(record);
+            Series typeSeries = series.get(recordType);
+            if (typeSeries == null) {
+                typeSeries = new Series();
+                series.put(recordType, typeSeries);
+            }
+            typeSeries.add(record, position);
         } finally {
             lock.writeLock().unlock();
         }
@@ -58,24 +99,198 @@ public class Patient {
      *         range
      */
     public List<PatientRecord> getRecords(long startTime, long endTime) {
-        // TODO Implement and test this method
         lock.readLock().lock();
         try {
-            List<PatientRecord> filteredRecords = new ArrayList<>();
+            return filter(patientRecords, recordsSorted, startTime, endTime);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the records of the specified type that fall within a time range.
+     *
+     * @param recordType the type of the records to retrieve, e.g., "ECG"
+     * @param startTime  the start of the time range, in milliseconds since UNIX epoch
+     * @param endTime    the end of the time range, in milliseconds since UNIX epoch
+     * @return the records of the type within the time range, in the order in which they
+     *         were added
+     */
+    public List<PatientRecord> getRecords(String recordType, long startTime, long endTime) {
+        lock.readLock().lock();
+        try {
+            Series typeSeries = series.get(recordType);
+            if (typeSeries == null) {
+                return new ArrayList<>();
+            }
+            return filter(typeSeries.records, typeSeries.sorted, startTime, endTime);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
-            for (PatientRecord record : patientRecords) {
-                long recordTime = record.getTimestamp();
-                if (recordTime >= startTime && recordTime <= endTime) {
-                    filteredRecords.add(record);
+    private static List<PatientRecord> filter(List<PatientRecord> records, boolean sorted, long startTime,
+            long endTime) {
+        List<PatientRecord> filteredRecords = new ArrayList<>();
+        if (sorted) {
+            for (int i = firstAtOrAfter(records, startTime); i < records.size(); i++) {
+                PatientRecord record = records.get(i);
+                if (record.getTimestamp() > endTime) {
+                    break;
                 }
+                filteredRecords.add(record);
             }
             return filteredRecords;
+        }
+        for (PatientRecord record : records) {
+            long recordTime = record.getTimestamp();
+            if (recordTime >= startTime && recordTime <= endTime) {
+                filteredRecords.add(record);
+            }
+        }
+        return filteredRecords;
+    }
+
+    /**
+     * Returns the index of the first record at or after the specified time in a list sorted
+     * by timestamp.
+     */
+    private static int firstAtOrAfter(List<PatientRecord> records, long timestamp) {
+        int low = 0;
+        int high = records.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (records.get(middle).getTimestamp() < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Retrieves the records added to this patient after the first {@code fromIndex} records,
+     * in the order in which they were added. Together with {@link #getRecordCount()} this
+     * lets a caller process only the records it has not seen yet.
+     *
+     * @param fromIndex the number of records already processed by the caller
+     * @return the records added after the first {@code fromIndex} records
+     */
+    public List<PatientRecord> getRecordsFrom(int fromIndex) {
+        lock.readLock().lock();
+        try {
+            if (fromIndex >= patientRecords.size()) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(patientRecords.subList(Math.max(fromIndex, 0), patientRecords.size()));
         } finally {
             lock.readLock().unlock();
         }
     }
-        
+
+    /**
+     * Retrieves the new records of several types at once: for each type, the records added
+     * after the first {@code fromIndexes[i]} records of {@code recordTypes[i]}. The records
+     * are returned in the order in which they were added, as {@link #getRecordsFrom(int)}
+     * would return them with the other types left out, and each index is advanced past the
+     * records returned.
+     *
+     * @param recordTypes the types of the records to retrieve
+     * @param fromIndexes the number of records of each type already processed by the
+     *                    caller; updated to the number of records of each type
+     * @return the records of the types added after the records already processed
+     */
+    public List<PatientRecord> getRecordsFrom(String[] recordTypes, int[] fromIndexes) {
+        lock.readLock().lock();
+        try {
+            Series[] selected = new Series[recordTypes.length];
+            int total = 0;
+            for (int i = 0; i < recordTypes.length; i++) {
+                selected[i] = series.get(recordTypes[i]);
+                if (selected[i] != null) {
+                    total += Math.max(0, selected[i].records.size() - fromIndexes[i]);
+                }
+            }
+            List<PatientRecord> newRecords = new ArrayList<>(total);
+            // Merge the series by the position at which each record was added.
+            for (int n = 0; n < total; n++) {
+                int next = -1;
+                for (int i = 0; i < selected.length; i++) {
+                    Series s = selected[i];
+                    if (s != null && fromIndexes[i] < s.records.size()
+                            && (next < 0 || s.positions[fromIndexes[i]] < selected[next].positions[fromIndexes[next]])) {
+                        next = i;
+                    }
+                }
+                newRecords.add(selected[next].records.get(fromIndexes[next]++));
+            }
+            return newRecords;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of records added to this patient.
+     *
+     * @return the record count
+     */
+    public int getRecordCount() {
+        lock.readLock().lock();
+        try {
+            return patientRecords.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks this patient as having new data of the specified type. Must be called after the
+     * record has been added, so that whoever takes the dirty types afterwards sees it.
+     *
+     * @param recordType the type of the record that was added
+     * @return {@code true} if the patient was clean before, i.e. it has just become dirty
+     */
+    synchronized boolean markDirty(String recordType) {
+        boolean wasClean = dirtyTypes.isEmpty();
+        dirtyTypes.add(recordType);
+        return wasClean;
+    }
+
+    /**
+     * Returns the record types added since the previous call and marks the patient clean.
+     *
+     * @return the types of the records added since the patient was last drained
+     */
+    synchronized Set<String> takeDirtyTypes() {
+        Set<String> types = dirtyTypes;
+        dirtyTypes = new HashSet<>();
+        return types;
+    }
+
     public int getPatientId(){
         return this.patientId;
     }
+
+    /**
+     * The records of one type, each with its position in the list of all records.
+     */
+    private static final class Series {
+        private final List<PatientRecord> records = new ArrayList<>();
+        private int[] positions = new int[8];
+        private boolean sorted = true;
+
+        void add(PatientRecord record, int position) {
+            int size = records.size();
+            if (size > 0 && records.get(size - 1).getTimestamp() > record.getTimestamp()) {
+                sorted = false;
+            }
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size] = position;
+            records.add(record);
+        }
+    }
 }
@@ -14,9 +14,10 @@ public class PatientRecord {
     private String recordType; // Example: ECG, blood pressure, etc.
     private double measurementValue; // Example: heart rate
     private long timestamp;
+    private long ingestNanos; // System.nanoTime() when the measurement entered the monitor
 
     /**
-     * Constructs a new patient record with specified details.
+     * Constructs a new patient record with specified details, ingested now.
      * 
      * @param patientId        the unique identifier for the patient
      * @param measurementValue the numerical value of the recorded measurement
@@ -30,6 +31,28 @@ public class PatientRecord {
         this.measurementValue = measurementValue;
         this.recordType = recordType;
         this.timestamp = timestamp;
+        this.ingestNanos = System.nanoTime();
+    }
+
+    /**
+     * Constructs a new patient record with specified details and ingest time.
+     *
+     * @param patientId        the unique identifier for the patient
+     * @param measurementValue the numerical value of the recorded measurement
+     * @param recordType       the type of measurement (e.g., "ECG", "Blood
+     *                         Pressure")
+     * @param timestamp        the time at which the measurement was recorded, in
+     *                         milliseconds since epoch
+     * @param ingestNanos      the time at which the measurement entered the monitor, as
+     *                         given by {@link System#nanoTime()}
+     */
+    public PatientRecord(int patientId, double measurementValue, String recordType, long timestamp,
+            long ingestNanos) {
+        this.patientId = patientId;
+        this.measurementValue = measurementValue;
+        this.recordType = recordType;
+        this.timestamp = timestamp;
+        this.ingestNanos = ingestNanos;
     }
 
     /**
@@ -67,4 +90,14 @@ public class PatientRecord {
     public String getRecordType() {
         return recordType;
     }
+
+    /**
+     * Returns the time at which this measurement entered the monitor, for measuring how
+     * long each stage took to process it (see {@link LatencyMetrics}).
+     *
+     * @return the ingest time, as given by {@link System#nanoTime()}
+     */
+    public long getIngestNanos() {
+        return ingestNanos;
+    }
 }
@@ -0,0 +1,135 @@
+package com.data_management;
+
+import java.util.Arrays;
+
+/**
+ * A growable, reusable batch of patient measurements held in primitive arrays.
+ *
+ * <p>Readers parse into a {@code RecordBatch} instead of creating a {@link PatientRecord}
+ * per line, and hand the whole batch to {@link DataStorage#addPatientData(RecordBatch)} so
+ * that the storage lock is taken once per batch rather than once per measurement.
+ */
+public class RecordBatch {
+
+    // Marks that no ingest time was set, so measurements are stamped as they are added.
+    private static final long NOT_INGESTED = Long.MIN_VALUE;
+
+    private int[] patientIds;
+    private double[] measurementValues;
+    private String[] recordTypes;
+    private long[] timestamps;
+    private long[] ingestNanos;
+    private long currentIngestNanos = NOT_INGESTED;
+    private int size;
+
+    /**
+     * Constructs an empty batch with a default initial capacity.
+     */
+    public RecordBatch() {
+        this(1024);
+    }
+
+    /**
+     * Constructs an empty batch with the specified initial capacity.
+     *
+     * @param initialCapacity the number of measurements the batch can hold before growing
+     */
+    public RecordBatch(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        this.patientIds = new int[capacity];
+        this.measurementValues = new double[capacity];
+        this.recordTypes = new String[capacity];
+        this.timestamps = new long[capacity];
+        this.ingestNanos = new long[capacity];
+    }
+
+    /**
+     * Sets the ingest time of the measurements added from now on, normally the time at which
+     * the bytes they are parsed from were received. Until it is set, and after
+     * {@link #clear()}, measurements are stamped with the time they are added.
+     *
+     * @param ingestNanos the ingest time, as given by {@link System#nanoTime()}
+     */
+    public void setIngestNanos(long ingestNanos) {
+        this.currentIngestNanos = ingestNanos;
+    }
+
+    /**
+     * Appends a measurement to the batch, growing the backing arrays if necessary.
+     *
+     * @param patientId        the unique identifier of the patient
+     * @param measurementValue the value of the health metric being recorded
+     * @param recordType       the type of record, e.g., "ECG", "Saturation"
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since the Unix epoch
+     */
+    public void add(int patientId, double measurementValue, String recordType, long timestamp) {
+        add(patientId, measurementValue, recordType, timestamp,
+                currentIngestNanos != NOT_INGESTED ? currentIngestNanos : System.nanoTime());
+    }
+
+    /**
+     * Appends a measurement with an explicit ingest time to the batch.
+     *
+     * @param patientId        the unique identifier of the patient
+     * @param measurementValue the value of the health metric being recorded
+     * @param recordType       the type of record, e.g., "ECG", "Saturation"
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since the Unix epoch
+     * @param ingestNanos      the time at which the measurement entered the monitor, as
+     *                         given by {@link System#nanoTime()}
+     */
+    public void add(int patientId, double measurementValue, String recordType, long timestamp, long ingestNanos) {
+        if (size == patientIds.length) {
+            int capacity = size * 2;
+            patientIds = Arrays.copyOf(patientIds, capacity);
+            measurementValues = Arrays.copyOf(measurementValues, capacity);
+            recordTypes = Arrays.copyOf(recordTypes, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            this.ingestNanos = Arrays.copyOf(this.ingestNanos, capacity);
+        }
+        patientIds[size] = patientId;
+        measurementValues[size] = measurementValue;
+        recordTypes[size] = recordType;
+        timestamps[size] = timestamp;
+        this.ingestNanos[size] = ingestNanos;
+        size++;
+    }
+
+    /**
+     * Removes all measurements from the batch while keeping its capacity.
+     */
+    public void clear() {
+        Arrays.fill(recordTypes, 0, size, null);
+        size = 0;
+        currentIngestNanos = NOT_INGESTED;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getPatientId(int index) {
+        return patientIds[index];
+    }
+
+    public double getMeasurementValue(int index) {
+        return measurementValues[index];
+    }
+
+    public String getRecordType(int index) {
+        return recordTypes[index];
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public long getIngestNanos(int index) {
+        return ingestNanos[index];
+    }
+}
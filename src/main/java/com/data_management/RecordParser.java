@@ -0,0 +1,313 @@
+package com.data_management;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Byte-level parser for the line formats produced by the simulator's output strategies.
+ *
+ * <p>The following line formats are accepted, one record per line:
+ * <ul>
+ *   <li>{@code Patient ID: 12, Timestamp: 1714376789050, Label: ECG, Data: 0.53}
+ *       as written by {@code FileOutputStrategy} and {@code ConsoleOutputStrategy},</li>
+ *   <li>{@code 12,1714376789050,ECG,0.53} as sent by {@code TcpOutputStrategy} and
+ *       {@code WebSocketOutputStrategy},</li>
+ *   <li>{@code 12, 1714376789050, ECG, 0.53}.</li>
+ * </ul>
+ * A trailing {@code %} on the data field (as written for "Saturation") is ignored.
+ *
+ * <p>The parser reads straight out of a {@link ByteBuffer} using absolute gets, so it works
+ * the same on heap, direct and memory-mapped buffers, and allocates nothing per line apart
+ * from the first occurrence of each label. Instances keep a small label cache and are
+ * therefore not thread-safe; use one parser per thread.
+ */
+public class RecordParser {
+
+    private static final int MAX_CACHED_LABELS = 64;
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final byte[][] labelBytes = new byte[MAX_CACHED_LABELS][];
+    private final String[] labels = new String[MAX_CACHED_LABELS];
+    private int labelCount;
+    private long malformedLines;
+
+    // Scratch state shared by the field parsers to avoid returning small objects.
+    private int fieldStart;
+    private int fieldEnd;
+
+    /**
+     * Parses every complete line in {@code buffer[from, to)} into {@code out}.
+     *
+     * @param buffer     the buffer to read from; its position and limit are not modified
+     * @param from       the index of the first byte to parse
+     * @param to         the index one past the last byte to parse
+     * @param out        the batch that receives the parsed records
+     * @param endOfInput whether a trailing line without a newline is complete and should be
+     *                   parsed as well
+     * @return the index just past the last line consumed; bytes from there up to {@code to}
+     *         form an incomplete line when {@code endOfInput} is {@code false}
+     */
+    public int parse(ByteBuffer buffer, int from, int to, RecordBatch out, boolean endOfInput) {
+        int parsedBefore = out.size();
+        int lineStart = from;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') {
+                parseRecord(buffer, lineStart, i, out);
+                lineStart = i + 1;
+            }
+        }
+        if (endOfInput && lineStart < to) {
+            parseRecord(buffer, lineStart, to, out);
+            lineStart = to;
+        }
+        LatencyMetrics.getInstance().record(LatencyMetrics.Stage.PARSE, out, parsedBefore);
+        return lineStart;
+    }
+
+    /**
+     * Parses a single line of text into {@code out}.
+     *
+     * @param line the line to parse, without its line terminator
+     * @param out  the batch that receives the parsed record
+     * @return {@code true} if the line was well formed and a record was added
+     */
+    public boolean parseLine(String line, RecordBatch out) {
+        byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+        return parseLine(ByteBuffer.wrap(bytes), 0, bytes.length, out);
+    }
+
+    /**
+     * Parses the line held in {@code buffer[from, to)} into {@code out}. Blank lines are
+     * ignored; malformed lines are skipped and counted.
+     *
+     * @param buffer the buffer to read from
+     * @param from   the index of the first byte of the line
+     * @param to     the index one past the last byte of the line, excluding the newline
+     * @param out    the batch that receives the parsed record
+     * @return {@code true} if the line was well formed and a record was added
+     */
+    public boolean parseLine(ByteBuffer buffer, int from, int to, RecordBatch out) {
+        int parsedBefore = out.size();
+        boolean parsed = parseRecord(buffer, from, to, out);
+        LatencyMetrics.getInstance().record(LatencyMetrics.Stage.PARSE, out, parsedBefore);
+        return parsed;
+    }
+
+    private boolean parseRecord(ByteBuffer buffer, int from, int to, RecordBatch out) {
+        while (to > from && isWhitespace(buffer.get(to - 1))) {
+            to--;
+        }
+        if (to == from) {
+            return false;
+        }
+
+        int next = field(buffer, from, to, false);
+        long patientId = next < 0 ? -1 : parseLong(buffer, fieldStart, fieldEnd);
+        if (next < 0 || patientId < 0 || patientId > Integer.MAX_VALUE) {
+            return malformed();
+        }
+
+        next = field(buffer, next, to, false);
+        long timestamp = next < 0 ? -1 : parseLong(buffer, fieldStart, fieldEnd);
+        if (next < 0 || timestamp < 0) {
+            return malformed();
+        }
+
+        next = field(buffer, next, to, false);
+        if (next < 0 || fieldStart == fieldEnd) {
+            return malformed();
+        }
+        String label = label(buffer, fieldStart, fieldEnd);
+
+        field(buffer, next, to, true);
+        if (fieldEnd > fieldStart && buffer.get(fieldEnd - 1) == '%') {
+            fieldEnd--;
+        }
+        double value = parseDouble(buffer, fieldStart, fieldEnd);
+        if (Double.isNaN(value)) {
+            return malformed();
+        }
+
+        out.add((int) patientId, value, label, timestamp);
+        return true;
+    }
+
+    /**
+     * Returns the number of lines this parser has skipped because they were malformed.
+     *
+     * @return the malformed line count
+     */
+    public long getMalformedLineCount() {
+        return malformedLines;
+    }
+
+    private boolean malformed() {
+        malformedLines++;
+        return false;
+    }
+
+    /**
+     * Locates the value of the field starting at {@code from}, leaving its bounds in
+     * {@link #fieldStart} and {@link #fieldEnd}. An optional {@code Name:} prefix is skipped.
+     *
+     * @return the index just past the separating comma, or -1 if no comma was found for a
+     *         field that is not the last one
+     */
+    private int field(ByteBuffer buffer, int from, int to, boolean last) {
+        int end = to;
+        int next = to;
+        if (!last) {
+            end = indexOf(buffer, from, to, (byte) ',');
+            if (end < 0) {
+                return -1;
+            }
+            next = end + 1;
+        }
+        int colon = indexOf(buffer, from, end, (byte) ':');
+        int start = colon < 0 ? from : colon + 1;
+        while (start < end && isWhitespace(buffer.get(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(buffer.get(end - 1))) {
+            end--;
+        }
+        fieldStart = start;
+        fieldEnd = end;
+        return next;
+    }
+
+    private String label(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        for (int i = 0; i < labelCount; i++) {
+            byte[] candidate = labelBytes[i];
+            if (candidate.length == length && matches(buffer, from, candidate)) {
+                return labels[i];
+            }
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        String label = new String(bytes, StandardCharsets.UTF_8);
+        if (labelCount < MAX_CACHED_LABELS) {
+            labelBytes[labelCount] = bytes;
+            labels[labelCount] = label;
+            labelCount++;
+        }
+        return label;
+    }
+
+    private static boolean matches(ByteBuffer buffer, int from, byte[] candidate) {
+        for (int i = 0; i < candidate.length; i++) {
+            if (buffer.get(from + i) != candidate[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses an unsigned decimal integer.
+     *
+     * @return the parsed value, or -1 if the field is empty, not numeric or overflows
+     */
+    private static long parseLong(ByteBuffer buffer, int from, int to) {
+        if (from == to || to - from > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a decimal number. Plain decimals with up to 15 significant digits are converted
+     * exactly on the fast path (both the mantissa and the power of ten are exact doubles, so
+     * a single division is correctly rounded); anything else, such as exponents, is handed
+     * to {@link Double#parseDouble(String)}.
+     *
+     * @return the parsed value, or {@link Double#NaN} if the field is not a number
+     */
+    private static double parseDouble(ByteBuffer buffer, int from, int to) {
+        if (from == to) {
+            return Double.NaN;
+        }
+        int i = from;
+        boolean negative = false;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                if (mantissa != 0 || b != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (seenPoint) {
+                    fractionDigits++;
+                }
+                if (digits > MAX_FAST_DIGITS) {
+                    return slowParseDouble(buffer, from, to);
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return slowParseDouble(buffer, from, to);
+            }
+        }
+        if (!seenDigit || fractionDigits >= POWERS_OF_TEN.length) {
+            return slowParseDouble(buffer, from, to);
+        }
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private static double slowParseDouble(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        try {
+            double value = Double.parseDouble(new String(bytes, StandardCharsets.ISO_8859_1));
+            return Double.isNaN(value) || Double.isInfinite(value) ? Double.NaN : value;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, int to, byte target) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+}
@@ -0,0 +1,37 @@
+package com.data_management;
+
+/**
+ * Receives individual patient measurements, for example from an ingest stage that forwards
+ * them to {@link DataStorage}.
+ */
+@FunctionalInterface
+public interface RecordSink {
+
+    /**
+     * Accepts a single measurement.
+     *
+     * @param patientId        the unique identifier of the patient
+     * @param measurementValue the value of the health metric being recorded
+     * @param recordType       the type of record, e.g., "ECG", "Saturation"
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since the Unix epoch
+     */
+    void accept(int patientId, double measurementValue, String recordType, long timestamp);
+
+    /**
+     * Accepts a single measurement together with the time it entered the monitor. Sinks that
+     * keep track of ingest times override this method; by default the ingest time is dropped.
+     *
+     * @param patientId        the unique identifier of the patient
+     * @param measurementValue the value of the health metric being recorded
+     * @param recordType       the type of record, e.g., "ECG", "Saturation"
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since the Unix epoch
+     * @param ingestNanos      the time at which the measurement entered the monitor, as
+     *                         given by {@link System#nanoTime()}
+     */
+    default void accept(int patientId, double measurementValue, String recordType, long timestamp,
+            long ingestNanos) {
+        accept(patientId, measurementValue, recordType, timestamp);
+    }
+}
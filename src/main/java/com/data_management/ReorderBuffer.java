@@ -0,0 +1,351 @@
+package com.data_management;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Ingest stage that restores timestamp order and drops exact duplicates before measurements
+ * reach {@link DataStorage}.
+ *
+ * <p>Measurements are buffered per patient and record type. A measurement is released to the
+ * sink once a measurement of the same series at least {@code latenessMillis} newer has been seen,
+ * or once it has been buffered for {@code latenessMillis} of wall-clock time (see
+ * {@link #flushExpired()}), so a quiet series is not held back. Released measurements of a
+ * series are always in non-decreasing timestamp order:
+ * <ul>
+ *   <li>a measurement older than one already released is too late to be reordered and is
+ *       dropped; this also discards replays of data that was already stored,</li>
+ *   <li>a measurement with the same timestamp and value as one buffered or just released for
+ *       the series is an exact duplicate and is dropped.</li>
+ * </ul>
+ *
+ * <p>Buffers are sorted arrays filled from the tail, so an in-order measurement costs O(1)
+ * and a late one costs the number of measurements it overtakes. Memory per series is bounded by
+ * {@code maxBufferedPerSeries}; when a buffer is full its oldest measurement is released early.
+ */
+public class ReorderBuffer {
+
+    private static final int DEFAULT_MAX_BUFFERED_PER_SERIES = 4096;
+
+    private final long latenessMillis;
+    private final int maxBufferedPerSeries;
+    private final RecordSink sink;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<Integer, PatientSeries> patients = new ConcurrentHashMap<>();
+    private final Set<PatientSeries> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+
+    /**
+     * Constructs a reorder buffer that releases measurements to the specified sink.
+     *
+     * @param latenessMillis how far out of order a measurement may arrive and still be put
+     *                       back in order, in milliseconds
+     * @param sink           the sink that receives measurements in timestamp order
+     */
+    public ReorderBuffer(long latenessMillis, RecordSink sink) {
+        this(latenessMillis, DEFAULT_MAX_BUFFERED_PER_SERIES, sink, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a reorder buffer with an explicit buffer bound and wall clock.
+     *
+     * @param latenessMillis       how far out of order a measurement may arrive, in milliseconds
+     * @param maxBufferedPerSeries the maximum number of measurements held per patient and type
+     * @param sink                 the sink that receives measurements in timestamp order
+     * @param clock                the wall clock used to expire buffered measurements
+     */
+    public ReorderBuffer(long latenessMillis, int maxBufferedPerSeries, RecordSink sink, LongSupplier clock) {
+        this.latenessMillis = latenessMillis;
+        this.maxBufferedPerSeries = Math.max(1, maxBufferedPerSeries);
+        this.sink = sink;
+        this.clock = clock;
+    }
+
+    /**
+     * Adds a measurement, releasing every measurement of its series that can no longer be
+     * overtaken by a later arrival.
+     *
+     * @param patientId        the unique identifier of the patient
+     * @param measurementValue the value of the health metric being recorded
+     * @param recordType       the type of record, e.g., "ECG", "Saturation"
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since the Unix epoch
+     */
+    public void offer(int patientId, double measurementValue, String recordType, long timestamp) {
+        offer(patientId, measurementValue, recordType, timestamp, System.nanoTime());
+    }
+
+    /**
+     * Adds a measurement that entered the monitor at the specified time. The ingest time is
+     * passed on to the sink with the measurement when it is released.
+     *
+     * @param patientId        the unique identifier of the patient
+     * @param measurementValue the value of the health metric being recorded
+     * @param recordType       the type of record, e.g., "ECG", "Saturation"
+     * @param timestamp        the time at which the measurement was taken, in
+     *                         milliseconds since the Unix epoch
+     * @param ingestNanos      the time at which the measurement entered the monitor, as
+     *                         given by {@link System#nanoTime()}
+     */
+    public void offer(int patientId, double measurementValue, String recordType, long timestamp,
+            long ingestNanos) {
+        PatientSeries series = patients.computeIfAbsent(patientId, PatientSeries::new);
+        series.offer(measurementValue, recordType, timestamp, ingestNanos, clock.getAsLong());
+    }
+
+    /**
+     * Releases every measurement that has been buffered for at least the lateness.
+     */
+    public void flushExpired() {
+        long arrivedBefore = clock.getAsLong() - latenessMillis;
+        for (PatientSeries series : pending) {
+            series.flush(arrivedBefore);
+        }
+    }
+
+    /**
+     * Releases every buffered measurement.
+     */
+    public void flushAll() {
+        for (PatientSeries series : pending) {
+            series.flush(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Returns the number of exact duplicates dropped so far.
+     *
+     * @return the duplicate count
+     */
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    /**
+     * Returns the number of measurements dropped because they arrived after a newer
+     * measurement of their series had already been released.
+     *
+     * @return the late count
+     */
+    public long getLateCount() {
+        return late.get();
+    }
+
+    public long getLatenessMillis() {
+        return latenessMillis;
+    }
+
+    /**
+     * The buffered series of one patient, one per record type. All series of a patient share
+     * the patient's lock.
+     */
+    private class PatientSeries {
+        private final int patientId;
+        private String[] types = new String[4];
+        private Series[] series = new Series[4];
+        private int typeCount;
+        private int buffered;
+
+        PatientSeries(int patientId) {
+            this.patientId = patientId;
+        }
+
+        synchronized void offer(double value, String recordType, long timestamp, long ingestNanos, long now) {
+            Series s = seriesFor(recordType);
+            if (s.isLate(timestamp)) {
+                late.incrementAndGet();
+                return;
+            }
+            if (s.isDuplicate(timestamp, value)) {
+                duplicates.incrementAndGet();
+                return;
+            }
+            if (s.size == maxBufferedPerSeries) {
+                release(s);
+            }
+            s.insert(timestamp, value, ingestNanos, now);
+            if (buffered++ == 0) {
+                pending.add(this);
+            }
+            long watermark = s.maxTimestamp - latenessMillis;
+            while (s.size > 0 && s.headTimestamp() <= watermark) {
+                release(s);
+            }
+        }
+
+        synchronized void flush(long arrivedBefore) {
+            for (int i = 0; i < typeCount; i++) {
+                Series s = series[i];
+                // Release in timestamp order up to the last expired arrival so order is kept.
+                int expired = s.lastArrivedBefore(arrivedBefore);
+                for (int j = 0; j <= expired; j++) {
+                    release(s);
+                }
+            }
+        }
+
+        private void release(Series s) {
+            long timestamp = s.headTimestamp();
+            long ingestNanos = s.headIngestNanos();
+            double value = s.removeHead();
+            if (--buffered == 0) {
+                pending.remove(this);
+            }
+            sink.accept(patientId, value, s.recordType, timestamp, ingestNanos);
+        }
+
+        private Series seriesFor(String recordType) {
+            for (int i = 0; i < typeCount; i++) {
+                if (types[i].equals(recordType)) {
+                    return series[i];
+                }
+            }
+            if (typeCount == types.length) {
+                types = Arrays.copyOf(types, typeCount * 2);
+                series = Arrays.copyOf(series, typeCount * 2);
+            }
+            types[typeCount] = recordType;
+            series[typeCount] = new Series(recordType);
+            return series[typeCount++];
+        }
+    }
+
+    /**
+     * A timestamp-sorted ring buffer of the measurements of one patient and record type.
+     */
+    private static class Series {
+        private static final int RELEASED_VALUES = 4;
+
+        private final String recordType;
+        private long[] timestamps = new long[8];
+        private double[] values = new double[8];
+        private long[] arrivals = new long[8];
+        private long[] ingests = new long[8];
+        private int head;
+        private int size;
+        private long maxTimestamp = Long.MIN_VALUE;
+
+        // The most recently released timestamp and the values released at exactly that time.
+        private long releasedTimestamp = Long.MIN_VALUE;
+        private final long[] releasedValues = new long[RELEASED_VALUES];
+        private int releasedCount;
+        private int releasedNext;
+
+        Series(String recordType) {
+            this.recordType = recordType;
+        }
+
+        boolean isLate(long timestamp) {
+            return timestamp < releasedTimestamp;
+        }
+
+        boolean isDuplicate(long timestamp, double value) {
+            long bits = Double.doubleToLongBits(value);
+            if (timestamp == releasedTimestamp) {
+                for (int i = 0; i < releasedCount; i++) {
+                    if (releasedValues[i] == bits) {
+                        return true;
+                    }
+                }
+            }
+            int mask = timestamps.length - 1;
+            for (int i = size - 1; i >= 0; i--) {
+                long t = timestamps[(head + i) & mask];
+                if (t < timestamp) {
+                    break;
+                }
+                if (t == timestamp && Double.doubleToLongBits(values[(head + i) & mask]) == bits) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void insert(long timestamp, double value, long ingestNanos, long arrival) {
+            if (size == timestamps.length) {
+                grow();
+            }
+            int mask = timestamps.length - 1;
+            int position = size;
+            // Shift later measurements up by one; equal timestamps keep their arrival order.
+            while (position > 0 && timestamps[(head + position - 1) & mask] > timestamp) {
+                int from = (head + position - 1) & mask;
+                int to = (head + position) & mask;
+                timestamps[to] = timestamps[from];
+                values[to] = values[from];
+                arrivals[to] = arrivals[from];
+                ingests[to] = ingests[from];
+                position--;
+            }
+            int slot = (head + position) & mask;
+            timestamps[slot] = timestamp;
+            values[slot] = value;
+            arrivals[slot] = arrival;
+            ingests[slot] = ingestNanos;
+            size++;
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+        }
+
+        long headTimestamp() {
+            return timestamps[head];
+        }
+
+        long headIngestNanos() {
+            return ingests[head];
+        }
+
+        double removeHead() {
+            long timestamp = timestamps[head];
+            double value = values[head];
+            if (timestamp != releasedTimestamp) {
+                releasedTimestamp = timestamp;
+                releasedCount = 0;
+                releasedNext = 0;
+            }
+            releasedValues[releasedNext] = Double.doubleToLongBits(value);
+            releasedNext = (releasedNext + 1) % RELEASED_VALUES;
+            releasedCount = Math.min(releasedCount + 1, RELEASED_VALUES);
+            head = (head + 1) & (timestamps.length - 1);
+            size--;
+            return value;
+        }
+
+        /**
+         * Returns the index, relative to the head, of the last measurement that arrived before
+         * the specified time, or -1 if there is none.
+         */
+        int lastArrivedBefore(long arrivedBefore) {
+            int mask = timestamps.length - 1;
+            for (int i = size - 1; i >= 0; i--) {
+                if (arrivals[(head + i) & mask] < arrivedBefore) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void grow() {
+            int capacity = timestamps.length * 2;
+            long[] newTimestamps = new long[capacity];
+            double[] newValues = new double[capacity];
+            long[] newArrivals = new long[capacity];
+            long[] newIngests = new long[capacity];
+            int mask = timestamps.length - 1;
+            for (int i = 0; i < size; i++) {
+                newTimestamps[i] = timestamps[(head + i) & mask];
+                newValues[i] = values[(head + i) & mask];
+                newArrivals[i] = arrivals[(head + i) & mask];
+                newIngests[i] = ingests[(head + i) & mask];
+            }
+            timestamps = newTimestamps;
+            values = newValues;
+            arrivals = newArrivals;
+            ingests = newIngests;
+            head = 0;
+        }
+    }
+}
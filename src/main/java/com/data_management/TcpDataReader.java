@@ -0,0 +1,229 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the {@link DataReader} interface that consumes the newline-delimited
+ * records streamed by the simulator's --output tcp:<port> option.
+ *
+ * <p>A single thread drives a non-blocking {@link SocketChannel} through a {@link Selector}.
+ * Received bytes land in a direct buffer and complete lines are parsed straight out of it by a
+ * {@link RecordParser}; a line split across reads stays in the buffer until its newline
+ * arrives. Every read is stored with one batched insert. When the connection cannot be made
+ * or is lost, the reader reconnects after a delay.
+ */
+public class TcpDataReader implements DataReader {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long DEFAULT_RECONNECT_DELAY_MILLIS = 5000;
+
+    private final long reconnectDelayMillis;
+    private final RecordParser parser = new RecordParser();
+    private final RecordBatch batch = new RecordBatch();
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private volatile DataStorage dataStorage;
+    private volatile boolean running;
+    private volatile boolean connected;
+    private InetSocketAddress address;
+    private Selector selector;
+    private SocketChannel channel;
+    private Thread readerThread;
+
+    /**
+     * Constructs a reader that waits 5 seconds between reconnection attempts.
+     */
+    public TcpDataReader() {
+        this(DEFAULT_RECONNECT_DELAY_MILLIS);
+    }
+
+    /**
+     * Constructs a reader with the specified delay between reconnection attempts.
+     *
+     * @param reconnectDelayMillis the delay before reconnecting after a failure, in milliseconds
+     */
+    public TcpDataReader(long reconnectDelayMillis) {
+        this.reconnectDelayMillis = reconnectDelayMillis;
+    }
+
+    /**
+     * Starts reading from the TCP server at the specified address.
+     *
+     * @param serverUri the address of the server, as {@code tcp://host:port} or {@code host:port}
+     * @throws IOException if the selector cannot be opened
+     * @throws URISyntaxException if the address is invalid
+     */
+    @Override
+    public void connect(String serverUri) throws IOException, URISyntaxException {
+        URI uri = new URI(serverUri.contains("://") ? serverUri : "tcp://" + serverUri);
+        if (uri.getHost() == null || uri.getPort() < 0) {
+            throw new URISyntaxException(serverUri, "Expected tcp://host:port");
+        }
+        address = new InetSocketAddress(uri.getHost(), uri.getPort());
+        selector = Selector.open();
+        running = true;
+        readerThread = new Thread(this::run, "tcp-data-reader-" + uri.getPort());
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    /**
+     * Stops reading and closes the connection.
+     *
+     * @throws IOException if the selector cannot be closed
+     */
+    @Override
+    public void disconnect() throws IOException {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (readerThread != null) {
+            try {
+                readerThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            readerThread = null;
+        }
+        if (selector != null) {
+            selector.close();
+        }
+    }
+
+    /**
+     * Parses a single record line and stores it.
+     *
+     * @param data the record line, e.g. {@code 1,1627849261000,ECG,0.5}
+     * @param dataStorage the storage where data will be stored
+     */
+    @Override
+    public void handleData(String data, DataStorage dataStorage) {
+        RecordBatch single = new RecordBatch(1);
+        if (new RecordParser().parseLine(data, single)) {
+            dataStorage.addPatientData(single);
+        } else {
+            System.err.println("Received corrupted data: " + data);
+        }
+    }
+
+    /**
+     * Sets the storage that received data is stored in.
+     *
+     * @param dataStorage the storage where data will be stored
+     */
+    @Override
+    public void startReading(DataStorage dataStorage) {
+        this.dataStorage = dataStorage;
+    }
+
+    /**
+     * Returns whether the reader currently has an established connection.
+     *
+     * @return {@code true} if connected
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void run() {
+        long nextAttempt = 0;
+        while (running) {
+            try {
+                if (channel == null && System.currentTimeMillis() >= nextAttempt) {
+                    openChannel();
+                }
+                long timeout = channel == null ? Math.max(1, nextAttempt - System.currentTimeMillis()) : 0;
+                selector.select(timeout);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (key.isValid() && key.isConnectable()) {
+                        finishConnect(key);
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read();
+                    }
+                }
+                selector.selectedKeys().clear();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("TCP connection to " + address + " failed: " + e.getMessage());
+                }
+                closeChannel();
+                nextAttempt = System.currentTimeMillis() + reconnectDelayMillis;
+            }
+        }
+        closeChannel();
+    }
+
+    private void openChannel() throws IOException {
+        channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        buffer.clear();
+        if (channel.connect(address)) {
+            connected = true;
+            channel.register(selector, SelectionKey.OP_READ);
+        } else {
+            channel.register(selector, SelectionKey.OP_CONNECT);
+        }
+    }
+
+    private void finishConnect(SelectionKey key) throws IOException {
+        if (channel.finishConnect()) {
+            connected = true;
+            key.interestOps(SelectionKey.OP_READ);
+            System.out.println("Connected to TCP server " + address);
+        }
+    }
+
+    private void read() throws IOException {
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                // A single line fills the buffer; make room for the rest of it.
+                ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            int read = channel.read(buffer);
+            if (read < 0) {
+                throw new IOException("Connection closed by server");
+            }
+            if (read == 0) {
+                return;
+            }
+            batch.setIngestNanos(System.nanoTime());
+            int consumed = parser.parse(buffer, 0, buffer.position(), batch, false);
+            if (!batch.isEmpty()) {
+                DataStorage storage = dataStorage;
+                if (storage != null) {
+                    storage.addPatientData(batch);
+                }
+                batch.clear();
+            }
+            // Keep the incomplete trailing line at the front of the buffer.
+            buffer.flip();
+            buffer.position(consumed);
+            buffer.compact();
+        }
+    }
+
+    private void closeChannel() {
+        connected = false;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing TCP connection: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+}
@@ -1,15 +1,23 @@
 package com.data_management;
 
 import javax.websocket.*;
+
+import com.cardio_generator.outputs.BinaryFrameCodec;
+
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.util.Timer;
 import java.util.TimerTask;
 
 /**
  * WebSocketClient class implements the DataReader interface to handle WebSocket communication.
  * It connects to a WebSocket server, handles incoming messages, and stores them in DataStorage.
+ *
+ * <p>Text messages carry one sample each. Connecting with {@value BinaryFrameCodec#FORMAT_QUERY}
+ * in the query string of the server URI (e.g. {@code ws://localhost:8080/?format=binary}) asks
+ * the server for binary frames of several samples, which are decoded without going through text.
  */
 @ClientEndpoint
 public class WebSocketClient implements DataReader {
@@ -96,6 +104,33 @@ public class WebSocketClient implements DataReader {
         }
     }
 
+    /**
+     * Decodes a binary frame produced by the server and stores all of its samples.
+     *
+     * @param frame the received frame
+     * @param dataStorage the storage where data will be stored
+     */
+    public void handleFrame(ByteBuffer frame, DataStorage dataStorage) {
+        int samples = BinaryFrameCodec.readHeader(frame);
+        if (samples < 0) {
+            System.err.println("Received corrupted frame of " + frame.limit() + " bytes");
+            return;
+        }
+        RecordBatch batch = new RecordBatch(samples);
+        batch.setIngestNanos(System.nanoTime());
+        for (int i = 0; i < samples; i++) {
+            int patientId = frame.getInt();
+            long timestamp = frame.getLong();
+            double value = frame.getDouble();
+            String label = BinaryFrameCodec.label(frame.get());
+            if (label != null) {
+                batch.add(patientId, value, label, timestamp);
+            }
+        }
+        LatencyMetrics.getInstance().record(LatencyMetrics.Stage.PARSE, batch, 0);
+        dataStorage.addPatientData(batch);
+    }
+
     /**
      * Starts the real-time data reading process.
      *
@@ -157,6 +192,16 @@ public class WebSocketClient implements DataReader {
         handleData(message, dataStorage);
     }
 
+    /**
+     * Called when a binary frame is received from the WebSocket server.
+     *
+     * @param frame the received frame
+     */
+    @OnMessage
+    public void onMessage(ByteBuffer frame) {
+        handleFrame(frame, dataStorage);
+    }
+
     /**
      * Called when the WebSocket connection is closed.
      *
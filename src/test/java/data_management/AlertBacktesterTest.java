@@ -0,0 +1,203 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.alerts.Alert;
+import com.alerts.AlertBacktester;
+import com.alerts.AlertGenerator;
+import com.alerts.AlertStrategy;
+import com.alerts.BloodPressureStrategy;
+import com.alerts.HypotensiveHypoxiaStrategy;
+import com.alerts.OxygenSaturationStrategy;
+import com.alerts.rules.RuleSet;
+import com.alerts.rules.RuleStrategy;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+
+class AlertBacktesterTest {
+
+    @TempDir
+    Path directory;
+
+    private static DataStorage history(int patients, int recordsPerPatient) {
+        DataStorage storage = DataStorage.createDetached();
+        Random random = new Random(11);
+        for (int p = 1; p <= patients; p++) {
+            long timestamp = 1_000_000;
+            for (int i = 0; i < recordsPerPatient; i++) {
+                timestamp += 1 + random.nextInt(120_000);
+                if (random.nextBoolean()) {
+                    storage.addPatientData(p, 88 + random.nextInt(13), "Saturation", timestamp);
+                } else {
+                    storage.addPatientData(p, 85 + random.nextInt(100), "SystolicPressure", timestamp);
+                }
+            }
+        }
+        return storage;
+    }
+
+    private static List<String> describe(List<Alert> alerts) {
+        List<String> descriptions = new ArrayList<>();
+        for (Alert alert : alerts) {
+            descriptions.add(alert.getPatientId() + ":" + alert.getCondition() + "@" + alert.getTimestamp());
+        }
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+
+    @Test
+    @DisplayName("A backtest raises the alerts live evaluation raised")
+    void testMatchesLiveEvaluation() throws InterruptedException {
+        DataStorage storage = history(20, 500);
+        List<AlertStrategy> strategies = Arrays.asList(new BloodPressureStrategy(), new OxygenSaturationStrategy(),
+                new HypotensiveHypoxiaStrategy());
+        AlertGenerator alertGenerator = new AlertGenerator(storage);
+        for (AlertStrategy strategy : strategies) {
+            alertGenerator.addAlertStrategy(strategy);
+        }
+        for (Patient patient : storage.getAllPatients()) {
+            alertGenerator.evaluateNewData(patient);
+        }
+
+        AlertBacktester.Result result = new AlertBacktester(storage, 4).run(strategies, 0, Long.MAX_VALUE);
+        assertEquals(20 * 500, result.getRecordCount());
+        assertTrue(result.getAlertCount() > 100);
+        assertEquals(describe(alertGenerator.getAllAlerts()), describe(result.getAlerts()));
+        assertEquals(describe(result.getAlerts()),
+                describe(new AlertBacktester(storage, 1).run(strategies, 0, Long.MAX_VALUE).getAlerts()));
+    }
+
+    @Test
+    @DisplayName("Two rule sets are compared alert by alert")
+    void testCompare() throws InterruptedException {
+        DataStorage storage = history(10, 300);
+        RuleSet current = RuleSet.parse("[BloodOxygen]\nLowSaturation: Saturation < 92\n");
+        RuleSet stricter = RuleSet.parse("[BloodOxygen]\nLowSaturation: Saturation < 90\n");
+
+        AlertBacktester.Comparison comparison = new AlertBacktester(storage, 2).compare(
+                Arrays.asList(new RuleStrategy(current)), Arrays.asList(new RuleStrategy(stricter)), 0, Long.MAX_VALUE);
+        assertTrue(comparison.getAdded().isEmpty());
+        assertFalse(comparison.getRemoved().isEmpty());
+        assertEquals(comparison.getBaseline().getAlertCount() - comparison.getRemoved().size(),
+                comparison.getCandidate().getAlertCount());
+        Map<String, Long> changes = comparison.getCountChanges();
+        assertEquals(-comparison.getRemoved().size(), changes.get("LowSaturation").longValue());
+        for (Alert alert : comparison.getRemoved()) {
+            assertEquals("LowSaturation", alert.getCondition());
+        }
+    }
+
+    @Test
+    @DisplayName("Batch strategies are checked on a simulated clock over the time range")
+    void testSimulatedClock() throws InterruptedException {
+        DataStorage storage = DataStorage.createDetached();
+        for (int minute = 0; minute <= 60; minute++) {
+            storage.addPatientData(1, minute, "Cholesterol", minute * 60_000L);
+        }
+        // Alerts when the 20 minute window ends with an odd value; the window is never empty.
+        AlertStrategy lastOdd = (patient, records) -> {
+            double last = records.get(records.size() - 1).getMeasurementValue();
+            return last % 2 == 1 ? new Alert("" + patient.getPatientId(), "Odd", (long) last * 60_000) : null;
+        };
+        AlertBacktester backtester = new AlertBacktester(storage, 1);
+        backtester.setBatchIntervalMillis(60_000);
+        // Minutes 10 to 30 are replayed; the clock ticks at minutes 11 to 30.
+        AlertBacktester.Result result = backtester.run(Arrays.asList(lastOdd), 600_000, 1_800_000);
+        assertEquals(21, result.getRecordCount());
+        assertEquals(10, result.getAlertCount());
+        assertEquals(660_000, result.getAlerts().get(0).getTimestamp());
+    }
+
+    @Test
+    @DisplayName("Batch strategies are checked when every record shares one timestamp")
+    void testSingleTimestamp() throws InterruptedException {
+        DataStorage storage = DataStorage.createDetached();
+        storage.addPatientData(1, 80, "SystolicPressure", 600_000);
+        storage.addPatientData(1, 90, "Saturation", 600_000);
+        List<Integer> windowSizes = new ArrayList<>();
+        AlertStrategy batchOnly = (patient, records) -> {
+            windowSizes.add(records.size());
+            return new Alert("" + patient.getPatientId(), "Checked", records.get(0).getTimestamp());
+        };
+        AlertBacktester.Result result = new AlertBacktester(storage, 1).run(Arrays.asList(batchOnly), 0,
+                Long.MAX_VALUE);
+        assertEquals(List.of(2), windowSizes);
+        assertEquals(List.of("1:Checked@600000"), describe(result.getAlerts()));
+    }
+
+    @Test
+    @DisplayName("History is loaded from output files")
+    void testLoadHistory() throws IOException, InterruptedException {
+        StringBuilder saturation = new StringBuilder();
+        StringBuilder systolic = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            saturation.append("Patient ID: 1, Timestamp: ").append(1000 + 10 * i)
+                    .append(", Label: Saturation, Data: ").append(i == 5 ? 90 : 97).append("%\n");
+            systolic.append("Patient ID: 1, Timestamp: ").append(1005 + 10 * i)
+                    .append(", Label: SystolicPressure, Data: ").append(i == 5 ? 85 : 120).append('\n');
+        }
+        Files.write(directory.resolve("Saturation.txt"), saturation.toString().getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("SystolicPressure.txt"), systolic.toString().getBytes(StandardCharsets.UTF_8));
+
+        DataStorage storage = AlertBacktester.loadHistory(directory, 2);
+        assertNotSame(DataStorage.getInstance(), storage);
+        // The files are replayed in timestamp order, not file by file.
+        AlertBacktester.Result result = new AlertBacktester(storage, 1)
+                .run(Arrays.asList(new HypotensiveHypoxiaStrategy(10)), 0, Long.MAX_VALUE);
+        assertEquals(20, result.getRecordCount());
+        assertEquals(Arrays.asList("1:HypotensiveHypoxemia@1055"), describe(result.getAlerts()));
+    }
+
+    @Test
+    @DisplayName("Output files are replayed partition by partition with the alerts of loaded history")
+    void testOutputDirectory() throws IOException, InterruptedException {
+        DataStorage storage = history(600, 40);
+        StringBuilder saturation = new StringBuilder();
+        StringBuilder systolic = new StringBuilder();
+        for (Patient patient : storage.getAllPatients()) {
+            for (PatientRecord record : patient.getRecords(0, Long.MAX_VALUE)) {
+                boolean isSaturation = record.getRecordType().equals("Saturation");
+                (isSaturation ? saturation : systolic).append("Patient ID: ").append(patient.getPatientId())
+                        .append(", Timestamp: ").append(record.getTimestamp()).append(", Label: ")
+                        .append(record.getRecordType()).append(", Data: ").append(record.getMeasurementValue())
+                        .append(isSaturation ? "%\n" : "\n");
+            }
+        }
+        saturation.append("not a record\n");
+        Files.write(directory.resolve("Saturation.txt"), saturation.toString().getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("SystolicPressure.txt"), systolic.toString().getBytes(StandardCharsets.UTF_8));
+        List<AlertStrategy> strategies = Arrays.asList(new BloodPressureStrategy(), new OxygenSaturationStrategy(),
+                new HypotensiveHypoxiaStrategy());
+        AlertBacktester.Result loaded = new AlertBacktester(storage, 1).run(strategies, 0, Long.MAX_VALUE);
+
+        AlertBacktester backtester = AlertBacktester.fromOutputDirectory(directory, 2);
+        AlertBacktester.Result partitioned = backtester.run(strategies, 0, Long.MAX_VALUE);
+        assertEquals(600 * 40, partitioned.getRecordCount());
+        assertTrue(loaded.getAlertCount() > 100);
+        assertEquals(describe(loaded.getAlerts()), describe(partitioned.getAlerts()));
+        // Partitions are replayed in any order, but the alerts are still ordered by patient.
+        List<Alert> alerts = partitioned.getAlerts();
+        for (int i = 1; i < alerts.size(); i++) {
+            assertTrue(Integer.parseInt(alerts.get(i - 1).getPatientId())
+                    <= Integer.parseInt(alerts.get(i).getPatientId()));
+        }
+        backtester.close();
+        assertThrows(IllegalStateException.class, () -> backtester.run(strategies, 0, Long.MAX_VALUE));
+    }
+}
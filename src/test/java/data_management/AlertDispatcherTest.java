@@ -0,0 +1,346 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.alerts.Alert;
+import com.alerts.AlertDispatcher;
+import com.alerts.AlertGenerator;
+import com.alerts.AlertService;
+import com.alerts.AlertSink;
+import com.alerts.FileAlertSink;
+import com.alerts.OxygenSaturationStrategy;
+import com.alerts.ResolvedAlert;
+import com.alerts.TcpAlertSink;
+import com.alerts.WebSocketAlertSink;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+
+class AlertDispatcherTest {
+
+    private final AlertDispatcher dispatcher = new AlertDispatcher();
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.close();
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Alerts are appended to the alert log")
+    void testFileSink() throws Exception {
+        Path log = directory.resolve("alerts/alerts.log");
+        dispatcher.addSink(new FileAlertSink(log));
+        dispatcher.dispatch(new Alert("1", "LowSaturation", 1000));
+        dispatcher.dispatch(new ResolvedAlert("1", "LowSaturation", 5000, 1000));
+        dispatcher.close();
+
+        assertEquals(List.of("1,1000,LowSaturation,ALERT", "1,5000,LowSaturation,RESOLVED"), Files.readAllLines(log));
+        assertEquals(2, dispatcher.getDeliveredCount());
+    }
+
+    @Test
+    @DisplayName("Alerts are streamed to TCP clients")
+    void testTcpSink() throws Exception {
+        TcpAlertSink sink = new TcpAlertSink(0);
+        dispatcher.addSink(sink);
+        try (Socket socket = new Socket("localhost", sink.getPort());
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (sink.getClientCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            dispatcher.dispatch(new Alert("3", "CriticalSystolicPressure", 2000));
+            assertEquals("3,2000,CriticalSystolicPressure,ALERT", in.readLine());
+        }
+    }
+
+    @Test
+    @DisplayName("A stalled TCP client is dropped as slow and does not hold up the other clients")
+    void testStalledTcpClient() throws Exception {
+        TcpAlertSink sink = new TcpAlertSink(0, 256);
+        String condition = "X".repeat(1000); // long lines fill the stalled client's socket buffers
+        int alerts = 10_000;
+        try (Socket stalled = new Socket();
+                Socket fast = new Socket("localhost", sink.getPort())) {
+            stalled.setReceiveBufferSize(1024);
+            stalled.connect(new InetSocketAddress("localhost", sink.getPort()));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (sink.getClientCount() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            CountDownLatch received = new CountDownLatch(alerts);
+            Thread reader = new Thread(() -> {
+                try (BufferedReader in = new BufferedReader(
+                        new InputStreamReader(fast.getInputStream(), StandardCharsets.UTF_8))) {
+                    while (in.readLine() != null) {
+                        received.countDown();
+                    }
+                } catch (IOException e) {
+                    // Closed at the end of the test.
+                }
+            });
+            reader.start();
+
+            for (int i = 0; i < alerts; i++) {
+                sink.deliver(new Alert("1", condition, i));
+                if (i % 100 == 99) {
+                    // Wait for the fast client, so only the stalled one can fill its queue.
+                    deadline = System.currentTimeMillis() + 5000;
+                    while (received.getCount() > alerts - i - 1 && System.currentTimeMillis() < deadline) {
+                        Thread.sleep(1);
+                    }
+                }
+            }
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+            assertEquals(1, sink.getSlowClientCount());
+            assertEquals(1, sink.getClientCount());
+        } finally {
+            sink.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Every alert the alert service raises reaches a TCP client")
+    void testEndToEndTcpDelivery() throws Exception {
+        DataStorage storage = DataStorage.createDetached();
+        AlertGenerator alertGenerator = new AlertGenerator(storage);
+        alertGenerator.setAlertStrategy(new OxygenSaturationStrategy());
+        alertGenerator.setAlertDispatcher(dispatcher);
+        TcpAlertSink sink = new TcpAlertSink(0);
+        dispatcher.addSink(sink);
+        AlertService service = new AlertService(storage, alertGenerator, 100, 1);
+        int patients = 500;
+        Set<String> expected = new HashSet<>();
+        Set<String> delivered = ConcurrentHashMap.newKeySet();
+        try (Socket socket = new Socket("localhost", sink.getPort())) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (sink.getClientCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            CountDownLatch received = new CountDownLatch(patients);
+            Thread reader = new Thread(() -> {
+                try (BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        delivered.add(line);
+                        received.countDown();
+                    }
+                } catch (IOException e) {
+                    // Closed at the end of the test.
+                }
+            });
+            reader.start();
+            service.start();
+
+            // Each patient's sample raises one low saturation alert.
+            for (int id = 1; id <= patients; id++) {
+                storage.addPatientData(id, 88, "Saturation", 1000);
+                expected.add(id + ",1000,LowSaturation,ALERT");
+            }
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+        } finally {
+            service.stop();
+        }
+        assertEquals(expected, delivered);
+        assertEquals(0, sink.getSlowClientCount());
+    }
+
+    private static WebSocketClient newClient(int port, BlockingQueue<String> received, CountDownLatch open)
+            throws Exception {
+        return new WebSocketClient(new URI("ws://localhost:" + port)) {
+            @Override
+            public void onOpen(ServerHandshake handshake) {
+                open.countDown();
+            }
+
+            @Override
+            public void onMessage(String message) {
+                received.add(message);
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+            }
+
+            @Override
+            public void onError(Exception ex) {
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Alerts are pushed to WebSocket clients")
+    void testWebSocketSink() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        WebSocketAlertSink sink = new WebSocketAlertSink(port);
+        dispatcher.addSink(sink);
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        CountDownLatch open = new CountDownLatch(1);
+        // The server starts asynchronously; retry until it accepts the connection.
+        WebSocketClient client = newClient(port, received, open);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!client.connectBlocking(1, TimeUnit.SECONDS) && System.currentTimeMillis() < deadline) {
+            client = newClient(port, received, open);
+        }
+        await(open);
+        while (sink.getClientCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        dispatcher.dispatch(new Alert("4", "LowSaturation", 3000));
+        assertEquals("4,3000,LowSaturation,ALERT", received.poll(5, TimeUnit.SECONDS));
+        client.closeBlocking();
+    }
+
+    @Test
+    @DisplayName("A stalled sink never blocks dispatch")
+    void testStalledSink() throws Exception {
+        AlertDispatcher bounded = new AlertDispatcher(10);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(1);
+        bounded.addSink(alert -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AlertSink counting = alert -> delivered.countDown();
+        bounded.addSink(counting);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            bounded.dispatch(new Alert("1", "LowSaturation", i));
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        await(delivered);
+        assertTrue(bounded.getDroppedCount() >= 1000 - 11);
+
+        release.countDown();
+        bounded.close();
+    }
+
+    @Test
+    @DisplayName("Critical alerts are delivered ahead of a backlog")
+    void testPriority() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> delivered = new ArrayList<>();
+        dispatcher.addSink(alert -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(alert.getCondition() + "@" + alert.getTimestamp());
+        });
+        dispatcher.dispatch(new Alert("1", "SystolicPressureTrend", 0));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 5000; i++) {
+            dispatcher.dispatch(new Alert("1", "SystolicPressureTrend", i));
+        }
+        dispatcher.dispatch(new Alert("2", "LowSaturation", 1));
+        dispatcher.dispatch(new Alert("3", "CriticalSystolicPressure", 1));
+        dispatcher.dispatch(new Alert("2", "LowSaturation", 2));
+        release.countDown();
+        dispatcher.close();
+
+        assertEquals(5003, delivered.size());
+        assertEquals(List.of("SystolicPressureTrend@0", "CriticalSystolicPressure@1", "LowSaturation@1",
+                "LowSaturation@2", "SystolicPressureTrend@1"), delivered.subList(0, 5));
+        assertEquals("SystolicPressureTrend@4999", delivered.get(5002));
+    }
+
+    @Test
+    @DisplayName("Critical alerts have a queue bound of their own")
+    void testCriticalBound() throws Exception {
+        AlertDispatcher bounded = new AlertDispatcher(10);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Alert> delivered = new ArrayList<>();
+        bounded.addSink(alert -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(alert);
+        });
+        // A backlog of less severe alerts does not keep critical ones out...
+        for (int i = 0; i < 100; i++) {
+            bounded.dispatch(new Alert("1", "DiastolicPressureTrend", i));
+        }
+        for (int i = 0; i < 5; i++) {
+            bounded.dispatch(new Alert("1", "HypotensiveHypoxemia", 100 + i));
+        }
+        // ...but a storm of critical alerts is bounded too.
+        for (int i = 0; i < 10_000; i++) {
+            bounded.dispatch(new Alert("2", "HypotensiveHypoxemia", 200 + i));
+        }
+        release.countDown();
+        bounded.close();
+
+        assertEquals(5, delivered.stream().filter(a -> a.getPatientId().equals("1")
+                && a.getCondition().equals("HypotensiveHypoxemia")).count());
+        // The delivery thread may hold one alert out of the queue while the sink is blocked.
+        long critical = delivered.stream().filter(a -> a.getCondition().equals("HypotensiveHypoxemia")).count();
+        assertTrue(critical >= 10 && critical <= 11, critical + " critical alerts");
+        assertTrue(delivered.size() <= 21, delivered.size() + " alerts");
+        assertEquals(10_105 - delivered.size(), bounded.getDroppedCount());
+    }
+
+    @Test
+    @DisplayName("AlertGenerator dispatches recorded alerts")
+    void testAlertGeneratorDispatch() throws Exception {
+        DataStorage.setInstance(null);
+        DataStorage storage = DataStorage.getInstance();
+        storage.addPatientData(1, 88, "Saturation", 1000);
+        AlertGenerator alertGenerator = new AlertGenerator(storage);
+        alertGenerator.setAlertStrategy(new OxygenSaturationStrategy());
+        BlockingQueue<Alert> delivered = new LinkedBlockingQueue<>();
+        dispatcher.addSink(delivered::add);
+        alertGenerator.setAlertDispatcher(dispatcher);
+
+        alertGenerator.evaluateNewData(new Patient(1));
+        Alert alert = delivered.poll(5, TimeUnit.SECONDS);
+        assertNotNull(alert);
+        assertEquals("LowSaturation", alert.getCondition());
+    }
+}
@@ -0,0 +1,119 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.alerts.Alert;
+import com.alerts.AlertEscalator;
+import com.alerts.AlertGenerator;
+import com.alerts.AlertLifecycle;
+import com.alerts.AlertSeverity;
+import com.alerts.AlertSink;
+import com.alerts.BloodPressureStrategy;
+import com.alerts.EscalatedAlert;
+import com.alerts.ResolvedAlert;
+import com.data_management.DataStorage;
+
+class AlertEscalatorTest {
+
+    private final List<Alert> emitted = new ArrayList<>();
+
+    private List<String> emitted() {
+        List<String> events = new ArrayList<>();
+        for (Alert alert : emitted) {
+            events.add(alert.getPatientId() + ":" + alert.getCondition() + "@" + alert.getTimestamp()
+                    + (alert instanceof EscalatedAlert ? "#" + ((EscalatedAlert) alert).getLevel() : ""));
+        }
+        return events;
+    }
+
+    @Test
+    @DisplayName("Unacknowledged critical alerts are escalated on schedule")
+    void testEscalation() {
+        AlertEscalator escalator = new AlertEscalator(60_000, 2);
+        escalator.track(new Alert("1", "CriticalSystolicPressure", 10_000));
+        escalator.track(new Alert("1", "CriticalSystolicPressure", 20_000)); // already pending
+        escalator.track(new Alert("2", "LowSaturation", 10_000)); // not critical
+        assertEquals(AlertSeverity.HIGH, AlertSeverity.of(new Alert("2", "LowSaturation", 0)));
+
+        escalator.advance(69_999, emitted::add);
+        assertTrue(emitted.isEmpty());
+        escalator.advance(70_000, emitted::add);
+        assertEquals(List.of("1:CriticalSystolicPressure@70000#1"), emitted());
+        assertEquals(10_000, ((EscalatedAlert) emitted.get(0)).getRaisedAt());
+
+        escalator.advance(1_000_000, emitted::add);
+        assertEquals(List.of("1:CriticalSystolicPressure@70000#1", "1:CriticalSystolicPressure@130000#2"),
+                emitted());
+        assertFalse(escalator.isPending("1", "CriticalSystolicPressure"));
+        assertEquals(2, escalator.getEscalatedCount());
+    }
+
+    @Test
+    @DisplayName("Acknowledged and resolved alerts are not escalated")
+    void testAcknowledge() {
+        AlertEscalator escalator = new AlertEscalator(60_000, 5);
+        escalator.track(new Alert("1", "CriticalSystolicPressure", 0));
+        escalator.track(new Alert("2", "CriticalSystolicPressure", 0));
+        escalator.track(new Alert("3", "HypotensiveHypoxemia", 0));
+
+        assertTrue(escalator.acknowledge("1", "CriticalSystolicPressure"));
+        assertFalse(escalator.acknowledge("1", "CriticalSystolicPressure"));
+        escalator.track(new ResolvedAlert("2", "CriticalSystolicPressure", 30_000, 0));
+        escalator.advance(60_000, emitted::add);
+        assertEquals(List.of("3:HypotensiveHypoxemia@60000#1"), emitted());
+        assertEquals(1, escalator.getAcknowledgedCount());
+
+        // A new alert after the acknowledgement starts a new escalation.
+        escalator.track(new Alert("1", "CriticalSystolicPressure", 70_000));
+        escalator.advance(130_000, emitted::add);
+        assertEquals(List.of("3:HypotensiveHypoxemia@60000#1", "3:HypotensiveHypoxemia@120000#2",
+                "1:CriticalSystolicPressure@130000#1"), emitted());
+    }
+
+    @Test
+    @DisplayName("Many pending escalations come due in order")
+    void testManyPending() {
+        AlertEscalator escalator = new AlertEscalator(1000, 1);
+        for (int i = 0; i < 10_000; i++) {
+            escalator.track(new Alert("" + i, "CriticalDiastolicPressure", 10_000 - i));
+        }
+        for (long now = 10_000; now <= 12_000; now += 7) {
+            escalator.advance(now, emitted::add);
+        }
+        assertEquals(10_000, emitted.size());
+        for (int i = 1; i < emitted.size(); i++) {
+            assertTrue(emitted.get(i - 1).getTimestamp() <= emitted.get(i).getTimestamp());
+        }
+        assertEquals(10_000, escalator.getEscalatedCount());
+    }
+
+    @Test
+    @DisplayName("AlertGenerator escalates recorded alerts until acknowledged")
+    void testAlertGenerator() {
+        DataStorage storage = DataStorage.createDetached();
+        storage.addPatientData(1, 190, "SystolicPressure", 1000);
+        AlertGenerator alertGenerator = new AlertGenerator(storage);
+        alertGenerator.addAlertStrategy(new BloodPressureStrategy());
+        alertGenerator.setAlertLifecycle(new AlertLifecycle(600_000, Long.MAX_VALUE));
+        alertGenerator.setAlertEscalator(new AlertEscalator(60_000, 10));
+        assertFalse(alertGenerator.acknowledge("1", "CriticalSystolicPressure"));
+        alertGenerator.evaluateNewData(storage.getAllPatients().get(0));
+
+        alertGenerator.escalateDue(61_000);
+        assertTrue(alertGenerator.acknowledge("1", "CriticalSystolicPressure"));
+        alertGenerator.escalateDue(200_000);
+
+        List<String> lines = new ArrayList<>();
+        for (Alert alert : alertGenerator.getAllAlerts()) {
+            lines.add(AlertSink.format(alert));
+        }
+        assertEquals(List.of("1,1000,CriticalSystolicPressure,ALERT", "1,61000,CriticalSystolicPressure,ESCALATED"),
+                lines);
+    }
+}
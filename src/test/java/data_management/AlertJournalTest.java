@@ -0,0 +1,207 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.alerts.Alert;
+import com.alerts.AlertJournal;
+import com.alerts.AlertJournal.Kind;
+import com.alerts.EscalatedAlert;
+import com.alerts.ResolvedAlert;
+
+class AlertJournalTest {
+
+    private static final String[] CONDITIONS = {"LowSaturation", "CriticalSystolicPressure", "ECG Peak"};
+
+    private static List<Long> timestamps(List<Alert> alerts) {
+        List<Long> timestamps = new ArrayList<>();
+        for (Alert alert : alerts) {
+            timestamps.add(alert.getTimestamp());
+        }
+        return timestamps;
+    }
+
+    @Test
+    @DisplayName("Alerts are queried by patient, condition and time range")
+    void testQueries() {
+        AlertJournal journal = new AlertJournal();
+        journal.append(new Alert("17", "LowSaturation", 1000));
+        journal.append(new Alert("17", "CriticalSystolicPressure", 3000));
+        journal.append(new Alert("17", "LowSaturation", 2000)); // out of order
+        journal.append(new Alert("18", "LowSaturation", 2500));
+
+        assertEquals(List.of(1000L, 2000L, 3000L), timestamps(journal.getAlerts("17", 0, Long.MAX_VALUE)));
+        assertEquals(List.of(2000L, 3000L), timestamps(journal.getAlerts("17", 2000, 3000)));
+        assertEquals(List.of(1000L, 2000L), timestamps(journal.getAlerts("17", "LowSaturation", 0, 5000)));
+        assertEquals(List.of(2000L, 2500L), timestamps(journal.getAlertsByCondition("LowSaturation", 1500, 2500)));
+        assertTrue(journal.getAlerts("19", 0, Long.MAX_VALUE).isEmpty());
+
+        assertEquals(4, journal.size());
+        assertEquals(List.of(1000L, 3000L, 2000L, 2500L), timestamps(journal.getAllAlerts()));
+        assertEquals(2000L, journal.getAlertAt(2).getTimestamp());
+        assertThrows(UnsupportedOperationException.class, () -> journal.getAllAlerts().clear());
+        assertThrows(IndexOutOfBoundsException.class, () -> journal.getAlertAt(4));
+    }
+
+    @Test
+    @DisplayName("Lifecycle events are kept apart from raised alerts")
+    void testKinds() {
+        AlertJournal journal = new AlertJournal();
+        journal.append(new Alert("17", "LowSaturation", 1000));
+        journal.append(new EscalatedAlert("17", "LowSaturation", 2000, 1000, 1));
+        journal.append(new ResolvedAlert("17", "LowSaturation", 3000, 1000));
+        journal.append(new Alert("18", "LowSaturation", 3500));
+
+        assertEquals(List.of(1000L, 3500L), timestamps(journal.getAlertsByCondition("LowSaturation", 0, 5000)));
+        assertEquals(List.of(2000L), timestamps(journal.getAlertsByCondition("LowSaturation", Kind.ESCALATED, 0, 5000)));
+        assertEquals(List.of(3000L), timestamps(journal.getAlertsByCondition("LowSaturation", Kind.RESOLVED, 0, 5000)));
+        assertEquals(List.of(1000L, 2000L, 3000L), timestamps(journal.getAlerts("17", "LowSaturation", 0, 5000)));
+        assertEquals(List.of(1000L), timestamps(journal.getAlerts("17", null, Kind.RAISED, 0, 5000)));
+        assertEquals(List.of(3000L), timestamps(journal.getAlerts("17", "LowSaturation", Kind.RESOLVED, 0, 5000)));
+    }
+
+    @Test
+    @DisplayName("Retention is bounded by count and age")
+    void testRetention() {
+        AlertJournal journal = new AlertJournal(3, 10_000);
+        for (int i = 0; i < 5; i++) {
+            journal.append(new Alert("1", "LowSaturation", 1000 + i));
+        }
+        assertEquals(List.of(1002L, 1003L, 1004L), timestamps(journal.getAlerts("1", 0, Long.MAX_VALUE)));
+        assertEquals(3, journal.getAlertsByCondition("LowSaturation", 0, Long.MAX_VALUE).size());
+
+        journal.append(new Alert("1", "LowSaturation", 11_003));
+        assertEquals(List.of(1003L, 1004L, 11_003L), timestamps(journal.getAlerts("1", 0, Long.MAX_VALUE)));
+        journal.append(new Alert("1", "CriticalSystolicPressure", 20_000));
+        assertEquals(List.of(11_003L, 20_000L), timestamps(journal.getAlerts("1", 0, Long.MAX_VALUE)));
+        assertEquals(List.of(11_003L, 20_000L), timestamps(journal.getAllAlerts()));
+        assertEquals(1, journal.getAlertsByCondition("LowSaturation", 0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    @DisplayName("The total is bounded and quiet patients are dropped")
+    void testGlobalBound() {
+        AlertJournal journal = new AlertJournal(10, Long.MAX_VALUE, 100);
+        for (int id = 0; id < 1000; id++) {
+            journal.append(new Alert(Integer.toString(id), "LowSaturation", 1000 + id));
+        }
+        assertEquals(100, journal.size());
+        assertEquals(100, journal.getPatientCount());
+        assertTrue(journal.getAlerts("899", 0, Long.MAX_VALUE).isEmpty());
+        assertEquals("900", journal.getAlertAt(0).getPatientId());
+        assertEquals("999", journal.getAlertAt(99).getPatientId());
+        assertEquals(100, journal.getAlertsByCondition("LowSaturation", 0, Long.MAX_VALUE).size());
+
+        // A dropped patient that raises an alert again is recorded anew.
+        journal.append(new Alert("3", "LowSaturation", 5000));
+        assertEquals(List.of(5000L), timestamps(journal.getAlerts("3", 0, Long.MAX_VALUE)));
+        assertEquals(100, journal.size());
+        assertEquals("901", journal.getAlertAt(0).getPatientId());
+
+        // Per-patient eviction leaves gaps in the append order, which positions skip.
+        AlertJournal gaps = new AlertJournal(1, Long.MAX_VALUE);
+        gaps.append(new Alert("1", "LowSaturation", 1000));
+        gaps.append(new Alert("2", "LowSaturation", 2000));
+        gaps.append(new Alert("1", "LowSaturation", 3000));
+        assertEquals(2000L, gaps.getAlertAt(0).getTimestamp());
+        assertEquals(3000L, gaps.getAlertAt(1).getTimestamp());
+        assertThrows(IndexOutOfBoundsException.class, () -> gaps.getAlertAt(2));
+    }
+
+    @Test
+    @DisplayName("Concurrent appends keep every index consistent")
+    void testConcurrentAppends() throws Exception {
+        AlertJournal journal = new AlertJournal(500, Long.MAX_VALUE);
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    String patientId = Integer.toString(random.nextInt(50));
+                    journal.append(new Alert(patientId, CONDITIONS[random.nextInt(CONDITIONS.length)],
+                            random.nextInt(1_000_000)));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        int retained = 0;
+        Set<Alert> byPatient = new HashSet<>();
+        for (int id = 0; id < 50; id++) {
+            List<Alert> alerts = journal.getAlerts(Integer.toString(id), 0, Long.MAX_VALUE);
+            assertEquals(500, alerts.size());
+            for (int i = 1; i < alerts.size(); i++) {
+                assertTrue(alerts.get(i - 1).getTimestamp() <= alerts.get(i).getTimestamp());
+            }
+            retained += alerts.size();
+            byPatient.addAll(alerts);
+        }
+        assertEquals(retained, journal.size());
+        assertEquals(byPatient, new HashSet<>(journal.getAllAlerts()));
+        Set<Alert> byCondition = new HashSet<>();
+        for (String condition : CONDITIONS) {
+            byCondition.addAll(journal.getAlertsByCondition(condition, 0, Long.MAX_VALUE));
+        }
+        assertEquals(byPatient, byCondition);
+    }
+
+    @Test
+    @DisplayName("Range queries return exactly the alerts in range")
+    void testRangeQueries() {
+        AlertJournal journal = new AlertJournal(1000, Long.MAX_VALUE);
+        int patients = 20;
+        List<Alert> all = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Alert alert = new Alert(Integer.toString(i % patients), CONDITIONS[i % CONDITIONS.length], i * 1000L);
+            journal.append(alert);
+            all.add(alert);
+        }
+        assertEquals(all.size(), journal.size());
+
+        Random random = new Random(1);
+        for (int q = 0; q < 500; q++) {
+            long start = (random.nextInt(10_200) - 100) * 1000L + random.nextInt(3) - 1;
+            long end = start + random.nextInt(200_000);
+            String patientId = Integer.toString(random.nextInt(patients));
+            String condition = CONDITIONS[random.nextInt(CONDITIONS.length)];
+            List<Alert> byPatient = new ArrayList<>();
+            List<Alert> byCondition = new ArrayList<>();
+            for (Alert alert : all) {
+                if (alert.getTimestamp() >= start && alert.getTimestamp() <= end) {
+                    if (alert.getPatientId().equals(patientId)) {
+                        byPatient.add(alert);
+                    }
+                    if (alert.getCondition().equals(condition)) {
+                        byCondition.add(alert);
+                    }
+                }
+            }
+            assertEquals(timestamps(byPatient), timestamps(journal.getAlerts(patientId, start, end)));
+            assertEquals(timestamps(byCondition),
+                    timestamps(journal.getAlertsByCondition(condition, start, end)));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.alerts.Alert;
+import com.alerts.AlertGenerator;
+import com.alerts.AlertLifecycle;
+import com.alerts.OxygenSaturationStrategy;
+import com.alerts.ResolvedAlert;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+
+class AlertLifecycleTest {
+
+    private final List<Alert> emitted = new ArrayList<>();
+    private AlertLifecycle lifecycle;
+
+    @BeforeEach
+    void setUp() {
+        lifecycle = new AlertLifecycle(60_000, 300_000);
+    }
+
+    private List<String> emitted() {
+        List<String> events = new ArrayList<>();
+        for (Alert alert : emitted) {
+            events.add((alert instanceof ResolvedAlert ? "resolved " : "") + alert.getCondition() + "@"
+                    + alert.getTimestamp());
+        }
+        return events;
+    }
+
+    @Test
+    @DisplayName("Repeats within the window are suppressed")
+    void testSuppression() {
+        for (long t = 0; t <= 50_000; t += 10_000) {
+            lifecycle.process(new Alert("1", "LowSaturation", t), emitted::add);
+        }
+        lifecycle.process(new Alert("2", "LowSaturation", 20_000), emitted::add);
+        lifecycle.process(new Alert("1", "CriticalSystolicPressure", 30_000), emitted::add);
+
+        assertEquals(List.of("LowSaturation@0", "LowSaturation@20000", "CriticalSystolicPressure@30000"), emitted());
+        assertEquals(5, lifecycle.getSuppressedCount());
+        assertTrue(lifecycle.isOpen("1", "LowSaturation"));
+    }
+
+    @Test
+    @DisplayName("Open conditions are re-notified on schedule")
+    void testReNotification() {
+        for (long t = 0; t <= 700_000; t += 50_000) {
+            lifecycle.process(new Alert("1", "LowSaturation", t), emitted::add);
+        }
+        assertEquals(List.of("LowSaturation@0", "LowSaturation@300000", "LowSaturation@600000"), emitted());
+        assertEquals(2, lifecycle.getReNotifiedCount());
+    }
+
+    @Test
+    @DisplayName("Quiet conditions are resolved")
+    void testResolution() {
+        lifecycle.process(new Alert("1", "LowSaturation", 0), emitted::add);
+        lifecycle.process(new Alert("1", "LowSaturation", 30_000), emitted::add);
+        lifecycle.resolveExpired(80_000, emitted::add);
+        assertTrue(lifecycle.isOpen("1", "LowSaturation"));
+
+        lifecycle.resolveExpired(100_000, emitted::add);
+        assertFalse(lifecycle.isOpen("1", "LowSaturation"));
+        assertEquals(List.of("LowSaturation@0", "resolved LowSaturation@100000"), emitted());
+        assertEquals(0, ((ResolvedAlert) emitted.get(1)).getOpenedAt());
+
+        // A new occurrence opens a new episode, and an expired one is resolved on the way.
+        lifecycle.process(new Alert("1", "LowSaturation", 200_000), emitted::add);
+        lifecycle.process(new Alert("1", "LowSaturation", 400_000), emitted::add);
+        assertEquals(List.of("LowSaturation@0", "resolved LowSaturation@100000", "LowSaturation@200000",
+                "resolved LowSaturation@260000", "LowSaturation@400000"), emitted());
+        assertEquals(2, lifecycle.getResolvedCount());
+    }
+
+    @Test
+    @DisplayName("Concurrent repeats open a single episode")
+    void testConcurrentRepeats() throws InterruptedException {
+        List<Alert> concurrent = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    lifecycle.process(new Alert(Integer.toString(i % 100), "LowSaturation", 1000), concurrent::add);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(100, concurrent.size());
+        assertEquals(100, lifecycle.getOpenedCount());
+    }
+
+    @Test
+    @DisplayName("AlertGenerator records only lifecycle events")
+    void testAlertGeneratorLifecycle() {
+        DataStorage dataStorage = mock(DataStorage.class);
+        AlertGenerator alertGenerator = new AlertGenerator(dataStorage);
+        alertGenerator.setAlertStrategy(new OxygenSaturationStrategy());
+        alertGenerator.setAlertLifecycle(lifecycle);
+        long now = System.currentTimeMillis();
+        PatientRecord low = new PatientRecord(1, 90, "Saturation", now);
+        when(dataStorage.getRecords(anyInt(), anyLong(), anyLong())).thenReturn(Arrays.asList(low));
+
+        Patient patient = new Patient(1);
+        for (int i = 0; i < 5; i++) {
+            alertGenerator.evaluateData(patient);
+        }
+        assertEquals(1, alertGenerator.getAllAlerts().size());
+
+        alertGenerator.resolveExpiredAlerts(now + 120_000);
+        assertEquals(2, alertGenerator.getAllAlerts().size());
+        assertTrue(alertGenerator.getAlertAt(1) instanceof ResolvedAlert);
+    }
+}
@@ -0,0 +1,162 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.alerts.Alert;
+import com.alerts.AlertGenerator;
+import com.alerts.AlertService;
+import com.alerts.OxygenSaturationStrategy;
+import com.data_management.DataStorage;
+
+class AlertServiceTest {
+
+    private DataStorage storage;
+    private AlertGenerator alertGenerator;
+    private AlertService service;
+
+    @BeforeEach
+    void setUp() {
+        DataStorage.setInstance(null);
+        storage = DataStorage.getInstance();
+        alertGenerator = new AlertGenerator(storage);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    @DisplayName("Every patient is evaluated periodically")
+    void testPeriodicEvaluation() throws InterruptedException {
+        alertGenerator.setAlertStrategy(new OxygenSaturationStrategy());
+        for (int id = 1; id <= 200; id++) {
+            storage.addPatientData(id, 97, "Saturation", 1000L);
+        }
+        service = new AlertService(storage, alertGenerator, 50, 2);
+        service.start();
+
+        for (int id = 1; id <= 200; id++) {
+            storage.addPatientData(id, 90, "Saturation", 2000L);
+        }
+        await(() -> alertGenerator.getAllAlerts().size() >= 200);
+        service.stop();
+
+        Set<String> alerted = new HashSet<>();
+        for (Alert alert : alertGenerator.getAllAlerts()) {
+            assertEquals("LowSaturation", alert.getCondition());
+            alerted.add(alert.getPatientId());
+        }
+        assertEquals(200, alertGenerator.getAllAlerts().size());
+        assertEquals(200, alerted.size());
+        assertTrue(service.getEvaluationCount() >= 200);
+        assertTrue(service.getMaxLagMillis() >= service.getAverageLagMillis());
+    }
+
+    @Test
+    @DisplayName("Only patients with new relevant data are evaluated")
+    void testOnlyDirtyPatientsAreEvaluated() throws InterruptedException {
+        alertGenerator.setAlertStrategy(new OxygenSaturationStrategy());
+        for (int id = 1; id <= 100; id++) {
+            storage.addPatientData(id, 97, "Saturation", 1000L);
+        }
+        service = new AlertService(storage, alertGenerator, 20, 2);
+        service.start();
+        await(() -> service.getEvaluationCount() >= 100);
+        Thread.sleep(100);
+        assertEquals(100, service.getEvaluationCount());
+
+        storage.addPatientData(7, 120, "SystolicPressure", 2000L); // not consumed by the strategy
+        storage.addPatientData(8, 96, "Saturation", 2000L);
+        await(() -> service.getEvaluationCount() >= 101);
+        Thread.sleep(100);
+        service.stop();
+        assertEquals(101, service.getEvaluationCount());
+    }
+
+    @Test
+    @DisplayName("A patient is never evaluated concurrently")
+    void testPerPatientSerialization() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        alertGenerator.setAlertStrategy((patient, records) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return null;
+        });
+        service = new AlertService(storage, alertGenerator, 10, 4);
+        service.start();
+
+        // Keep the patient dirty so that it becomes due while it is being evaluated.
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getSkippedCount() == 0 && System.currentTimeMillis() < deadline) {
+            storage.addPatientData(1, 97, "Saturation", System.currentTimeMillis());
+            Thread.sleep(5);
+        }
+        service.stop();
+
+        assertEquals(1, maxRunning.get());
+        assertTrue(service.getSkippedCount() > 0);
+    }
+
+    @Test
+    @DisplayName("evaluateAll evaluates every patient once")
+    void testEvaluateAll() {
+        alertGenerator.setAlertStrategy(new OxygenSaturationStrategy());
+        for (int id = 1; id <= 1000; id++) {
+            storage.addPatientData(id, 90, "Saturation", 1000L);
+        }
+        service = new AlertService(storage, alertGenerator, 1000, 4);
+        service.evaluateAll();
+        service.evaluateAll();
+
+        assertEquals(2000, service.getEvaluationCount());
+        assertEquals(1000, alertGenerator.getAllAlerts().size());
+    }
+
+    @Test
+    @DisplayName("Idle patients are dropped, and a stopped service stays stopped")
+    void testIdleTasksAndStop() throws InterruptedException {
+        alertGenerator.setAlertStrategy(new OxygenSaturationStrategy());
+        for (int id = 1; id <= 50; id++) {
+            storage.addPatientData(id, 97, "Saturation", 1000L);
+        }
+        service = new AlertService(storage, alertGenerator, 10, 2);
+        service.start();
+        await(() -> service.getEvaluationCount() >= 50);
+        await(() -> service.getTaskCount() == 0); // after 60 idle periods
+        assertEquals(0, service.getTaskCount());
+
+        storage.addPatientData(3, 90, "Saturation", 2000L);
+        await(() -> service.getEvaluationCount() >= 51);
+        assertEquals(1, alertGenerator.getAllAlerts().size());
+        assertEquals(1, service.getTaskCount());
+
+        service.stop();
+        assertThrows(IllegalStateException.class, service::start);
+    }
+}
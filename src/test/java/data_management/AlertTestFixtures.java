@@ -0,0 +1,92 @@
+package data_management;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.alerts.Alert;
+import com.alerts.AlertEvaluator;
+import com.alerts.AlertStrategy;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+
+/**
+ * Records and alert helpers shared by the tests that compare ways of evaluating alerts.
+ */
+final class AlertTestFixtures {
+
+    private AlertTestFixtures() {}
+
+    /**
+     * Returns random saturation, blood pressure and ECG records of patient 1, about 5% of the
+     * ECG values being peaks.
+     *
+     * @param seed        the seed of the records
+     * @param count       the number of records
+     * @param startMillis the timestamp the records follow
+     * @param maxGapMillis the longest interval between two records, in milliseconds
+     */
+    static List<PatientRecord> randomRecords(long seed, int count, long startMillis, int maxGapMillis) {
+        Random random = new Random(seed);
+        List<PatientRecord> records = new ArrayList<>();
+        long timestamp = startMillis;
+        for (int i = 0; i < count; i++) {
+            timestamp += 1 + random.nextInt(maxGapMillis);
+            switch (random.nextInt(4)) {
+                case 0:
+                    records.add(new PatientRecord(1, 88 + random.nextInt(13), "Saturation", timestamp));
+                    break;
+                case 1:
+                    records.add(new PatientRecord(1, 85 + random.nextInt(100), "SystolicPressure", timestamp));
+                    break;
+                case 2:
+                    records.add(new PatientRecord(1, 55 + random.nextInt(70), "DiastolicPressure", timestamp));
+                    break;
+                default:
+                    double ecg = random.nextDouble() < 0.05 ? 2 + random.nextDouble() : 0.5 + random.nextDouble() * 0.3;
+                    records.add(new PatientRecord(1, ecg, "ECG", timestamp));
+                    break;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Returns an alert as {@code condition@timestamp}.
+     */
+    static String describe(Alert alert) {
+        return alert.getCondition() + "@" + alert.getTimestamp();
+    }
+
+    /**
+     * Returns every alert a strategy finds when batch evaluation is re-run from the record
+     * after each alert.
+     */
+    static List<String> batchAlerts(AlertStrategy strategy, Patient patient, List<PatientRecord> records) {
+        List<String> alerts = new ArrayList<>();
+        int from = 0;
+        while (from < records.size()) {
+            Alert alert = strategy.checkAlert(patient, records.subList(from, records.size()));
+            if (alert == null) {
+                break;
+            }
+            alerts.add(describe(alert));
+            while (records.get(from).getTimestamp() != alert.getTimestamp()) {
+                from++;
+            }
+            from++;
+        }
+        return alerts;
+    }
+
+    /**
+     * Feeds records in order to an evaluator and returns the alerts it raises.
+     */
+    static List<String> evaluate(AlertEvaluator evaluator, List<PatientRecord> records) {
+        List<String> alerts = new ArrayList<>();
+        for (PatientRecord record : records) {
+            evaluator.evaluate(record, alert -> alerts.add(describe(alert)));
+        }
+        return alerts;
+    }
+}
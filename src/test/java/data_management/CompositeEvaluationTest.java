@@ -0,0 +1,115 @@
+package data_management;
+
+import static data_management.AlertTestFixtures.batchAlerts;
+import static data_management.AlertTestFixtures.describe;
+import static data_management.AlertTestFixtures.randomRecords;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.alerts.Alert;
+import com.alerts.AlertGenerator;
+import com.alerts.AlertStrategy;
+import com.alerts.BloodPressureStrategy;
+import com.alerts.HeartRateStrategy;
+import com.alerts.HypotensiveHypoxiaStrategy;
+import com.alerts.OxygenSaturationStrategy;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+
+class CompositeEvaluationTest {
+
+    private DataStorage dataStorage;
+    private AlertGenerator alertGenerator;
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        dataStorage = mock(DataStorage.class);
+        alertGenerator = new AlertGenerator(dataStorage);
+        patient = new Patient(1);
+    }
+
+    private static List<AlertStrategy> allStrategies() {
+        return Arrays.asList(new BloodPressureStrategy(), new OxygenSaturationStrategy(), new HeartRateStrategy(),
+                new HypotensiveHypoxiaStrategy());
+    }
+
+    private List<String> generatedAlerts() {
+        List<String> alerts = new ArrayList<>();
+        for (Alert alert : alertGenerator.getAllAlerts()) {
+            alerts.add(describe(alert));
+        }
+        return alerts;
+    }
+
+    @Test
+    @DisplayName("All strategies are evaluated over a single fetch")
+    void testSingleFetch() {
+        for (AlertStrategy strategy : allStrategies()) {
+            alertGenerator.addAlertStrategy(strategy);
+        }
+        long now = System.currentTimeMillis();
+        List<PatientRecord> records = Arrays.asList(
+                new PatientRecord(1, 185, "SystolicPressure", now - 300),
+                new PatientRecord(1, 91, "Saturation", now - 200),
+                new PatientRecord(1, 85, "SystolicPressure", now - 100));
+        when(dataStorage.getRecords(anyInt(), anyLong(), anyLong())).thenReturn(records);
+
+        alertGenerator.evaluateData(patient);
+
+        verify(dataStorage, times(1)).getRecords(anyInt(), anyLong(), anyLong());
+        List<String> conditions = new ArrayList<>();
+        for (Alert alert : alertGenerator.getAllAlerts()) {
+            conditions.add(alert.getCondition());
+        }
+        assertEquals(Arrays.asList("CriticalSystolicPressure", "LowSaturation", "CriticalSystolicPressure",
+                "HypotensiveHypoxemia"), conditions);
+    }
+
+    @Test
+    @DisplayName("Composite evaluation raises the alerts of every strategy")
+    void testMatchesSeparateStrategies() {
+        // Within the 20 minutes evaluateData() looks back from now.
+        List<PatientRecord> records = randomRecords(7, 3000, System.currentTimeMillis() - 1000000, 400);
+        List<String> expected = new ArrayList<>();
+        for (AlertStrategy strategy : allStrategies()) {
+            expected.addAll(batchAlerts(strategy, patient, records));
+            alertGenerator.addAlertStrategy(strategy);
+        }
+        when(dataStorage.getRecords(anyInt(), anyLong(), anyLong())).thenReturn(records);
+
+        alertGenerator.evaluateData(patient);
+
+        List<String> actual = generatedAlerts();
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Replacing the strategy drops the registered ones")
+    void testSetAlertStrategyReplaces() {
+        for (AlertStrategy strategy : allStrategies()) {
+            alertGenerator.addAlertStrategy(strategy);
+        }
+        alertGenerator.setAlertStrategy(new OxygenSaturationStrategy());
+        assertEquals(1, alertGenerator.getAlertStrategies().size());
+
+        PatientRecord lowSystolic = new PatientRecord(1, 85, "SystolicPressure", System.currentTimeMillis());
+        when(dataStorage.getRecords(anyInt(), anyLong(), anyLong())).thenReturn(Arrays.asList(lowSystolic));
+        alertGenerator.evaluateData(patient);
+        assertTrue(alertGenerator.getAllAlerts().isEmpty());
+    }
+}
@@ -0,0 +1,105 @@
+package data_management;
+
+import static data_management.AlertTestFixtures.evaluate;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.alerts.CorrelationEngine;
+import com.alerts.CorrelationRule;
+import com.alerts.HypotensiveHypoxiaFactory;
+import com.alerts.HypotensiveHypoxiaStrategy;
+import com.data_management.PatientRecord;
+
+class CorrelationEngineTest {
+
+    private static CorrelationRule hypotensiveHypoxia(long toleranceMillis) {
+        return new CorrelationRule("HypotensiveHypoxemia", new HypotensiveHypoxiaFactory(), toleranceMillis)
+                .where("SystolicPressure", v -> v < 90)
+                .where("Saturation", v -> v < 92);
+    }
+
+    @Test
+    @DisplayName("Streams are aligned within the tolerance")
+    void testTolerance() {
+        List<PatientRecord> records = Arrays.asList(
+                new PatientRecord(1, 85, "SystolicPressure", 1000),
+                new PatientRecord(1, 90, "Saturation", 1500));
+        assertEquals(Arrays.asList("HypotensiveHypoxemia@1500"),
+                evaluate(new CorrelationEngine(hypotensiveHypoxia(500)).createEvaluator(), records));
+        assertTrue(evaluate(new CorrelationEngine(hypotensiveHypoxia(499)).createEvaluator(), records).isEmpty());
+        assertTrue(evaluate(new HypotensiveHypoxiaStrategy(100).createEvaluator(), records).isEmpty());
+        assertEquals(1, evaluate(new HypotensiveHypoxiaStrategy().createEvaluator(), records).size());
+    }
+
+    @Test
+    @DisplayName("Alignment is by timestamp, not arrival order")
+    void testLateArrival() {
+        // The saturation taken with the low pressure arrives after a later, normal one.
+        List<PatientRecord> records = Arrays.asList(
+                new PatientRecord(1, 97, "Saturation", 2000),
+                new PatientRecord(1, 85, "SystolicPressure", 1000),
+                new PatientRecord(1, 90, "Saturation", 1010));
+        CorrelationEngine engine = new CorrelationEngine(hypotensiveHypoxia(100));
+        assertEquals(Arrays.asList("HypotensiveHypoxemia@1010"), evaluate(engine.createEvaluator(), records));
+
+        List<PatientRecord> reversed = new ArrayList<>(records);
+        Collections.reverse(reversed);
+        assertEquals(Arrays.asList("HypotensiveHypoxemia@1000"), evaluate(engine.createEvaluator(), reversed));
+    }
+
+    @Test
+    @DisplayName("A rule starts over after raising an alert")
+    void testRestartAfterAlert() {
+        List<PatientRecord> records = Arrays.asList(
+                new PatientRecord(1, 85, "SystolicPressure", 1000),
+                new PatientRecord(1, 90, "Saturation", 1001),
+                new PatientRecord(1, 89, "Saturation", 1002),
+                new PatientRecord(1, 84, "SystolicPressure", 1003));
+        assertEquals(Arrays.asList("HypotensiveHypoxemia@1001", "HypotensiveHypoxemia@1003"),
+                evaluate(new CorrelationEngine(hypotensiveHypoxia(Long.MAX_VALUE)).createEvaluator(), records));
+    }
+
+    @Test
+    @DisplayName("Three streams combine aligned samples and windowed averages")
+    void testThreeStreams() {
+        CorrelationRule shock = new CorrelationRule("Shock", new HypotensiveHypoxiaFactory(), 2000)
+                .where("SystolicPressure", v -> v < 90)
+                .whereAverage("HeartRate", 3000, v -> v > 120)
+                .where("Saturation", v -> v < 92);
+        CorrelationEngine engine = new CorrelationEngine(8, Arrays.asList(shock, hypotensiveHypoxia(2000)));
+        assertEquals(3, engine.getRecordTypes().size());
+
+        List<PatientRecord> records = new ArrayList<>();
+        records.add(new PatientRecord(1, 85, "SystolicPressure", 10_000));
+        records.add(new PatientRecord(1, 100, "HeartRate", 8_000));
+        records.add(new PatientRecord(1, 130, "HeartRate", 9_000));
+        records.add(new PatientRecord(1, 135, "HeartRate", 10_000));
+        // Average heart rate over the window ending at 10 000 is 121.7.
+        records.add(new PatientRecord(1, 91, "Saturation", 10_500));
+        assertEquals(Arrays.asList("Shock@10500", "HypotensiveHypoxemia@10500"),
+                evaluate(engine.createEvaluator(), records));
+
+        records.set(1, new PatientRecord(1, 90, "HeartRate", 8_000));
+        assertEquals(Arrays.asList("HypotensiveHypoxemia@10500"), evaluate(engine.createEvaluator(), records));
+    }
+
+    @Test
+    @DisplayName("Malformed rules are rejected")
+    void testValidation() {
+        CorrelationRule rule = new CorrelationRule("X", new HypotensiveHypoxiaFactory(), 0);
+        assertThrows(IllegalArgumentException.class, () -> new CorrelationEngine(rule));
+        assertThrows(IllegalArgumentException.class,
+                () -> rule.where("Saturation", v -> true).where("Saturation", v -> false));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CorrelationRule("X", new HypotensiveHypoxiaFactory(), -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CorrelationEngine(0, Arrays.asList(rule.where("Saturation", v -> true))));
+    }
+}
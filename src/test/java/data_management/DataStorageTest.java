@@ -10,7 +10,10 @@ import com.data_management.DataStorage;
 import com.data_management.PatientRecord;
 import com.data_management.Patient;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 class DataStorageTest {
 
@@ -74,4 +77,31 @@ class DataStorageTest {
         List<PatientRecord> records = storage.getRecords(1, 1627849260000L, 1627849263000L);
         assertEquals(2, records.size());
     }
+
+    @Test
+    @DisplayName("Drain dirty patients")
+    void testDrainDirtyPatients() {
+        storage.addPatientData(1, 120, "SystolicPressure", 1000L);
+        storage.addPatientData(1, 80, "DiastolicPressure", 1000L);
+        storage.addPatientData(2, 95, "Saturation", 1000L);
+        storage.addPatientData(1, 121, "SystolicPressure", 2000L);
+
+        Map<Integer, Set<String>> dirty = new HashMap<>();
+        assertEquals(2, storage.drainDirtyPatients(this, (patient, types) -> dirty.put(patient.getPatientId(), types)));
+        assertEquals(Set.of("SystolicPressure", "DiastolicPressure"), dirty.get(1));
+        assertEquals(Set.of("Saturation"), dirty.get(2));
+
+        assertEquals(0, storage.drainDirtyPatients(this, (patient, types) -> fail("patient " + patient.getPatientId())));
+
+        storage.addPatientData(2, 96, "Saturation", 2000L);
+        dirty.clear();
+        assertEquals(1, storage.drainDirtyPatients(this, (patient, types) -> dirty.put(patient.getPatientId(), types)));
+        assertEquals(Set.of(2), dirty.keySet());
+
+        // The queue has a single owner until it is released.
+        Object other = new Object();
+        assertThrows(IllegalStateException.class, () -> storage.drainDirtyPatients(other, (patient, types) -> { }));
+        storage.releaseDirtyPatients(this);
+        assertEquals(0, storage.drainDirtyPatients(other, (patient, types) -> { }));
+    }
 }
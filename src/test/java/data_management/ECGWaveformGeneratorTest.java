@@ -0,0 +1,105 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.alerts.AlertEvaluator;
+import com.alerts.HeartRateStrategy;
+import com.cardio_generator.generators.ECGWaveformGenerator;
+import com.cardio_generator.generators.ECGWaveformGenerator.Arrhythmia;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
+import com.data_management.PatientRecord;
+
+class ECGWaveformGeneratorTest {
+
+    private static final int SAMPLE_RATE = 250;
+
+    /**
+     * Generates a patient's ECG one second at a time on a simulated clock and returns the
+     * rhythm alerts the heart rate strategy raises on it.
+     */
+    private static List<String> evaluate(Arrhythmia[] arrhythmias, int seconds, long seed) {
+        long[] time = {1_000_000};
+        ECGWaveformGenerator generator = new ECGWaveformGenerator(1, SAMPLE_RATE, arrhythmias, 1e9,
+                new SplittableRandom(seed), () -> time[0]);
+        AlertEvaluator evaluator = new HeartRateStrategy(SAMPLE_RATE).createEvaluator();
+        List<String> conditions = new ArrayList<>();
+        OutputStrategy output = (patientId, timestamp, label, data) -> evaluator.evaluate(
+                new PatientRecord(patientId, Double.parseDouble(data), label, timestamp), alert -> {
+                    if (!"SignificantEcgPeak".equals(alert.getCondition())) {
+                        conditions.add(alert.getCondition());
+                    }
+                });
+        for (int second = 0; second < seconds; second++, time[0] += 1000) {
+            generator.generateBatch(1, 2, output);
+        }
+        return conditions;
+    }
+
+    @Test
+    @DisplayName("Each call emits every patient's samples since the last call as one batch")
+    void testBlocks() {
+        long[] time = {1_000_000};
+        ECGWaveformGenerator generator = new ECGWaveformGenerator(3, SAMPLE_RATE, new Arrhythmia[0], 0,
+                new SplittableRandom(1), () -> time[0]);
+        List<SampleBatch> batches = new ArrayList<>();
+        OutputStrategy output = new OutputStrategy() {
+            @Override
+            public void output(int patientId, long timestamp, String label, String data) {
+                fail("samples must be output in batches");
+            }
+
+            @Override
+            public void outputBatch(SampleBatch batch) {
+                batches.add(batch);
+            }
+        };
+        generator.generateBatch(1, 4, output);
+        time[0] += 1000;
+        generator.generateBatch(1, 4, output);
+
+        assertEquals(2, batches.size());
+        assertEquals(3, batches.get(0).size());
+        SampleBatch block = batches.get(1);
+        assertEquals(3 * SAMPLE_RATE, block.size());
+        for (int i = 0; i < block.size(); i++) {
+            assertEquals(1 + i / SAMPLE_RATE, block.getPatientId(i));
+            assertEquals(1_000_004 + 4 * (i % SAMPLE_RATE), block.getTimestamp(i));
+            assertEquals("ECG", block.getLabel(i));
+            assertTrue(Math.abs(block.getValue(i)) < 2, "" + block.getValue(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Sinus rhythm passes the rhythm checks")
+    void testSinusRhythm() {
+        for (long seed = 1; seed <= 3; seed++) {
+            assertEquals(List.of(), evaluate(new Arrhythmia[0], 120, seed));
+        }
+    }
+
+    @Test
+    @DisplayName("Arrhythmia episodes raise the matching rhythm alerts")
+    void testArrhythmias() {
+        assertTrue(evaluate(new Arrhythmia[] {Arrhythmia.TACHYCARDIA}, 30, 1).contains("Tachycardia"));
+        assertTrue(evaluate(new Arrhythmia[] {Arrhythmia.BRADYCARDIA}, 30, 1).contains("Bradycardia"));
+        assertTrue(evaluate(new Arrhythmia[] {Arrhythmia.ATRIAL_FIBRILLATION}, 30, 1)
+                .contains("IrregularHeartbeat"));
+        assertTrue(evaluate(new Arrhythmia[] {Arrhythmia.of("PVC")}, 30, 1).contains("IrregularHeartbeat"));
+    }
+
+    @Test
+    @DisplayName("Invalid configurations are rejected")
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new ECGWaveformGenerator(1, 2000));
+        assertThrows(IllegalArgumentException.class, () -> new ECGWaveformGenerator(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> Arrhythmia.of("flutter"));
+    }
+}
@@ -0,0 +1,129 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cardio_generator.outputs.FileOutputStrategy;
+import com.data_management.DataStorage;
+import com.data_management.FollowingFileDataReader;
+
+class FollowingFileDataReaderTest {
+
+    @TempDir
+    Path outputDir;
+
+    private DataStorage storage;
+    private FileOutputStrategy output;
+    private Path offsets;
+
+    @BeforeEach
+    void setUp() {
+        DataStorage.setInstance(null);
+        storage = DataStorage.getInstance();
+        output = new FileOutputStrategy(outputDir.toString());
+        offsets = outputDir.resolve("offsets.properties");
+    }
+
+    private FollowingFileDataReader openReader() throws IOException {
+        FollowingFileDataReader reader = new FollowingFileDataReader();
+        reader.startReading(storage);
+        reader.open(outputDir, offsets);
+        return reader;
+    }
+
+    @Test
+    @DisplayName("Only appended lines are read")
+    void testReadsOnlyAppendedLines() throws IOException {
+        FollowingFileDataReader reader = openReader();
+        output.output(1, 1000L, "ECG", "0.5");
+        output.output(1, 2000L, "Saturation", "97.0%");
+        assertEquals(2, reader.poll());
+
+        output.output(1, 3000L, "ECG", "0.6");
+        assertEquals(1, reader.poll());
+        assertEquals(0, reader.poll());
+        assertEquals(3, storage.getRecords(1, 0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    @DisplayName("Incomplete lines wait for their newline")
+    void testIncompleteLine() throws IOException {
+        FollowingFileDataReader reader = openReader();
+        Path file = outputDir.resolve("ECG.txt");
+        Files.write(file, "2,1000,ECG,0.5\n2,2000,E".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(1, reader.poll());
+
+        Files.write(file, "CG,0.7\n".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+        assertEquals(1, reader.poll());
+        assertEquals(0.7, storage.getRecords(2, 2000, 2000).get(0).getMeasurementValue());
+    }
+
+    @Test
+    @DisplayName("Restart resumes from persisted offsets")
+    void testResumeFromPersistedOffsets() throws IOException {
+        FollowingFileDataReader reader = openReader();
+        output.output(3, 1000L, "ECG", "0.5");
+        reader.poll();
+        reader.disconnect();
+
+        output.output(3, 2000L, "ECG", "0.6");
+        FollowingFileDataReader restarted = openReader();
+        assertEquals(1, restarted.poll());
+        assertEquals(2, storage.getRecords(3, 0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    @DisplayName("Truncated files are read from the start")
+    void testRotation() throws IOException {
+        FollowingFileDataReader reader = openReader();
+        output.output(4, 1000L, "ECG", "0.5");
+        output.output(4, 2000L, "ECG", "0.5");
+        reader.poll();
+
+        Files.write(outputDir.resolve("ECG.txt"), "4,3000,ECG,0.9\n".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(1, reader.poll());
+        assertEquals(0.9, storage.getRecords(4, 3000, 3000).get(0).getMeasurementValue());
+    }
+
+    @Test
+    @DisplayName("Nothing is consumed before a storage is set")
+    void testNoStorageYet() throws IOException {
+        FollowingFileDataReader reader = new FollowingFileDataReader();
+        reader.open(outputDir, offsets);
+        output.output(6, 1000L, "ECG", "0.5");
+        assertEquals(0, reader.poll());
+        assertEquals(0, reader.getOffset("ECG.txt"));
+
+        reader.startReading(storage);
+        assertEquals(1, reader.poll());
+        assertEquals(1, storage.getRecords(6, 0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    @DisplayName("Follow thread ingests appended data")
+    void testFollowThread() throws Exception {
+        FollowingFileDataReader reader = new FollowingFileDataReader(100);
+        reader.startReading(storage);
+        reader.connect(outputDir.toString());
+        try {
+            output.output(5, 1000L, "ECG", "0.5");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (storage.getRecords(5, 0, Long.MAX_VALUE).isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, storage.getRecords(5, 0, Long.MAX_VALUE).size());
+        } finally {
+            reader.disconnect();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cardio_generator.HealthDataSimulator;
+import com.cardio_generator.generators.AlertGenerator;
+import com.cardio_generator.generators.BloodLevelsDataGenerator;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.outputs.FileOutputStrategy;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SampleBatch;
+
+class GeneratorBatchTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<String[]> collect(PatientDataGenerator generator, int from, int to) {
+        List<String[]> samples = new ArrayList<>();
+        OutputStrategy output = (patientId, timestamp, label, data) -> samples.add(
+                new String[] {"" + patientId, "" + timestamp, label, data});
+        generator.generateBatch(from, to, output);
+        return samples;
+    }
+
+    @Test
+    @DisplayName("Batched samples are formatted as single samples")
+    void testFormat() {
+        SampleBatch batch = new SampleBatch(1);
+        batch.add(3, 1000, "Saturation", 97, "%");
+        batch.add(3, 1000, "SystolicPressure", 120);
+        batch.add(4, 1000, "ECG", 0.123456789);
+
+        List<String> lines = new ArrayList<>();
+        OutputStrategy output = (patientId, timestamp, label, data) -> lines.add(label + "=" + data);
+        output.outputBatch(batch);
+        assertEquals(List.of("Saturation=" + Double.toString(97) + "%", "SystolicPressure=" + Double.toString(120),
+                "ECG=" + Double.toString(0.123456789)), lines);
+        assertEquals("97.0%", batch.appendData(0, new StringBuilder()).toString());
+    }
+
+    @Test
+    @DisplayName("Every patient of the range gets its samples at one timestamp")
+    void testRanges() {
+        int patients = 1000;
+        Map<String, Integer> counts = new HashMap<>();
+        List<PatientDataGenerator> generators = List.of(new ECGDataGenerator(patients),
+                new BloodSaturationDataGenerator(patients), new BloodPressureDataGenerator(patients),
+                new BloodLevelsDataGenerator(patients));
+        for (PatientDataGenerator generator : generators) {
+            List<String[]> samples = collect(generator, 101, 601);
+            for (String[] sample : samples) {
+                int patientId = Integer.parseInt(sample[0]);
+                assertTrue(patientId >= 101 && patientId < 601);
+                assertEquals(samples.get(0)[1], sample[1]);
+                counts.merge(sample[2], 1, Integer::sum);
+            }
+        }
+        for (String label : List.of("ECG", "Saturation", "SystolicPressure", "DiastolicPressure", "Cholesterol",
+                "WhiteBloodCells", "RedBloodCells")) {
+            assertEquals(500, counts.get(label), label);
+        }
+    }
+
+    @Test
+    @DisplayName("Batched generation keeps values in their ranges")
+    void testValues() {
+        BloodSaturationDataGenerator saturation = new BloodSaturationDataGenerator(200);
+        BloodPressureDataGenerator pressure = new BloodPressureDataGenerator(200);
+        for (int round = 0; round < 200; round++) {
+            for (String[] sample : collect(saturation, 1, 201)) {
+                assertTrue(sample[3].endsWith("%"));
+                double value = Double.parseDouble(sample[3].substring(0, sample[3].length() - 1));
+                assertTrue(value >= 90 && value <= 100, sample[3]);
+            }
+            for (String[] sample : collect(pressure, 1, 201)) {
+                double value = Double.parseDouble(sample[3]);
+                if (sample[2].equals("SystolicPressure")) {
+                    assertTrue(value >= 90 && value <= 180, sample[3]);
+                } else {
+                    assertTrue(value >= 60 && value <= 120, sample[3]);
+                }
+            }
+        }
+        for (String[] sample : collect(new ECGDataGenerator(200), 1, 201)) {
+            assertTrue(Math.abs(Double.parseDouble(sample[3])) < 1, sample[3]);
+        }
+    }
+
+    /**
+     * Runs equally seeded generators on a simulated clock for a number of rounds and returns
+     * every patient's samples by label.
+     */
+    private static Map<String, List<String>> replay(long seed, boolean batched) {
+        int patients = 300;
+        long[] time = {1_000_000};
+        LongSupplier clock = () -> time[0];
+        SplittableRandom seeds = new SplittableRandom(seed);
+        List<PatientDataGenerator> generators = List.of(new ECGDataGenerator(patients, seeds.split(), clock),
+                new BloodSaturationDataGenerator(patients, seeds.split(), clock),
+                new BloodPressureDataGenerator(patients, seeds.split(), clock),
+                new BloodLevelsDataGenerator(patients, seeds.split(), clock),
+                new AlertGenerator(patients, seeds.split(), clock));
+        Map<String, List<String>> data = new HashMap<>();
+        OutputStrategy output = (patientId, timestamp, label, value) -> data
+                .computeIfAbsent(patientId + " " + label, key -> new ArrayList<>()).add(timestamp + " " + value);
+        for (int round = 0; round < 50; round++, time[0] += 1000) {
+            for (PatientDataGenerator generator : generators) {
+                if (batched) {
+                    generator.generateBatch(1, 101, output);
+                    generator.generateBatch(101, patients + 1, output);
+                } else {
+                    for (int patientId = patients; patientId >= 1; patientId--) {
+                        generator.generate(patientId, output);
+                    }
+                }
+            }
+        }
+        return data;
+    }
+
+    @Test
+    @DisplayName("Equally seeded generators replay the same data, however patients are batched")
+    void testSeededReplay() {
+        Map<String, List<String>> batched = replay(42, true);
+        assertEquals(batched, replay(42, false));
+        assertEquals(300 * 7, batched.keySet().stream().filter(key -> !key.endsWith("Alert")).count());
+        assertNotEquals(batched, replay(43, true));
+    }
+
+    /**
+     * Runs the simulator for ten simulated minutes and returns every output file's lines, in
+     * the order they were written.
+     */
+    private Map<String, List<String>> simulate(String name, long seed) throws IOException {
+        Path output = directory.resolve(name);
+        HealthDataSimulator.run(new String[] {"--patient-count", "20", "--workers", "1", "--seed", "" + seed,
+                "--speed", "max", "--start-time", "0", "--duration", "10", "--output", "file:" + output});
+        Map<String, List<String>> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(output)) {
+            for (Path file : stream) {
+                files.put(file.getFileName().toString(), Files.readAllLines(file));
+            }
+        }
+        return files;
+    }
+
+    @Test
+    @DisplayName("Equally seeded simulator runs write the same output in the same order")
+    void testSimulatorReplay() throws IOException {
+        Map<String, List<String>> first = simulate("first", 42);
+        assertEquals(first, simulate("second", 42));
+        assertEquals(20 * 600, first.get("ECG.txt").size());
+        assertEquals(8, first.size());
+        assertNotEquals(first, simulate("third", 43));
+    }
+
+    @Test
+    @DisplayName("File output writes batches as single samples")
+    void testFileOutput() throws IOException {
+        SampleBatch batch = new SampleBatch(4);
+        batch.add(1, 1000, "Saturation", 97, "%");
+        batch.add(1, 1000, "SystolicPressure", 120);
+        batch.add(2, 1000, "Saturation", 95, "%");
+
+        FileOutputStrategy batched = new FileOutputStrategy(directory.resolve("batched").toString());
+        batched.outputBatch(batch);
+        FileOutputStrategy single = new FileOutputStrategy(directory.resolve("single").toString());
+        for (int i = 0; i < batch.size(); i++) {
+            single.output(batch.getPatientId(i), batch.getTimestamp(i), batch.getLabel(i), batch.getData(i));
+        }
+        for (String file : List.of("Saturation.txt", "SystolicPressure.txt")) {
+            assertEquals(Files.readAllLines(directory.resolve("single").resolve(file)),
+                    Files.readAllLines(directory.resolve("batched").resolve(file)));
+        }
+        assertEquals(2, Files.readAllLines(directory.resolve("batched").resolve("Saturation.txt")).size());
+    }
+}
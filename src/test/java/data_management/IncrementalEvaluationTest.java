@@ -0,0 +1,126 @@
+package data_management;
+
+import static data_management.AlertTestFixtures.batchAlerts;
+import static data_management.AlertTestFixtures.describe;
+import static data_management.AlertTestFixtures.randomRecords;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.alerts.Alert;
+import com.alerts.AlertGenerator;
+import com.alerts.AlertStrategy;
+import com.alerts.BloodPressureStrategy;
+import com.alerts.HeartRateStrategy;
+import com.alerts.HypotensiveHypoxiaStrategy;
+import com.alerts.OxygenSaturationStrategy;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+
+/**
+ * Differential test: incremental evaluation must raise exactly the alerts that batch
+ * evaluation finds when it is re-run from the record after each alert.
+ */
+class IncrementalEvaluationTest {
+
+    private DataStorage storage;
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        DataStorage.setInstance(null);
+        storage = DataStorage.getInstance();
+        patient = new Patient(1);
+    }
+
+    private List<String> incrementalAlerts(AlertStrategy strategy, List<PatientRecord> records, long seed) {
+        AlertGenerator alertGenerator = new AlertGenerator(storage);
+        alertGenerator.setAlertStrategy(strategy);
+        Random random = new Random(seed);
+        int added = 0;
+        while (added < records.size()) {
+            int chunk = Math.min(records.size() - added, 1 + random.nextInt(20));
+            for (PatientRecord record : records.subList(added, added + chunk)) {
+                storage.addPatientData(record.getPatientId(), record.getMeasurementValue(), record.getRecordType(),
+                        record.getTimestamp());
+            }
+            added += chunk;
+            alertGenerator.evaluateNewData(patient);
+        }
+        List<String> alerts = new ArrayList<>();
+        for (Alert alert : alertGenerator.getAllAlerts()) {
+            alerts.add(describe(alert));
+        }
+        return alerts;
+    }
+
+    private void assertSameAlerts(AlertStrategy batchStrategy, AlertStrategy incrementalStrategy, long seed) {
+        List<PatientRecord> records = randomRecords(seed, 2000, 1714376789050L, 60000);
+        List<String> expected = batchAlerts(batchStrategy, patient, records);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, incrementalAlerts(incrementalStrategy, records, seed));
+    }
+
+    @Test
+    @DisplayName("Blood pressure incremental matches batch")
+    void testBloodPressure() {
+        assertSameAlerts(new BloodPressureStrategy(), new BloodPressureStrategy(), 1);
+    }
+
+    @Test
+    @DisplayName("Oxygen saturation incremental matches batch")
+    void testOxygenSaturation() {
+        assertSameAlerts(new OxygenSaturationStrategy(), new OxygenSaturationStrategy(), 2);
+    }
+
+    @Test
+    @DisplayName("Heart rate incremental matches batch")
+    void testHeartRate() {
+        assertSameAlerts(new HeartRateStrategy(), new HeartRateStrategy(), 3);
+    }
+
+    @Test
+    @DisplayName("Hypotensive hypoxia incremental matches batch")
+    void testHypotensiveHypoxia() {
+        assertSameAlerts(new HypotensiveHypoxiaStrategy(), new HypotensiveHypoxiaStrategy(), 4);
+    }
+
+    @Test
+    @DisplayName("Already evaluated records are not evaluated again")
+    void testOnlyNewRecordsAreEvaluated() {
+        AlertGenerator alertGenerator = new AlertGenerator(storage);
+        alertGenerator.setAlertStrategy(new OxygenSaturationStrategy());
+        storage.addPatientData(1, 88, "Saturation", 1000L);
+        alertGenerator.evaluateNewData(patient);
+        alertGenerator.evaluateNewData(patient);
+        assertEquals(1, alertGenerator.getAllAlerts().size());
+
+        storage.addPatientData(1, 97, "Saturation", 2000L);
+        alertGenerator.evaluateNewData(patient);
+        assertEquals(1, alertGenerator.getAllAlerts().size());
+    }
+
+    @Test
+    @DisplayName("Only patients with new relevant data are evaluated")
+    void testEvaluateDirtyPatients() {
+        AlertGenerator alertGenerator = new AlertGenerator(storage);
+        alertGenerator.setAlertStrategy(new OxygenSaturationStrategy());
+        storage.addPatientData(1, 88, "Saturation", 1000L);
+        storage.addPatientData(2, 97, "Saturation", 1000L);
+        storage.addPatientData(3, 120, "SystolicPressure", 1000L);
+        assertEquals(2, alertGenerator.evaluateDirtyPatients());
+        assertEquals(1, alertGenerator.getAllAlerts().size());
+        assertEquals(0, alertGenerator.evaluateDirtyPatients());
+
+        storage.addPatientData(2, 88, "Saturation", 2000L);
+        assertEquals(1, alertGenerator.evaluateDirtyPatients());
+        assertEquals(2, alertGenerator.getAllAlerts().size());
+    }
+}
@@ -0,0 +1,113 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.alerts.AlertGenerator;
+import com.alerts.OxygenSaturationStrategy;
+import com.data_management.DataStorage;
+import com.data_management.LatencyHistogram;
+import com.data_management.LatencyMetrics;
+import com.data_management.LatencyMetrics.Stage;
+import com.data_management.Patient;
+import com.data_management.RecordBatch;
+import com.data_management.RecordParser;
+
+class LatencyMetricsTest {
+
+    @AfterEach
+    void tearDown() {
+        LatencyMetrics.getInstance().reset();
+        DataStorage.setInstance(null);
+    }
+
+    @Test
+    @DisplayName("Percentiles are accurate to within a bucket")
+    void testHistogramAccuracy() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(50_000_500, snapshot.getMean(), 1);
+        assertEquals(50_000_000, snapshot.getValueAtPercentile(50), 50_000_000 / 64.0);
+        assertEquals(99_000_000, snapshot.getValueAtPercentile(99), 99_000_000 / 64.0);
+        assertTrue(snapshot.getValueAtPercentile(50) >= 50_000_000);
+        assertEquals(100_000_000, snapshot.getMax(), 100_000_000 / 64.0);
+
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot later = histogram.snapshot();
+        LatencyHistogram.Snapshot interval = later.minus(snapshot);
+        assertEquals(2, interval.getCount());
+        assertEquals(0, interval.getValueAtPercentile(50));
+        assertTrue(interval.getMax() > 1e12);
+    }
+
+    @Test
+    @DisplayName("Concurrent recordings are all counted")
+    void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200_000, histogram.snapshot().getCount());
+    }
+
+    @Test
+    @DisplayName("Every stage from parse to alert is measured from ingest")
+    void testPipelineStages() {
+        LatencyMetrics metrics = LatencyMetrics.getInstance();
+        metrics.reset();
+        DataStorage.setInstance(null);
+        DataStorage storage = DataStorage.getInstance();
+        AlertGenerator alertGenerator = new AlertGenerator(storage);
+        alertGenerator.setAlertStrategy(new OxygenSaturationStrategy());
+
+        long now = System.currentTimeMillis();
+        byte[] bytes = ("Patient ID: 1, Timestamp: " + (now - 2) + ", Label: Saturation, Data: 97%\n"
+                + "Patient ID: 1, Timestamp: " + (now - 1) + ", Label: Saturation, Data: 90%\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        RecordBatch batch = new RecordBatch(2);
+        batch.setIngestNanos(System.nanoTime());
+        new RecordParser().parse(ByteBuffer.wrap(bytes), 0, bytes.length, batch, true);
+        storage.addPatientData(batch);
+        alertGenerator.evaluateNewData(new Patient(1));
+
+        assertEquals(1, alertGenerator.getAllAlerts().size());
+        Map<Stage, LatencyHistogram.Snapshot> snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.get(Stage.PARSE).getCount());
+        assertEquals(2, snapshot.get(Stage.STORE).getCount());
+        assertEquals(2, snapshot.get(Stage.EVALUATE).getCount());
+        assertEquals(1, snapshot.get(Stage.ALERT).getCount());
+        assertEquals(1, snapshot.get(Stage.SOURCE_TO_ALERT).getCount());
+        // Later stages include the earlier ones.
+        assertTrue(snapshot.get(Stage.EVALUATE).getMax() >= snapshot.get(Stage.PARSE).getMax());
+
+        metrics.setEnabled(false);
+        try {
+            storage.addPatientData(1, 89, "Saturation", now);
+            alertGenerator.evaluateNewData(new Patient(1));
+            assertEquals(2, metrics.snapshot().get(Stage.STORE).getCount());
+        } finally {
+            metrics.setEnabled(true);
+        }
+    }
+}
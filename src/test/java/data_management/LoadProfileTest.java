@@ -0,0 +1,199 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cardio_generator.HealthDataSimulator;
+import com.cardio_generator.LoadProfile;
+import com.cardio_generator.PatientPopulation;
+import com.cardio_generator.SimulationScheduler;
+import com.cardio_generator.generators.ECGWaveformGenerator;
+import com.cardio_generator.generators.ECGWaveformGenerator.Arrhythmia;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+
+class LoadProfileTest {
+
+    private static final String PROFILE = String.join("\n",
+            "# Morning admissions",
+            "patients 0s 10",
+            "patients 60s 50    # ramp up over a minute",
+            "patients 2m 50",
+            "patients 3m 20",
+            "burst every 30s for 5s x3",
+            "churn 30 per 1m",
+            "rate Saturation 2");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Patient counts are interpolated and rates include the bursts")
+    void testProfile() {
+        LoadProfile profile = LoadProfile.parse(PROFILE);
+        assertEquals(10, profile.getPatientCount(0));
+        assertEquals(30, profile.getPatientCount(30_000));
+        assertEquals(50, profile.getPatientCount(90_000));
+        assertEquals(35, profile.getPatientCount(150_000));
+        assertEquals(20, profile.getPatientCount(3_600_000));
+        assertEquals(50, profile.getMaxPatientCount());
+
+        assertEquals(3, profile.getRate("ECG", 2_000));
+        assertEquals(1, profile.getRate("ECG", 10_000));
+        assertEquals(6, profile.getRate("Saturation", 31_000));
+        assertEquals(2, profile.getRate("Saturation", 40_000));
+        assertEquals(6, profile.getMaxRate("Saturation"));
+        assertEquals(30.0 / 60_000, profile.getChurnPerMilli(), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Malformed profiles are rejected with the line at fault")
+    void testErrors() {
+        assertEquals("Line 2: unknown metric 'Pulse'; expected one of",
+                assertThrows(IllegalArgumentException.class,
+                        () -> LoadProfile.parse("patients 0s 1\nrate Pulse 2")).getMessage().split(" \\[")[0]);
+        assertTrue(assertThrows(IllegalArgumentException.class,
+                () -> LoadProfile.parse("patients 10 5")).getMessage().startsWith("Line 1: expected a duration"));
+        assertTrue(assertThrows(IllegalArgumentException.class,
+                () -> LoadProfile.parse("patients 0s 5\nburst every 1m for 2m x2")).getMessage().startsWith("Line 2"));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.parse("churn 5 per 1h"));
+    }
+
+    @Test
+    @DisplayName("The population follows the profile's ramp, churn and rates")
+    void testPopulation() {
+        SimulationScheduler scheduler = new SimulationScheduler(10, Runnable::run);
+        scheduler.setStartTimeMillis(0);
+        PatientPopulation population = new PatientPopulation(LoadProfile.parse(PROFILE), scheduler,
+                scheduler::currentTimeMillis, new SplittableRandom(1));
+        Map<String, Integer> samples = new HashMap<>();
+        Set<Integer> patients = new HashSet<>();
+        OutputStrategy output = (patientId, timestamp, label, data) -> {
+            assertTrue(patientId > 0);
+            patients.add(patientId);
+            samples.merge(label, 1, Integer::sum);
+        };
+        for (String label : new String[] {"ECG", "Saturation"}) {
+            PatientDataGenerator generator = (patientId, out) -> {
+                assertTrue(patientId >= 1 && patientId <= population.getCapacity());
+                out.output(patientId, scheduler.currentTimeMillis(), label, "1");
+            };
+            population.schedule(label, generator, 1000, output);
+        }
+        population.start();
+        assertEquals(10, population.getPatientCount());
+
+        scheduler.advance(6_000); // One minute
+        assertEquals(50, population.getPatientCount());
+        assertEquals(30, population.getDischargeCount(), 1);
+        assertEquals(50 + population.getDischargeCount(), population.getAdmissionCount());
+        // Patients discharged within a second of their admission may have no samples.
+        assertTrue(patients.size() > 70 && patients.size() <= population.getAdmissionCount());
+        // Outside bursts, Saturation is generated twice as often as ECG.
+        assertEquals(2, (double) samples.get("Saturation") / samples.get("ECG"), 0.05);
+
+        samples.clear();
+        scheduler.advance(500); // Five seconds of the burst at one minute
+        assertEquals(3 * 5 * 50, samples.get("ECG"), 10);
+        samples.clear();
+        scheduler.advance(1_000); // Ten seconds without a burst
+        assertEquals(10 * 50, samples.get("ECG"), 10);
+
+        scheduler.advance(18_000); // Three more minutes
+        assertEquals(20, population.getPatientCount());
+    }
+
+    private Map<String, List<String>> simulate(String name, int workers) throws IOException {
+        Path profile = Files.writeString(directory.resolve(name + ".profile"), PROFILE);
+        Path output = directory.resolve(name);
+        HealthDataSimulator.run(new String[] {"--load-profile", profile.toString(), "--workers", "" + workers,
+                "--seed", "7", "--speed", "max", "--start-time", "0", "--duration", "90",
+                "--output", "file:" + output});
+        Map<String, List<String>> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(output)) {
+            for (Path file : stream) {
+                // Workers may write the samples of one tick in any order.
+                List<String> lines = Files.readAllLines(file);
+                lines.sort(null);
+                files.put(file.getFileName().toString(), lines);
+            }
+        }
+        return files;
+    }
+
+    @Test
+    @DisplayName("A seeded run with a load profile writes the same samples for any number of workers")
+    void testWorkerCounts() throws IOException {
+        Map<String, List<String>> single = simulate("single", 1);
+        Map<String, List<String>> several = simulate("several", 3);
+        assertEquals(single.keySet(), several.keySet());
+        for (String file : single.keySet()) {
+            assertTrue(single.get(file).equals(several.get(file)), file + " differs");
+        }
+        assertTrue(single.get("ECG.txt").size() > 20 * 90);
+    }
+
+    @Test
+    @DisplayName("A waveform restarts at the admission of the patient taking over its slot")
+    void testWaveformReadmission() {
+        SimulationScheduler scheduler = new SimulationScheduler(10, Runnable::run);
+        scheduler.setStartTimeMillis(0);
+        PatientPopulation population = new PatientPopulation(LoadProfile.parse("patients 0s 5\nchurn 60 per 1m"),
+                scheduler, scheduler::currentTimeMillis, new SplittableRandom(3));
+        ECGWaveformGenerator generator = new ECGWaveformGenerator(population.getCapacity(), 100, new Arrhythmia[0],
+                0, new SplittableRandom(4), scheduler::currentTimeMillis);
+        Map<Integer, Long> admitted = new HashMap<>();
+        Map<Integer, Long> firstSample = new HashMap<>();
+        population.schedule("ECG", generator, 1000, (patientId, timestamp, label, data) -> {
+            firstSample.merge(patientId, timestamp, Math::min);
+        });
+        population.start();
+        // Patient IDs are given in order of admission, by the control task before the tick's batches.
+        while (true) {
+            for (int id = admitted.size() + 1; id <= population.getAdmissionCount(); id++) {
+                admitted.put(id, scheduler.currentTimeMillis());
+            }
+            if (scheduler.getCurrentTick() == 12_000) {
+                break;
+            }
+            scheduler.advance(1);
+        }
+        assertTrue(population.getAdmissionCount() > population.getCapacity());
+        for (Map.Entry<Integer, Long> first : firstSample.entrySet()) {
+            assertTrue(first.getValue() >= admitted.get(first.getKey()), "patient " + first.getKey());
+        }
+    }
+
+    @Test
+    @DisplayName("A profile setting the ECG rate is rejected with a waveform ECG")
+    void testWaveformRate() throws IOException {
+        assertEquals(2, LoadProfile.parse("patients 0s 10\nrate ECG 2").getRateMultiplier("ECG"));
+        assertEquals(1, LoadProfile.parse("patients 0s 10\nrate ECG 2").getRateMultiplier("Saturation"));
+
+        Path profile = Files.writeString(directory.resolve("ecg.profile"), "patients 0s 10\nrate ECG 2");
+        Path output = directory.resolve("waveform");
+        HealthDataSimulator.run(new String[] {"--load-profile", profile.toString(), "--ecg-rate", "50",
+                "--patient-count", "3", "--workers", "1", "--seed", "1", "--speed", "max", "--start-time", "0",
+                "--duration", "1", "--output", "file:" + output});
+        Set<String> patients = new HashSet<>();
+        for (String line : Files.readAllLines(output.resolve("ECG.txt"))) {
+            patients.add(line.split(",")[0]);
+        }
+        assertEquals(Set.of("Patient ID: 1", "Patient ID: 2", "Patient ID: 3"), patients);
+    }
+}
@@ -0,0 +1,104 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cardio_generator.outputs.FileOutputStrategy;
+import com.data_management.DataStorage;
+import com.data_management.OutputFileDataReader;
+import com.data_management.PatientRecord;
+
+class OutputFileDataReaderTest {
+
+    @TempDir
+    Path outputDir;
+
+    private DataStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        DataStorage.setInstance(null);
+        storage = DataStorage.getInstance();
+    }
+
+    @Test
+    @DisplayName("Read the format written by FileOutputStrategy")
+    void testReadFileOutputStrategyFormat() throws IOException {
+        FileOutputStrategy output = new FileOutputStrategy(outputDir.toString());
+        output.output(1, 1714376789050L, "Saturation", "97.0%");
+        output.output(2, 1714376789051L, "Saturation", "91.0%");
+
+        new OutputFileDataReader(outputDir.toString(), "Saturation").readData(storage);
+
+        List<PatientRecord> records = storage.getRecords(1, 0, Long.MAX_VALUE);
+        assertEquals(1, records.size());
+        assertEquals(97.0, records.get(0).getMeasurementValue());
+        assertEquals("Saturation", records.get(0).getRecordType());
+        assertEquals(1714376789050L, records.get(0).getTimestamp());
+        assertEquals(91.0, storage.getRecords(2, 0, Long.MAX_VALUE).get(0).getMeasurementValue());
+    }
+
+    @Test
+    @DisplayName("Read comma separated lines and skip malformed ones")
+    void testReadCommaSeparatedFormat() throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(outputDir.resolve("ECG.txt")))) {
+            out.println("3, 1714376789050, ECG, -0.125");
+            out.println("3,1714376789051,ECG,1.5E-3");
+            out.println("corrupted,data");
+            out.print("3,1714376789052,ECG,0.25"); // no trailing newline
+        }
+        OutputFileDataReader reader = new OutputFileDataReader(outputDir.toString(), "ECG");
+        reader.readData(storage);
+
+        List<PatientRecord> records = storage.getRecords(3, 0, Long.MAX_VALUE);
+        assertEquals(3, records.size());
+        assertEquals(-0.125, records.get(0).getMeasurementValue());
+        assertEquals(0.0015, records.get(1).getMeasurementValue());
+        assertEquals(0.25, records.get(2).getMeasurementValue());
+        assertEquals(1, reader.getMalformedLineCount());
+
+        // The count is that of the last read only.
+        reader.readData(DataStorage.createDetached(), 2);
+        assertEquals(1, reader.getMalformedLineCount());
+    }
+
+    @Test
+    @DisplayName("Parallel read keeps file order")
+    void testParallelReadKeepsOrder() throws IOException {
+        int lines = 200_000;
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(outputDir.resolve("ECG.txt")))) {
+            for (int i = 0; i < lines; i++) {
+                out.printf("Patient ID: %d, Timestamp: %d, Label: ECG, Data: %s%n",
+                        i % 10 + 1, 1714376789050L + i, Double.toString(i * 0.001));
+            }
+        }
+
+        new OutputFileDataReader(outputDir.toString(), "ECG").readData(storage, 4);
+
+        assertEquals(10, storage.getAllPatients().size());
+        List<PatientRecord> records = storage.getRecords(7, 0, Long.MAX_VALUE);
+        assertEquals(lines / 10, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            int line = i * 10 + 6;
+            assertEquals(1714376789050L + line, records.get(i).getTimestamp());
+            assertEquals(line * 0.001, records.get(i).getMeasurementValue());
+        }
+    }
+
+    @Test
+    @DisplayName("Missing file")
+    void testMissingFile() {
+        OutputFileDataReader reader = new OutputFileDataReader(outputDir.toString(), "Cholesterol");
+        assertThrows(IOException.class, () -> reader.readData(storage));
+    }
+}
@@ -2,6 +2,7 @@ package data_management;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.DisplayName;
@@ -23,4 +24,51 @@ public class PatientTest {
         List<PatientRecord> allRecords = patient.getRecords(1714376789050L,1714376789051L);
         assertEquals(4,allRecords.size());
     }
+
+    @Test
+    @DisplayName("Records are retrieved by type and time range")
+    void testGetRecordsByType() {
+        Patient patient = new Patient(1);
+        for (int i = 0; i < 100; i++) {
+            patient.addRecord(i, i % 2 == 0 ? "ECG" : "Saturation", 1000 + i);
+        }
+        List<PatientRecord> ecg = patient.getRecords("ECG", 1010, 1020);
+        assertEquals(6, ecg.size());
+        assertEquals(1010, ecg.get(0).getTimestamp());
+        assertEquals(1020, ecg.get(5).getTimestamp());
+        assertEquals(0, patient.getRecords("Cholesterol", 0, Long.MAX_VALUE).size());
+
+        // A late record makes the series unsorted; it must still be found.
+        patient.addRecord(-1, "ECG", 1015);
+        assertEquals(7, patient.getRecords("ECG", 1010, 1020).size());
+        assertEquals(12, patient.getRecords(1010, 1020).size());
+    }
+
+    @Test
+    @DisplayName("New records of several types are returned in insertion order")
+    void testGetRecordsFromTypes() {
+        Patient patient = new Patient(1);
+        String[] types = {"ECG", "Cholesterol", "Saturation", "SystolicPressure"};
+        for (int i = 0; i < 40; i++) {
+            patient.addRecord(i, types[i % types.length], 1000 - i);
+        }
+        String[] wanted = {"Saturation", "ECG"};
+        int[] cursors = new int[wanted.length];
+        List<PatientRecord> first = patient.getRecordsFrom(wanted, cursors);
+        assertEquals(20, first.size());
+        List<Double> values = new ArrayList<>();
+        for (PatientRecord record : first) {
+            values.add(record.getMeasurementValue());
+        }
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(i / 2 * 4 + (i % 2) * 2, values.get(i), 0);
+        }
+
+        patient.addRecord(100, "Cholesterol", 0);
+        patient.addRecord(101, "ECG", 0);
+        List<PatientRecord> next = patient.getRecordsFrom(wanted, cursors);
+        assertEquals(1, next.size());
+        assertEquals(101, next.get(0).getMeasurementValue(), 0);
+        assertEquals(0, patient.getRecordsFrom(wanted, cursors).size());
+    }
 }
@@ -0,0 +1,109 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.alerts.AlertEvaluator;
+import com.alerts.HeartRateStrategy;
+import com.alerts.QrsDetector;
+import com.data_management.PatientRecord;
+
+class QrsDetectorTest {
+
+    private static final int SAMPLE_RATE = 250;
+
+    /**
+     * Synthesizes an ECG with P, QRS and T waves as gaussians around the given beat times,
+     * plus baseline wander and noise.
+     */
+    private static double[] ecg(List<Double> beatSeconds, double seconds, long seed) {
+        Random random = new Random(seed);
+        double[] samples = new double[(int) (seconds * SAMPLE_RATE)];
+        for (int i = 0; i < samples.length; i++) {
+            double t = (double) i / SAMPLE_RATE;
+            double value = 0.1 * Math.sin(2 * Math.PI * 0.3 * t) + 0.02 * random.nextGaussian();
+            for (double beat : beatSeconds) {
+                double dt = t - beat;
+                if (Math.abs(dt) < 0.5) {
+                    value += 0.15 * Math.exp(-Math.pow((dt + 0.16) / 0.025, 2))
+                            + 1.2 * Math.exp(-Math.pow(dt / 0.01, 2))
+                            - 0.2 * Math.exp(-Math.pow((dt - 0.02) / 0.008, 2))
+                            + 0.3 * Math.exp(-Math.pow((dt - 0.25) / 0.05, 2));
+                }
+            }
+            samples[i] = value;
+        }
+        return samples;
+    }
+
+    private static List<Double> regularBeats(double bpm, double seconds) {
+        List<Double> beats = new ArrayList<>();
+        for (double t = 0.5; t < seconds; t += 60 / bpm) {
+            beats.add(t);
+        }
+        return beats;
+    }
+
+    private static List<String> evaluate(double[] samples) {
+        AlertEvaluator evaluator = new HeartRateStrategy(SAMPLE_RATE).createEvaluator();
+        List<String> conditions = new ArrayList<>();
+        for (int i = 0; i < samples.length; i++) {
+            PatientRecord record = new PatientRecord(1, samples[i], "ECG", 1_000_000L + i * 1000L / SAMPLE_RATE);
+            evaluator.evaluate(record, alert -> {
+                if (!"SignificantEcgPeak".equals(alert.getCondition())) {
+                    conditions.add(alert.getCondition());
+                }
+            });
+        }
+        return conditions;
+    }
+
+    @Test
+    @DisplayName("Beats and heart rate are detected in a noisy ECG")
+    void testHeartRate() {
+        double[] samples = ecg(regularBeats(72, 30), 30, 1);
+        QrsDetector detector = new QrsDetector(SAMPLE_RATE);
+        for (int i = 0; i < samples.length; i++) {
+            detector.addSample(samples[i], i * 1000L / SAMPLE_RATE);
+        }
+        // 36 beats; the two-second learning phase misses the first two or three.
+        assertTrue(detector.getBeatCount() >= 32 && detector.getBeatCount() <= 36, "" + detector.getBeatCount());
+        assertEquals(72, detector.getHeartRate(), 2);
+        assertEquals(833, detector.getLastRrInterval(), 12);
+    }
+
+    @Test
+    @DisplayName("A normal rhythm raises no rhythm alert")
+    void testNormalRhythm() {
+        assertEquals(List.of(), evaluate(ecg(regularBeats(75, 60), 60, 2)));
+    }
+
+    @Test
+    @DisplayName("Slow and fast rhythms are flagged")
+    void testBradycardiaAndTachycardia() {
+        assertTrue(evaluate(ecg(regularBeats(40, 40), 40, 3)).contains("Bradycardia"));
+        assertTrue(evaluate(ecg(regularBeats(150, 20), 20, 4)).contains("Tachycardia"));
+    }
+
+    @Test
+    @DisplayName("A premature beat is flagged as irregular")
+    void testIrregularHeartbeat() {
+        List<Double> beats = regularBeats(60, 30);
+        beats.add(15.85); // a premature beat between 15.5 and 16.5
+        beats.sort(null);
+        assertEquals(List.of("IrregularHeartbeat"), evaluate(ecg(beats, 30, 5)));
+    }
+
+    @Test
+    @DisplayName("Sample rates too low for the filters are rejected")
+    void testSampleRateValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new QrsDetector(10));
+        assertThrows(IllegalArgumentException.class, () -> new HeartRateStrategy(Double.NaN));
+    }
+}
@@ -0,0 +1,121 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.ReorderBuffer;
+
+class ReorderBufferTest {
+
+    private final List<PatientRecord> released = new ArrayList<>();
+    private final AtomicLong clock = new AtomicLong(0);
+    private ReorderBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new ReorderBuffer(100, 16,
+                (patientId, value, type, timestamp) -> released.add(new PatientRecord(patientId, value, type, timestamp)),
+                clock::get);
+    }
+
+    private List<Long> releasedTimestamps() {
+        List<Long> timestamps = new ArrayList<>();
+        for (PatientRecord record : released) {
+            timestamps.add(record.getTimestamp());
+        }
+        return timestamps;
+    }
+
+    @Test
+    @DisplayName("Out of order data is released in timestamp order")
+    void testReordering() {
+        buffer.offer(1, 95, "Saturation", 1000);
+        buffer.offer(1, 94, "Saturation", 1050);
+        buffer.offer(1, 96, "Saturation", 1020);
+        assertTrue(released.isEmpty());
+
+        buffer.offer(1, 93, "Saturation", 1200);
+        assertEquals(List.of(1000L, 1020L, 1050L), releasedTimestamps());
+
+        buffer.flushAll();
+        assertEquals(List.of(1000L, 1020L, 1050L, 1200L), releasedTimestamps());
+    }
+
+    @Test
+    @DisplayName("Exact duplicates and late data are dropped")
+    void testDuplicatesAndLateData() {
+        buffer.offer(1, 120, "SystolicPressure", 1000);
+        buffer.offer(1, 120, "SystolicPressure", 1000); // buffered duplicate
+        buffer.offer(1, 121, "SystolicPressure", 1000); // same time, different value
+        buffer.offer(1, 122, "SystolicPressure", 1200);
+        buffer.offer(1, 120, "SystolicPressure", 1000); // duplicate of released data
+        buffer.offer(1, 119, "SystolicPressure", 900); // older than released data
+        buffer.flushAll();
+
+        assertEquals(List.of(1000L, 1000L, 1200L), releasedTimestamps());
+        assertEquals(2, buffer.getDuplicateCount());
+        assertEquals(1, buffer.getLateCount());
+    }
+
+    @Test
+    @DisplayName("Series are independent per patient and type")
+    void testSeriesAreIndependent() {
+        buffer.offer(1, 0.5, "ECG", 1000);
+        buffer.offer(2, 0.5, "ECG", 1000);
+        buffer.offer(1, 120, "SystolicPressure", 1000);
+        buffer.offer(1, 0.6, "ECG", 2000);
+        assertEquals(1, released.size());
+        assertEquals("ECG", released.get(0).getRecordType());
+        assertEquals(1, released.get(0).getPatientId());
+    }
+
+    @Test
+    @DisplayName("Quiet series are released after the lateness")
+    void testFlushExpired() {
+        buffer.offer(1, 95, "Saturation", 1000);
+        clock.set(50);
+        buffer.offer(1, 96, "Saturation", 1010);
+        clock.set(120);
+        buffer.flushExpired();
+        assertEquals(List.of(1000L), releasedTimestamps());
+        clock.set(200);
+        buffer.flushExpired();
+        assertEquals(List.of(1000L, 1010L), releasedTimestamps());
+    }
+
+    @Test
+    @DisplayName("Buffer size is bounded")
+    void testBoundedBuffer() {
+        for (int i = 0; i < 40; i++) {
+            buffer.offer(1, i, "ECG", 1000 + i);
+        }
+        assertEquals(24, released.size());
+    }
+
+    @Test
+    @DisplayName("DataStorage stores reordered data")
+    void testDataStorageReordering() {
+        DataStorage.setInstance(null);
+        DataStorage storage = DataStorage.getInstance();
+        storage.enableReordering(10_000);
+        storage.addPatientData(1, 95, "Saturation", 1020);
+        storage.addPatientData(1, 95, "Saturation", 1020);
+        storage.addPatientData(1, 96, "Saturation", 1000);
+        assertTrue(storage.getRecords(1, 0, Long.MAX_VALUE).isEmpty());
+
+        storage.disableReordering();
+        List<PatientRecord> records = storage.getRecords(1, 0, Long.MAX_VALUE);
+        assertEquals(2, records.size());
+        assertEquals(1000L, records.get(0).getTimestamp());
+        assertEquals(1020L, records.get(1).getTimestamp());
+    }
+}
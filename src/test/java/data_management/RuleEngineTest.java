@@ -0,0 +1,181 @@
+package data_management;
+
+import static data_management.AlertTestFixtures.describe;
+import static data_management.AlertTestFixtures.evaluate;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.alerts.Alert;
+import com.alerts.AlertEvaluator;
+import com.alerts.AlertGenerator;
+import com.alerts.BloodOxygenAlert;
+import com.alerts.BloodPressureStrategy;
+import com.alerts.HeartRateStrategy;
+import com.alerts.HypotensiveHypoxiaStrategy;
+import com.alerts.IncrementalAlertStrategy;
+import com.alerts.OxygenSaturationStrategy;
+import com.alerts.rules.RuleSet;
+import com.alerts.rules.RuleStrategy;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+
+class RuleEngineTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<PatientRecord> records(String type, double... values) {
+        List<PatientRecord> records = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            records.add(new PatientRecord(1, values[i], type, 1000 + i));
+        }
+        return records;
+    }
+
+    @Test
+    @DisplayName("Default rules raise the same alerts as the hand-written strategies")
+    void testDefaultRulesMatchStrategies() {
+        Random random = new Random(7);
+        List<PatientRecord> records = new ArrayList<>();
+        long timestamp = 1000;
+        for (int i = 0; i < 50_000; i++) {
+            timestamp += 1 + random.nextInt(400_000);
+            switch (random.nextInt(4)) {
+                case 0:
+                    records.add(new PatientRecord(1, 88 + random.nextInt(13), "Saturation", timestamp));
+                    break;
+                case 1:
+                    records.add(new PatientRecord(1, 85 + random.nextInt(100), "SystolicPressure", timestamp));
+                    break;
+                case 2:
+                    records.add(new PatientRecord(1, 55 + random.nextInt(70), "DiastolicPressure", timestamp));
+                    break;
+                default:
+                    records.add(new PatientRecord(1, random.nextGaussian(), "ECG", timestamp));
+                    break;
+            }
+        }
+        List<IncrementalAlertStrategy> strategies = Arrays.asList(new BloodPressureStrategy(),
+                new OxygenSaturationStrategy(), new HeartRateStrategy(), new HypotensiveHypoxiaStrategy());
+        List<AlertEvaluator> evaluators = new ArrayList<>();
+        for (IncrementalAlertStrategy strategy : strategies) {
+            evaluators.add(strategy.createEvaluator());
+        }
+        List<String> expected = new ArrayList<>();
+        for (PatientRecord record : records) {
+            for (AlertEvaluator evaluator : evaluators) {
+                evaluator.evaluate(record, alert -> expected.add(describe(alert)));
+            }
+        }
+
+        List<String> actual = evaluate(new RuleStrategy(RuleSet.loadDefault()).createEvaluator(), records);
+        assertTrue(expected.size() > 1000);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Rules combine metrics with AND, OR and parentheses")
+    void testBooleanCombinations() {
+        RuleSet rules = RuleSet.parse("[BloodOxygen]\n"
+                + "Combined: (Saturation < 92 OR HeartRate > 120) AND SystolicPressure < 100  # comment\n");
+        AlertEvaluator evaluator = new RuleStrategy(rules).createEvaluator();
+        List<PatientRecord> stream = Arrays.asList(
+                new PatientRecord(1, 95, "Saturation", 1),
+                new PatientRecord(1, 90, "SystolicPressure", 2),
+                new PatientRecord(1, 130, "HeartRate", 3),
+                new PatientRecord(1, 80, "HeartRate", 4),
+                new PatientRecord(1, 85, "SystolicPressure", 5),
+                new PatientRecord(1, 91, "Saturation", 6));
+        assertEquals(Arrays.asList("Combined@3", "Combined@6"), evaluate(evaluator, stream));
+        assertEquals(Arrays.asList("Combined"), rules.getConditions());
+    }
+
+    @Test
+    @DisplayName("Windowed averages and rises are evaluated")
+    void testWindows() {
+        RuleSet rules = RuleSet.parse("[ECG]\n"
+                + "HighAverage: HeartRate average 3 > 100\n"
+                + "[ECG]\n"
+                + "Jump: HeartRate rise 30 within 10\n");
+        List<String> alerts = evaluate(new RuleStrategy(rules).createEvaluator(),
+                records("HeartRate", 90, 100, 105, 110, 150, 80));
+        // The average starts over after each alert; the jump is in its own section and still fires.
+        assertEquals(Arrays.asList("HighAverage@1003", "HighAverage@1004", "Jump@1004"), alerts);
+    }
+
+    @Test
+    @DisplayName("Alerts are created by the section's factory")
+    void testFactories() {
+        DataStorage.setInstance(null);
+        DataStorage storage = DataStorage.getInstance();
+        storage.addPatientData(1, 90, "Saturation", 1000);
+        AlertGenerator alertGenerator = new AlertGenerator(storage);
+        alertGenerator.setAlertStrategy(new RuleStrategy(RuleSet.loadDefault()));
+        alertGenerator.evaluateNewData(new Patient(1));
+
+        assertEquals(1, alertGenerator.getAllAlerts().size());
+        Alert alert = alertGenerator.getAlertAt(0);
+        assertTrue(alert instanceof BloodOxygenAlert);
+        assertEquals("LowSaturation", alert.getCondition());
+    }
+
+    @Test
+    @DisplayName("Malformed rules are reported with their line")
+    void testSyntaxErrors() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> RuleSet.parse("[BloodOxygen]\nLowSaturation: Saturation < 92\nBad: Saturation <\n"));
+        assertTrue(e.getMessage().startsWith("Line 3:"), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.parse("[Unknown]\n"));
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.parse("LowSaturation: Saturation < 92\n"));
+        assertThrows(IllegalArgumentException.class,
+                () -> RuleSet.parse("[BloodOxygen]\nX: (Saturation < 92 OR Saturation > 99\n"));
+        assertThrows(IllegalArgumentException.class,
+                () -> RuleSet.parse("[ECG]\nX: ECG peak 1.5 window 0\n"));
+    }
+
+    @Test
+    @DisplayName("Modified rule files are hot-reloaded")
+    void testHotReload() throws Exception {
+        Path file = directory.resolve("alert.rules");
+        Files.write(file, "[BloodOxygen]\nLowSaturation: Saturation < 92\n".getBytes(StandardCharsets.UTF_8));
+        RuleStrategy strategy = new RuleStrategy(file);
+        AlertEvaluator evaluator = strategy.createEvaluator();
+        assertEquals(Arrays.asList("LowSaturation@1000"), evaluate(evaluator, records("Saturation", 91)));
+
+        assertFalse(strategy.reloadIfModified());
+        Files.write(file, "[BloodOxygen]\nLowSaturation: Saturation < 90\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        assertTrue(strategy.reloadIfModified());
+        assertTrue(evaluate(evaluator, records("Saturation", 91)).isEmpty());
+
+        // A broken file keeps the rules in place.
+        Files.write(file, "[BloodOxygen]\nLowSaturation: Saturation <\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 20_000));
+        assertFalse(strategy.reloadIfModified());
+        assertEquals(1, strategy.getReloadFailures());
+        assertEquals(Arrays.asList("LowSaturation@1000"), evaluate(evaluator, records("Saturation", 89)));
+        // ... and is reported once, until it changes again.
+        assertFalse(strategy.reloadIfModified());
+        assertEquals(1, strategy.getReloadFailures());
+        Files.delete(file);
+        assertFalse(strategy.reloadIfModified());
+        assertFalse(strategy.reloadIfModified());
+        assertEquals(2, strategy.getReloadFailures());
+        Files.write(file, "[BloodOxygen]\nLowSaturation: Saturation < 88\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(strategy.reloadIfModified());
+        strategy.close();
+    }
+}
@@ -0,0 +1,158 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.SimulationScheduler;
+
+class SimulationSchedulerTest {
+
+    @Test
+    @DisplayName("Tasks fire at their tick on every level of the wheel")
+    void testDeadlines() {
+        SimulationScheduler scheduler = new SimulationScheduler(1, Runnable::run);
+        long[] delays = {0, 5, 63, 64, 65, 4095, 4096, 4097, 262_143, 262_144, 300_000, (1L << 24) + 5};
+        List<List<Long>> fired = new ArrayList<>();
+        for (long delay : delays) {
+            List<Long> ticks = new ArrayList<>();
+            fired.add(ticks);
+            scheduler.schedule(() -> ticks.add(scheduler.getCurrentTick()), delay, 100_000);
+        }
+        scheduler.advance((1L << 24) + 200_000);
+
+        for (int i = 0; i < delays.length; i++) {
+            long first = Math.max(1, delays[i]);
+            List<Long> expected = new ArrayList<>();
+            for (long tick = first; tick <= scheduler.getCurrentTick(); tick += 100_000) {
+                expected.add(tick);
+            }
+            assertEquals(expected, fired.get(i), "delay " + delays[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("A task still running when it comes due again is skipped")
+    void testOverrun() {
+        List<Runnable> handedOut = new ArrayList<>();
+        SimulationScheduler scheduler = new SimulationScheduler(10, handedOut::add);
+        AtomicInteger runs = new AtomicInteger();
+        scheduler.schedule(runs::incrementAndGet, 0, 10);
+        scheduler.advance(3);
+        assertEquals(1, handedOut.size());
+        assertEquals(2, scheduler.getOverrunCount());
+
+        handedOut.get(0).run();
+        scheduler.advance(1);
+        assertEquals(2, handedOut.size());
+        assertEquals(1, runs.get());
+        assertEquals(1, scheduler.getRunCount());
+    }
+
+    @Test
+    @DisplayName("Ticker tasks run before the workers are handed the tick's tasks")
+    void testTickerTasks() {
+        List<Runnable> handedOut = new ArrayList<>();
+        SimulationScheduler scheduler = new SimulationScheduler(10, handedOut::add);
+        List<String> fired = new ArrayList<>();
+        scheduler.schedule(() -> fired.add("batch@" + scheduler.getCurrentTick()), 0, 100);
+        scheduler.scheduleOnTicker(
+                () -> fired.add("control@" + scheduler.getCurrentTick() + " after " + handedOut.size()), 0, 100);
+        scheduler.advance(1);
+        assertEquals(List.of("control@1 after 0"), fired);
+        assertEquals(1, handedOut.size());
+
+        handedOut.get(0).run();
+        scheduler.advance(10);
+        assertEquals(List.of("control@1 after 0", "batch@1", "control@11 after 1"), fired);
+        assertEquals(2, handedOut.size());
+        assertEquals(3, scheduler.getRunCount());
+    }
+
+    @Test
+    @DisplayName("Tasks scheduled by running tasks are placed at the next tick")
+    void testScheduleFromTask() {
+        SimulationScheduler scheduler = new SimulationScheduler(10, Runnable::run);
+        List<String> fired = new ArrayList<>();
+        scheduler.schedule(() -> {
+            if (fired.isEmpty()) {
+                scheduler.schedule(() -> fired.add("admitted@" + scheduler.getCurrentTick()), 50, 1000);
+            }
+            fired.add("ward@" + scheduler.getCurrentTick());
+        }, 0, 100);
+        scheduler.advance(20);
+        assertEquals(List.of("ward@1", "admitted@6", "ward@11"), fired);
+    }
+
+    @Test
+    @DisplayName("The simulated clock runs ahead of real time and waits for every run")
+    void testSimulatedClock() {
+        for (int workers : new int[] {1, 3}) {
+            SimulationScheduler scheduler = new SimulationScheduler(10, workers);
+            scheduler.setStartTimeMillis(1_000_000);
+            List<Long> times = new ArrayList<>();
+            scheduler.schedule(() -> {
+                long time = scheduler.currentTimeMillis();
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                synchronized (times) {
+                    times.add(time);
+                }
+            }, 0, 1000);
+            long start = System.nanoTime();
+            scheduler.runSimulated(Double.POSITIVE_INFINITY, 360_000);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            scheduler.close();
+
+            assertTrue(elapsed < 3600_000 / 10, "simulated an hour in " + elapsed + " ms");
+            assertEquals(0, scheduler.getOverrunCount());
+            assertEquals(3600, times.size());
+            for (int i = 0; i < times.size(); i++) {
+                assertEquals(1_000_010 + 1000L * i, times.get(i));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The simulated clock can run at a multiple of real time")
+    void testSimulatedSpeed() {
+        SimulationScheduler scheduler = new SimulationScheduler(10, 1);
+        long start = System.nanoTime();
+        scheduler.runSimulated(20, 100);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        scheduler.close();
+        assertTrue(elapsed >= 45 && elapsed < 1000, "simulated a second in " + elapsed + " ms");
+        assertEquals(100, scheduler.getCurrentTick());
+    }
+
+    @Test
+    @DisplayName("The ticker thread runs tasks in real time on the workers")
+    void testRealTime() throws InterruptedException {
+        SimulationScheduler scheduler = new SimulationScheduler(5, 2);
+        CountDownLatch latch = new CountDownLatch(10);
+        List<String> threads = new ArrayList<>();
+        scheduler.schedule(() -> {
+            synchronized (threads) {
+                threads.add(Thread.currentThread().getName());
+            }
+            latch.countDown();
+        }, 0, 10);
+        long start = System.nanoTime();
+        scheduler.start();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        scheduler.close();
+
+        assertTrue(elapsed >= 85, "ran ahead of real time: " + elapsed + " ms");
+        synchronized (threads) {
+            assertTrue(threads.stream().allMatch("simulation-worker"::equals));
+        }
+    }
+}
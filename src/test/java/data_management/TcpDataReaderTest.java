@@ -0,0 +1,92 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.data_management.DataStorage;
+import com.data_management.TcpDataReader;
+
+class TcpDataReaderTest {
+
+    private DataStorage storage;
+    private TcpDataReader reader;
+
+    @BeforeEach
+    void setUp() {
+        DataStorage.setInstance(null);
+        storage = DataStorage.getInstance();
+        reader = new TcpDataReader(100);
+        reader.startReading(storage);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        reader.disconnect();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static void send(Socket socket, String text) throws Exception {
+        OutputStream out = socket.getOutputStream();
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    @Test
+    @DisplayName("Records split across reads")
+    void testPartialReads() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            reader.connect("tcp://localhost:" + server.getLocalPort());
+            try (Socket socket = server.accept()) {
+                send(socket, "1,1627849261000,HeartRate,72.5\n1,1627849262000,Heart");
+                await(() -> storage.getRecords(1, 0, Long.MAX_VALUE).size() == 1);
+
+                send(socket, "Rate,80.0\ncorrupted,data\n2,1627849263000,ECG,0.5\n");
+                await(() -> storage.getRecords(2, 0, Long.MAX_VALUE).size() == 1);
+            }
+        }
+        assertEquals(80.0, storage.getRecords(1, 1627849262000L, 1627849262000L).get(0).getMeasurementValue());
+        assertEquals("HeartRate", storage.getRecords(1, 0, Long.MAX_VALUE).get(1).getRecordType());
+    }
+
+    @Test
+    @DisplayName("Reconnect after the server goes away")
+    void testReconnect() throws Exception {
+        int port;
+        try (ServerSocket server = new ServerSocket(0)) {
+            port = server.getLocalPort();
+            reader.connect("localhost:" + port);
+            try (Socket socket = server.accept()) {
+                send(socket, "3,1000,ECG,0.1\n");
+                await(() -> storage.getRecords(3, 0, Long.MAX_VALUE).size() == 1);
+            }
+        }
+        await(() -> !reader.isConnected());
+
+        try (ServerSocket server = new ServerSocket()) {
+            server.setReuseAddress(true);
+            server.bind(new InetSocketAddress(port));
+            try (Socket socket = server.accept()) {
+                send(socket, "3,2000,ECG,0.2\n");
+                await(() -> storage.getRecords(3, 0, Long.MAX_VALUE).size() == 2);
+            }
+        }
+    }
+}
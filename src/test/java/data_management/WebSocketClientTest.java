@@ -2,9 +2,12 @@ package data_management;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import com.cardio_generator.outputs.BinaryFrameCodec;
 import com.data_management.DataStorage;
+import com.data_management.RecordBatch;
 import com.data_management.WebSocketClient;
 
 import javax.websocket.*;
@@ -12,7 +15,9 @@ import javax.websocket.*;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -69,6 +74,34 @@ class WebSocketClientTest {
         verify(mockDataStorage, times(1)).addPatientData(1, 72.5, "HeartRate", 1627849261000L);
     }
 
+    @Test
+    void testOnBinaryFrame() {
+        ByteBuffer frame = ByteBuffer.allocate(BinaryFrameCodec.frameSize(2));
+        BinaryFrameCodec.startFrame(frame);
+        BinaryFrameCodec.putSample(frame, 1, 1627849261000L, BinaryFrameCodec.labelCode("Saturation"), 97.0);
+        BinaryFrameCodec.putSample(frame, 2, 1627849261001L, BinaryFrameCodec.labelCode("ECG"), -0.25);
+        BinaryFrameCodec.finishFrame(frame);
+
+        client.onMessage(frame);
+
+        ArgumentCaptor<RecordBatch> captor = ArgumentCaptor.forClass(RecordBatch.class);
+        verify(mockDataStorage, times(1)).addPatientData(captor.capture());
+        RecordBatch batch = captor.getValue();
+        assertEquals(2, batch.size());
+        assertEquals(1, batch.getPatientId(0));
+        assertEquals(97.0, batch.getMeasurementValue(0));
+        assertEquals("Saturation", batch.getRecordType(0));
+        assertEquals(1627849261000L, batch.getTimestamp(0));
+        assertEquals("ECG", batch.getRecordType(1));
+        assertEquals(-0.25, batch.getMeasurementValue(1));
+    }
+
+    @Test
+    void testOnCorruptedBinaryFrame() {
+        client.onMessage(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+        verify(mockDataStorage, times(0)).addPatientData(any(RecordBatch.class));
+    }
+
     @Test
     void testReconnectOnClose() throws IOException, URISyntaxException {
         WebSocketClient spyClient = Mockito.spy(client);
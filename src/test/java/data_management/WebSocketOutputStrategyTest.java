@@ -0,0 +1,177 @@
+package data_management;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.outputs.BinaryFrameCodec;
+import com.cardio_generator.outputs.SampleBatch;
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+
+class WebSocketOutputStrategyTest {
+
+    private int port;
+    private WebSocketOutputStrategy output;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        output = new WebSocketOutputStrategy(port);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        output.close();
+    }
+
+    /**
+     * Connects a client that queues each text message as is and each sample of a binary frame
+     * as {@code binary:patientId,timestamp,label,value}.
+     */
+    private WebSocketClient connect(String query, BlockingQueue<String> received) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            CountDownLatch open = new CountDownLatch(1);
+            WebSocketClient client = new WebSocketClient(new URI("ws://localhost:" + port + "/" + query)) {
+                @Override
+                public void onOpen(ServerHandshake handshake) {
+                    open.countDown();
+                }
+
+                @Override
+                public void onMessage(String message) {
+                    received.add(message);
+                }
+
+                @Override
+                public void onMessage(ByteBuffer frame) {
+                    int samples = BinaryFrameCodec.readHeader(frame);
+                    for (int i = 0; i < samples; i++) {
+                        int patientId = frame.getInt();
+                        long timestamp = frame.getLong();
+                        double value = frame.getDouble();
+                        received.add("binary:" + patientId + "," + timestamp + ","
+                                + BinaryFrameCodec.label(frame.get()) + "," + value);
+                    }
+                }
+
+                @Override
+                public void onClose(int code, String reason, boolean remote) {
+                }
+
+                @Override
+                public void onError(Exception ex) {
+                }
+            };
+            // The server starts asynchronously; retry until it accepts the connection.
+            if (client.connectBlocking(1, TimeUnit.SECONDS)) {
+                assertTrue(open.await(5, TimeUnit.SECONDS));
+                // The server reads the client's format just after accepting it.
+                Thread.sleep(100);
+                return client;
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "server did not accept the connection");
+        }
+    }
+
+    @Test
+    @DisplayName("Only an exact format=binary parameter selects binary frames")
+    void testFormatQuery() throws Exception {
+        BlockingQueue<String> prefixed = new LinkedBlockingQueue<>();
+        BlockingQueue<String> binary = new LinkedBlockingQueue<>();
+        WebSocketClient prefixedClient = connect("?xformat=binary", prefixed);
+        WebSocketClient binaryClient = connect("?patient=1&format=binary", binary);
+
+        output.output(1, 1000, "Saturation", "97%");
+        assertEquals("1,1000,Saturation,97%", prefixed.poll(5, TimeUnit.SECONDS));
+        assertEquals("binary:1,1000,Saturation,97.0", binary.poll(5, TimeUnit.SECONDS));
+        prefixedClient.closeBlocking();
+        binaryClient.closeBlocking();
+    }
+
+    @Test
+    @DisplayName("Binary clients receive samples sent as text after the frame pending before them")
+    void testBinaryOrder() throws Exception {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        WebSocketClient client = connect("?format=binary", received);
+
+        output.output(1, 1000, "Saturation", "97%");
+        output.output(1, 1000, "Alert", "triggered");
+        output.output(1, 2000, "Saturation", "96%");
+        assertEquals("binary:1,1000,Saturation,97.0", received.poll(5, TimeUnit.SECONDS));
+        assertEquals("1,1000,Alert,triggered", received.poll(5, TimeUnit.SECONDS));
+        assertEquals("binary:1,2000,Saturation,96.0", received.poll(5, TimeUnit.SECONDS));
+        client.closeBlocking();
+    }
+
+    @Test
+    @DisplayName("Batches are validated and send samples without a label code as text to binary clients")
+    void testBatch() throws Exception {
+        BlockingQueue<String> text = new LinkedBlockingQueue<>();
+        BlockingQueue<String> binary = new LinkedBlockingQueue<>();
+        WebSocketClient textClient = connect("", text);
+        WebSocketClient binaryClient = connect("?format=binary", binary);
+
+        SampleBatch batch = new SampleBatch(4);
+        batch.add(1, 1000, "Saturation", 97, "%");
+        batch.add(1, 1000, "HeartRate", 72);
+        batch.add(0, 1000, "Saturation", 50, "%"); // invalid patient ID
+        batch.add(1, 2000, "ECG", 0.5);
+        output.outputBatch(batch);
+
+        assertEquals("1,1000,Saturation,97.0%", text.poll(5, TimeUnit.SECONDS));
+        assertEquals("1,1000,HeartRate,72.0", text.poll(5, TimeUnit.SECONDS));
+        assertEquals("1,2000,ECG,0.5", text.poll(5, TimeUnit.SECONDS));
+        assertEquals("binary:1,1000,Saturation,97.0", binary.poll(5, TimeUnit.SECONDS));
+        assertEquals("1,1000,HeartRate,72.0", binary.poll(5, TimeUnit.SECONDS));
+        assertEquals("binary:1,2000,ECG,0.5", binary.poll(5, TimeUnit.SECONDS));
+        output.close();
+        assertTrue(text.isEmpty());
+        assertTrue(binary.isEmpty());
+        textClient.closeBlocking();
+        binaryClient.closeBlocking();
+    }
+
+    @Test
+    @DisplayName("Closing sends the pending frame and stops the server and the flusher")
+    void testClose() throws Exception {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        connect("?format=binary", received);
+        output.output(1, 1000, "ECG", "0.5");
+        output.close();
+        assertEquals("binary:1,1000,ECG,0.5", received.poll(5, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (flusherRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(flusherRunning());
+        try (Socket socket = new Socket()) {
+            assertThrows(IOException.class,
+                    () -> socket.connect(new InetSocketAddress("localhost", port), 1000));
+        }
+    }
+
+    private static boolean flusherRunning() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("websocket-frame-flusher") && thread.isAlive());
+    }
+}